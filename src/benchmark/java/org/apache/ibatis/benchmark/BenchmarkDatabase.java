@@ -0,0 +1,108 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.benchmark;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.ibatis.builder.xml.XMLMapperBuilder;
+import org.apache.ibatis.datasource.pooled.PooledDataSource;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.mapping.Environment;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.LocalCacheScope;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.apache.ibatis.transaction.jdbc.JdbcTransactionFactory;
+
+/**
+ * In-memory HSQLDB database shared by the benchmarks: {@value #AUTHORS} authors with {@value #POSTS_PER_AUTHOR}
+ * posts each.
+ */
+final class BenchmarkDatabase {
+
+  static final int AUTHORS = 100;
+  static final int POSTS_PER_AUTHOR = 10;
+
+  private static final String MAPPER = "org/apache/ibatis/benchmark/BenchmarkMapper.xml";
+  private static final AtomicInteger sequence = new AtomicInteger();
+
+  private BenchmarkDatabase() {
+  }
+
+  /**
+   * Creates a pooled data source on a new, empty in-memory database.
+   */
+  static PooledDataSource newDataSource() {
+    PooledDataSource dataSource = new PooledDataSource("org.hsqldb.jdbcDriver",
+        "jdbc:hsqldb:mem:benchmark" + sequence.incrementAndGet(), "sa", "");
+    dataSource.setPoolMaximumActiveConnections(64);
+    dataSource.setPoolMaximumIdleConnections(64);
+    return dataSource;
+  }
+
+  /**
+   * Creates a session factory on a new database filled with the benchmark data. The local cache is scoped to the
+   * statement so that every query reaches the database.
+   */
+  static SqlSessionFactory newSqlSessionFactory() throws IOException, SQLException {
+    PooledDataSource dataSource = newDataSource();
+    createSchema(dataSource);
+    Configuration configuration = new Configuration(new Environment("benchmark", new JdbcTransactionFactory(), dataSource));
+    configuration.setLocalCacheScope(LocalCacheScope.STATEMENT);
+    try (InputStream inputStream = Resources.getResourceAsStream(MAPPER)) {
+      new XMLMapperBuilder(inputStream, configuration, MAPPER, configuration.getSqlFragments()).parse();
+    }
+    return new SqlSessionFactoryBuilder().build(configuration);
+  }
+
+  private static void createSchema(PooledDataSource dataSource) throws SQLException {
+    try (Connection connection = dataSource.getConnection()) {
+      try (Statement statement = connection.createStatement()) {
+        statement.execute("create table author (id int primary key, username varchar(32), email varchar(64))");
+        statement.execute("create table post (id int primary key, author_id int, subject varchar(64), body varchar(1024))");
+      }
+      try (PreparedStatement author = connection.prepareStatement("insert into author values (?, ?, ?)");
+          PreparedStatement post = connection.prepareStatement("insert into post values (?, ?, ?, ?)")) {
+        for (int i = 0; i < AUTHORS; i++) {
+          author.setInt(1, i);
+          author.setString(2, "author" + i);
+          author.setString(3, "author" + i + "@example.com");
+          author.addBatch();
+          for (int j = 0; j < POSTS_PER_AUTHOR; j++) {
+            int id = i * POSTS_PER_AUTHOR + j;
+            post.setInt(1, id);
+            post.setInt(2, i);
+            post.setString(3, "subject " + id);
+            post.setString(4, "body of post " + id);
+            post.addBatch();
+          }
+        }
+        author.executeBatch();
+        post.executeBatch();
+      }
+      if (!connection.getAutoCommit()) {
+        connection.commit();
+      }
+    }
+  }
+
+}
@@ -0,0 +1,100 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.benchmark;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.decorators.LruCache;
+import org.apache.ibatis.cache.impl.ConcurrentCache;
+import org.apache.ibatis.cache.impl.PerpetualCache;
+import org.apache.ibatis.mapping.CacheBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.annotations.Threads;
+
+/**
+ * Second-level cache throughput with 1, 8 and 32 threads: the default synchronized LRU stack against
+ * {@link ConcurrentCache}. One operation in twenty is a write.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CacheBenchmark {
+
+  private static final int KEYS = 4096;
+
+  @Param({ "LRU", "CONCURRENT" })
+  public String type;
+
+  private Cache cache;
+
+  @Setup
+  public void setUp() {
+    CacheBuilder builder = new CacheBuilder("benchmark").size(1024).readWrite(false);
+    if ("CONCURRENT".equals(type)) {
+      builder.implementation(ConcurrentCache.class);
+    } else {
+      builder.implementation(PerpetualCache.class).addDecorator(LruCache.class);
+    }
+    cache = builder.build();
+    for (int i = 0; i < KEYS; i++) {
+      cache.putObject(i, i);
+    }
+  }
+
+  @Benchmark
+  @Threads(1)
+  public Object oneThread() {
+    return access();
+  }
+
+  @Benchmark
+  @Threads(8)
+  public Object eightThreads() {
+    return access();
+  }
+
+  @Benchmark
+  @Threads(32)
+  public Object thirtyTwoThreads() {
+    return access();
+  }
+
+  private Object access() {
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    Integer key = random.nextInt(KEYS);
+    if (random.nextInt(20) == 0) {
+      cache.putObject(key, key);
+      return key;
+    }
+    return cache.getObject(key);
+  }
+
+}
@@ -0,0 +1,96 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ibatis.cache.CacheKey;
+import org.apache.ibatis.cache.CompactCacheKey;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Builds, clones and compares cache keys the way {@code BaseExecutor.createCacheKey()} builds them, with the
+ * full and the compact representation.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CacheKeyBenchmark {
+
+  @Param({ "false", "true" })
+  public boolean compact;
+
+  @Param({ "4", "1000" })
+  public int parameterCount;
+
+  private String sql;
+  private Object[] parameters;
+  private CacheKey key;
+
+  @Setup
+  public void setUp() {
+    StringBuilder builder = new StringBuilder("select id, username, email from author where id in (");
+    parameters = new Object[parameterCount];
+    for (int i = 0; i < parameterCount; i++) {
+      builder.append(i == 0 ? "?" : ", ?");
+      parameters[i] = i;
+    }
+    sql = builder.append(')').toString();
+    key = createCacheKey();
+  }
+
+  @Benchmark
+  public CacheKey create() {
+    return createCacheKey();
+  }
+
+  @Benchmark
+  public boolean createAndCompare() {
+    return createCacheKey().equals(key);
+  }
+
+  @Benchmark
+  public CacheKey cloneKey() throws CloneNotSupportedException {
+    return key.clone();
+  }
+
+  private CacheKey createCacheKey() {
+    CacheKey cacheKey = compact ? new CompactCacheKey() : new CacheKey();
+    cacheKey.update("org.apache.ibatis.benchmark.BenchmarkMapper.selectAuthorsByIds");
+    cacheKey.update(0);
+    cacheKey.update(Integer.MAX_VALUE);
+    cacheKey.update(sql);
+    for (Object parameter : parameters) {
+      cacheKey.update(parameter);
+    }
+    cacheKey.update("benchmark");
+    return cacheKey;
+  }
+
+}
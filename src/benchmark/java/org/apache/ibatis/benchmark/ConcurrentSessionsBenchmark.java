@@ -0,0 +1,115 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ibatis.datasource.pooled.PooledDataSource;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Runs {@value #SESSIONS} sessions at once, each querying one author, against a pool of {@value #CONNECTIONS}
+ * connections, so that almost all of them wait for a connection. With virtual threads, waiting inside a monitor
+ * would pin the carrier threads and starve the sessions that hold a connection; the time per batch shows whether
+ * that happens. The virtual thread variant needs Java 21 or later.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(1)
+public class ConcurrentSessionsBenchmark {
+
+  static final int SESSIONS = 10000;
+  static final int CONNECTIONS = 16;
+
+  private static final String STATEMENT = "org.apache.ibatis.benchmark.BenchmarkMapper.selectAuthor";
+
+  @Param({ "platform", "virtual" })
+  public String threads;
+
+  @Param({ "false", "true" })
+  public boolean lockFree;
+
+  private SqlSessionFactory sqlSessionFactory;
+  private ExecutorService executor;
+
+  @Setup(Level.Trial)
+  public void setUp() throws Exception {
+    sqlSessionFactory = BenchmarkDatabase.newSqlSessionFactory();
+    PooledDataSource dataSource = (PooledDataSource) sqlSessionFactory.getConfiguration().getEnvironment().getDataSource();
+    dataSource.setPoolMaximumActiveConnections(CONNECTIONS);
+    dataSource.setPoolMaximumIdleConnections(CONNECTIONS);
+    dataSource.setPoolTimeToWait(60000);
+    dataSource.setPoolLockFree(lockFree);
+    executor = "virtual".equals(threads) ? newVirtualThreadPerTaskExecutor() : Executors.newFixedThreadPool(256);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    executor.shutdownNow();
+    ((PooledDataSource) sqlSessionFactory.getConfiguration().getEnvironment().getDataSource()).forceCloseAll();
+  }
+
+  @Benchmark
+  public int concurrentSessions() throws Exception {
+    List<Future<Author>> futures = new ArrayList<>(SESSIONS);
+    for (int i = 0; i < SESSIONS; i++) {
+      int id = i % BenchmarkDatabase.AUTHORS;
+      futures.add(executor.submit(() -> {
+        try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+          return sqlSession.selectOne(STATEMENT, id);
+        }
+      }));
+    }
+    int found = 0;
+    for (Future<Author> future : futures) {
+      if (future.get() != null) {
+        found++;
+      }
+    }
+    return found;
+  }
+
+  private static ExecutorService newVirtualThreadPerTaskExecutor() {
+    try {
+      return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+    } catch (ReflectiveOperationException e) {
+      throw new IllegalStateException("Virtual threads require Java 21 or later, run with -p threads=platform", e);
+    }
+  }
+
+}
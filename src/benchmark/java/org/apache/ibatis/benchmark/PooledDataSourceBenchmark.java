@@ -0,0 +1,152 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.benchmark;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ibatis.datasource.pooled.PooledDataSource;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Borrows and returns pooled connections under contention, in the classic and the lock-free pool mode, with and
+ * without the prepared statement cache. Also compares calls through the pooled connection, a plain getter and a
+ * prepareStatement/close round trip, with the same calls through a JDK proxy, which is how pooled connections used to be
+ * handed out.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PooledDataSourceBenchmark {
+
+  private static final String SQL = "select 1 from (values(0))";
+
+  @Param({ "false", "true" })
+  public boolean lockFree;
+
+  @Param({ "0", "16" })
+  public int statementCacheSize;
+
+  private PooledDataSource dataSource;
+
+  @Setup(Level.Trial)
+  public void setUp() throws SQLException {
+    dataSource = BenchmarkDatabase.newDataSource();
+    dataSource.setPoolMaximumActiveConnections(8);
+    dataSource.setPoolMaximumIdleConnections(8);
+    dataSource.setPoolLockFree(lockFree);
+    dataSource.setPoolPreparedStatementCacheSize(statementCacheSize);
+    // open the connections up front so that creating them is not measured
+    Connection[] connections = new Connection[8];
+    for (int i = 0; i < connections.length; i++) {
+      connections[i] = dataSource.getConnection();
+    }
+    for (Connection connection : connections) {
+      connection.close();
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    dataSource.forceCloseAll();
+  }
+
+  @Benchmark
+  @Threads(16)
+  public void borrowAndReturn() throws SQLException {
+    dataSource.getConnection().close();
+  }
+
+  @Benchmark
+  @Threads(16)
+  public void borrowAndPrepare() throws SQLException {
+    try (Connection connection = dataSource.getConnection();
+        PreparedStatement statement = connection.prepareStatement(SQL)) {
+      statement.getFetchSize();
+    }
+  }
+
+  @State(Scope.Thread)
+  public static class HeldConnection {
+
+    Connection pooled;
+    Connection proxy;
+
+    @Setup(Level.Trial)
+    public void setUp(PooledDataSourceBenchmark benchmark) throws SQLException {
+      pooled = benchmark.dataSource.getConnection();
+      Connection real = PooledDataSource.unwrapConnection(pooled);
+      proxy = (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[] { Connection.class },
+          (p, method, args) -> {
+            try {
+              return method.invoke(real, args);
+            } catch (InvocationTargetException e) {
+              throw e.getCause();
+            }
+          });
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+      pooled.close();
+    }
+  }
+
+  @Benchmark
+  public boolean pooledConnectionCall(HeldConnection held) throws SQLException {
+    return held.pooled.getAutoCommit();
+  }
+
+  @Benchmark
+  public boolean proxyConnectionCall(HeldConnection held) throws SQLException {
+    return held.proxy.getAutoCommit();
+  }
+
+  @Benchmark
+  public int pooledConnectionPrepare(HeldConnection held) throws SQLException {
+    try (PreparedStatement statement = held.pooled.prepareStatement(SQL)) {
+      return statement.getFetchSize();
+    }
+  }
+
+  @Benchmark
+  public int proxyConnectionPrepare(HeldConnection held) throws SQLException {
+    try (PreparedStatement statement = held.proxy.prepareStatement(SQL)) {
+      return statement.getFetchSize();
+    }
+  }
+
+}
@@ -0,0 +1,91 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Queries through {@link SqlSession} and mapper proxies, mapping rows with automatic mapping and with a nested
+ * result map.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SqlSessionBenchmark {
+
+  private static final String NAMESPACE = "org.apache.ibatis.benchmark.BenchmarkMapper.";
+
+  private SqlSession sqlSession;
+  private BenchmarkMapper mapper;
+  private int id;
+
+  @Setup(Level.Trial)
+  public void setUp() throws Exception {
+    SqlSessionFactory sqlSessionFactory = BenchmarkDatabase.newSqlSessionFactory();
+    sqlSession = sqlSessionFactory.openSession();
+    mapper = sqlSession.getMapper(BenchmarkMapper.class);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    sqlSession.close();
+  }
+
+  @Benchmark
+  public Author selectOne() {
+    return sqlSession.selectOne(NAMESPACE + "selectAuthor", nextId());
+  }
+
+  @Benchmark
+  public Author selectOneThroughMapper() {
+    return mapper.selectAuthor(nextId());
+  }
+
+  @Benchmark
+  public List<Author> selectList() {
+    return sqlSession.selectList(NAMESPACE + "selectAuthors");
+  }
+
+  @Benchmark
+  public List<Author> selectListWithNestedResultMap() {
+    return mapper.selectAuthorsWithPosts();
+  }
+
+  private int nextId() {
+    id = (id + 1) % BenchmarkDatabase.AUTHORS;
+    return id;
+  }
+
+}
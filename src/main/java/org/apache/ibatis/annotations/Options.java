@@ -144,6 +144,15 @@ public @interface Options {
    */
   String databaseId() default "";
 
+  /**
+   * Returns the number of milliseconds above which an execution of the statement is added to the slow statement log.
+   * A negative value means the {@code slowStatementThreshold} setting applies, 0 means the executions are not checked.
+   *
+   * @return the slow statement threshold
+   * @since 3.5.6
+   */
+  int slowThreshold() default -1;
+
   /**
    * The container annotation for {@link Options}.
    * @author Kazuki Shimizu
@@ -23,10 +23,12 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
 import org.apache.ibatis.annotations.Flush;
 import org.apache.ibatis.annotations.MapKey;
 import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.cursor.CursorPublisher;
 import org.apache.ibatis.mapping.MappedStatement;
 import org.apache.ibatis.mapping.SqlCommandType;
 import org.apache.ibatis.mapping.StatementType;
@@ -94,6 +96,9 @@ public class MapperMethod {
                 } else if (method.returnsCursor()) {
                     // executeForMap()方法处理返回值为Cursor的场景
                     result = executeForCursor(sqlSession, args);
+                } else if (method.returnsPublisher()) {
+                    // executeForPublisher()方法处理返回值为CursorPublisher的场景
+                    result = executeForPublisher(sqlSession, args);
                 } else {
                     // 下面是针对返回值为Optional或是其他类型单一对象的处理
                     Object param = method.convertArgsToSqlCommandParam(args);
@@ -114,6 +119,11 @@ public class MapperMethod {
             throw new BindingException("Mapper method '" + command.getName()
                     + " attempted to return null from a method with a primitive return type (" + method.getReturnType() + ").");
         }
+        if (method.returnsFuture()) {
+            // 返回值为CompletableFuture时，在当前SqlSession中同步执行，并返回已完成的CompletableFuture，
+            // 通过AsyncSqlSession获取的Mapper对象会在独立的线程和SqlSession中调用该方法
+            return CompletableFuture.completedFuture(result);
+        }
         return result;
     }
 
@@ -189,6 +199,18 @@ public class MapperMethod {
         return result;
     }
 
+    private <T> CursorPublisher<T> executeForPublisher(SqlSession sqlSession, Object[] args) {
+        CursorPublisher<T> result;
+        Object param = method.convertArgsToSqlCommandParam(args);
+        if (method.hasRowBounds()) {
+            RowBounds rowBounds = method.extractRowBounds(args);
+            result = sqlSession.selectPublisher(command.getName(), param, rowBounds);
+        } else {
+            result = sqlSession.selectPublisher(command.getName(), param);
+        }
+        return result;
+    }
+
     private <E> Object convertToDeclaredCollection(Configuration config, List<E> list) {
         Object collection = config.getObjectFactory().create(method.getReturnType());
         MetaObject metaObject = config.newMetaObject(collection);
@@ -314,6 +336,8 @@ public class MapperMethod {
         private final boolean returnsMap;
         private final boolean returnsVoid;
         private final boolean returnsCursor;
+        private final boolean returnsPublisher;
+        private final boolean returnsFuture;
         private final boolean returnsOptional;
         private final Class<?> returnType;
         private final String mapKey;
@@ -324,21 +348,28 @@ public class MapperMethod {
         public MethodSignature(Configuration configuration, Class<?> mapperInterface, Method method) {
             // 通过TypeParameterResolver工具类解析方法的返回值类型，初始化returnType字段值
             Type resolvedReturnType = TypeParameterResolver.resolveReturnType(method, mapperInterface);
+            // 返回值为CompletableFuture时，其类型参数才是真正的返回值类型
+            this.returnsFuture = resolvedReturnType instanceof ParameterizedType
+                    && CompletableFuture.class.equals(((ParameterizedType) resolvedReturnType).getRawType());
+            if (this.returnsFuture) {
+                resolvedReturnType = ((ParameterizedType) resolvedReturnType).getActualTypeArguments()[0];
+            }
             if (resolvedReturnType instanceof Class<?>) {
                 this.returnType = (Class<?>) resolvedReturnType;
             } else if (resolvedReturnType instanceof ParameterizedType) {
                 this.returnType = (Class<?>) ((ParameterizedType) resolvedReturnType).getRawType();
             } else {
-                this.returnType = method.getReturnType();
+                this.returnType = this.returnsFuture ? Object.class : method.getReturnType();
             }
             // 根据返回值类型，初始化returnsVoid、returnsMany、returnsCursor、
             // returnsMap、returnsOptional这五个与方法返回值类型的相关的字段
-            this.returnsVoid = void.class.equals(this.returnType);
+            this.returnsVoid = void.class.equals(this.returnType) || (this.returnsFuture && Void.class.equals(this.returnType));
             this.returnsMany = configuration.getObjectFactory().isCollection(this.returnType) || this.returnType.isArray();
             this.returnsCursor = Cursor.class.equals(this.returnType);
+            this.returnsPublisher = CursorPublisher.class.equals(this.returnType);
             this.returnsOptional = Optional.class.equals(this.returnType);
             // 如果返回值为Map类型，则从方法的@MapKey注解中获取Map中为key的字段名称
-            this.mapKey = getMapKey(method);
+            this.mapKey = getMapKey(method, this.returnType);
             this.returnsMap = this.mapKey != null;
             // 解析方法中RowBounds类型参数以及ResultHandler类型参数的下标索引位置，
             // 初始化rowBoundsIndex和resultHandlerIndex字段
@@ -389,6 +420,27 @@ public class MapperMethod {
             return returnsCursor;
         }
 
+        /**
+         * return whether return type is {@link CursorPublisher}.
+         *
+         * @return return {@code true}, if return type is {@link CursorPublisher}
+         * @since 3.5.6
+         */
+        public boolean returnsPublisher() {
+            return returnsPublisher;
+        }
+
+        /**
+         * return whether return type is {@link CompletableFuture}, in which case {@link #getReturnType()} is the type
+         * of its result.
+         *
+         * @return return {@code true}, if return type is {@link CompletableFuture}
+         * @since 3.5.6
+         */
+        public boolean returnsFuture() {
+            return returnsFuture;
+        }
+
         /**
          * return whether return type is {@code java.util.Optional}.
          *
@@ -418,9 +470,9 @@ public class MapperMethod {
             return mapKey;
         }
 
-        private String getMapKey(Method method) {
+        private String getMapKey(Method method, Class<?> returnType) {
             String mapKey = null;
-            if (Map.class.isAssignableFrom(method.getReturnType())) {
+            if (Map.class.isAssignableFrom(returnType)) {
                 final MapKey mapKeyAnnotation = method.getAnnotation(MapKey.class);
                 if (mapKeyAnnotation != null) {
                     mapKey = mapKeyAnnotation.value();
@@ -138,6 +138,9 @@ public class MapperBuilderAssistant extends BaseBuilder {
                 .properties(props)
                 .build();
         configuration.addCache(cache);
+        if (!readWrite) {
+            configuration.addReadOnlyCache(cache.getId());
+        }
         currentCache = cache;
         return cache;
     }
@@ -270,7 +273,8 @@ public class MapperBuilderAssistant extends BaseBuilder {
             String keyColumn,
             String databaseId,
             LanguageDriver lang,
-            String resultSets) {
+            String resultSets,
+            Integer slowThreshold) {
 
         if (unresolvedCacheRef) {
             throw new IncompleteElementException("Cache-ref not yet resolved");
@@ -283,6 +287,7 @@ public class MapperBuilderAssistant extends BaseBuilder {
                 .resource(resource)
                 .fetchSize(fetchSize)
                 .timeout(timeout)
+                .slowThreshold(slowThreshold)
                 .statementType(statementType)
                 .keyGenerator(keyGenerator)
                 .keyProperty(keyProperty)
@@ -307,6 +312,34 @@ public class MapperBuilderAssistant extends BaseBuilder {
         return statement;
     }
 
+    public MappedStatement addMappedStatement(
+            String id,
+            SqlSource sqlSource,
+            StatementType statementType,
+            SqlCommandType sqlCommandType,
+            Integer fetchSize,
+            Integer timeout,
+            String parameterMap,
+            Class<?> parameterType,
+            String resultMap,
+            Class<?> resultType,
+            ResultSetType resultSetType,
+            boolean flushCache,
+            boolean useCache,
+            boolean resultOrdered,
+            KeyGenerator keyGenerator,
+            String keyProperty,
+            String keyColumn,
+            String databaseId,
+            LanguageDriver lang,
+            String resultSets) {
+        return addMappedStatement(
+                id, sqlSource, statementType, sqlCommandType, fetchSize, timeout,
+                parameterMap, parameterType, resultMap, resultType, resultSetType,
+                flushCache, useCache, resultOrdered, keyGenerator, keyProperty,
+                keyColumn, databaseId, lang, resultSets, null);
+    }
+
     /**
      * Backward compatibility signature 'addMappedStatement'.
      *
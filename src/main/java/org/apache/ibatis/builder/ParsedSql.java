@@ -0,0 +1,114 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.builder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.ibatis.mapping.ParameterMapping;
+import org.apache.ibatis.reflection.MetaObject;
+import org.apache.ibatis.reflection.property.PropertyTokenizer;
+
+/**
+ * SQL whose <code>#{}</code> placeholders were replaced by <code>?</code>, together with the parsed placeholders, so
+ * that it can be bound to new additional parameters without parsing it again.
+ * <p>
+ * The parameter mapping of a placeholder is reused as long as its property does not refer to an additional parameter,
+ * since its type then only depends on the parameter type. Other mappings are rebuilt on every bind, without parsing.
+ *
+ * @since 3.5.6
+ * @see SqlSourceBuilder#parseReusable(String, Class, Map)
+ */
+public class ParsedSql {
+
+  private final SqlSourceBuilder builder;
+  private final String sql;
+  private final Class<?> parameterType;
+  private final Placeholder[] placeholders;
+
+  ParsedSql(SqlSourceBuilder builder, String sql, Class<?> parameterType, List<Placeholder> placeholders) {
+    this.builder = builder;
+    this.sql = sql;
+    this.parameterType = parameterType;
+    this.placeholders = placeholders.toArray(new Placeholder[0]);
+  }
+
+  public String getSql() {
+    return sql;
+  }
+
+  /**
+   * Returns the parameter mappings of the placeholders.
+   *
+   * @param additionalParameters the additional parameters of this bind
+   * @return the parameter mappings
+   */
+  public List<ParameterMapping> getParameterMappings(Map<String, Object> additionalParameters) {
+    List<ParameterMapping> parameterMappings = new ArrayList<>(placeholders.length);
+    MetaObject metaParameters = null;
+    for (Placeholder placeholder : placeholders) {
+      if (placeholder.parameterMapping != null && !placeholder.refersTo(additionalParameters)) {
+        parameterMappings.add(placeholder.parameterMapping);
+      } else {
+        if (metaParameters == null) {
+          metaParameters = builder.configuration.newMetaObject(additionalParameters);
+        }
+        parameterMappings.add(builder.buildParameterMapping(placeholder.content, placeholder.propertiesMap,
+            placeholder.propertiesMap.get("property"), parameterType, metaParameters));
+      }
+    }
+    return parameterMappings;
+  }
+
+  /**
+   * Returns the name of the additional parameter that decides the type of a property, if there is one by that name.
+   *
+   * @param property a property of a placeholder
+   * @return the name of the additional parameter, or null if the property is null
+   */
+  public static String getAdditionalParameterName(String property) {
+    if (property == null) {
+      return null;
+    }
+    // see MapWrapper.hasGetter()
+    PropertyTokenizer prop = new PropertyTokenizer(property);
+    return prop.hasNext() ? prop.getIndexedName() : prop.getName();
+  }
+
+  static class Placeholder {
+    private final String content;
+    private final Map<String, String> propertiesMap;
+    private final String additionalParameterName;
+    private final ParameterMapping parameterMapping;
+
+    /**
+     * @param parameterMapping the mapping built when the SQL was parsed, kept only if it can be reused
+     */
+    Placeholder(String content, Map<String, String> propertiesMap, ParameterMapping parameterMapping,
+        Map<String, Object> additionalParameters) {
+      this.content = content;
+      this.propertiesMap = propertiesMap;
+      this.additionalParameterName = getAdditionalParameterName(propertiesMap.get("property"));
+      this.parameterMapping = additionalParameterName == null || refersTo(additionalParameters) ? null : parameterMapping;
+    }
+
+    private boolean refersTo(Map<String, Object> additionalParameters) {
+      return additionalParameters != null && additionalParameters.containsKey(additionalParameterName);
+    }
+  }
+
+}
@@ -41,7 +41,7 @@ public class SqlSourceBuilder extends BaseBuilder {
     }
 
     public SqlSource parse(String originalSql, Class<?> parameterType, Map<String, Object> additionalParameters) {
-        ParameterMappingTokenHandler handler = new ParameterMappingTokenHandler(configuration, parameterType, additionalParameters);
+        ParameterMappingTokenHandler handler = new ParameterMappingTokenHandler(parameterType, additionalParameters);
         GenericTokenParser parser = new GenericTokenParser("#{", "}", handler);
         String sql;
         if (configuration.isShrinkWhitespacesInSql()) {
@@ -52,6 +52,23 @@ public class SqlSourceBuilder extends BaseBuilder {
         return new StaticSqlSource(configuration, sql, handler.getParameterMappings());
     }
 
+    /**
+     * Parses SQL like {@link #parse(String, Class, Map)}, keeping the placeholders so that the result can be bound to
+     * other additional parameters without parsing the SQL again.
+     *
+     * @param originalSql the SQL with <code>#{}</code> placeholders
+     * @param parameterType the type of the parameter object
+     * @param additionalParameters the additional parameters
+     * @return the parsed SQL
+     * @since 3.5.6
+     */
+    public ParsedSql parseReusable(String originalSql, Class<?> parameterType, Map<String, Object> additionalParameters) {
+        ParameterMappingTokenHandler handler = new ParameterMappingTokenHandler(parameterType, additionalParameters);
+        GenericTokenParser parser = new GenericTokenParser("#{", "}", handler);
+        String sql = parser.parse(configuration.isShrinkWhitespacesInSql() ? removeExtraWhitespaces(originalSql) : originalSql);
+        return new ParsedSql(this, sql, parameterType, handler.getPlaceholders());
+    }
+
     public static String removeExtraWhitespaces(String original) {
         StringTokenizer tokenizer = new StringTokenizer(original);
         StringBuilder builder = new StringBuilder();
@@ -66,15 +83,99 @@ public class SqlSourceBuilder extends BaseBuilder {
         return builder.toString();
     }
 
-    private static class ParameterMappingTokenHandler extends BaseBuilder implements TokenHandler {
+    /**
+     * Builds the parameter mapping of a <code>#{}</code> placeholder.
+     *
+     * @param content the content of the placeholder, used in error messages
+     * @param propertiesMap the parsed content of the placeholder, see {@link #parseParameterMapping(String)}
+     * @param property the property of the placeholder, which may differ from the parsed one when it was renamed
+     * @param parameterType the type of the parameter object
+     * @param metaParameters the additional parameters
+     * @return the parameter mapping
+     * @since 3.5.6
+     */
+    public ParameterMapping buildParameterMapping(String content, Map<String, String> propertiesMap, String property,
+            Class<?> parameterType, MetaObject metaParameters) {
+        Class<?> propertyType;
+        if (metaParameters.hasGetter(property)) { // issue #448 get type from additional params
+            propertyType = metaParameters.getGetterType(property);
+        } else if (typeHandlerRegistry.hasTypeHandler(parameterType)) {
+            propertyType = parameterType;
+        } else if (JdbcType.CURSOR.name().equals(propertiesMap.get("jdbcType"))) {
+            propertyType = java.sql.ResultSet.class;
+        } else if (property == null || Map.class.isAssignableFrom(parameterType)) {
+            propertyType = Object.class;
+        } else {
+            MetaClass metaClass = MetaClass.forClass(parameterType, configuration.getReflectorFactory());
+            if (metaClass.hasGetter(property)) {
+                propertyType = metaClass.getGetterType(property);
+            } else {
+                propertyType = Object.class;
+            }
+        }
+        ParameterMapping.Builder builder = new ParameterMapping.Builder(configuration, property, propertyType);
+        Class<?> javaType = propertyType;
+        String typeHandlerAlias = null;
+        for (Map.Entry<String, String> entry : propertiesMap.entrySet()) {
+            String name = entry.getKey();
+            String value = entry.getValue();
+            if ("javaType".equals(name)) {
+                javaType = resolveClass(value);
+                builder.javaType(javaType);
+            } else if ("jdbcType".equals(name)) {
+                builder.jdbcType(resolveJdbcType(value));
+            } else if ("mode".equals(name)) {
+                builder.mode(resolveParameterMode(value));
+            } else if ("numericScale".equals(name)) {
+                builder.numericScale(Integer.valueOf(value));
+            } else if ("resultMap".equals(name)) {
+                builder.resultMapId(value);
+            } else if ("typeHandler".equals(name)) {
+                typeHandlerAlias = value;
+            } else if ("jdbcTypeName".equals(name)) {
+                builder.jdbcTypeName(value);
+            } else if ("property".equals(name)) {
+                // Do Nothing
+            } else if ("expression".equals(name)) {
+                throw new BuilderException("Expression based parameters are not supported yet");
+            } else {
+                throw new BuilderException("An invalid property '" + name + "' was found in mapping #{" + content + "}.  Valid properties are " + PARAMETER_PROPERTIES);
+            }
+        }
+        if (typeHandlerAlias != null) {
+            builder.typeHandler(resolveTypeHandler(javaType, typeHandlerAlias));
+        }
+        return builder.build();
+    }
+
+    /**
+     * Parses the content of a <code>#{}</code> placeholder.
+     *
+     * @param content the content of the placeholder
+     * @return the property and the attributes of the placeholder
+     * @since 3.5.6
+     */
+    public static Map<String, String> parseParameterMapping(String content) {
+        try {
+            return new ParameterExpression(content);
+        } catch (BuilderException ex) {
+            throw ex;
+        } catch (Exception ex) {
+            throw new BuilderException("Parsing error was found in mapping #{" + content + "}.  Check syntax #{property|(expression), var1=value1, var2=value2, ...} ", ex);
+        }
+    }
+
+    private class ParameterMappingTokenHandler implements TokenHandler {
 
         private List<ParameterMapping> parameterMappings = new ArrayList<>();
+        private List<ParsedSql.Placeholder> placeholders = new ArrayList<>();
         private Class<?> parameterType;
+        private Map<String, Object> additionalParameters;
         private MetaObject metaParameters;
 
-        public ParameterMappingTokenHandler(Configuration configuration, Class<?> parameterType, Map<String, Object> additionalParameters) {
-            super(configuration);
+        public ParameterMappingTokenHandler(Class<?> parameterType, Map<String, Object> additionalParameters) {
             this.parameterType = parameterType;
+            this.additionalParameters = additionalParameters;
             this.metaParameters = configuration.newMetaObject(additionalParameters);
         }
 
@@ -82,79 +183,21 @@ public class SqlSourceBuilder extends BaseBuilder {
             return parameterMappings;
         }
 
+        public List<ParsedSql.Placeholder> getPlaceholders() {
+            return placeholders;
+        }
+
         @Override
         public String handleToken(String content) {
             // content是前面通过GenericTokenParser识别到的#{}占位符，
             // 这里通过buildParameterMapping()方法进行解析，得到ParameterMapping对象
-            parameterMappings.add(buildParameterMapping(content));
+            Map<String, String> propertiesMap = parseParameterMapping(content);
+            ParameterMapping parameterMapping = buildParameterMapping(content, propertiesMap, propertiesMap.get("property"), parameterType, metaParameters);
+            parameterMappings.add(parameterMapping);
+            placeholders.add(new ParsedSql.Placeholder(content, propertiesMap, parameterMapping, additionalParameters));
             // 直接返回"?"占位符，替换原有的#{}占位符
             return "?";
         }
-
-        private ParameterMapping buildParameterMapping(String content) {
-            Map<String, String> propertiesMap = parseParameterMapping(content);
-            String property = propertiesMap.get("property");
-            Class<?> propertyType;
-            if (metaParameters.hasGetter(property)) { // issue #448 get type from additional params
-                propertyType = metaParameters.getGetterType(property);
-            } else if (typeHandlerRegistry.hasTypeHandler(parameterType)) {
-                propertyType = parameterType;
-            } else if (JdbcType.CURSOR.name().equals(propertiesMap.get("jdbcType"))) {
-                propertyType = java.sql.ResultSet.class;
-            } else if (property == null || Map.class.isAssignableFrom(parameterType)) {
-                propertyType = Object.class;
-            } else {
-                MetaClass metaClass = MetaClass.forClass(parameterType, configuration.getReflectorFactory());
-                if (metaClass.hasGetter(property)) {
-                    propertyType = metaClass.getGetterType(property);
-                } else {
-                    propertyType = Object.class;
-                }
-            }
-            ParameterMapping.Builder builder = new ParameterMapping.Builder(configuration, property, propertyType);
-            Class<?> javaType = propertyType;
-            String typeHandlerAlias = null;
-            for (Map.Entry<String, String> entry : propertiesMap.entrySet()) {
-                String name = entry.getKey();
-                String value = entry.getValue();
-                if ("javaType".equals(name)) {
-                    javaType = resolveClass(value);
-                    builder.javaType(javaType);
-                } else if ("jdbcType".equals(name)) {
-                    builder.jdbcType(resolveJdbcType(value));
-                } else if ("mode".equals(name)) {
-                    builder.mode(resolveParameterMode(value));
-                } else if ("numericScale".equals(name)) {
-                    builder.numericScale(Integer.valueOf(value));
-                } else if ("resultMap".equals(name)) {
-                    builder.resultMapId(value);
-                } else if ("typeHandler".equals(name)) {
-                    typeHandlerAlias = value;
-                } else if ("jdbcTypeName".equals(name)) {
-                    builder.jdbcTypeName(value);
-                } else if ("property".equals(name)) {
-                    // Do Nothing
-                } else if ("expression".equals(name)) {
-                    throw new BuilderException("Expression based parameters are not supported yet");
-                } else {
-                    throw new BuilderException("An invalid property '" + name + "' was found in mapping #{" + content + "}.  Valid properties are " + PARAMETER_PROPERTIES);
-                }
-            }
-            if (typeHandlerAlias != null) {
-                builder.typeHandler(resolveTypeHandler(javaType, typeHandlerAlias));
-            }
-            return builder.build();
-        }
-
-        private Map<String, String> parseParameterMapping(String content) {
-            try {
-                return new ParameterExpression(content);
-            } catch (BuilderException ex) {
-                throw ex;
-            } catch (Exception ex) {
-                throw new BuilderException("Parsing error was found in mapping #{" + content + "}.  Check syntax #{property|(expression), var1=value1, var2=value2, ...} ", ex);
-            }
-        }
     }
 
 }
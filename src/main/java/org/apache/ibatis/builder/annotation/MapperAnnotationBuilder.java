@@ -27,12 +27,12 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -66,6 +66,7 @@ import org.apache.ibatis.builder.IncompleteElementException;
 import org.apache.ibatis.builder.MapperBuilderAssistant;
 import org.apache.ibatis.builder.xml.XMLMapperBuilder;
 import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.cursor.CursorPublisher;
 import org.apache.ibatis.executor.keygen.Jdbc3KeyGenerator;
 import org.apache.ibatis.executor.keygen.KeyGenerator;
 import org.apache.ibatis.executor.keygen.NoKeyGenerator;
@@ -135,7 +136,7 @@ public class MapperAnnotationBuilder {
                 }
             }
         }
-        parsePendingMethods();
+        configuration.parsePendingMethods(false);
     }
 
     private boolean canHaveStatement(Method method) {
@@ -143,21 +144,6 @@ public class MapperAnnotationBuilder {
         return !method.isBridge() && !method.isDefault();
     }
 
-    private void parsePendingMethods() {
-        Collection<MethodResolver> incompleteMethods = configuration.getIncompleteMethods();
-        synchronized (incompleteMethods) {
-            Iterator<MethodResolver> iter = incompleteMethods.iterator();
-            while (iter.hasNext()) {
-                try {
-                    iter.next().resolve();
-                    iter.remove();
-                } catch (IncompleteElementException e) {
-                    // This method is still missing a resource
-                }
-            }
-        }
-    }
-
     private void loadXmlResource() {
         // Spring may not know the real resource name so we check a flag
         // to prevent loading again a resource twice
@@ -325,6 +311,7 @@ public class MapperAnnotationBuilder {
 
             Integer fetchSize = null;
             Integer timeout = null;
+            Integer slowThreshold = null;
             StatementType statementType = StatementType.PREPARED;
             ResultSetType resultSetType = configuration.getDefaultResultSetType();
             boolean isSelect = sqlCommandType == SqlCommandType.SELECT;
@@ -339,6 +326,7 @@ public class MapperAnnotationBuilder {
                 useCache = options.useCache();
                 fetchSize = options.fetchSize() > -1 || options.fetchSize() == Integer.MIN_VALUE ? options.fetchSize() : null; //issue #348
                 timeout = options.timeout() > -1 ? options.timeout() : null;
+                slowThreshold = options.slowThreshold() > -1 ? options.slowThreshold() : null;
                 statementType = options.statementType();
                 if (options.resultSetType() != ResultSetType.DEFAULT) {
                     resultSetType = options.resultSetType();
@@ -378,7 +366,8 @@ public class MapperAnnotationBuilder {
                     statementAnnotation.getDatabaseId(),
                     languageDriver,
                     // ResultSets
-                    options != null ? nullOrEmpty(options.resultSets()) : null);
+                    options != null ? nullOrEmpty(options.resultSets()) : null,
+                    slowThreshold);
         });
     }
 
@@ -410,6 +399,12 @@ public class MapperAnnotationBuilder {
     private Class<?> getReturnType(Method method) {
         Class<?> returnType = method.getReturnType();
         Type resolvedReturnType = TypeParameterResolver.resolveReturnType(method, type);
+        if (resolvedReturnType instanceof ParameterizedType
+                && CompletableFuture.class.equals(((ParameterizedType) resolvedReturnType).getRawType())) {
+            // 返回值为CompletableFuture时，按照其类型参数推断结果类型
+            resolvedReturnType = ((ParameterizedType) resolvedReturnType).getActualTypeArguments()[0];
+            returnType = Object.class;
+        }
         if (resolvedReturnType instanceof Class) {
             returnType = (Class<?>) resolvedReturnType;
             if (returnType.isArray()) {
@@ -425,7 +420,8 @@ public class MapperAnnotationBuilder {
         } else if (resolvedReturnType instanceof ParameterizedType) {
             ParameterizedType parameterizedType = (ParameterizedType) resolvedReturnType;
             Class<?> rawType = (Class<?>) parameterizedType.getRawType();
-            if (Collection.class.isAssignableFrom(rawType) || Cursor.class.isAssignableFrom(rawType)) {
+            if (Collection.class.isAssignableFrom(rawType) || Cursor.class.isAssignableFrom(rawType)
+                    || CursorPublisher.class.isAssignableFrom(rawType)) {
                 Type[] actualTypeArguments = parameterizedType.getActualTypeArguments();
                 if (actualTypeArguments != null && actualTypeArguments.length == 1) {
                     Type returnTypeParameter = actualTypeArguments[0];
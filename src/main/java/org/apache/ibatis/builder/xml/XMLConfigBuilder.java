@@ -15,9 +15,17 @@
  */
 package org.apache.ibatis.builder.xml;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ForkJoinPool;
 
 import javax.sql.DataSource;
 
@@ -277,6 +285,10 @@ public class XMLConfigBuilder extends BaseBuilder {
         configuration.setAutoMappingBehavior(AutoMappingBehavior.valueOf(props.getProperty("autoMappingBehavior", "PARTIAL")));
         configuration.setAutoMappingUnknownColumnBehavior(AutoMappingUnknownColumnBehavior.valueOf(props.getProperty("autoMappingUnknownColumnBehavior", "NONE")));
         configuration.setCacheEnabled(booleanValueOf(props.getProperty("cacheEnabled"), true));
+        configuration.setCacheSingleFlightEnabled(booleanValueOf(props.getProperty("cacheSingleFlightEnabled"), false));
+        configuration.setCacheSingleFlightTimeout(integerValueOf(props.getProperty("cacheSingleFlightTimeout"), null));
+        configuration.setCompactCacheKeyEnabled(booleanValueOf(props.getProperty("compactCacheKeyEnabled"), false));
+        configuration.setGeneratedAccessorsEnabled(booleanValueOf(props.getProperty("generatedAccessorsEnabled"), false));
         configuration.setProxyFactory((ProxyFactory) createInstance(props.getProperty("proxyFactory")));
         configuration.setLazyLoadingEnabled(booleanValueOf(props.getProperty("lazyLoadingEnabled"), false));
         configuration.setAggressiveLazyLoading(booleanValueOf(props.getProperty("aggressiveLazyLoading"), false));
@@ -301,6 +313,18 @@ public class XMLConfigBuilder extends BaseBuilder {
         configuration.setLogPrefix(props.getProperty("logPrefix"));
         configuration.setConfigurationFactory(resolveClass(props.getProperty("configurationFactory")));
         configuration.setShrinkWhitespacesInSql(booleanValueOf(props.getProperty("shrinkWhitespacesInSql"), false));
+        configuration.setDynamicSqlCacheSize(integerValueOf(props.getProperty("dynamicSqlCacheSize"), 32));
+        configuration.setMultiRowInsertRowLimit(integerValueOf(props.getProperty("multiRowInsertRowLimit"), 0));
+        configuration.setMultiRowInsertParameterLimit(integerValueOf(props.getProperty("multiRowInsertParameterLimit"), 2000));
+        configuration.setBatchFlushSize(integerValueOf(props.getProperty("batchFlushSize"), 0));
+        configuration.setBatchFlushInterval(integerValueOf(props.getProperty("batchFlushInterval"), 0));
+        configuration.setLazyLoadBatchSize(integerValueOf(props.getProperty("lazyLoadBatchSize"), 0));
+        configuration.setSqlTraceAsync(booleanValueOf(props.getProperty("sqlTraceAsync"), false));
+        configuration.setSqlTraceSampling(integerValueOf(props.getProperty("sqlTraceSampling"), 0));
+        configuration.setStatementMetricsEnabled(booleanValueOf(props.getProperty("statementMetricsEnabled"), false));
+        configuration.setSlowStatementThreshold(integerValueOf(props.getProperty("slowStatementThreshold"), 0));
+        configuration.setSlowStatementLogSize(integerValueOf(props.getProperty("slowStatementLogSize"), 100));
+        configuration.setParallelMapperParsing(booleanValueOf(props.getProperty("parallelMapperParsing"), false));
         configuration.setDefaultSqlProviderType(resolveClass(props.getProperty("defaultSqlProviderType")));
     }
 
@@ -406,7 +430,13 @@ public class XMLConfigBuilder extends BaseBuilder {
 
     private void mapperElement(XNode parent) throws Exception {
         if (parent != null) {
-            for (XNode child : parent.getChildren()) { // 遍历每个子标签
+            List<XNode> children = parent.getChildren();
+            // 开启并行解析时，先在ForkJoinPool中并发地解析并校验全部Mapper映射文件，
+            // 下面仍按配置的顺序依次注册其中的语句、ResultMap和缓存，所以注册的结果与串行解析时一致
+            List<CompletableFuture<XPathParser>> documents = configuration.isParallelMapperParsing()
+                    ? parseMapperDocuments(children) : null;
+            for (int i = 0; i < children.size(); i++) { // 遍历每个子标签
+                XNode child = children.get(i);
                 if ("package".equals(child.getName())) {
                     // 如果指定了<package>子标签，则会扫描指定包内全部Java类型
                     String mapperPackage = child.getStringAttribute("name");
@@ -420,13 +450,23 @@ public class XMLConfigBuilder extends BaseBuilder {
                     // 然后使用这个XMLMapperBuilder实例解析指定的Mapper配置文件
                     if (resource != null && url == null && mapperClass == null) {
                         ErrorContext.instance().resource(resource);
-                        InputStream inputStream = Resources.getResourceAsStream(resource);
-                        XMLMapperBuilder mapperParser = new XMLMapperBuilder(inputStream, configuration, resource, configuration.getSqlFragments());
+                        XMLMapperBuilder mapperParser;
+                        if (documents != null) {
+                            mapperParser = new XMLMapperBuilder(getMapperDocument(documents.get(i)), configuration, resource, configuration.getSqlFragments());
+                        } else {
+                            InputStream inputStream = Resources.getResourceAsStream(resource);
+                            mapperParser = new XMLMapperBuilder(inputStream, configuration, resource, configuration.getSqlFragments());
+                        }
                         mapperParser.parse();
                     } else if (resource == null && url != null && mapperClass == null) {
                         ErrorContext.instance().resource(url);
-                        InputStream inputStream = Resources.getUrlAsStream(url);
-                        XMLMapperBuilder mapperParser = new XMLMapperBuilder(inputStream, configuration, url, configuration.getSqlFragments());
+                        XMLMapperBuilder mapperParser;
+                        if (documents != null) {
+                            mapperParser = new XMLMapperBuilder(getMapperDocument(documents.get(i)), configuration, url, configuration.getSqlFragments());
+                        } else {
+                            InputStream inputStream = Resources.getUrlAsStream(url);
+                            mapperParser = new XMLMapperBuilder(inputStream, configuration, url, configuration.getSqlFragments());
+                        }
                         mapperParser.parse();
                     } else if (resource == null && url == null && mapperClass != null) {
                         // 如果<mapper>子标签指定了class属性，则向MapperRegistry注册class属性指定的Mapper接口
@@ -440,6 +480,57 @@ public class XMLConfigBuilder extends BaseBuilder {
         }
     }
 
+    /**
+     * 读取<mapper>子标签指定的Mapper映射文件，并提交到ForkJoinPool中解析成DOM，
+     * 返回的列表与子标签一一对应，没有指定resource或url属性的子标签对应null
+     */
+    private List<CompletableFuture<XPathParser>> parseMapperDocuments(List<XNode> children) throws IOException {
+        List<CompletableFuture<XPathParser>> documents = new ArrayList<>(children.size());
+        for (XNode child : children) {
+            String resource = child.getStringAttribute("resource");
+            String url = child.getStringAttribute("url");
+            String mapperClass = child.getStringAttribute("class");
+            if ("package".equals(child.getName()) || mapperClass != null || (resource == null) == (url == null)) {
+                documents.add(null);
+                continue;
+            }
+            // 文件在当前线程中读取，这样仍使用当前线程的ClassLoader，读取后立即关闭
+            ErrorContext.instance().resource(resource != null ? resource : url);
+            byte[] document;
+            try (InputStream inputStream = resource != null ? Resources.getResourceAsStream(resource) : Resources.getUrlAsStream(url)) {
+                document = readFully(inputStream);
+            }
+            documents.add(CompletableFuture.supplyAsync(() -> new XPathParser(
+                    new ByteArrayInputStream(document), true, configuration.getVariables(), new XMLMapperEntityResolver()),
+                    ForkJoinPool.commonPool()));
+        }
+        ErrorContext.instance().resource(null);
+        return documents;
+    }
+
+    private static XPathParser getMapperDocument(CompletableFuture<XPathParser> document) throws Exception {
+        try {
+            return document.join();
+        } catch (CompletionException e) {
+            // 抛出解析时的原始异常，与串行解析时一致
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception) {
+                throw (Exception) cause;
+            }
+            throw e;
+        }
+    }
+
+    private static byte[] readFully(InputStream inputStream) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int n;
+        while ((n = inputStream.read(buffer)) != -1) {
+            out.write(buffer, 0, n);
+        }
+        return out.toByteArray();
+    }
+
     private boolean isSpecifiedEnvironment(String id) {
         if (environment == null) {
             throw new BuilderException("No environment specified.");
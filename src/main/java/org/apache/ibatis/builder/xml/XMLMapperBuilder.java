@@ -19,10 +19,8 @@ import java.io.InputStream;
 import java.io.Reader;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
@@ -82,7 +80,7 @@ public class XMLMapperBuilder extends BaseBuilder {
                 configuration, resource, sqlFragments);
     }
 
-    private XMLMapperBuilder(XPathParser parser, Configuration configuration, String resource, Map<String, XNode> sqlFragments) {
+    XMLMapperBuilder(XPathParser parser, Configuration configuration, String resource, Map<String, XNode> sqlFragments) {
         super(configuration);
         this.builderAssistant = new MapperBuilderAssistant(configuration, resource);
         this.parser = parser;
@@ -103,11 +101,12 @@ public class XMLMapperBuilder extends BaseBuilder {
             bindMapperForNamespace();
         }
         // 处理configurationElement()方法中解析失败的<resultMap>节点
-        parsePendingResultMaps();
+        configuration.parsePendingResultMaps(false);
         // 处理configurationElement()方法中解析失败的<cache-ref>节点
-        parsePendingCacheRefs();
-        // 处理configurationElement()方法中解析失败的SQL语句节点
-        parsePendingStatements();
+        configuration.parsePendingCacheRefs(false);
+        // 处理configurationElement()方法中解析失败的SQL语句节点，
+        // 依旧无法成功解析的SQL语句会留在Configuration.incompleteStatements集合中
+        configuration.parsePendingStatements(false);
     }
 
     public XNode getSqlFragment(String refid) {
@@ -158,56 +157,6 @@ public class XMLMapperBuilder extends BaseBuilder {
         }
     }
 
-    private void parsePendingResultMaps() {
-        Collection<ResultMapResolver> incompleteResultMaps = configuration.getIncompleteResultMaps();
-        synchronized (incompleteResultMaps) {
-            Iterator<ResultMapResolver> iter = incompleteResultMaps.iterator();
-            while (iter.hasNext()) {
-                try {
-                    iter.next().resolve();
-                    iter.remove();
-                } catch (IncompleteElementException e) {
-                    // ResultMap is still missing a resource...
-                }
-            }
-        }
-    }
-
-    private void parsePendingCacheRefs() {
-        Collection<CacheRefResolver> incompleteCacheRefs = configuration.getIncompleteCacheRefs();
-        synchronized (incompleteCacheRefs) {
-            Iterator<CacheRefResolver> iter = incompleteCacheRefs.iterator();
-            while (iter.hasNext()) {
-                try {
-                    iter.next().resolveCacheRef();
-                    iter.remove();
-                } catch (IncompleteElementException e) {
-                    // Cache ref is still missing a resource...
-                }
-            }
-        }
-    }
-
-    private void parsePendingStatements() {
-        // 获取incompleteStatements集合中记录的未成功解析的SQL语句
-        Collection<XMLStatementBuilder> incompleteStatements =
-                configuration.getIncompleteStatements();
-        synchronized (incompleteStatements) { // 加锁，防止并发
-            // 遍历incompleteStatements集合，逐个重新解析
-            Iterator<XMLStatementBuilder> iter = incompleteStatements.iterator();
-            while (iter.hasNext()) {
-                try {
-                    // 通过parseStatementNode()方法重新走一遍解析流程
-                    iter.next().parseStatementNode();
-                    // 解析成功之后，从incompleteStatements集合中清理该XMLStatementBuilder对象
-                    iter.remove();
-                } catch (IncompleteElementException e) {
-                    // 此时依旧无法成功解析SQL语句，则忽略该SQL
-                }
-            }
-        }
-    }
-
     private void cacheRefElement(XNode context) {
         if (context != null) {
             // 当前namespace与被引用namespace的关联关系，记录到cacheRefMap集合中
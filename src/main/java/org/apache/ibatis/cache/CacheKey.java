@@ -65,6 +65,16 @@ public class CacheKey implements Cloneable, Serializable {
         updateAll(objects);
     }
 
+    /**
+     * For subclasses that do not keep the updated objects and override every method that uses them.
+     */
+    protected CacheKey(boolean retainUpdates) {
+        this.hashcode = DEFAULT_HASHCODE;
+        this.multiplier = DEFAULT_MULTIPLIER;
+        this.count = 0;
+        this.updateList = retainUpdates ? new ArrayList<>() : null;
+    }
+
     public int getUpdateCount() {
         return updateList.size();
     }
@@ -106,6 +116,9 @@ public class CacheKey implements Cloneable, Serializable {
         if (count != cacheKey.count) {
             return false;
         }
+        if (cacheKey.updateList == null) {
+            return false;
+        }
         // 比较两个CacheKey对象中的updateList中的每一项
         for (int i = 0; i < updateList.size(); i++) {
             Object thisObject = updateList.get(i);
@@ -134,7 +147,9 @@ public class CacheKey implements Cloneable, Serializable {
     @Override
     public CacheKey clone() throws CloneNotSupportedException {
         CacheKey clonedCacheKey = (CacheKey) super.clone();
-        clonedCacheKey.updateList = new ArrayList<>(updateList);
+        if (updateList != null) {
+            clonedCacheKey.updateList = new ArrayList<>(updateList);
+        }
         return clonedCacheKey;
     }
 
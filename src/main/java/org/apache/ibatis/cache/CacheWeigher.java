@@ -0,0 +1,36 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+/**
+ * Estimates the memory retained by a cache entry, so that a weighted cache can evict by size in bytes
+ * instead of by number of entries.
+ *
+ * @see org.apache.ibatis.cache.decorators.WeightedCache
+ */
+@FunctionalInterface
+public interface CacheWeigher {
+
+  /**
+   * Returns the estimated weight of an entry.
+   *
+   * @param key the cache key
+   * @param value the cached value
+   * @return the estimated weight in bytes, never negative
+   */
+  long weigh(Object key, Object value);
+
+}
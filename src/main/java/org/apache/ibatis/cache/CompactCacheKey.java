@@ -0,0 +1,212 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.StringJoiner;
+
+import org.apache.ibatis.reflection.ArrayUtil;
+
+/**
+ * A cache key that folds the content of its components into a 128-bit hash instead of keeping them.
+ * <p>
+ * Strings, numbers, dates, booleans, characters, enums and byte arrays are hashed by value, so a key built
+ * from a long SQL string and thousands of parameters holds four fields, and comparing two keys compares those
+ * fields only. Objects of any other type are kept and compared with {@code equals}, as in {@link CacheKey}.
+ * <p>
+ * Two keys with different components are equal only if their 128-bit hashes collide. Caches that cannot
+ * accept that, however unlikely, should keep using {@link CacheKey}, which compares every component.
+ *
+ * @see org.apache.ibatis.session.Configuration#setCompactCacheKeyEnabled(boolean)
+ */
+public class CompactCacheKey extends CacheKey {
+
+  private static final long serialVersionUID = -3165325467420463147L;
+
+  private static final long SEED1 = 0x9E3779B97F4A7C15L;
+  private static final long SEED2 = 0xC2B2AE3D27D4EB4FL;
+  private static final long PRIME1 = 0x100000001B3L;
+  private static final long PRIME2 = 0xFF51AFD7ED558CCDL;
+
+  private long hash1 = SEED1;
+  private long hash2 = SEED2;
+  private int count;
+  private List<Object> retained;
+
+  public CompactCacheKey() {
+    super(false);
+  }
+
+  public CompactCacheKey(Object[] objects) {
+    this();
+    updateAll(objects);
+  }
+
+  @Override
+  public int getUpdateCount() {
+    return count;
+  }
+
+  @Override
+  public void update(Object object) {
+    count++;
+    if (object == null) {
+      mix(0, 0, 0);
+    } else if (object instanceof String) {
+      mixChars(1, (String) object);
+    } else if (object instanceof Integer || object instanceof Long
+        || object instanceof Short || object instanceof Byte) {
+      mix(typeTag(object), ((Number) object).longValue(), 0);
+    } else if (object instanceof Double) {
+      mix(6, Double.doubleToLongBits((Double) object), 0);
+    } else if (object instanceof Float) {
+      mix(7, Float.floatToIntBits((Float) object), 0);
+    } else if (object instanceof Boolean) {
+      mix(8, (Boolean) object ? 1 : 0, 0);
+    } else if (object instanceof Character) {
+      mix(9, (Character) object, 0);
+    } else if (object instanceof BigDecimal || object instanceof BigInteger) {
+      // BigDecimal.equals() takes the scale into account and so does its string form
+      mixChars(object instanceof BigDecimal ? 10 : 11, object.toString());
+    } else if (object instanceof Enum) {
+      mixChars(12, ((Enum<?>) object).getDeclaringClass().getName());
+      mix(12, ((Enum<?>) object).ordinal(), 0);
+    } else if (object instanceof byte[]) {
+      mixBytes((byte[]) object);
+    } else if (isHashableDate(object)) {
+      mixChars(13, object.getClass().getName());
+      long nanos = object instanceof java.sql.Timestamp ? ((java.sql.Timestamp) object).getNanos() : 0;
+      mix(13, ((Date) object).getTime(), nanos);
+    } else {
+      if (retained == null) {
+        retained = new ArrayList<>();
+      }
+      retained.add(object);
+      mix(99, ArrayUtil.hashCode(object), 0);
+    }
+  }
+
+  @Override
+  public boolean equals(Object object) {
+    if (this == object) {
+      return true;
+    }
+    if (!(object instanceof CompactCacheKey)) {
+      return false;
+    }
+    final CompactCacheKey cacheKey = (CompactCacheKey) object;
+    if (hash1 != cacheKey.hash1 || hash2 != cacheKey.hash2 || count != cacheKey.count) {
+      return false;
+    }
+    if (retained == null || cacheKey.retained == null) {
+      return retained == cacheKey.retained;
+    }
+    if (retained.size() != cacheKey.retained.size()) {
+      return false;
+    }
+    for (int i = 0; i < retained.size(); i++) {
+      if (!ArrayUtil.equals(retained.get(i), cacheKey.retained.get(i))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public int hashCode() {
+    return (int) (hash1 ^ (hash1 >>> 32));
+  }
+
+  @Override
+  public String toString() {
+    StringJoiner returnValue = new StringJoiner(":");
+    returnValue.add(String.format("%016x%016x", hash1, hash2));
+    returnValue.add(String.valueOf(count));
+    if (retained != null) {
+      retained.stream().map(ArrayUtil::toString).forEach(returnValue::add);
+    }
+    return returnValue.toString();
+  }
+
+  @Override
+  public CompactCacheKey clone() throws CloneNotSupportedException {
+    CompactCacheKey clonedCacheKey = (CompactCacheKey) super.clone();
+    if (retained != null) {
+      clonedCacheKey.retained = new ArrayList<>(retained);
+    }
+    return clonedCacheKey;
+  }
+
+  private static int typeTag(Object number) {
+    if (number instanceof Integer) {
+      return 2;
+    } else if (number instanceof Long) {
+      return 3;
+    } else if (number instanceof Short) {
+      return 4;
+    }
+    return 5;
+  }
+
+  private static boolean isHashableDate(Object object) {
+    // only the JDK date types, whose equals() depends on nothing but the fields hashed here
+    Class<?> type = object.getClass();
+    return type == Date.class || type == java.sql.Date.class
+        || type == java.sql.Time.class || type == java.sql.Timestamp.class;
+  }
+
+  private void mixChars(int tag, String value) {
+    long h1 = SEED1 ^ tag;
+    long h2 = SEED2 ^ tag;
+    for (int i = 0, length = value.length(); i < length; i++) {
+      char c = value.charAt(i);
+      h1 = (h1 ^ c) * PRIME1;
+      h2 = (h2 ^ c) * PRIME2;
+    }
+    mix(tag, h1, h2 + value.length());
+  }
+
+  private void mixBytes(byte[] value) {
+    long h1 = SEED1 ^ 14;
+    long h2 = SEED2 ^ 14;
+    for (byte b : value) {
+      h1 = (h1 ^ b) * PRIME1;
+      h2 = (h2 ^ b) * PRIME2;
+    }
+    mix(14, h1, h2 + value.length);
+  }
+
+  private void mix(int tag, long value1, long value2) {
+    long k1 = fmix64(value1 ^ ((long) tag << 56));
+    long k2 = fmix64(value2 ^ Long.rotateLeft(value1, 29) ^ tag);
+    hash1 = Long.rotateLeft(hash1 ^ k1, 27) * PRIME2 + count;
+    hash2 = Long.rotateLeft(hash2 ^ k2, 31) * SEED1 + count;
+  }
+
+  private static long fmix64(long k) {
+    k ^= k >>> 33;
+    k *= 0xFF51AFD7ED558CCDL;
+    k ^= k >>> 33;
+    k *= 0xC4CEB9FE1A85EC53L;
+    k ^= k >>> 33;
+    return k;
+  }
+
+}
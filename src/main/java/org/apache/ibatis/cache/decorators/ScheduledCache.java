@@ -26,7 +26,8 @@ public class ScheduledCache implements Cache {
 
     private final Cache delegate;
     protected long clearInterval;
-    protected long lastClear;
+    // ConcurrentCache不使用SynchronizedCache装饰，lastClear需要对所有线程可见
+    protected volatile long lastClear;
 
     public ScheduledCache(Cache delegate) {
         this.delegate = delegate;
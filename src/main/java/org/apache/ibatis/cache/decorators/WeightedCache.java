@@ -0,0 +1,183 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.decorators;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.CacheException;
+import org.apache.ibatis.cache.CacheWeigher;
+import org.apache.ibatis.io.Resources;
+
+/**
+ * Weighted LRU cache decorator: evicts the least recently used entries to keep the estimated size of the cache
+ * under a budget in bytes.
+ * <p>
+ * By default an entry weighs {@code rowWeight} bytes per element of a cached collection (or per object for anything
+ * else), and serialized values weigh their length. A {@link CacheWeigher} can be plugged in for a better estimate.
+ * An entry heavier than the whole budget is not cached at all.
+ */
+public class WeightedCache implements Cache {
+
+  private final Cache delegate;
+  private final Map<Object, Long> weights = new LinkedHashMap<>(16, .75F, true);
+  private CacheWeigher weigher = this::estimateWeight;
+  private long maxWeight = 16L * 1024 * 1024;
+  private int rowWeight = 512;
+  private long weight;
+  private long hitCount;
+  private long missCount;
+  private long evictionCount;
+
+  public WeightedCache(Cache delegate) {
+    this.delegate = delegate;
+  }
+
+  @Override
+  public String getId() {
+    return delegate.getId();
+  }
+
+  @Override
+  public int getSize() {
+    return delegate.getSize();
+  }
+
+  public void setMaxWeight(long maxWeight) {
+    this.maxWeight = maxWeight;
+  }
+
+  public long getMaxWeight() {
+    return maxWeight;
+  }
+
+  public void setRowWeight(int rowWeight) {
+    this.rowWeight = rowWeight;
+  }
+
+  public int getRowWeight() {
+    return rowWeight;
+  }
+
+  /**
+   * Sets the weigher by class name, so it can be configured with a property of the cache element.
+   *
+   * @param type the fully qualified name of a {@link CacheWeigher} implementation with a no-arg constructor
+   */
+  public void setWeigher(String type) {
+    try {
+      setCacheWeigher((CacheWeigher) Resources.classForName(type).getDeclaredConstructor().newInstance());
+    } catch (Exception e) {
+      throw new CacheException("Could not instantiate cache weigher (" + type + "). Cause: " + e, e);
+    }
+  }
+
+  public void setCacheWeigher(CacheWeigher weigher) {
+    this.weigher = weigher;
+  }
+
+  /**
+   * Returns the estimated size of the cached entries in bytes.
+   */
+  public long getWeight() {
+    return weight;
+  }
+
+  public long getHitCount() {
+    return hitCount;
+  }
+
+  public long getMissCount() {
+    return missCount;
+  }
+
+  public long getEvictionCount() {
+    return evictionCount;
+  }
+
+  @Override
+  public void putObject(Object key, Object value) {
+    long entryWeight = Math.max(0, weigher.weigh(key, value));
+    discard(key);
+    if (entryWeight > maxWeight) {
+      delegate.removeObject(key);
+      evictionCount++;
+      return;
+    }
+    delegate.putObject(key, value);
+    weights.put(key, entryWeight);
+    weight += entryWeight;
+    evict();
+  }
+
+  @Override
+  public Object getObject(Object key) {
+    // touch the key so it becomes the most recently used
+    weights.get(key);
+    Object value = delegate.getObject(key);
+    if (value == null) {
+      missCount++;
+    } else {
+      hitCount++;
+    }
+    return value;
+  }
+
+  @Override
+  public Object removeObject(Object key) {
+    discard(key);
+    return delegate.removeObject(key);
+  }
+
+  @Override
+  public void clear() {
+    delegate.clear();
+    weights.clear();
+    weight = 0;
+  }
+
+  private void discard(Object key) {
+    Long previous = weights.remove(key);
+    if (previous != null) {
+      weight -= previous;
+    }
+  }
+
+  private void evict() {
+    Iterator<Map.Entry<Object, Long>> iterator = weights.entrySet().iterator();
+    while (weight > maxWeight && iterator.hasNext()) {
+      Map.Entry<Object, Long> eldest = iterator.next();
+      iterator.remove();
+      weight -= eldest.getValue();
+      delegate.removeObject(eldest.getKey());
+      evictionCount++;
+    }
+  }
+
+  private long estimateWeight(Object key, Object value) {
+    if (value instanceof byte[]) {
+      return ((byte[]) value).length;
+    }
+    if (value instanceof Collection) {
+      return (long) rowWeight * Math.max(1, ((Collection<?>) value).size());
+    }
+    return rowWeight;
+  }
+
+}
@@ -0,0 +1,210 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.impl;
+
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.CacheException;
+
+/**
+ * Thread safe cache with a bounded size, meant to be used instead of the default
+ * PerpetualCache + LruCache + SynchronizedCache stack for namespaces read by many threads.
+ * <p>
+ * Entries are kept in a {@link ConcurrentHashMap} and reads never lock. Eviction approximates LRU with the
+ * CLOCK (second chance) algorithm: a read only marks its entry as referenced, and when the cache grows past
+ * its size the writer that detected it walks the insertion queue, giving referenced entries another round
+ * and evicting the first unreferenced one.
+ */
+public class ConcurrentCache implements Cache {
+
+  private final String id;
+  private final ConcurrentHashMap<Object, Node> cache = new ConcurrentHashMap<>();
+  private final Queue<Node> clock = new ConcurrentLinkedQueue<>();
+  private final ReentrantLock evictionLock = new ReentrantLock();
+  private final AtomicInteger retiredCount = new AtomicInteger();
+  private volatile int size = 1024;
+
+  public ConcurrentCache(String id) {
+    this.id = id;
+  }
+
+  public void setSize(int size) {
+    this.size = size;
+  }
+
+  @Override
+  public String getId() {
+    return id;
+  }
+
+  @Override
+  public int getSize() {
+    return cache.size();
+  }
+
+  @Override
+  public void putObject(Object key, Object value) {
+    Node node = new Node(key, value);
+    Node previous = cache.put(key, node);
+    clock.offer(node);
+    if (previous != null) {
+      retire(previous);
+    }
+    if (cache.size() > size) {
+      evict();
+    }
+  }
+
+  @Override
+  public Object getObject(Object key) {
+    Node node = cache.get(key);
+    if (node == null) {
+      return null;
+    }
+    node.markReferenced();
+    return node.value;
+  }
+
+  @Override
+  public Object removeObject(Object key) {
+    Node node = cache.remove(key);
+    if (node == null) {
+      return null;
+    }
+    retire(node);
+    return node.value;
+  }
+
+  @Override
+  public void clear() {
+    evictionLock.lock();
+    try {
+      cache.clear();
+      clock.clear();
+      retiredCount.set(0);
+    } finally {
+      evictionLock.unlock();
+    }
+  }
+
+  private void evict() {
+    evictionLock.lock();
+    try {
+      while (cache.size() > size) {
+        Node node = clock.poll();
+        if (node == null) {
+          // entries put while clear() was running may be missing from the clock
+          evictUnclocked();
+          return;
+        }
+        if (node.isRetired()) {
+          retiredCount.decrementAndGet();
+          continue;
+        }
+        if (node.referenced) {
+          node.referenced = false;
+          clock.offer(node);
+        } else if (cache.remove(node.key, node)) {
+          node.retire();
+        }
+      }
+    } finally {
+      evictionLock.unlock();
+    }
+  }
+
+  private void evictUnclocked() {
+    Iterator<Node> nodes = cache.values().iterator();
+    while (cache.size() > size && nodes.hasNext()) {
+      Node node = nodes.next();
+      if (cache.remove(node.key, node)) {
+        node.retire();
+      }
+    }
+  }
+
+  private void retire(Node node) {
+    node.retire();
+    // replaced and removed entries stay in the clock until it passes them, so purge them once they pile up
+    if (retiredCount.incrementAndGet() > size && evictionLock.tryLock()) {
+      try {
+        clock.removeIf(Node::isRetired);
+        retiredCount.set(0);
+      } finally {
+        evictionLock.unlock();
+      }
+    }
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (getId() == null) {
+      throw new CacheException("Cache instances require an ID.");
+    }
+    if (this == o) {
+      return true;
+    }
+    if (!(o instanceof Cache)) {
+      return false;
+    }
+
+    Cache otherCache = (Cache) o;
+    return getId().equals(otherCache.getId());
+  }
+
+  @Override
+  public int hashCode() {
+    if (getId() == null) {
+      throw new CacheException("Cache instances require an ID.");
+    }
+    return getId().hashCode();
+  }
+
+  private static final class Node {
+
+    private final Object key;
+    private final Object value;
+    private volatile boolean referenced;
+    private volatile boolean retired;
+
+    Node(Object key, Object value) {
+      this.key = key;
+      this.value = value;
+    }
+
+    void markReferenced() {
+      // avoid writing to a shared cache line on every hit
+      if (!referenced) {
+        referenced = true;
+      }
+    }
+
+    void retire() {
+      retired = true;
+    }
+
+    boolean isRetired() {
+      return retired;
+    }
+  }
+
+}
@@ -0,0 +1,91 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cursor;
+
+/**
+ * A publisher of the items of a query, fetched lazily from a {@link Cursor} as its subscribers request them.
+ * <p>
+ * The nested interfaces follow the contract of {@code java.util.concurrent.Flow} (and Reactive Streams) method for
+ * method, so a publisher can be adapted to either with one lambda per interface. Each subscription executes the query
+ * on its own cursor when the first items are requested, and closes it when the cursor is consumed, fails or is
+ * cancelled.
+ *
+ * @param <T> the type of the published items
+ * @since 3.5.6
+ */
+public interface CursorPublisher<T> {
+
+  /**
+   * Adds a subscriber, which will receive a {@link Subscription} through {@link Subscriber#onSubscribe}.
+   *
+   * @param subscriber the subscriber
+   */
+  void subscribe(Subscriber<? super T> subscriber);
+
+  /**
+   * Receiver of the items of a {@link CursorPublisher}.
+   *
+   * @param <T> the type of the received items
+   */
+  interface Subscriber<T> {
+
+    /**
+     * Invoked before any other method, with the subscription used to request items.
+     *
+     * @param subscription the new subscription
+     */
+    void onSubscribe(Subscription subscription);
+
+    /**
+     * Invoked with the next item, never more times than requested.
+     *
+     * @param item the item
+     */
+    void onNext(T item);
+
+    /**
+     * Invoked when the query or the subscription failed. No other method is invoked afterwards.
+     *
+     * @param throwable the failure
+     */
+    void onError(Throwable throwable);
+
+    /**
+     * Invoked when all the items have been received. No other method is invoked afterwards.
+     */
+    void onComplete();
+  }
+
+  /**
+   * Link between a {@link CursorPublisher} and one of its subscribers.
+   */
+  interface Subscription {
+
+    /**
+     * Adds the given number of items to the demand of the subscriber.
+     *
+     * @param n the number of items, a non-positive number results in an {@link IllegalArgumentException} being
+     *          signaled through {@link Subscriber#onError}
+     */
+    void request(long n);
+
+    /**
+     * Stops sending items to the subscriber and closes the cursor.
+     */
+    void cancel();
+  }
+
+}
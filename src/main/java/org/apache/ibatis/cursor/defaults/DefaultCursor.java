@@ -121,6 +121,23 @@ public class DefaultCursor<T> implements Cursor<T> {
     }
   }
 
+  /**
+   * Gives the driver a hint about the number of rows that should be fetched when more rows are needed.
+   *
+   * @param fetchSize the number of rows
+   * @since 3.5.6
+   */
+  public void setFetchSize(int fetchSize) {
+    ResultSet rs = rsw.getResultSet();
+    try {
+      if (!isClosed() && rs != null && !rs.isClosed()) {
+        rs.setFetchSize(fetchSize);
+      }
+    } catch (SQLException e) {
+      // ignore, this is only a hint
+    }
+  }
+
   protected T fetchNextUsingRowBound() {
     T result = fetchNextObjectFromDatabase();
     while (objectWrapperResultHandler.fetched && indexWithRowBound < rowBounds.getOffset()) {
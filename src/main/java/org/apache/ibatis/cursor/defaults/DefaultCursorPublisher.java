@@ -0,0 +1,229 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cursor.defaults;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.cursor.CursorPublisher;
+
+/**
+ * Default implementation of a {@link CursorPublisher}.
+ * <p>
+ * Every subscription opens its own cursor when items are first requested. Items are read from the cursor and
+ * delivered by a task submitted to the executor whenever there is demand, so that a thread is only busy while rows
+ * are being fetched and the subscriber keeps up. The fetch size of the underlying result set is adjusted to the
+ * outstanding demand. When the cursor is consumed, fails or the subscription is cancelled, the cursor is closed and
+ * the release action, if any, is run.
+ *
+ * @param <T> the type of the published items
+ * @since 3.5.6
+ */
+public class DefaultCursorPublisher<T> implements CursorPublisher<T> {
+
+  private final Supplier<Cursor<T>> cursorOpener;
+  private final Runnable releaseAction;
+  private final Executor executor;
+
+  /**
+   * Creates a publisher.
+   *
+   * @param cursorOpener opens the cursor of a subscription, from the executor
+   * @param releaseAction run after the cursor of a subscription has been closed, may be null
+   * @param executor runs the reading of the cursors, null to read from the thread that requests items
+   */
+  public DefaultCursorPublisher(Supplier<Cursor<T>> cursorOpener, Runnable releaseAction, Executor executor) {
+    this.cursorOpener = cursorOpener;
+    this.releaseAction = releaseAction;
+    this.executor = executor == null ? Runnable::run : executor;
+  }
+
+  @Override
+  public void subscribe(Subscriber<? super T> subscriber) {
+    if (subscriber == null) {
+      throw new NullPointerException("subscriber");
+    }
+    subscriber.onSubscribe(new CursorSubscription(subscriber));
+  }
+
+  private class CursorSubscription implements Subscription, Runnable {
+
+    private final Subscriber<? super T> subscriber;
+    private final AtomicLong requested = new AtomicLong();
+    // number of pending drain requests, the thread that raises it from 0 runs the drain loop
+    private final AtomicInteger pending = new AtomicInteger();
+    private volatile boolean cancelled;
+    private volatile IllegalArgumentException invalidRequest;
+
+    // only accessed by the drain loop
+    private Cursor<T> cursor;
+    private Iterator<T> iterator;
+    private int fetchSize;
+    private boolean done;
+    private boolean released;
+
+    CursorSubscription(Subscriber<? super T> subscriber) {
+      this.subscriber = subscriber;
+    }
+
+    @Override
+    public void request(long n) {
+      if (n <= 0) {
+        invalidRequest = new IllegalArgumentException("The number of requested items must be positive but was " + n);
+      } else {
+        requested.accumulateAndGet(n, (current, added) -> {
+          long sum = current + added;
+          return sum < 0 ? Long.MAX_VALUE : sum;
+        });
+      }
+      schedule();
+    }
+
+    @Override
+    public void cancel() {
+      cancelled = true;
+      schedule();
+    }
+
+    private void schedule() {
+      if (pending.getAndIncrement() == 0) {
+        try {
+          executor.execute(this);
+        } catch (RejectedExecutionException e) {
+          // no drain loop is running, so it is safe to terminate from here
+          if (!done) {
+            fail(e);
+          }
+        }
+      }
+    }
+
+    @Override
+    public void run() {
+      int missed = 1;
+      do {
+        drain();
+        missed = pending.addAndGet(-missed);
+      } while (missed != 0);
+    }
+
+    private void drain() {
+      if (done) {
+        return;
+      }
+      if (cancelled) {
+        done = true;
+        release();
+        return;
+      }
+      if (invalidRequest != null) {
+        fail(invalidRequest);
+        return;
+      }
+      try {
+        long demand = requested.get();
+        while (demand > 0) {
+          if (iterator == null) {
+            cursor = cursorOpener.get();
+            iterator = cursor.iterator();
+          }
+          adjustFetchSize(demand);
+          long emitted = 0;
+          while (emitted < demand) {
+            if (cancelled) {
+              done = true;
+              release();
+              return;
+            }
+            if (!iterator.hasNext()) {
+              complete();
+              return;
+            }
+            subscriber.onNext(iterator.next());
+            emitted++;
+          }
+          if (cursor.isConsumed()) {
+            complete();
+            return;
+          }
+          demand = demand == Long.MAX_VALUE ? demand : requested.addAndGet(-emitted);
+        }
+      } catch (RuntimeException e) {
+        if (done) {
+          // thrown by the subscriber after the subscription was terminated
+          throw e;
+        }
+        fail(e);
+      }
+    }
+
+    private void adjustFetchSize(long demand) {
+      if (demand < Integer.MAX_VALUE && demand != fetchSize && cursor instanceof DefaultCursor) {
+        fetchSize = (int) demand;
+        ((DefaultCursor<T>) cursor).setFetchSize(fetchSize);
+      }
+    }
+
+    private void complete() {
+      done = true;
+      try {
+        release();
+      } catch (RuntimeException e) {
+        subscriber.onError(e);
+        return;
+      }
+      subscriber.onComplete();
+    }
+
+    private void fail(Throwable throwable) {
+      done = true;
+      try {
+        release();
+      } catch (RuntimeException e) {
+        throwable.addSuppressed(e);
+      }
+      subscriber.onError(throwable);
+    }
+
+    private void release() {
+      if (released) {
+        return;
+      }
+      released = true;
+      Cursor<T> openCursor = cursor;
+      cursor = null;
+      iterator = null;
+      try {
+        if (openCursor != null) {
+          openCursor.close();
+        }
+      } catch (IOException e) {
+        // ignore
+      } finally {
+        if (releaseAction != null) {
+          releaseAction.run();
+        }
+      }
+    }
+  }
+
+}
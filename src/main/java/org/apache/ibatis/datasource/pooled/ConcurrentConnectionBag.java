@@ -0,0 +1,322 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.datasource.pooled;
+
+import java.lang.ref.WeakReference;
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Lock-free container of the connections owned by a {@link PooledDataSource} running in lock-free mode.
+ * <p>
+ * Every physical connection is registered once in a shared list and claimed by a CAS on its state, so
+ * borrowing and returning never take a monitor. Connections returned by a thread are remembered in a
+ * thread-local list and preferred on its next borrow, and threads that could not find an idle
+ * connection wait on a handoff queue that returning threads feed directly.
+ */
+class ConcurrentConnectionBag {
+
+  static final int STATE_REMOVED = -1;
+  static final int STATE_IDLE = 0;
+  static final int STATE_IN_USE = 1;
+  static final int STATE_RESERVED = 2;
+
+  private static final int MAX_THREAD_LOCAL_ENTRIES = 16;
+
+  private final CopyOnWriteArrayList<Entry> sharedList = new CopyOnWriteArrayList<>();
+  private final ThreadLocal<List<WeakReference<Entry>>> threadList = ThreadLocal.withInitial(ArrayList::new);
+  private final SynchronousQueue<Entry> handoffQueue = new SynchronousQueue<>(true);
+  private final AtomicInteger waiters = new AtomicInteger();
+  private final AtomicInteger totalCount = new AtomicInteger();
+  private final AtomicInteger idleCount = new AtomicInteger();
+
+  /**
+   * Claims an idle connection without waiting, trying the connections recently returned by the
+   * current thread first.
+   *
+   * @return the claimed entry, now in use, or null if there was no idle connection
+   */
+  Entry borrow() {
+    List<WeakReference<Entry>> list = threadList.get();
+    for (int i = list.size() - 1; i >= 0; i--) {
+      Entry entry = list.remove(i).get();
+      if (entry != null && claim(entry)) {
+        return entry;
+      }
+    }
+    return claimShared();
+  }
+
+  /**
+   * Waits for an idle connection to be returned to the bag.
+   *
+   * @param timeout the maximum time to wait in milliseconds
+   * @return the claimed entry, now in use, or null if the timeout elapsed
+   * @throws InterruptedException if the waiting thread is interrupted
+   */
+  Entry await(long timeout) throws InterruptedException {
+    waiters.incrementAndGet();
+    try {
+      // rescan after registering as a waiter so a connection returned meanwhile is not missed
+      Entry entry = claimShared();
+      if (entry != null) {
+        return entry;
+      }
+      long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+      long remaining = deadline - System.nanoTime();
+      while (remaining > 0) {
+        entry = handoffQueue.poll(remaining, TimeUnit.NANOSECONDS);
+        if (entry != null && claim(entry)) {
+          return entry;
+        }
+        remaining = deadline - System.nanoTime();
+      }
+      return null;
+    } finally {
+      waiters.decrementAndGet();
+    }
+  }
+
+  /**
+   * Makes an in-use or reserved entry idle again, handing it straight to a waiting thread if there is one.
+   *
+   * @param entry the entry to return
+   */
+  void requite(Entry entry) {
+    idleCount.incrementAndGet();
+    entry.setState(STATE_IDLE);
+    for (int i = 0; waiters.get() > 0; i++) {
+      if (entry.getState() != STATE_IDLE || handoffQueue.offer(entry)) {
+        return;
+      }
+      if ((i & 0xff) == 0xff) {
+        LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(10));
+      } else {
+        Thread.yield();
+      }
+    }
+    List<WeakReference<Entry>> list = threadList.get();
+    if (list.size() < MAX_THREAD_LOCAL_ENTRIES) {
+      list.add(new WeakReference<>(entry));
+    }
+  }
+
+  /**
+   * Takes an idle entry out of circulation so it can be inspected without being handed out.
+   *
+   * @param entry the entry to reserve
+   * @return true if the entry was idle and is now reserved by the caller
+   */
+  boolean reserve(Entry entry) {
+    return claim(entry, STATE_RESERVED);
+  }
+
+  /**
+   * Reserves room for one more connection, so that the number of connections never exceeds the given maximum.
+   *
+   * @param maximum the maximum number of connections in the bag
+   * @return true if the caller may create a connection and must then {@link #add} or {@link #release} it
+   */
+  boolean tryReserve(int maximum) {
+    for (;;) {
+      int count = totalCount.get();
+      if (count >= maximum) {
+        return false;
+      }
+      if (totalCount.compareAndSet(count, count + 1)) {
+        return true;
+      }
+    }
+  }
+
+  /**
+   * Gives back a reservation obtained with {@link #tryReserve} that did not result in a new connection.
+   */
+  void release() {
+    totalCount.decrementAndGet();
+  }
+
+  /**
+   * Registers a new, in-use connection for which room was reserved with {@link #tryReserve}.
+   *
+   * @param realConnection the physical connection
+   * @param statementCache the prepared statement cache of the connection, or null
+   * @return the new entry
+   */
+  Entry add(Connection realConnection, PreparedStatementCache statementCache) {
+    Entry entry = new Entry(realConnection, STATE_IN_USE, statementCache);
+    sharedList.add(entry);
+    return entry;
+  }
+
+  /**
+   * Removes an entry from the bag for good. The caller is responsible for closing its connection.
+   *
+   * @param entry the entry to remove
+   * @return true if this call removed the entry
+   */
+  boolean remove(Entry entry) {
+    int previous = entry.getAndSetState(STATE_REMOVED);
+    if (previous == STATE_REMOVED) {
+      return false;
+    }
+    if (previous == STATE_IDLE) {
+      idleCount.decrementAndGet();
+    }
+    sharedList.remove(entry);
+    totalCount.decrementAndGet();
+    return true;
+  }
+
+  List<Entry> values() {
+    return new ArrayList<>(sharedList);
+  }
+
+  int getIdleCount() {
+    return idleCount.get();
+  }
+
+  int getCount(int state) {
+    int count = 0;
+    for (Entry entry : sharedList) {
+      if (entry.getState() == state) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  int getWaitingThreadCount() {
+    return waiters.get();
+  }
+
+  private Entry claimShared() {
+    for (Entry entry : sharedList) {
+      if (claim(entry)) {
+        return entry;
+      }
+    }
+    return null;
+  }
+
+  private boolean claim(Entry entry) {
+    return claim(entry, STATE_IN_USE);
+  }
+
+  private boolean claim(Entry entry, int newState) {
+    if (entry.compareAndSetState(STATE_IDLE, newState)) {
+      idleCount.decrementAndGet();
+      return true;
+    }
+    return false;
+  }
+
+  /**
+   * A physical connection tracked by the bag, together with the pooled connection currently handed out for it.
+   */
+  static class Entry {
+
+    private final Connection realConnection;
+    private final AtomicInteger state;
+    private final AtomicReference<PooledConnection> owner = new AtomicReference<>();
+    private final PreparedStatementCache statementCache;
+    private final long createdTimestamp;
+    private volatile long lastUsedTimestamp;
+    private volatile long checkoutTimestamp;
+
+    Entry(Connection realConnection, int state, PreparedStatementCache statementCache) {
+      this.realConnection = realConnection;
+      this.statementCache = statementCache;
+      this.state = new AtomicInteger(state);
+      this.createdTimestamp = System.currentTimeMillis();
+      this.lastUsedTimestamp = createdTimestamp;
+    }
+
+    Connection getRealConnection() {
+      return realConnection;
+    }
+
+    PreparedStatementCache getStatementCache() {
+      return statementCache;
+    }
+
+    int getState() {
+      return state.get();
+    }
+
+    void setState(int newState) {
+      state.set(newState);
+    }
+
+    boolean compareAndSetState(int expect, int update) {
+      return state.compareAndSet(expect, update);
+    }
+
+    int getAndSetState(int newState) {
+      return state.getAndSet(newState);
+    }
+
+    PooledConnection getOwner() {
+      return owner.get();
+    }
+
+    void setOwner(PooledConnection connection) {
+      owner.set(connection);
+    }
+
+    /**
+     * Detaches the given pooled connection from this entry, unless another one was handed out since.
+     *
+     * @param connection the pooled connection expected to own the entry
+     * @return true if the connection owned the entry and was detached
+     */
+    boolean releaseOwner(PooledConnection connection) {
+      return owner.compareAndSet(connection, null);
+    }
+
+    long getCreatedTimestamp() {
+      return createdTimestamp;
+    }
+
+    long getLastUsedTimestamp() {
+      return lastUsedTimestamp;
+    }
+
+    void setLastUsedTimestamp(long lastUsedTimestamp) {
+      this.lastUsedTimestamp = lastUsedTimestamp;
+    }
+
+    long getCheckoutTimestamp() {
+      return checkoutTimestamp;
+    }
+
+    void setCheckoutTimestamp(long checkoutTimestamp) {
+      this.checkoutTimestamp = checkoutTimestamp;
+    }
+
+    long getCheckoutTime() {
+      return System.currentTimeMillis() - checkoutTimestamp;
+    }
+  }
+
+}
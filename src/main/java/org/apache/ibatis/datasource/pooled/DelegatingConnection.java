@@ -0,0 +1,417 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.datasource.pooled;
+
+import java.sql.Array;
+import java.sql.Blob;
+import java.sql.CallableStatement;
+import java.sql.Clob;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.NClob;
+import java.sql.PreparedStatement;
+import java.sql.SQLClientInfoException;
+import java.sql.SQLException;
+import java.sql.SQLWarning;
+import java.sql.SQLXML;
+import java.sql.Savepoint;
+import java.sql.Statement;
+import java.sql.Struct;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.Executor;
+
+/**
+ * The {@link Connection} handed out by a {@link PooledDataSource}.
+ * <p>
+ * Calls are delegated directly to the real connection once the pooled connection is known to be valid, and
+ * {@link #close()} returns the connection to the pool instead of closing it.
+ */
+final class DelegatingConnection implements Connection {
+
+  private final PooledConnection pooledConnection;
+  private final Connection realConnection;
+
+  DelegatingConnection(PooledConnection pooledConnection, Connection realConnection) {
+    this.pooledConnection = pooledConnection;
+    this.realConnection = realConnection;
+  }
+
+  PooledConnection getPooledConnection() {
+    return pooledConnection;
+  }
+
+  @Override
+  public void close() throws SQLException {
+    // 调用close()方法时将连接重新放入连接池，而不是真正关闭数据库连接
+    pooledConnection.returnToPool();
+  }
+
+  @Override
+  public Statement createStatement() throws SQLException {
+    checkConnection();
+    return realConnection.createStatement();
+  }
+
+  @Override
+  public PreparedStatement prepareStatement(String sql) throws SQLException {
+    checkConnection();
+    PreparedStatementCache statementCache = pooledConnection.getStatementCache();
+    if (statementCache != null) {
+      return statementCache.prepareStatement(this, realConnection, sql,
+          PreparedStatementCache.DRIVER_DEFAULT, PreparedStatementCache.DRIVER_DEFAULT);
+    }
+    return realConnection.prepareStatement(sql);
+  }
+
+  @Override
+  public CallableStatement prepareCall(String sql) throws SQLException {
+    checkConnection();
+    return realConnection.prepareCall(sql);
+  }
+
+  @Override
+  public String nativeSQL(String sql) throws SQLException {
+    checkConnection();
+    return realConnection.nativeSQL(sql);
+  }
+
+  @Override
+  public void setAutoCommit(boolean autoCommit) throws SQLException {
+    checkConnection();
+    realConnection.setAutoCommit(autoCommit);
+  }
+
+  @Override
+  public boolean getAutoCommit() throws SQLException {
+    checkConnection();
+    return realConnection.getAutoCommit();
+  }
+
+  @Override
+  public void commit() throws SQLException {
+    checkConnection();
+    realConnection.commit();
+  }
+
+  @Override
+  public void rollback() throws SQLException {
+    checkConnection();
+    realConnection.rollback();
+  }
+
+  @Override
+  public boolean isClosed() throws SQLException {
+    checkConnection();
+    return realConnection.isClosed();
+  }
+
+  @Override
+  public DatabaseMetaData getMetaData() throws SQLException {
+    checkConnection();
+    return realConnection.getMetaData();
+  }
+
+  @Override
+  public void setReadOnly(boolean readOnly) throws SQLException {
+    checkConnection();
+    realConnection.setReadOnly(readOnly);
+  }
+
+  @Override
+  public boolean isReadOnly() throws SQLException {
+    checkConnection();
+    return realConnection.isReadOnly();
+  }
+
+  @Override
+  public void setCatalog(String catalog) throws SQLException {
+    checkConnection();
+    realConnection.setCatalog(catalog);
+  }
+
+  @Override
+  public String getCatalog() throws SQLException {
+    checkConnection();
+    return realConnection.getCatalog();
+  }
+
+  @Override
+  public void setTransactionIsolation(int level) throws SQLException {
+    checkConnection();
+    realConnection.setTransactionIsolation(level);
+  }
+
+  @Override
+  public int getTransactionIsolation() throws SQLException {
+    checkConnection();
+    return realConnection.getTransactionIsolation();
+  }
+
+  @Override
+  public SQLWarning getWarnings() throws SQLException {
+    checkConnection();
+    return realConnection.getWarnings();
+  }
+
+  @Override
+  public void clearWarnings() throws SQLException {
+    checkConnection();
+    realConnection.clearWarnings();
+  }
+
+  @Override
+  public Statement createStatement(int resultSetType, int resultSetConcurrency) throws SQLException {
+    checkConnection();
+    return realConnection.createStatement(resultSetType, resultSetConcurrency);
+  }
+
+  @Override
+  public PreparedStatement prepareStatement(String sql, int resultSetType, int resultSetConcurrency) throws SQLException {
+    checkConnection();
+    PreparedStatementCache statementCache = pooledConnection.getStatementCache();
+    if (statementCache != null) {
+      return statementCache.prepareStatement(this, realConnection, sql, resultSetType, resultSetConcurrency);
+    }
+    return realConnection.prepareStatement(sql, resultSetType, resultSetConcurrency);
+  }
+
+  @Override
+  public CallableStatement prepareCall(String sql, int resultSetType, int resultSetConcurrency) throws SQLException {
+    checkConnection();
+    return realConnection.prepareCall(sql, resultSetType, resultSetConcurrency);
+  }
+
+  @Override
+  public Map<String, Class<?>> getTypeMap() throws SQLException {
+    checkConnection();
+    return realConnection.getTypeMap();
+  }
+
+  @Override
+  public void setTypeMap(Map<String, Class<?>> map) throws SQLException {
+    checkConnection();
+    realConnection.setTypeMap(map);
+  }
+
+  @Override
+  public void setHoldability(int holdability) throws SQLException {
+    checkConnection();
+    realConnection.setHoldability(holdability);
+  }
+
+  @Override
+  public int getHoldability() throws SQLException {
+    checkConnection();
+    return realConnection.getHoldability();
+  }
+
+  @Override
+  public Savepoint setSavepoint() throws SQLException {
+    checkConnection();
+    return realConnection.setSavepoint();
+  }
+
+  @Override
+  public Savepoint setSavepoint(String name) throws SQLException {
+    checkConnection();
+    return realConnection.setSavepoint(name);
+  }
+
+  @Override
+  public void rollback(Savepoint savepoint) throws SQLException {
+    checkConnection();
+    realConnection.rollback(savepoint);
+  }
+
+  @Override
+  public void releaseSavepoint(Savepoint savepoint) throws SQLException {
+    checkConnection();
+    realConnection.releaseSavepoint(savepoint);
+  }
+
+  @Override
+  public Statement createStatement(int resultSetType, int resultSetConcurrency, int resultSetHoldability) throws SQLException {
+    checkConnection();
+    return realConnection.createStatement(resultSetType, resultSetConcurrency, resultSetHoldability);
+  }
+
+  @Override
+  public PreparedStatement prepareStatement(String sql, int resultSetType, int resultSetConcurrency, int resultSetHoldability) throws SQLException {
+    checkConnection();
+    return realConnection.prepareStatement(sql, resultSetType, resultSetConcurrency, resultSetHoldability);
+  }
+
+  @Override
+  public CallableStatement prepareCall(String sql, int resultSetType, int resultSetConcurrency, int resultSetHoldability) throws SQLException {
+    checkConnection();
+    return realConnection.prepareCall(sql, resultSetType, resultSetConcurrency, resultSetHoldability);
+  }
+
+  @Override
+  public PreparedStatement prepareStatement(String sql, int autoGeneratedKeys) throws SQLException {
+    checkConnection();
+    return realConnection.prepareStatement(sql, autoGeneratedKeys);
+  }
+
+  @Override
+  public PreparedStatement prepareStatement(String sql, int[] columnIndexes) throws SQLException {
+    checkConnection();
+    return realConnection.prepareStatement(sql, columnIndexes);
+  }
+
+  @Override
+  public PreparedStatement prepareStatement(String sql, String[] columnNames) throws SQLException {
+    checkConnection();
+    return realConnection.prepareStatement(sql, columnNames);
+  }
+
+  @Override
+  public Clob createClob() throws SQLException {
+    checkConnection();
+    return realConnection.createClob();
+  }
+
+  @Override
+  public Blob createBlob() throws SQLException {
+    checkConnection();
+    return realConnection.createBlob();
+  }
+
+  @Override
+  public NClob createNClob() throws SQLException {
+    checkConnection();
+    return realConnection.createNClob();
+  }
+
+  @Override
+  public SQLXML createSQLXML() throws SQLException {
+    checkConnection();
+    return realConnection.createSQLXML();
+  }
+
+  @Override
+  public boolean isValid(int timeout) throws SQLException {
+    checkConnection();
+    return realConnection.isValid(timeout);
+  }
+
+  @Override
+  public void setClientInfo(String name, String value) throws SQLClientInfoException {
+    checkClientInfo();
+    realConnection.setClientInfo(name, value);
+  }
+
+  @Override
+  public void setClientInfo(Properties properties) throws SQLClientInfoException {
+    checkClientInfo();
+    realConnection.setClientInfo(properties);
+  }
+
+  @Override
+  public String getClientInfo(String name) throws SQLException {
+    checkConnection();
+    return realConnection.getClientInfo(name);
+  }
+
+  @Override
+  public Properties getClientInfo() throws SQLException {
+    checkConnection();
+    return realConnection.getClientInfo();
+  }
+
+  @Override
+  public Array createArrayOf(String typeName, Object[] elements) throws SQLException {
+    checkConnection();
+    return realConnection.createArrayOf(typeName, elements);
+  }
+
+  @Override
+  public Struct createStruct(String typeName, Object[] attributes) throws SQLException {
+    checkConnection();
+    return realConnection.createStruct(typeName, attributes);
+  }
+
+  @Override
+  public void setSchema(String schema) throws SQLException {
+    checkConnection();
+    realConnection.setSchema(schema);
+  }
+
+  @Override
+  public String getSchema() throws SQLException {
+    checkConnection();
+    return realConnection.getSchema();
+  }
+
+  @Override
+  public void abort(Executor executor) throws SQLException {
+    checkConnection();
+    realConnection.abort(executor);
+  }
+
+  @Override
+  public void setNetworkTimeout(Executor executor, int milliseconds) throws SQLException {
+    checkConnection();
+    realConnection.setNetworkTimeout(executor, milliseconds);
+  }
+
+  @Override
+  public int getNetworkTimeout() throws SQLException {
+    checkConnection();
+    return realConnection.getNetworkTimeout();
+  }
+
+  @Override
+  public <T> T unwrap(Class<T> iface) throws SQLException {
+    checkConnection();
+    return realConnection.unwrap(iface);
+  }
+
+  @Override
+  public boolean isWrapperFor(Class<?> iface) throws SQLException {
+    checkConnection();
+    return realConnection.isWrapperFor(iface);
+  }
+
+  @Override
+  public int hashCode() {
+    return realConnection.hashCode();
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    return realConnection.equals(obj);
+  }
+
+  @Override
+  public String toString() {
+    return realConnection.toString();
+  }
+
+  private void checkConnection() throws SQLException {
+    pooledConnection.checkConnection();
+  }
+
+  private void checkClientInfo() throws SQLClientInfoException {
+    try {
+      pooledConnection.checkConnection();
+    } catch (SQLException e) {
+      throw new SQLClientInfoException(e.getMessage(), null, e);
+    }
+  }
+
+}
@@ -17,8 +17,19 @@ package org.apache.ibatis.datasource.pooled;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
+ * Statistics of a {@link PooledDataSource}.
+ * <p>
+ * In the default mode the counters are the protected {@code long} fields, updated while holding {@link #lock}.
+ * They are volatile so that the getters can read them without taking the lock. The lock-free mode updates
+ * separate {@link LongAdder}s instead, and the getters report the sum of both. The connection lists are guarded
+ * by {@link #lock}, a {@link ReentrantLock} rather than a monitor, so that threads blocked on it or waiting for a
+ * connection do not pin the carrier thread when they are virtual threads.
+ *
  * @author Clinton Begin
  */
 public class PoolState {
@@ -27,62 +38,100 @@ public class PoolState {
 
   protected final List<PooledConnection> idleConnections = new ArrayList<>();
   protected final List<PooledConnection> activeConnections = new ArrayList<>();
-  protected long requestCount = 0;
-  protected long accumulatedRequestTime = 0;
-  protected long accumulatedCheckoutTime = 0;
-  protected long claimedOverdueConnectionCount = 0;
-  protected long accumulatedCheckoutTimeOfOverdueConnections = 0;
-  protected long accumulatedWaitTime = 0;
-  protected long hadToWaitCount = 0;
-  protected long badConnectionCount = 0;
+  final ConcurrentConnectionBag connectionBag = new ConcurrentConnectionBag();
+  final ReentrantLock lock = new ReentrantLock();
+  final Condition connectionAvailable = lock.newCondition();
+  protected volatile long requestCount = 0;
+  protected volatile long accumulatedRequestTime = 0;
+  protected volatile long accumulatedCheckoutTime = 0;
+  protected volatile long claimedOverdueConnectionCount = 0;
+  protected volatile long accumulatedCheckoutTimeOfOverdueConnections = 0;
+  protected volatile long accumulatedWaitTime = 0;
+  protected volatile long hadToWaitCount = 0;
+  protected volatile long badConnectionCount = 0;
+  final LockFreeCounters lockFreeCounters = new LockFreeCounters();
 
   public PoolState(PooledDataSource dataSource) {
     this.dataSource = dataSource;
   }
 
-  public synchronized long getRequestCount() {
-    return requestCount;
+  /**
+   * Returns the lock held by the pool while it uses the connection lists and the counters of the default mode.
+   * <p>
+   * Before 3.5.6 the pool synchronized on this object. Subclasses and callers that synchronized on it to coordinate
+   * with the pool must hold this lock instead, as the monitor of this object no longer excludes the pool.
+   *
+   * @return the pool lock
+   * @since 3.5.6
+   */
+  public ReentrantLock getLock() {
+    return lock;
+  }
+
+  public long getRequestCount() {
+    return requestCount + lockFreeCounters.requestCount.sum();
   }
 
-  public synchronized long getAverageRequestTime() {
-    return requestCount == 0 ? 0 : accumulatedRequestTime / requestCount;
+  public long getAverageRequestTime() {
+    long count = getRequestCount();
+    return count == 0 ? 0 : (accumulatedRequestTime + lockFreeCounters.accumulatedRequestTime.sum()) / count;
   }
 
-  public synchronized long getAverageWaitTime() {
-    return hadToWaitCount == 0 ? 0 : accumulatedWaitTime / hadToWaitCount;
+  public long getAverageWaitTime() {
+    long count = getHadToWaitCount();
+    return count == 0 ? 0 : (accumulatedWaitTime + lockFreeCounters.accumulatedWaitTime.sum()) / count;
 
   }
 
-  public synchronized long getHadToWaitCount() {
-    return hadToWaitCount;
+  public long getHadToWaitCount() {
+    return hadToWaitCount + lockFreeCounters.hadToWaitCount.sum();
   }
 
-  public synchronized long getBadConnectionCount() {
-    return badConnectionCount;
+  public long getBadConnectionCount() {
+    return badConnectionCount + lockFreeCounters.badConnectionCount.sum();
   }
 
-  public synchronized long getClaimedOverdueConnectionCount() {
-    return claimedOverdueConnectionCount;
+  public long getClaimedOverdueConnectionCount() {
+    return claimedOverdueConnectionCount + lockFreeCounters.claimedOverdueConnectionCount.sum();
   }
 
-  public synchronized long getAverageOverdueCheckoutTime() {
-    return claimedOverdueConnectionCount == 0 ? 0 : accumulatedCheckoutTimeOfOverdueConnections / claimedOverdueConnectionCount;
+  public long getAverageOverdueCheckoutTime() {
+    long count = getClaimedOverdueConnectionCount();
+    return count == 0 ? 0
+        : (accumulatedCheckoutTimeOfOverdueConnections + lockFreeCounters.accumulatedCheckoutTimeOfOverdueConnections.sum()) / count;
   }
 
-  public synchronized long getAverageCheckoutTime() {
-    return requestCount == 0 ? 0 : accumulatedCheckoutTime / requestCount;
+  public long getAverageCheckoutTime() {
+    long count = getRequestCount();
+    return count == 0 ? 0 : (accumulatedCheckoutTime + lockFreeCounters.accumulatedCheckoutTime.sum()) / count;
   }
 
-  public synchronized int getIdleConnectionCount() {
-    return idleConnections.size();
+  public int getIdleConnectionCount() {
+    if (dataSource.isPoolLockFree()) {
+      return connectionBag.getIdleCount();
+    }
+    lock.lock();
+    try {
+      return idleConnections.size();
+    } finally {
+      lock.unlock();
+    }
   }
 
-  public synchronized int getActiveConnectionCount() {
-    return activeConnections.size();
+  public int getActiveConnectionCount() {
+    if (dataSource.isPoolLockFree()) {
+      return connectionBag.getCount(ConcurrentConnectionBag.STATE_IN_USE);
+    }
+    lock.lock();
+    try {
+      return activeConnections.size();
+    } finally {
+      lock.unlock();
+    }
   }
 
   @Override
-  public synchronized String toString() {
+  public String toString() {
     StringBuilder builder = new StringBuilder();
     builder.append("\n===CONFINGURATION==============================================");
     builder.append("\n jdbcDriver                     ").append(dataSource.getDriver());
@@ -96,6 +145,12 @@ public class PoolState {
     builder.append("\n poolPingEnabled                ").append(dataSource.poolPingEnabled);
     builder.append("\n poolPingQuery                  ").append(dataSource.poolPingQuery);
     builder.append("\n poolPingConnectionsNotUsedFor  ").append(dataSource.poolPingConnectionsNotUsedFor);
+    builder.append("\n poolLockFree                   ").append(dataSource.poolLockFree);
+    builder.append("\n poolHousekeepingInterval       ").append(dataSource.poolHousekeepingInterval);
+    builder.append("\n poolMinimumIdle                ").append(dataSource.poolMinimumIdle);
+    builder.append("\n poolMaximumIdleTime            ").append(dataSource.poolMaximumIdleTime);
+    builder.append("\n poolMaximumLifetime            ").append(dataSource.poolMaximumLifetime);
+    builder.append("\n poolPreparedStatementCacheSize ").append(dataSource.poolPreparedStatementCacheSize);
     builder.append("\n ---STATUS-----------------------------------------------------");
     builder.append("\n activeConnections              ").append(getActiveConnectionCount());
     builder.append("\n idleConnections                ").append(getIdleConnectionCount());
@@ -111,4 +166,18 @@ public class PoolState {
     return builder.toString();
   }
 
+  /**
+   * Counters updated by the lock-free pool, which does not hold {@link #lock} and would contend on plain fields.
+   */
+  static final class LockFreeCounters {
+    final LongAdder requestCount = new LongAdder();
+    final LongAdder accumulatedRequestTime = new LongAdder();
+    final LongAdder accumulatedCheckoutTime = new LongAdder();
+    final LongAdder claimedOverdueConnectionCount = new LongAdder();
+    final LongAdder accumulatedCheckoutTimeOfOverdueConnections = new LongAdder();
+    final LongAdder accumulatedWaitTime = new LongAdder();
+    final LongAdder hadToWaitCount = new LongAdder();
+    final LongAdder badConnectionCount = new LongAdder();
+  }
+
 }
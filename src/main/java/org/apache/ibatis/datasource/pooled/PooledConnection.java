@@ -15,31 +15,26 @@
  */
 package org.apache.ibatis.datasource.pooled;
 
-import java.lang.reflect.InvocationHandler;
-import java.lang.reflect.Method;
-import java.lang.reflect.Proxy;
 import java.sql.Connection;
 import java.sql.SQLException;
 
-import org.apache.ibatis.reflection.ExceptionUtil;
-
 /**
  * @author Clinton Begin
  */
-class PooledConnection implements InvocationHandler {
-
-    private static final String CLOSE = "close";
-    private static final Class<?>[] IFACES = new Class<?>[]{Connection.class};
+class PooledConnection {
 
     private final int hashCode;
     private final PooledDataSource dataSource;
     private final Connection realConnection;
     private final Connection proxyConnection;
+    private final ConcurrentConnectionBag.Entry entry;
+    private PreparedStatementCache statementCache;
     private long checkoutTimestamp;
     private long createdTimestamp;
     private long lastUsedTimestamp;
     private int connectionTypeCode;
-    private boolean valid;
+    // 超时连接可能被其他线程回收并置为无效，原持有者需要看到该变化
+    private volatile boolean valid;
 
     /**
      * Constructor for SimplePooledConnection that uses the Connection and PooledDataSource passed in.
@@ -50,13 +45,29 @@ class PooledConnection implements InvocationHandler {
      *          - the dataSource that the connection is from
      */
     public PooledConnection(Connection connection, PooledDataSource dataSource) {
+        this(connection, dataSource, null);
+    }
+
+    /**
+     * Constructor for a pooled connection handed out by a lock-free pool for the given bag entry.
+     *
+     * @param connection
+     *          - the connection that is to be presented as a pooled connection
+     * @param dataSource
+     *          - the dataSource that the connection is from
+     * @param entry
+     *          - the bag entry that tracks the connection, or null when the pool is not lock-free
+     */
+    PooledConnection(Connection connection, PooledDataSource dataSource, ConcurrentConnectionBag.Entry entry) {
         this.hashCode = connection.hashCode();
+        this.entry = entry;
+        this.statementCache = entry == null ? null : entry.getStatementCache();
         this.realConnection = connection;
         this.dataSource = dataSource;
         this.createdTimestamp = System.currentTimeMillis();
         this.lastUsedTimestamp = System.currentTimeMillis();
         this.valid = true;
-        this.proxyConnection = (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), IFACES, this);
+        this.proxyConnection = new DelegatingConnection(this, connection);
     }
 
     /**
@@ -85,9 +96,37 @@ class PooledConnection implements InvocationHandler {
     }
 
     /**
-     * Getter for the proxy for the connection.
+     * Getter for the bag entry that tracks this connection in lock-free mode.
+     *
+     * @return The entry, or null when the pool is not lock-free
+     */
+    ConcurrentConnectionBag.Entry getEntry() {
+        return entry;
+    }
+
+    /**
+     * Getter for the prepared statement cache of the real connection.
+     *
+     * @return The cache, or null if prepared statements are not cached
+     */
+    PreparedStatementCache getStatementCache() {
+        return statementCache;
+    }
+
+    /**
+     * Setter for the prepared statement cache of the real connection.
+     *
+     * @param statementCache
+     *          - the cache, or null if prepared statements are not cached
+     */
+    void setStatementCache(PreparedStatementCache statementCache) {
+        this.statementCache = statementCache;
+    }
+
+    /**
+     * Getter for the connection handed out to the application, which delegates to the real connection.
      *
-     * @return The proxy
+     * @return The delegating connection
      */
     public Connection getProxyConnection() {
         return proxyConnection;
@@ -229,37 +268,26 @@ class PooledConnection implements InvocationHandler {
     }
 
     /**
-     * Required for InvocationHandler implementation.
+     * Returns this connection to the pool instead of closing the real connection.
      *
-     * @param proxy
-     *          - not used
-     * @param method
-     *          - the method to be executed
-     * @param args
-     *          - the parameters to be passed to the method
-     * @see java.lang.reflect.InvocationHandler#invoke(Object, java.lang.reflect.Method, Object[])
+     * @throws SQLException
+     *           if the connection could not be returned
      */
-    @Override
-    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
-        String methodName = method.getName();
-        if (CLOSE.equals(methodName)) {
-            // 如果调用close()方法，则将其重新放入连接池，而不是真正关闭数据库连接
-            dataSource.pushConnection(this);
-            return null;
-        }
-        try {
-            if (!Object.class.equals(method.getDeclaringClass())) {
-                // 只要不是Object的方法，都需要检测当前PooledConnection是否可用
-                checkConnection();
-            }
-            // 调用realConnection的对应方法
-            return method.invoke(realConnection, args);
-        } catch (Throwable t) {
-            throw ExceptionUtil.unwrapThrowable(t);
-        }
+    void returnToPool() throws SQLException {
+        dataSource.pushConnection(this);
+    }
+
+    /**
+     * Returns whether the connection was returned to the pool or claimed as overdue by another thread, without
+     * pinging it.
+     *
+     * @return true if the connection can no longer be used
+     */
+    boolean isInvalidated() {
+        return !valid;
     }
 
-    private void checkConnection() throws SQLException {
+    void checkConnection() throws SQLException {
         if (!valid) {
             throw new SQLException("Error accessing PooledConnection. Connection is invalid.");
         }
@@ -16,13 +16,18 @@
 package org.apache.ibatis.datasource.pooled;
 
 import java.io.PrintWriter;
-import java.lang.reflect.InvocationHandler;
-import java.lang.reflect.Proxy;
+import java.lang.ref.WeakReference;
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Logger;
 
 import javax.sql.DataSource;
@@ -53,8 +58,15 @@ public class PooledDataSource implements DataSource {
     protected String poolPingQuery = "NO PING QUERY SET";
     protected boolean poolPingEnabled;
     protected int poolPingConnectionsNotUsedFor;
+    protected boolean poolLockFree;
+    protected int poolHousekeepingInterval;
+    protected int poolMinimumIdle;
+    protected int poolMaximumIdleTime;
+    protected int poolMaximumLifetime;
+    protected int poolPreparedStatementCacheSize;
 
-    private int expectedConnectionTypeCode;
+    private volatile int expectedConnectionTypeCode;
+    private volatile ScheduledExecutorService housekeeper;
 
     public PooledDataSource() {
         dataSource = new UnpooledDataSource();
@@ -244,6 +256,71 @@ public class PooledDataSource implements DataSource {
         forceCloseAll();
     }
 
+    /**
+     * Determines if connections are borrowed and returned through lock-free structures instead of
+     * the pool monitor. Recommended when many threads compete for the pool.
+     *
+     * @param poolLockFree True to hand out connections without locking the pool state
+     */
+    public void setPoolLockFree(boolean poolLockFree) {
+        forceCloseAll();
+        this.poolLockFree = poolLockFree;
+    }
+
+    /**
+     * The interval between two runs of the background housekeeping task. When enabled, idle connections are
+     * pinged, evicted and replenished in the background, and borrowing threads no longer ping connections.
+     *
+     * @param milliseconds the interval in milliseconds, or 0 to disable housekeeping
+     */
+    public void setPoolHousekeepingInterval(int milliseconds) {
+        this.poolHousekeepingInterval = milliseconds;
+        forceCloseAll();
+    }
+
+    /**
+     * The number of idle connections the housekeeping task keeps open, including when the pool starts.
+     *
+     * @param poolMinimumIdle The minimum number of idle connections
+     */
+    public void setPoolMinimumIdle(int poolMinimumIdle) {
+        this.poolMinimumIdle = poolMinimumIdle;
+        forceCloseAll();
+    }
+
+    /**
+     * If an idle connection has not been used in this many milliseconds, the housekeeping task closes it,
+     * unless that would leave fewer idle connections than the minimum.
+     *
+     * @param milliseconds the idle time in milliseconds, or 0 to keep idle connections open
+     */
+    public void setPoolMaximumIdleTime(int milliseconds) {
+        this.poolMaximumIdleTime = milliseconds;
+        forceCloseAll();
+    }
+
+    /**
+     * The maximum time a connection is kept open after it was created. Older connections are closed when
+     * they are returned to the pool or found idle by the housekeeping task.
+     *
+     * @param milliseconds the lifetime in milliseconds, or 0 to keep connections open indefinitely
+     */
+    public void setPoolMaximumLifetime(int milliseconds) {
+        this.poolMaximumLifetime = milliseconds;
+        forceCloseAll();
+    }
+
+    /**
+     * The number of prepared statements cached per connection. Cached statements are reused by every session
+     * that borrows the same connection, and are reset when they are closed.
+     *
+     * @param poolPreparedStatementCacheSize the number of statements to cache, or 0 to disable the cache
+     */
+    public void setPoolPreparedStatementCacheSize(int poolPreparedStatementCacheSize) {
+        this.poolPreparedStatementCacheSize = poolPreparedStatementCacheSize;
+        forceCloseAll();
+    }
+
     public String getDriver() {
         return dataSource.getDriver();
     }
@@ -314,11 +391,37 @@ public class PooledDataSource implements DataSource {
         return poolPingConnectionsNotUsedFor;
     }
 
+    public boolean isPoolLockFree() {
+        return poolLockFree;
+    }
+
+    public int getPoolHousekeepingInterval() {
+        return poolHousekeepingInterval;
+    }
+
+    public int getPoolMinimumIdle() {
+        return poolMinimumIdle;
+    }
+
+    public int getPoolMaximumIdleTime() {
+        return poolMaximumIdleTime;
+    }
+
+    public int getPoolMaximumLifetime() {
+        return poolMaximumLifetime;
+    }
+
+    public int getPoolPreparedStatementCacheSize() {
+        return poolPreparedStatementCacheSize;
+    }
+
     /**
      * Closes all active and idle connections in the pool.
      */
     public void forceCloseAll() {
-        synchronized (state) {
+        stopHousekeeping();
+        state.lock.lock();
+        try {
             expectedConnectionTypeCode = assembleConnectionTypeCode(dataSource.getUrl(), dataSource.getUsername(), dataSource.getPassword());
             for (int i = state.activeConnections.size(); i > 0; i--) {
                 try {
@@ -348,6 +451,18 @@ public class PooledDataSource implements DataSource {
                     // ignore
                 }
             }
+        } finally {
+            state.lock.unlock();
+        }
+        ConcurrentConnectionBag bag = state.connectionBag;
+        for (ConcurrentConnectionBag.Entry entry : bag.values()) {
+            if (bag.remove(entry)) {
+                PooledConnection owner = entry.getOwner();
+                if (owner != null) {
+                    owner.invalidate();
+                }
+                closeQuietly(entry.getRealConnection());
+            }
         }
         if (log.isDebugEnabled()) {
             log.debug("PooledDataSource forcefully closed/removed all connections.");
@@ -363,11 +478,17 @@ public class PooledDataSource implements DataSource {
     }
 
     protected void pushConnection(PooledConnection conn) throws SQLException {
-        synchronized (state) {
+        if (conn.getEntry() != null) {
+            pushConnectionLockFree(conn);
+            return;
+        }
+        state.lock.lock();
+        try {
             state.activeConnections.remove(conn); // 步骤1：从活跃连接集合中删除该连接
             if (conn.isValid()) {// 步骤2：检测该 PooledConnection 对象是否可用
                 // 步骤3：检测当前PooledDataSource连接池中的空闲连接是否已经达到上限值
-                if (state.idleConnections.size() < poolMaximumIdleConnections && conn.getConnectionTypeCode() == expectedConnectionTypeCode) {
+                if (state.idleConnections.size() < poolMaximumIdleConnections && conn.getConnectionTypeCode() == expectedConnectionTypeCode
+                        && !isLifetimeExceeded(conn.getCreatedTimestamp())) {
                     // 累计增加accumulatedCheckoutTime
                     state.accumulatedCheckoutTime += conn.getCheckoutTime();
                     if (!conn.getRealConnection().getAutoCommit()) {
@@ -377,6 +498,7 @@ public class PooledDataSource implements DataSource {
                     // 将底层连接重新封装成PooledConnection对象，
                     // 并添加到空闲连接集合（也就是前面提到的 idleConnections 集合）
                     PooledConnection newConn = new PooledConnection(conn.getRealConnection(), this);
+                    newConn.setStatementCache(conn.getStatementCache());
                     state.idleConnections.add(newConn);
                     // 设置新PooledConnection对象的创建时间戳和最后使用时间戳
                     newConn.setCreatedTimestamp(conn.getCreatedTimestamp());
@@ -386,7 +508,7 @@ public class PooledDataSource implements DataSource {
                         log.debug("Returned connection " + newConn.getRealHashCode() + " to pool.");
                     }
                     // 唤醒所有阻塞等待空闲连接的线程
-                    state.notifyAll();
+                    state.connectionAvailable.signalAll();
                 } else {
                     // 当前PooledDataSource连接池中的空闲连接已经达到上限值
                     // 当前数据库连接无法放回到池中
@@ -412,17 +534,73 @@ public class PooledDataSource implements DataSource {
                 // 统计无效PooledConnection对象个数
                 state.badConnectionCount++;
             }
+        } finally {
+            state.lock.unlock();
+        }
+    }
+
+    private void pushConnectionLockFree(PooledConnection conn) throws SQLException {
+        ConcurrentConnectionBag bag = state.connectionBag;
+        ConcurrentConnectionBag.Entry entry = conn.getEntry();
+        // 连接已被其他线程作为超时连接回收，或者已经归还过
+        if (!entry.releaseOwner(conn)) {
+            if (log.isDebugEnabled()) {
+                log.debug("A bad connection (" + conn.getRealHashCode() + ") attempted to return to the pool, discarding connection.");
+            }
+            state.lockFreeCounters.badConnectionCount.increment();
+            return;
+        }
+        if (!conn.isValid()) {
+            if (log.isDebugEnabled()) {
+                log.debug("A bad connection (" + conn.getRealHashCode() + ") attempted to return to the pool, discarding connection.");
+            }
+            state.lockFreeCounters.badConnectionCount.increment();
+            conn.invalidate();
+            discardConnection(entry);
+            return;
+        }
+        state.lockFreeCounters.accumulatedCheckoutTime.add(conn.getCheckoutTime());
+        conn.invalidate();
+        try {
+            if (!entry.getRealConnection().getAutoCommit()) {
+                entry.getRealConnection().rollback();
+            }
+        } catch (SQLException e) {
+            discardConnection(entry);
+            throw e;
+        }
+        entry.setLastUsedTimestamp(conn.getLastUsedTimestamp());
+        // 有线程在等待时直接移交连接，否则在空闲连接未达上限时放回连接池
+        if (conn.getConnectionTypeCode() == expectedConnectionTypeCode && !isLifetimeExceeded(entry.getCreatedTimestamp())
+                && (bag.getWaitingThreadCount() > 0
+                || bag.getIdleCount() < poolMaximumIdleConnections)) {
+            bag.requite(entry);
+            if (log.isDebugEnabled()) {
+                log.debug("Returned connection " + conn.getRealHashCode() + " to pool.");
+            }
+        } else {
+            discardConnection(entry);
+            if (log.isDebugEnabled()) {
+                log.debug("Closed connection " + conn.getRealHashCode() + ".");
+            }
         }
     }
 
     private PooledConnection popConnection(String username, String password) throws SQLException {
+        if (housekeeper == null && poolHousekeepingInterval > 0) {
+            startHousekeeping();
+        }
+        if (poolLockFree) {
+            return popConnectionLockFree(username, password);
+        }
         boolean countedWait = false;
         PooledConnection conn = null;
         long t = System.currentTimeMillis();
         int localBadConnectionCount = 0;
 
         while (conn == null) {
-            synchronized (state) { // 加锁同步
+            state.lock.lock(); // 加锁同步
+            try {
                 // 步骤1：检测空闲连接集合
                 if (!state.idleConnections.isEmpty()) {
                     // 获取空闲连接
@@ -435,6 +613,7 @@ public class PooledDataSource implements DataSource {
                     if (state.activeConnections.size() < poolMaximumActiveConnections) {
                         // 创建新数据库连接，并封装成PooledConnection对象
                         conn = new PooledConnection(dataSource.getConnection(), this);
+                        conn.setStatementCache(createStatementCache());
                         if (log.isDebugEnabled()) {
                             log.debug("Created connection " + conn.getRealHashCode() + ".");
                         }
@@ -461,6 +640,7 @@ public class PooledDataSource implements DataSource {
                             }
                             // 创建新PooledConnection对象，但是真正的数据库连接并未创建新的
                             conn = new PooledConnection(oldestActiveConnection.getRealConnection(), this);
+                            conn.setStatementCache(oldestActiveConnection.getStatementCache());
                             conn.setCreatedTimestamp(oldestActiveConnection.getCreatedTimestamp());
                             conn.setLastUsedTimestamp(oldestActiveConnection.getLastUsedTimestamp());
                             // 将超时PooledConnection设置为无效
@@ -479,7 +659,7 @@ public class PooledDataSource implements DataSource {
                                     log.debug("Waiting as long as " + poolTimeToWait + " milliseconds for connection.");
                                 }
                                 long wt = System.currentTimeMillis();
-                                state.wait(poolTimeToWait);// 阻塞等待
+                                state.connectionAvailable.await(poolTimeToWait, TimeUnit.MILLISECONDS);// 阻塞等待
                                 // 统计累积的等待时间
                                 state.accumulatedWaitTime += System.currentTimeMillis() - wt;
                             } catch (InterruptedException e) {
@@ -516,6 +696,8 @@ public class PooledDataSource implements DataSource {
                         }
                     }
                 }
+            } finally {
+                state.lock.unlock();
             }
 
         }
@@ -530,6 +712,345 @@ public class PooledDataSource implements DataSource {
         return conn;
     }
 
+    private PooledConnection popConnectionLockFree(String username, String password) throws SQLException {
+        ConcurrentConnectionBag bag = state.connectionBag;
+        boolean countedWait = false;
+        PooledConnection conn = null;
+        long t = System.currentTimeMillis();
+        int localBadConnectionCount = 0;
+
+        while (conn == null) {
+            // 步骤1：优先获取当前线程最近归还的连接，其次是任意空闲连接
+            ConcurrentConnectionBag.Entry entry = bag.borrow();
+            if (entry != null) {
+                if (log.isDebugEnabled()) {
+                    log.debug("Checked out connection " + entry.getRealConnection().hashCode() + " from pool.");
+                }
+            } else if (bag.tryReserve(poolMaximumActiveConnections)) {
+                // 步骤2：连接数没有到上限值，则创建新连接
+                Connection realConnection;
+                try {
+                    realConnection = dataSource.getConnection();
+                } catch (SQLException e) {
+                    bag.release();
+                    throw e;
+                }
+                entry = bag.add(realConnection, createStatementCache());
+                if (log.isDebugEnabled()) {
+                    log.debug("Created connection " + realConnection.hashCode() + ".");
+                }
+            } else {
+                // 步骤3：检测超时连接
+                entry = claimOverdueConnection(bag);
+                if (entry == null) {
+                    // 步骤4：等待其他线程归还连接
+                    if (!countedWait) {
+                        state.lockFreeCounters.hadToWaitCount.increment();
+                        countedWait = true;
+                    }
+                    if (log.isDebugEnabled()) {
+                        log.debug("Waiting as long as " + poolTimeToWait + " milliseconds for connection.");
+                    }
+                    long wt = System.currentTimeMillis();
+                    try {
+                        entry = bag.await(poolTimeToWait);
+                    } catch (InterruptedException e) {
+                        break;
+                    }
+                    state.lockFreeCounters.accumulatedWaitTime.add(System.currentTimeMillis() - wt);
+                    if (entry == null) {
+                        continue;
+                    }
+                }
+            }
+            conn = new PooledConnection(entry.getRealConnection(), this, entry);
+            conn.setCreatedTimestamp(entry.getCreatedTimestamp());
+            conn.setLastUsedTimestamp(entry.getLastUsedTimestamp());
+            if (conn.isValid()) {
+                try {
+                    if (!conn.getRealConnection().getAutoCommit()) {
+                        conn.getRealConnection().rollback();
+                    }
+                } catch (SQLException e) {
+                    discardConnection(entry);
+                    throw e;
+                }
+                long now = System.currentTimeMillis();
+                conn.setConnectionTypeCode(assembleConnectionTypeCode(dataSource.getUrl(), username, password));
+                conn.setCheckoutTimestamp(now);
+                conn.setLastUsedTimestamp(now);
+                entry.setCheckoutTimestamp(now);
+                entry.setOwner(conn);
+                state.lockFreeCounters.requestCount.increment();
+                state.lockFreeCounters.accumulatedRequestTime.add(now - t);
+            } else {
+                if (log.isDebugEnabled()) {
+                    log.debug("A bad connection (" + conn.getRealHashCode() + ") was returned from the pool, getting another connection.");
+                }
+                state.lockFreeCounters.badConnectionCount.increment();
+                localBadConnectionCount++;
+                conn = null;
+                discardConnection(entry);
+                if (localBadConnectionCount > (poolMaximumIdleConnections + poolMaximumLocalBadConnectionTolerance)) {
+                    if (log.isDebugEnabled()) {
+                        log.debug("PooledDataSource: Could not get a good connection to the database.");
+                    }
+                    throw new SQLException("PooledDataSource: Could not get a good connection to the database.");
+                }
+            }
+        }
+
+        if (conn == null) {
+            if (log.isDebugEnabled()) {
+                log.debug("PooledDataSource: Unknown severe error condition.  The connection pool returned a null connection.");
+            }
+            throw new SQLException("PooledDataSource: Unknown severe error condition.  The connection pool returned a null connection.");
+        }
+
+        return conn;
+    }
+
+    private ConcurrentConnectionBag.Entry claimOverdueConnection(ConcurrentConnectionBag bag) {
+        for (ConcurrentConnectionBag.Entry entry : bag.values()) {
+            PooledConnection owner = entry.getOwner();
+            if (owner == null || entry.getState() != ConcurrentConnectionBag.STATE_IN_USE) {
+                continue;
+            }
+            long checkoutTime = entry.getCheckoutTime();
+            // 只有成功解除原持有者的线程才能接管该连接
+            if (checkoutTime > poolMaximumCheckoutTime && entry.releaseOwner(owner)) {
+                owner.invalidate();
+                state.lockFreeCounters.claimedOverdueConnectionCount.increment();
+                state.lockFreeCounters.accumulatedCheckoutTimeOfOverdueConnections.add(checkoutTime);
+                state.lockFreeCounters.accumulatedCheckoutTime.add(checkoutTime);
+                try {
+                    if (!entry.getRealConnection().getAutoCommit()) {
+                        entry.getRealConnection().rollback();
+                    }
+                } catch (SQLException e) {
+                    log.debug("Bad connection. Could not roll back");
+                }
+                if (log.isDebugEnabled()) {
+                    log.debug("Claimed overdue connection " + entry.getRealConnection().hashCode() + ".");
+                }
+                return entry;
+            }
+        }
+        return null;
+    }
+
+    private void discardConnection(ConcurrentConnectionBag.Entry entry) {
+        if (state.connectionBag.remove(entry)) {
+            closeQuietly(entry.getRealConnection());
+        }
+    }
+
+    private void closeQuietly(Connection realConn) {
+        try {
+            if (!realConn.getAutoCommit()) {
+                realConn.rollback();
+            }
+            realConn.close();
+        } catch (Exception e) {
+            // ignore
+        }
+    }
+
+    /**
+     * Starts the background housekeeping task if it is enabled and not running yet. The first run fills the
+     * pool up to the minimum number of idle connections.
+     */
+    void startHousekeeping() {
+        if (poolHousekeepingInterval <= 0) {
+            return;
+        }
+        synchronized (this) {
+            if (housekeeper == null) {
+                housekeeper = Executors.newSingleThreadScheduledExecutor(r -> {
+                    Thread thread = new Thread(r, "PooledDataSource-housekeeper");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+                housekeeper.scheduleWithFixedDelay(new HousekeepingTask(this, housekeeper), 0, poolHousekeepingInterval, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    private void stopHousekeeping() {
+        synchronized (this) {
+            if (housekeeper != null) {
+                housekeeper.shutdownNow();
+                housekeeper = null;
+            }
+        }
+    }
+
+    private void houseKeep() {
+        try {
+            if (poolLockFree) {
+                houseKeepLockFree();
+            } else {
+                houseKeepIdleConnections();
+            }
+            fillPool();
+        } catch (Exception e) {
+            log.warn("PooledDataSource housekeeping failed: " + e.getMessage());
+        }
+    }
+
+    private void houseKeepIdleConnections() {
+        List<PooledConnection> toClose = new ArrayList<>();
+        List<PooledConnection> toValidate = new ArrayList<>();
+        // 在锁内只摘出需要处理的空闲连接，关闭和ping操作在锁外执行
+        state.lock.lock();
+        try {
+            int idleCount = state.idleConnections.size();
+            for (Iterator<PooledConnection> it = state.idleConnections.iterator(); it.hasNext(); ) {
+                PooledConnection conn = it.next();
+                if (isLifetimeExceeded(conn.getCreatedTimestamp())
+                        || (isIdleTimeExceeded(conn.getLastUsedTimestamp()) && idleCount > poolMinimumIdle)) {
+                    it.remove();
+                    idleCount--;
+                    toClose.add(conn);
+                } else if (isPingRequired(conn)) {
+                    it.remove();
+                    toValidate.add(conn);
+                }
+            }
+        } finally {
+            state.lock.unlock();
+        }
+        for (PooledConnection conn : toClose) {
+            conn.invalidate();
+            closeQuietly(conn.getRealConnection());
+            if (log.isDebugEnabled()) {
+                log.debug("Closed connection " + conn.getRealHashCode() + ".");
+            }
+        }
+        for (PooledConnection conn : toValidate) {
+            if (pingConnection(conn, true)) {
+                conn.setLastUsedTimestamp(System.currentTimeMillis());
+                state.lock.lock();
+                try {
+                    if (!Thread.currentThread().isInterrupted() && state.idleConnections.size() < poolMaximumIdleConnections) {
+                        state.idleConnections.add(conn);
+                        state.connectionAvailable.signalAll();
+                        continue;
+                    }
+                } finally {
+                    state.lock.unlock();
+                }
+            } else {
+                state.lock.lock();
+                try {
+                    state.badConnectionCount++;
+                } finally {
+                    state.lock.unlock();
+                }
+            }
+            conn.invalidate();
+            closeQuietly(conn.getRealConnection());
+        }
+    }
+
+    private void houseKeepLockFree() {
+        ConcurrentConnectionBag bag = state.connectionBag;
+        for (ConcurrentConnectionBag.Entry entry : bag.values()) {
+            // 只处理能够从空闲状态预留出来的连接，正在使用的连接不受影响
+            if (!bag.reserve(entry)) {
+                continue;
+            }
+            if (isLifetimeExceeded(entry.getCreatedTimestamp())
+                    || (isIdleTimeExceeded(entry.getLastUsedTimestamp()) && bag.getIdleCount() >= poolMinimumIdle)) {
+                discardConnection(entry);
+                if (log.isDebugEnabled()) {
+                    log.debug("Closed connection " + entry.getRealConnection().hashCode() + ".");
+                }
+                continue;
+            }
+            PooledConnection conn = new PooledConnection(entry.getRealConnection(), this, entry);
+            conn.setLastUsedTimestamp(entry.getLastUsedTimestamp());
+            if (!isPingRequired(conn)) {
+                bag.requite(entry);
+            } else if (pingConnection(conn, true)) {
+                entry.setLastUsedTimestamp(System.currentTimeMillis());
+                bag.requite(entry);
+            } else {
+                state.lockFreeCounters.badConnectionCount.increment();
+                discardConnection(entry);
+            }
+        }
+    }
+
+    private void fillPool() throws SQLException {
+        int minimumIdle = Math.min(poolMinimumIdle, poolMaximumIdleConnections);
+        while (!Thread.currentThread().isInterrupted() && state.getIdleConnectionCount() < minimumIdle) {
+            if (poolLockFree) {
+                ConcurrentConnectionBag bag = state.connectionBag;
+                if (!bag.tryReserve(poolMaximumActiveConnections)) {
+                    return;
+                }
+                Connection realConnection;
+                try {
+                    realConnection = dataSource.getConnection();
+                } catch (SQLException e) {
+                    bag.release();
+                    throw e;
+                }
+                bag.requite(bag.add(realConnection, createStatementCache()));
+                if (log.isDebugEnabled()) {
+                    log.debug("Created connection " + realConnection.hashCode() + ".");
+                }
+            } else {
+                state.lock.lock();
+                try {
+                    if (state.activeConnections.size() + state.idleConnections.size() >= poolMaximumActiveConnections
+                            || state.idleConnections.size() >= poolMaximumIdleConnections) {
+                        return;
+                    }
+                } finally {
+                    state.lock.unlock();
+                }
+                PooledConnection conn = new PooledConnection(dataSource.getConnection(), this);
+                conn.setStatementCache(createStatementCache());
+                state.lock.lock();
+                try {
+                    // 创建连接时未持有锁，popConnection()可能同时创建了连接，需要重新检查全部上限
+                    if (Thread.currentThread().isInterrupted()
+                            || state.activeConnections.size() + state.idleConnections.size() >= poolMaximumActiveConnections
+                            || state.idleConnections.size() >= poolMaximumIdleConnections) {
+                        closeQuietly(conn.getRealConnection());
+                        return;
+                    }
+                    state.idleConnections.add(conn);
+                    state.connectionAvailable.signalAll();
+                } finally {
+                    state.lock.unlock();
+                }
+                if (log.isDebugEnabled()) {
+                    log.debug("Created connection " + conn.getRealHashCode() + ".");
+                }
+            }
+        }
+    }
+
+    private PreparedStatementCache createStatementCache() {
+        return poolPreparedStatementCacheSize > 0 ? new PreparedStatementCache(poolPreparedStatementCacheSize) : null;
+    }
+
+    private boolean isPingRequired(PooledConnection conn) {
+        return poolPingEnabled && poolPingConnectionsNotUsedFor >= 0
+                && conn.getTimeElapsedSinceLastUse() > poolPingConnectionsNotUsedFor;
+    }
+
+    private boolean isIdleTimeExceeded(long lastUsedTimestamp) {
+        return poolMaximumIdleTime > 0 && System.currentTimeMillis() - lastUsedTimestamp > poolMaximumIdleTime;
+    }
+
+    private boolean isLifetimeExceeded(long createdTimestamp) {
+        return poolMaximumLifetime > 0 && System.currentTimeMillis() - createdTimestamp > poolMaximumLifetime;
+    }
+
     /**
      * Method to check to see if a connection is still usable
      *
@@ -537,6 +1058,11 @@ public class PooledDataSource implements DataSource {
      * @return True if the connection is still usable
      */
     protected boolean pingConnection(PooledConnection conn) {
+        // 开启后台维护后，由维护线程执行ping操作，借出和归还连接时只检测连接是否关闭
+        return pingConnection(conn, housekeeper == null);
+    }
+
+    private boolean pingConnection(PooledConnection conn, boolean pingQueryAllowed) {
         boolean result = true; // 记录此次ping操作是否成功完成
 
         try {
@@ -553,8 +1079,7 @@ public class PooledDataSource implements DataSource {
         // 是否能执行ping操作。另外，ping操作不能频繁执行，只有超过一定是时长
         // (超过poolPingConnectionsNotUsedFor指定的时长)未使用的连接，才需要ping
         // 操作来检测数据库连接是否正常
-        if (result && poolPingEnabled && poolPingConnectionsNotUsedFor >= 0
-                && conn.getTimeElapsedSinceLastUse() > poolPingConnectionsNotUsedFor) {
+        if (result && pingQueryAllowed && isPingRequired(conn)) {
             try {
                 if (log.isDebugEnabled()) {
                     log.debug("Testing connection " + conn.getRealHashCode() + " ...");
@@ -594,11 +1119,8 @@ public class PooledDataSource implements DataSource {
      * @return The 'real' connection
      */
     public static Connection unwrapConnection(Connection conn) {
-        if (Proxy.isProxyClass(conn.getClass())) {
-            InvocationHandler handler = Proxy.getInvocationHandler(conn);
-            if (handler instanceof PooledConnection) {
-                return ((PooledConnection) handler).getRealConnection();
-            }
+        if (conn instanceof DelegatingConnection) {
+            return ((DelegatingConnection) conn).getPooledConnection().getRealConnection();
         }
         return conn;
     }
@@ -624,4 +1146,29 @@ public class PooledDataSource implements DataSource {
         return Logger.getLogger(Logger.GLOBAL_LOGGER_NAME);
     }
 
+    /**
+     * Runs the housekeeping of a data source without keeping it reachable, so that an abandoned data source
+     * can still be finalized and its housekeeping thread stopped.
+     */
+    private static class HousekeepingTask implements Runnable {
+
+        private final WeakReference<PooledDataSource> dataSource;
+        private final ScheduledExecutorService executor;
+
+        HousekeepingTask(PooledDataSource dataSource, ScheduledExecutorService executor) {
+            this.dataSource = new WeakReference<>(dataSource);
+            this.executor = executor;
+        }
+
+        @Override
+        public void run() {
+            PooledDataSource ds = dataSource.get();
+            if (ds == null) {
+                executor.shutdown();
+            } else {
+                ds.houseKeep();
+            }
+        }
+    }
+
 }
@@ -1,5 +1,5 @@
 /**
- * Copyright 2009-2015 the original author or authors.
+ * Copyright 2009-2020 the original author or authors.
  * <p>
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -15,6 +15,8 @@
  */
 package org.apache.ibatis.datasource.pooled;
 
+import java.util.Properties;
+
 import org.apache.ibatis.datasource.unpooled.UnpooledDataSourceFactory;
 
 /**
@@ -26,4 +28,11 @@ public class PooledDataSourceFactory extends UnpooledDataSourceFactory {
         this.dataSource = new PooledDataSource();
     }
 
+    @Override
+    public void setProperties(Properties properties) {
+        super.setProperties(properties);
+        // 开启了后台维护时，在启动阶段即预先创建poolMinimumIdle个空闲连接
+        ((PooledDataSource) dataSource).startHousekeeping();
+    }
+
 }
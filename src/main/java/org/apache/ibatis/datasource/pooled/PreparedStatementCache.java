@@ -0,0 +1,199 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.datasource.pooled;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Least recently used cache of the prepared statements of one physical connection.
+ * <p>
+ * The cache lives as long as the physical connection, so statements prepared by one session are reused by
+ * the next sessions that borrow the same connection. A statement is removed from the cache while it is in
+ * use, and is reset (its open result set closed, its warnings, parameters and batch cleared) and put back
+ * when it is closed. A statement closed after its connection was returned to the pool, or claimed as overdue by
+ * another thread, is closed instead. The cache is guarded by a lock, as such a late close may still race with the
+ * new borrower of the connection.
+ */
+final class PreparedStatementCache {
+
+  /**
+   * Result set type and concurrency of statements prepared with {@link Connection#prepareStatement(String)}.
+   */
+  static final int DRIVER_DEFAULT = -1;
+
+  private final Map<Key, CachedStatement> idleStatements;
+  private final ReentrantLock lock = new ReentrantLock();
+
+  PreparedStatementCache(final int size) {
+    this.idleStatements = new LinkedHashMap<Key, CachedStatement>(size, .75F, true) {
+      private static final long serialVersionUID = 1L;
+
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<Key, CachedStatement> eldest) {
+        boolean tooBig = size() > size;
+        if (tooBig) {
+          closeQuietly(eldest.getValue().getStatement());
+        }
+        return tooBig;
+      }
+    };
+  }
+
+  /**
+   * Borrows a cached statement for the given SQL, or prepares a new one.
+   *
+   * @param connection the connection handed out to the application
+   * @param realConnection the physical connection
+   * @param sql the SQL statement
+   * @param resultSetType the result set type, or {@link #DRIVER_DEFAULT}
+   * @param resultSetConcurrency the result set concurrency, or {@link #DRIVER_DEFAULT}
+   * @return a statement that goes back to the cache when closed
+   * @throws SQLException if a new statement could not be prepared
+   */
+  PreparedStatement prepareStatement(DelegatingConnection connection, Connection realConnection, String sql,
+      int resultSetType, int resultSetConcurrency) throws SQLException {
+    Key key = new Key(sql, resultSetType, resultSetConcurrency);
+    CachedStatement cachedStatement;
+    lock.lock();
+    try {
+      cachedStatement = idleStatements.remove(key);
+    } finally {
+      lock.unlock();
+    }
+    if (cachedStatement == null) {
+      PreparedStatement statement = resultSetType == DRIVER_DEFAULT
+          ? realConnection.prepareStatement(sql)
+          : realConnection.prepareStatement(sql, resultSetType, resultSetConcurrency);
+      cachedStatement = new CachedStatement(key, statement);
+    }
+    return new CachedPreparedStatement(this, cachedStatement, connection);
+  }
+
+  void returnStatement(CachedStatement cachedStatement, boolean settingsChanged) {
+    PreparedStatement statement = cachedStatement.getStatement();
+    try {
+      // a result set left open would otherwise keep its cursor until the statement is reused or evicted
+      ResultSet resultSet = statement.getResultSet();
+      if (resultSet != null) {
+        resultSet.close();
+      }
+      statement.clearWarnings();
+      statement.clearParameters();
+      statement.clearBatch();
+      if (settingsChanged) {
+        cachedStatement.restoreSettings();
+      }
+    } catch (SQLException e) {
+      closeQuietly(statement);
+      return;
+    }
+    CachedStatement previous;
+    lock.lock();
+    try {
+      previous = idleStatements.put(cachedStatement.key, cachedStatement);
+    } finally {
+      lock.unlock();
+    }
+    if (previous != null) {
+      // the same SQL was prepared twice while the first statement was still open
+      closeQuietly(previous.getStatement());
+    }
+  }
+
+  private static void closeQuietly(PreparedStatement statement) {
+    try {
+      statement.close();
+    } catch (SQLException e) {
+      // ignore
+    }
+  }
+
+  static final class CachedStatement {
+
+    private final Key key;
+    private final PreparedStatement statement;
+    private int fetchSize;
+    private int fetchDirection;
+    private int queryTimeout;
+    private int maxRows;
+    private int maxFieldSize;
+
+    CachedStatement(Key key, PreparedStatement statement) {
+      this.key = key;
+      this.statement = statement;
+    }
+
+    PreparedStatement getStatement() {
+      return statement;
+    }
+
+    void captureSettings() throws SQLException {
+      fetchSize = statement.getFetchSize();
+      fetchDirection = statement.getFetchDirection();
+      queryTimeout = statement.getQueryTimeout();
+      maxRows = statement.getMaxRows();
+      maxFieldSize = statement.getMaxFieldSize();
+    }
+
+    void restoreSettings() throws SQLException {
+      statement.setFetchSize(fetchSize);
+      statement.setFetchDirection(fetchDirection);
+      statement.setQueryTimeout(queryTimeout);
+      statement.setMaxRows(maxRows);
+      statement.setMaxFieldSize(maxFieldSize);
+    }
+  }
+
+  private static final class Key {
+
+    private final String sql;
+    private final int resultSetType;
+    private final int resultSetConcurrency;
+    private final int hashCode;
+
+    Key(String sql, int resultSetType, int resultSetConcurrency) {
+      this.sql = sql;
+      this.resultSetType = resultSetType;
+      this.resultSetConcurrency = resultSetConcurrency;
+      this.hashCode = 31 * (31 * sql.hashCode() + resultSetType) + resultSetConcurrency;
+    }
+
+    @Override
+    public int hashCode() {
+      return hashCode;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (this == obj) {
+        return true;
+      }
+      if (!(obj instanceof Key)) {
+        return false;
+      }
+      Key other = (Key) obj;
+      return resultSetType == other.resultSetType && resultSetConcurrency == other.resultSetConcurrency
+          && sql.equals(other.sql);
+    }
+  }
+
+}
@@ -26,6 +26,7 @@ import java.util.Map;
 import java.util.Properties;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executors;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.logging.Logger;
 
 import javax.sql.DataSource;
@@ -42,7 +43,8 @@ public class UnpooledDataSource implements DataSource {
     private Properties driverProperties;
     private static Map<String, Driver> registeredDrivers = new ConcurrentHashMap<>();
 
-    private String driver;
+    private final ReentrantLock initLock = new ReentrantLock();
+    private volatile String driver;
     private String url;
     private String username;
     private String password;
@@ -138,11 +140,11 @@ public class UnpooledDataSource implements DataSource {
         this.driverProperties = driverProperties;
     }
 
-    public synchronized String getDriver() {
+    public String getDriver() {
         return driver;
     }
 
-    public synchronized void setDriver(String driver) {
+    public void setDriver(String driver) {
         this.driver = driver;
     }
 
@@ -230,26 +232,35 @@ public class UnpooledDataSource implements DataSource {
         return connection;
     }
 
-    private synchronized void initializeDriver() throws SQLException {
-        if (!registeredDrivers.containsKey(driver)) { // 检测JDBC驱动是否已注册
-            Class<?> driverType;
-            try {
-                if (driverClassLoader != null) {
-                    // 加载JDBC驱动类
-                    driverType = Class.forName(driver, true, driverClassLoader);
-                } else {
-                    driverType = Resources.classForName(driver);
+    private void initializeDriver() throws SQLException {
+        String driver = this.driver;
+        if (registeredDrivers.containsKey(driver)) { // 检测JDBC驱动是否已注册
+            return;
+        }
+        initLock.lock();
+        try {
+            if (!registeredDrivers.containsKey(driver)) {
+                Class<?> driverType;
+                try {
+                    if (driverClassLoader != null) {
+                        // 加载JDBC驱动类
+                        driverType = Class.forName(driver, true, driverClassLoader);
+                    } else {
+                        driverType = Resources.classForName(driver);
+                    }
+                    // 创建Driver对象
+                    Driver driverInstance = (Driver) driverType.getDeclaredConstructor().newInstance();
+                    // 注册JDBC驱动，DriverProxy是定义在UnpooledDataSource中的内部类，
+                    // 也实现了java.sql.Driver接口，是Driver的一个静态代理类
+                    DriverManager.registerDriver(new DriverProxy(driverInstance));
+                    // 将JDBC驱动记录到registeredDrivers集合中
+                    registeredDrivers.put(driver, driverInstance);
+                } catch (Exception e) {
+                    throw new SQLException("Error setting driver on UnpooledDataSource. Cause: " + e);
                 }
-                // 创建Driver对象
-                Driver driverInstance = (Driver) driverType.getDeclaredConstructor().newInstance();
-                // 注册JDBC驱动，DriverProxy是定义在UnpooledDataSource中的内部类，
-                // 也实现了java.sql.Driver接口，是Driver的一个静态代理类
-                DriverManager.registerDriver(new DriverProxy(driverInstance));
-                // 将JDBC驱动记录到registeredDrivers集合中
-                registeredDrivers.put(driver, driverInstance);
-            } catch (Exception e) {
-                throw new SQLException("Error setting driver on UnpooledDataSource. Cause: " + e);
             }
+        } finally {
+            initLock.unlock();
         }
     }
 
@@ -24,17 +24,20 @@ import java.util.List;
 import java.util.concurrent.ConcurrentLinkedQueue;
 
 import org.apache.ibatis.cache.CacheKey;
+import org.apache.ibatis.cache.CompactCacheKey;
 import org.apache.ibatis.cache.impl.PerpetualCache;
 import org.apache.ibatis.cursor.Cursor;
 import org.apache.ibatis.executor.statement.StatementUtil;
 import org.apache.ibatis.logging.Log;
 import org.apache.ibatis.logging.LogFactory;
 import org.apache.ibatis.logging.jdbc.ConnectionLogger;
+import org.apache.ibatis.logging.jdbc.SqlTracer;
 import org.apache.ibatis.mapping.BoundSql;
 import org.apache.ibatis.mapping.MappedStatement;
 import org.apache.ibatis.mapping.ParameterMapping;
 import org.apache.ibatis.mapping.ParameterMode;
 import org.apache.ibatis.mapping.StatementType;
+import org.apache.ibatis.metrics.StatementMetrics;
 import org.apache.ibatis.reflection.MetaObject;
 import org.apache.ibatis.reflection.factory.ObjectFactory;
 import org.apache.ibatis.session.Configuration;
@@ -153,6 +156,10 @@ public abstract class BaseExecutor implements Executor {
             queryStack++; // 增加查询层数
             // 查询一级缓存
             list = resultHandler == null ? (List<E>) localCache.getObject(key) : null;
+            StatementMetrics metrics = resultHandler == null ? configuration.getStatementMetrics(ms.getId()) : null;
+            if (metrics != null) {
+                metrics.recordLocalCache(list != null);
+            }
             if (list != null) {
                 // 对存储过程出参的处理：如果命中一级缓存，则获取缓存中保存的输出参数，
                 // 然后记录到用户传入的实参对象中
@@ -203,7 +210,7 @@ public abstract class BaseExecutor implements Executor {
         if (closed) {
             throw new ExecutorException("Executor was closed.");
         }
-        CacheKey cacheKey = new CacheKey();
+        CacheKey cacheKey = configuration.isCompactCacheKeyEnabled() ? new CompactCacheKey() : new CacheKey();
         cacheKey.update(ms.getId());
         cacheKey.update(rowBounds.getOffset());
         cacheKey.update(rowBounds.getLimit());
@@ -341,6 +348,10 @@ public abstract class BaseExecutor implements Executor {
     protected Connection getConnection(Log statementLog) throws SQLException {
         Connection connection = transaction.getConnection();
         if (statementLog.isDebugEnabled()) {
+            SqlTracer sqlTracer = configuration.getSqlTracer();
+            if (sqlTracer != null) {
+                return sqlTracer.trace(connection, statementLog, queryStack);
+            }
             return ConnectionLogger.newInstance(connection, statementLog, queryStack);
         } else {
             return connection;
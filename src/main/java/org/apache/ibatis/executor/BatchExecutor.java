@@ -17,11 +17,16 @@ package org.apache.ibatis.executor;
 
 import java.sql.BatchUpdateException;
 import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.AbstractMap;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.ibatis.cursor.Cursor;
 import org.apache.ibatis.executor.keygen.Jdbc3KeyGenerator;
@@ -30,6 +35,10 @@ import org.apache.ibatis.executor.keygen.NoKeyGenerator;
 import org.apache.ibatis.executor.statement.StatementHandler;
 import org.apache.ibatis.mapping.BoundSql;
 import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.SqlCommandType;
+import org.apache.ibatis.mapping.StatementType;
+import org.apache.ibatis.metrics.StatementMetrics;
+import org.apache.ibatis.metrics.StatementMetrics.Phase;
 import org.apache.ibatis.session.Configuration;
 import org.apache.ibatis.session.ResultHandler;
 import org.apache.ibatis.session.RowBounds;
@@ -46,6 +55,16 @@ public class BatchExecutor extends BaseExecutor {
     private final List<BatchResult> batchResultList = new ArrayList<>();
     private String currentSql;
     private MappedStatement currentStatement;
+    // 等待合并成一条多行insert语句的行
+    private final List<MultiRowInsert.BoundRow> pendingRows = new ArrayList<>();
+    private final List<Object> pendingParameterObjects = new ArrayList<>();
+    private MultiRowInsert pendingInsert;
+    private MappedStatement pendingStatement;
+    // 自上次执行批处理以来添加的行数，以及其中第一行的添加时间
+    private int batchedRows;
+    private long firstBatchedTime;
+    // 自动执行的批处理的汇总结果，按MappedStatement和SQL合并，保持首次执行的顺序
+    private final Map<Map.Entry<MappedStatement, String>, BatchResult> flushedResults = new LinkedHashMap<>();
 
     public BatchExecutor(Configuration configuration, Transaction transaction) {
         super(configuration, transaction);
@@ -53,38 +72,124 @@ public class BatchExecutor extends BaseExecutor {
 
     @Override
     public int doUpdate(MappedStatement ms, Object parameterObject) throws SQLException {
+        final Configuration configuration = ms.getConfiguration();
+        batch(ms, parameterObject);
+        if (batchedRows++ == 0) {
+            firstBatchedTime = System.nanoTime();
+        }
+        // 达到配置的行数或时间间隔时自动执行批处理，释放已执行的Statement和实参
+        if (configuration.getBatchFlushSize() > 0 && batchedRows >= configuration.getBatchFlushSize()
+                || configuration.getBatchFlushInterval() > 0
+                && System.nanoTime() - firstBatchedTime >= TimeUnit.MILLISECONDS.toNanos(configuration.getBatchFlushInterval())) {
+            aggregateResults(flushedResults, executeBatches(false));
+        }
+        return BATCH_UPDATE_RETURN_VALUE;
+    }
+
+    private void batch(MappedStatement ms, Object parameterObject) throws SQLException {
         final Configuration configuration = ms.getConfiguration();
         // 创建StatementHandler对象
         final StatementHandler handler = configuration.newStatementHandler(this, ms, parameterObject, RowBounds.DEFAULT, null, null);
         final BoundSql boundSql = handler.getBoundSql();
         // 获取此次追加的SQL模板
         final String sql = boundSql.getSql();
+        // 与暂存的insert语句不同时，先将暂存的行合并成一条语句添加到批处理中
+        if (pendingInsert != null && !(sql.equals(pendingInsert.getSql()) && ms.equals(pendingStatement))) {
+            batchPendingRows();
+        }
+        if (pendingInsert == null && isMultiRowInsertCandidate(ms)) {
+            MultiRowInsert insert = MultiRowInsert.parse(sql, boundSql.getParameterMappings().size());
+            if (insert != null && insert.getMaxRows(configuration.getMultiRowInsertRowLimit(),
+                    configuration.getMultiRowInsertParameterLimit()) > 1) {
+                pendingInsert = insert;
+                pendingStatement = ms;
+            }
+        }
+        if (pendingInsert != null) {
+            // 暂存此行，达到行数上限时合并成一条多行insert语句。此行的实参在此时就记录下来，
+            // 以免之后修改实参对象（例如循环中复用同一个对象）改变要插入的值
+            MultiRowInsert.BoundRow row = new MultiRowInsert.BoundRow();
+            handler.parameterize(row.recorder(getConnection(ms.getStatementLog())));
+            pendingRows.add(row);
+            pendingParameterObjects.add(parameterObject);
+            if (pendingRows.size() >= pendingInsert.getMaxRows(configuration.getMultiRowInsertRowLimit(),
+                    configuration.getMultiRowInsertParameterLimit())) {
+                batchPendingRows();
+            }
+            return;
+        }
+        final Statement stmt = getBatchStatement(ms, sql, handler, Collections.singletonList(parameterObject));
+        handler.parameterize(stmt); // 设置实参
+        handler.batch(stmt);
+    }
+
+    private boolean isMultiRowInsertCandidate(MappedStatement ms) {
+        // 其他KeyGenerator会针对每个实参执行查询，无法与多行insert语句配合
+        Class<?> keyGeneratorType = ms.getKeyGenerator().getClass();
+        return ms.getConfiguration().getMultiRowInsertRowLimit() > 1
+                && ms.getSqlCommandType() == SqlCommandType.INSERT
+                && ms.getStatementType() == StatementType.PREPARED
+                && (NoKeyGenerator.class.equals(keyGeneratorType) || Jdbc3KeyGenerator.class.equals(keyGeneratorType));
+    }
+
+    private void batchPendingRows() throws SQLException {
+        final MultiRowInsert insert = pendingInsert;
+        final MappedStatement ms = pendingStatement;
+        final List<MultiRowInsert.BoundRow> boundRows = new ArrayList<>(pendingRows);
+        final List<Object> parameterObjects = new ArrayList<>(pendingParameterObjects);
+        clearPendingRows();
+        final int rows = boundRows.size();
+        final String sql = insert.getSql(rows);
+        // 用多行SQL创建的StatementHandler只用于创建Statement对象和添加批处理，各行的实参是添加时记录下来的值
+        final Object firstParameterObject = parameterObjects.get(0);
+        final StatementHandler handler = ms.getConfiguration().newStatementHandler(this, ms,
+                firstParameterObject, RowBounds.DEFAULT, null,
+                new BoundSql(ms.getConfiguration(), sql, Collections.emptyList(), firstParameterObject));
+        final Statement stmt = getBatchStatement(ms, sql, handler, parameterObjects);
+        for (int i = 0; i < rows; i++) {
+            boundRows.get(i).bind(
+                    MultiRowInsert.shiftParameters((PreparedStatement) stmt, i * insert.getParametersPerRow()));
+        }
+        handler.batch(stmt);
+    }
+
+    private void clearPendingRows() {
+        pendingInsert = null;
+        pendingStatement = null;
+        pendingRows.clear();
+        pendingParameterObjects.clear();
+    }
+
+    private Statement getBatchStatement(MappedStatement ms, String sql, StatementHandler handler, List<Object> parameterObjects)
+            throws SQLException {
         final Statement stmt;
+        final BatchResult batchResult;
         // 比较此次追加的SQL模板与最近一次追加的SQL模板，以及两个MappedStatement对象
         if (sql.equals(currentSql) && ms.equals(currentStatement)) {
             // 两者相同，则获取statementList集合中最后一个Statement对象
             int last = statementList.size() - 1;
             stmt = statementList.get(last);
             applyTransactionTimeout(stmt);
-            handler.parameterize(stmt); // 设置实参
-            // 查找该Statement对象对应的BatchResult对象，并记录用户传入的实参
-            BatchResult batchResult = batchResultList.get(last);
-            batchResult.addParameterObject(parameterObject);
+            // 查找该Statement对象对应的BatchResult对象
+            batchResult = batchResultList.get(last);
         } else {
             Connection connection = getConnection(ms.getStatementLog());
             // 创建新的Statement对象
             stmt = handler.prepare(connection, transaction.getTimeout());
-            handler.parameterize(stmt);// 设置实参
             // 更新currentSql和currentStatement
             currentSql = sql;
             currentStatement = ms;
             // 将新创建的Statement对象添加到statementList集合中
             statementList.add(stmt);
             // 为新Statement对象添加新的BatchResult对象
-            batchResultList.add(new BatchResult(ms, sql, parameterObject));
+            batchResult = new BatchResult(ms, sql);
+            batchResultList.add(batchResult);
         }
-        handler.batch(stmt);
-        return BATCH_UPDATE_RETURN_VALUE;
+        // 记录用户传入的实参
+        for (Object parameterObject : parameterObjects) {
+            batchResult.addParameterObject(parameterObject);
+        }
+        return stmt;
     }
 
     @Override
@@ -119,13 +224,57 @@ public class BatchExecutor extends BaseExecutor {
 
     @Override
     public List<BatchResult> doFlushStatements(boolean isRollback) throws SQLException {
+        if (flushedResults.isEmpty()) {
+            return executeBatches(isRollback);
+        }
+        try {
+            // 已自动执行过批处理时，本次结果也合并到汇总结果中一起返回
+            List<BatchResult> results = executeBatches(isRollback);
+            if (isRollback) {
+                return results;
+            }
+            aggregateResults(flushedResults, results);
+            return new ArrayList<>(flushedResults.values());
+        } finally {
+            flushedResults.clear();
+        }
+    }
+
+    private static void aggregateResults(Map<Map.Entry<MappedStatement, String>, BatchResult> aggregates,
+                                         List<BatchResult> results) {
+        for (BatchResult result : results) {
+            // 交替执行多条语句时也只为每条语句保留一个结果，并且只保留影响行数，不再引用已执行的实参
+            aggregates.computeIfAbsent(new AbstractMap.SimpleImmutableEntry<>(result.getMappedStatement(), result.getSql()),
+                    k -> new BatchResult(k.getKey(), k.getValue())).addUpdateCounts(result.getUpdateCounts());
+        }
+    }
+
+    /**
+     * 批处理失败时，之前自动执行成功的批处理结果也要一起报告
+     */
+    private List<BatchResult> getSuccessfulResults(List<BatchResult> results) {
+        if (flushedResults.isEmpty()) {
+            return results;
+        }
+        Map<Map.Entry<MappedStatement, String>, BatchResult> aggregates = new LinkedHashMap<>();
+        aggregateResults(aggregates, new ArrayList<>(flushedResults.values()));
+        aggregateResults(aggregates, results);
+        flushedResults.clear();
+        return new ArrayList<>(aggregates.values());
+    }
+
+    private List<BatchResult> executeBatches(boolean isRollback) throws SQLException {
         try {
             // 用于储存批处理的结果
             List<BatchResult> results = new ArrayList<>();
             // 如果明确指定了要回滚事务，则直接返回空集合，忽略statementList集合中记录的SQL语句
             if (isRollback) {
+                clearPendingRows();
                 return Collections.emptyList();
             }
+            if (pendingInsert != null) {
+                batchPendingRows();
+            }
             for (int i = 0, n = statementList.size(); i < n; i++) { // 遍历statementList集合
                 Statement stmt = statementList.get(i);// 获取Statement对象
                 applyTransactionTimeout(stmt);
@@ -133,9 +282,15 @@ public class BatchExecutor extends BaseExecutor {
                 try {
                     // 调用Statement.executeBatch()方法批量执行其中记录的SQL语句，并使用返回的int数组
                     // 更新BatchResult.updateCounts字段，其中每一个元素都表示一条SQL语句影响的记录条数
-                    batchResult.setUpdateCounts(stmt.executeBatch());
                     MappedStatement ms = batchResult.getMappedStatement();
                     List<Object> parameterObjects = batchResult.getParameterObjects();
+                    StatementMetrics metrics = configuration.getStatementMetrics(ms.getId());
+                    long start = metrics == null ? 0 : System.nanoTime();
+                    batchResult.setUpdateCounts(stmt.executeBatch());
+                    if (metrics != null) {
+                        metrics.recordLatency(Phase.EXECUTE, System.nanoTime() - start);
+                        metrics.recordBatch(parameterObjects.size());
+                    }
                     // 获取配置的KeyGenerator对象
                     KeyGenerator keyGenerator = ms.getKeyGenerator();
                     if (Jdbc3KeyGenerator.class.equals(keyGenerator.getClass())) {
@@ -161,7 +316,7 @@ public class BatchExecutor extends BaseExecutor {
                                 .append(i)
                                 .append(" prior sub executor(s) completed successfully, but will be rolled back.");
                     }
-                    throw new BatchExecutorException(message.toString(), e, results, batchResult);
+                    throw new BatchExecutorException(message.toString(), e, getSuccessfulResults(results), batchResult);
                 }
                 // 添加BatchResult到results集合
                 results.add(batchResult);
@@ -172,6 +327,8 @@ public class BatchExecutor extends BaseExecutor {
                 closeStatement(stmt);
             }
             currentSql = null;
+            batchedRows = 0;
+            clearPendingRows();
             statementList.clear();
             batchResultList.clear();
         }
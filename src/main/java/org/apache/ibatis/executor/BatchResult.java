@@ -16,6 +16,7 @@
 package org.apache.ibatis.executor;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import org.apache.ibatis.mapping.MappedStatement;
@@ -68,6 +69,16 @@ public class BatchResult {
     this.updateCounts = updateCounts;
   }
 
+  void addUpdateCounts(int[] updateCounts) {
+    if (this.updateCounts == null) {
+      this.updateCounts = updateCounts;
+    } else {
+      int[] counts = Arrays.copyOf(this.updateCounts, this.updateCounts.length + updateCounts.length);
+      System.arraycopy(updateCounts, 0, counts, this.updateCounts.length, updateCounts.length);
+      this.updateCounts = counts;
+    }
+  }
+
   public void addParameterObject(Object parameterObject) {
     this.parameterObjects.add(parameterObject);
   }
@@ -27,6 +27,7 @@ import org.apache.ibatis.mapping.MappedStatement;
 import org.apache.ibatis.mapping.ParameterMapping;
 import org.apache.ibatis.mapping.ParameterMode;
 import org.apache.ibatis.mapping.StatementType;
+import org.apache.ibatis.metrics.StatementMetrics;
 import org.apache.ibatis.reflection.MetaObject;
 import org.apache.ibatis.session.ResultHandler;
 import org.apache.ibatis.session.RowBounds;
@@ -40,9 +41,25 @@ public class CachingExecutor implements Executor {
 
     private final Executor delegate;
     private final TransactionalCacheManager tcm = new TransactionalCacheManager();
+    private final InFlightQueries inFlightQueries;
+    private final long inFlightTimeout;
+    private int queryDepth;
+    private boolean dirty;
 
     public CachingExecutor(Executor delegate) {
+        this(delegate, null, 0);
+    }
+
+    /**
+     * @param delegate the executor that runs the statements
+     * @param inFlightQueries the queries shared between sessions on a cache miss, or null to disable sharing
+     * @param inFlightTimeout the maximum time to wait for a query run by another session in milliseconds,
+     *                        or 0 to wait until it completes
+     */
+    public CachingExecutor(Executor delegate, InFlightQueries inFlightQueries, long inFlightTimeout) {
         this.delegate = delegate;
+        this.inFlightQueries = inFlightQueries;
+        this.inFlightTimeout = inFlightTimeout;
         delegate.setExecutorWrapper(this);
     }
 
@@ -73,6 +90,7 @@ public class CachingExecutor implements Executor {
     @Override
     public int update(MappedStatement ms, Object parameterObject) throws SQLException {
         flushCacheIfRequired(ms);
+        dirty = true;
         return delegate.update(ms, parameterObject);
     }
 
@@ -101,9 +119,19 @@ public class CachingExecutor implements Executor {
                 ensureNoOutParams(ms, boundSql); // 是否包含输出参数
                 // 查询二级缓存
                 List<E> list = (List<E>) tcm.getObject(cache, key);
+                StatementMetrics metrics = ms.getConfiguration().getStatementMetrics(ms.getId());
+                if (metrics != null) {
+                    metrics.recordCache(list != null);
+                }
                 if (list == null) {
-                    // 二级缓存未命中，通过被装饰的Executor对象查询结果对象
-                    list = delegate.query(ms, parameterObject, rowBounds, resultHandler, key, boundSql);
+                    // 二级缓存未命中，通过被装饰的Executor对象查询结果对象，
+                    // 开启了single-flight时与其他会话中相同的查询共享一次数据库访问
+                    if (isQuerySharable(ms, cache)) {
+                        list = inFlightQueries.execute(cache, key, inFlightTimeout,
+                                () -> queryDelegate(ms, parameterObject, rowBounds, resultHandler, key, boundSql));
+                    } else {
+                        list = queryDelegate(ms, parameterObject, rowBounds, resultHandler, key, boundSql);
+                    }
                     // 将查询结果保存到TransactionalCache.entriesToAddOnCommit集合中暂存
                     tcm.putObject(cache, key, list);
                 }
@@ -111,7 +139,28 @@ public class CachingExecutor implements Executor {
             }
         }
         // 如果未开启二级缓存，直接通过被装饰的Executor对象查询结果对象
-        return delegate.query(ms, parameterObject, rowBounds, resultHandler, key, boundSql);
+        return queryDelegate(ms, parameterObject, rowBounds, resultHandler, key, boundSql);
+    }
+
+    private <E> List<E> queryDelegate(MappedStatement ms, Object parameterObject, RowBounds rowBounds, ResultHandler<?> resultHandler, CacheKey key, BoundSql boundSql)
+            throws SQLException {
+        queryDepth++;
+        try {
+            return delegate.query(ms, parameterObject, rowBounds, resultHandler, key, boundSql);
+        } finally {
+            queryDepth--;
+        }
+    }
+
+    /**
+     * Only queries of read-only caches are shared, because the sessions waiting for a query receive the very
+     * objects it returned, while a read-write cache gives each session its own copy. Nested queries are never
+     * shared, so that a session running a shared query cannot wait for a session waiting for it. Neither are
+     * queries of a session with uncommitted updates, whose results other sessions must not see.
+     */
+    private boolean isQuerySharable(MappedStatement ms, Cache cache) {
+        return inFlightQueries != null && queryDepth == 0 && !dirty
+                && ms.getConfiguration().isReadOnlyCache(cache.getId());
     }
 
     @Override
@@ -123,6 +172,7 @@ public class CachingExecutor implements Executor {
     public void commit(boolean required) throws SQLException {
         delegate.commit(required);
         tcm.commit();
+        dirty = false;
     }
 
     @Override
@@ -133,6 +183,7 @@ public class CachingExecutor implements Executor {
             if (required) {
                 tcm.rollback();
             }
+            dirty = false;
         }
     }
 
@@ -53,6 +53,35 @@ public class ErrorContext {
     return LOCAL.get();
   }
 
+  /**
+   * Copies this context, without the contexts it stored, so that it can be restored in another thread.
+   *
+   * @return the copy
+   * @since 3.5.6
+   */
+  public ErrorContext copy() {
+    ErrorContext copy = new ErrorContext();
+    copy.resource = resource;
+    copy.activity = activity;
+    copy.object = object;
+    copy.message = message;
+    copy.sql = sql;
+    copy.cause = cause;
+    return copy;
+  }
+
+  /**
+   * Makes the given context, usually a {@link #copy()} taken in another thread, the context of the current thread.
+   *
+   * @param context the context
+   * @return the context
+   * @since 3.5.6
+   */
+  public static ErrorContext restore(ErrorContext context) {
+    LOCAL.set(context);
+    return context;
+  }
+
   public ErrorContext resource(String resource) {
     this.resource = resource;
     return this;
@@ -0,0 +1,152 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.CacheKey;
+import org.apache.ibatis.logging.Log;
+import org.apache.ibatis.logging.LogFactory;
+
+/**
+ * Coalesces concurrent second-level cache misses for the same key into a single database query.
+ * <p>
+ * The first session that misses a key runs the query and the sessions that miss the same key while it is running
+ * wait for its result, or for its exception. Unlike {@link org.apache.ibatis.cache.decorators.BlockingCache}
+ * nothing is held once the query returns: the in-flight entry is removed as soon as the query completes, whether
+ * the session later commits or rolls back. A waiter that times out runs the query itself.
+ * <p>
+ * Waiters receive the same result objects as the session that ran the query, so {@link CachingExecutor} only shares
+ * the queries of read-only caches.
+ *
+ * @see CachingExecutor
+ */
+public class InFlightQueries {
+
+  private static final Log log = LogFactory.getLog(InFlightQueries.class);
+
+  private final ConcurrentMap<FlightKey, CompletableFuture<List<?>>> flights = new ConcurrentHashMap<>();
+
+  /**
+   * Runs the query for the given key, or waits for the identical query already running in another session.
+   *
+   * @param <E> the result type
+   * @param cache the second-level cache of the statement
+   * @param key the cache key of the query
+   * @param timeout the maximum time to wait for another session in milliseconds, or 0 to wait until it completes
+   * @param query the query to run when no other session is running it
+   * @return the query result
+   * @throws SQLException if the query, or the query this session waited for, failed
+   */
+  @SuppressWarnings("unchecked")
+  public <E> List<E> execute(Cache cache, CacheKey key, long timeout, Query<E> query) throws SQLException {
+    FlightKey flightKey = new FlightKey(cache.getId(), key);
+    CompletableFuture<List<?>> flight = new CompletableFuture<>();
+    CompletableFuture<List<?>> running = flights.putIfAbsent(flightKey, flight);
+    if (running == null) {
+      return lead(flightKey, flight, query);
+    }
+    try {
+      return (List<E>) (timeout > 0 ? running.get(timeout, TimeUnit.MILLISECONDS) : running.get());
+    } catch (TimeoutException e) {
+      if (log.isDebugEnabled()) {
+        log.debug("Timed out waiting for an identical query on cache " + cache.getId() + ", running it again");
+      }
+      return query.run();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new ExecutorException("Interrupted while waiting for an identical query on cache " + cache.getId(), e);
+    } catch (ExecutionException e) {
+      throw propagate(e.getCause());
+    }
+  }
+
+  int getInFlightCount() {
+    return flights.size();
+  }
+
+  private <E> List<E> lead(FlightKey flightKey, CompletableFuture<List<?>> flight, Query<E> query) throws SQLException {
+    try {
+      List<E> result = query.run();
+      flight.complete(result);
+      return result;
+    } catch (Throwable t) {
+      flight.completeExceptionally(t);
+      throw t;
+    } finally {
+      flights.remove(flightKey, flight);
+    }
+  }
+
+  private static SQLException propagate(Throwable cause) {
+    // rethrow in the waiting thread so its stack trace shows where it waited
+    if (cause instanceof SQLException) {
+      SQLException e = (SQLException) cause;
+      return new SQLException(e.getMessage(), e.getSQLState(), e.getErrorCode(), e);
+    }
+    if (cause instanceof Error) {
+      throw (Error) cause;
+    }
+    throw new ExecutorException("Error in an identical query run by another session.  Cause: " + cause, cause);
+  }
+
+  /**
+   * A query that may be shared with other sessions.
+   *
+   * @param <E> the result type
+   */
+  @FunctionalInterface
+  public interface Query<E> {
+    List<E> run() throws SQLException;
+  }
+
+  private static final class FlightKey {
+
+    private final String cacheId;
+    private final CacheKey key;
+
+    FlightKey(String cacheId, CacheKey key) {
+      this.cacheId = cacheId;
+      this.key = key;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof FlightKey)) {
+        return false;
+      }
+      FlightKey other = (FlightKey) o;
+      return cacheId.equals(other.cacheId) && key.equals(other.key);
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * cacheId.hashCode() + key.hashCode();
+    }
+  }
+
+}
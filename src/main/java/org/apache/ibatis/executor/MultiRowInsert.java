@@ -0,0 +1,240 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import org.apache.ibatis.reflection.ExceptionUtil;
+
+/**
+ * A single-row <code>INSERT ... VALUES (...)</code> statement that can be rewritten to insert several rows at once.
+ */
+class MultiRowInsert {
+
+  private final String sql;
+  private final String prefix;
+  private final String row;
+  private final int parametersPerRow;
+
+  private MultiRowInsert(String sql, String prefix, String row, int parametersPerRow) {
+    this.sql = sql;
+    this.prefix = prefix;
+    this.row = row;
+    this.parametersPerRow = parametersPerRow;
+  }
+
+  /**
+   * Parses an insert statement of exactly one row whose placeholders are all in its <code>VALUES</code> list.
+   *
+   * @param sql the SQL to parse
+   * @param parameterCount the number of placeholders the SQL is expected to have
+   * @return the parsed statement, or null if the statement cannot be rewritten
+   */
+  static MultiRowInsert parse(String sql, int parameterCount) {
+    if (!sql.trim().toLowerCase(Locale.ENGLISH).startsWith("insert")) {
+      return null;
+    }
+    int valuesEnd = -1;
+    int rowStart = -1;
+    int rowEnd = -1;
+    int placeholders = 0;
+    int depth = 0;
+    char quote = 0;
+    for (int i = 0, n = sql.length(); i < n; i++) {
+      char c = sql.charAt(i);
+      if (quote != 0) {
+        if (c == quote) {
+          quote = 0;
+        }
+      } else if (c == '\'' || c == '"' || c == '`') {
+        quote = c;
+      } else if (rowEnd != -1) {
+        // only whitespace is allowed after the row
+        if (!Character.isWhitespace(c)) {
+          return null;
+        }
+      } else if (c == '?') {
+        if (rowStart == -1) {
+          return null;
+        }
+        placeholders++;
+      } else if (c == '(') {
+        if (depth == 0 && valuesEnd != -1 && rowStart == -1) {
+          if (!sql.substring(valuesEnd, i).trim().isEmpty()) {
+            return null;
+          }
+          rowStart = i;
+        }
+        depth++;
+      } else if (c == ')') {
+        depth--;
+        if (depth == 0 && rowStart != -1) {
+          rowEnd = i + 1;
+        }
+      } else if (depth == 0 && rowStart == -1 && isKeyword(sql, i, "values")) {
+        valuesEnd = i + "values".length();
+        i = valuesEnd - 1;
+      }
+    }
+    if (rowEnd == -1 || quote != 0 || placeholders != parameterCount) {
+      return null;
+    }
+    return new MultiRowInsert(sql, sql.substring(0, rowStart), sql.substring(rowStart, rowEnd), placeholders);
+  }
+
+  private static boolean isKeyword(String sql, int start, String keyword) {
+    int end = start + keyword.length();
+    return sql.regionMatches(true, start, keyword, 0, keyword.length())
+        && (start == 0 || !Character.isJavaIdentifierPart(sql.charAt(start - 1)))
+        && (end == sql.length() || !Character.isJavaIdentifierPart(sql.charAt(end)));
+  }
+
+  String getSql() {
+    return sql;
+  }
+
+  int getParametersPerRow() {
+    return parametersPerRow;
+  }
+
+  /**
+   * Returns the number of rows to insert in one statement.
+   *
+   * @param rowLimit the maximum number of rows per statement
+   * @param parameterLimit the maximum number of placeholders per statement
+   * @return the number of rows, at least 1
+   */
+  int getMaxRows(int rowLimit, int parameterLimit) {
+    int rows = parametersPerRow == 0 ? rowLimit : Math.min(rowLimit, parameterLimit / parametersPerRow);
+    return Math.max(rows, 1);
+  }
+
+  /**
+   * Builds the statement inserting the given number of rows.
+   *
+   * @param rows the number of rows
+   * @return the SQL
+   */
+  String getSql(int rows) {
+    if (rows == 1) {
+      return sql;
+    }
+    StringBuilder builder = new StringBuilder(prefix.length() + (row.length() + 2) * rows);
+    builder.append(prefix).append(row);
+    for (int i = 1; i < rows; i++) {
+      builder.append(", ").append(row);
+    }
+    return builder.toString();
+  }
+
+  /**
+   * Wraps a statement so that the parameters set on it are shifted by the given number of placeholders, which lets a
+   * parameter handler written for a single row set the parameters of any row of a multi-row statement.
+   *
+   * @param statement the multi-row statement
+   * @param offset the number of placeholders before the row
+   * @return the wrapped statement
+   */
+  static PreparedStatement shiftParameters(PreparedStatement statement, int offset) {
+    if (offset == 0) {
+      return statement;
+    }
+    return (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+        new Class<?>[] { PreparedStatement.class }, (proxy, method, args) -> {
+          if (isParameterSetter(method)) {
+            args[0] = (Integer) args[0] + offset;
+          }
+          try {
+            return method.invoke(statement, args);
+          } catch (Throwable t) {
+            throw ExceptionUtil.unwrapThrowable(t);
+          }
+        });
+  }
+
+  private static boolean isParameterSetter(Method method) {
+    return PreparedStatement.class.equals(method.getDeclaringClass()) && method.getName().startsWith("set")
+        && method.getParameterCount() > 0 && int.class.equals(method.getParameterTypes()[0]);
+  }
+
+  /**
+   * The parameters of one row, recorded when the row is added to the batch so that later changes to the parameter
+   * object do not affect the values inserted.
+   */
+  static class BoundRow {
+
+    private final List<Method> setters = new ArrayList<>();
+    private final List<Object[]> arguments = new ArrayList<>();
+
+    /**
+     * Returns a statement on which a parameter handler can set the parameters of this row. Only the parameter setters,
+     * <code>clearParameters()</code> and <code>getConnection()</code> are supported.
+     *
+     * @param connection the connection returned by <code>getConnection()</code>
+     * @return the recording statement
+     */
+    PreparedStatement recorder(Connection connection) {
+      return (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+          new Class<?>[] { PreparedStatement.class }, (proxy, method, args) -> {
+            if (isParameterSetter(method)) {
+              setters.add(method);
+              arguments.add(args.clone());
+              return null;
+            } else if ("clearParameters".equals(method.getName())) {
+              setters.clear();
+              arguments.clear();
+              return null;
+            } else if ("getConnection".equals(method.getName())) {
+              return connection;
+            } else if (Object.class.equals(method.getDeclaringClass())) {
+              return method.invoke(this, args);
+            }
+            throw new UnsupportedOperationException(
+                "Method '" + method.getName() + "' is not supported while binding a row of a multi-row insert.");
+          });
+    }
+
+    /**
+     * Sets the recorded parameters on a statement.
+     *
+     * @param statement the statement, usually shifted to the placeholders of the row
+     * @throws SQLException if a parameter cannot be set
+     */
+    void bind(PreparedStatement statement) throws SQLException {
+      for (int i = 0; i < setters.size(); i++) {
+        try {
+          setters.get(i).invoke(statement, arguments.get(i));
+        } catch (Exception e) {
+          Throwable cause = ExceptionUtil.unwrapThrowable(e);
+          if (cause instanceof SQLException) {
+            throw (SQLException) cause;
+          } else if (cause instanceof RuntimeException) {
+            throw (RuntimeException) cause;
+          }
+          throw new SQLException("Could not set parameter of a multi-row insert. Cause: " + cause, cause);
+        }
+      }
+    }
+  }
+
+}
@@ -73,12 +73,20 @@ public class ResultLoader {
     }
 
     private <E> List<E> selectList() throws SQLException {
+        return selectList(parameterObject, cacheKey, boundSql);
+    }
+
+    /**
+     * 使用此ResultLoader的MappedStatement执行指定的SQL，批量延迟加载时使用
+     */
+    <E> List<E> selectList(Object parameter, CacheKey key, BoundSql sql) throws SQLException {
         Executor localExecutor = executor;
         if (Thread.currentThread().getId() != this.creatorThreadId || localExecutor.isClosed()) {
             localExecutor = newExecutor();
         }
         try {
-            return localExecutor.query(mappedStatement, parameterObject, RowBounds.DEFAULT, Executor.NO_RESULT_HANDLER, cacheKey, boundSql);
+            CacheKey localKey = key != null ? key : localExecutor.createCacheKey(mappedStatement, parameter, RowBounds.DEFAULT, sql);
+            return localExecutor.query(mappedStatement, parameter, RowBounds.DEFAULT, Executor.NO_RESULT_HANDLER, localKey, sql);
         } finally {
             if (localExecutor != executor) {
                 localExecutor.close(false);
@@ -0,0 +1,305 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.loader;
+
+import java.math.BigDecimal;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.ParameterMapping;
+import org.apache.ibatis.mapping.ParameterMode;
+import org.apache.ibatis.mapping.ResultMap;
+import org.apache.ibatis.mapping.ResultMapping;
+import org.apache.ibatis.mapping.StatementType;
+import org.apache.ibatis.reflection.MetaClass;
+import org.apache.ibatis.session.Configuration;
+
+/**
+ * Loads together the lazy properties that the results of one query load with the same nested statement.
+ * <p>
+ * The nested statement must select by a single key of the single table it selects from, as in
+ * <code>where id = #{id}</code> or <code>where c.parent_id = #{id}</code> with <code>from child c</code>, without
+ * limiting its rows, without <code>OR</code> conditions and without subqueries. When one of the properties
+ * is loaded, it is loaded with up to {@link Configuration#getLazyLoadBatchSize()} - 1 other pending properties by
+ * running the statement once with <code>where id IN (...)</code>. The rows are then handed out to the properties by
+ * the value of the result property mapped to the key column, and kept until each property is accessed.
+ *
+ * @since 3.5.6
+ */
+public class ResultLoaderBatch {
+
+  private static final Pattern KEY_CONDITION = Pattern.compile("([\\w$.]+)\\s*=\\s*$");
+  private static final Pattern ROW_LIMIT = Pattern.compile("\\b(limit|offset|fetch|top|rownum)\\b",
+      Pattern.CASE_INSENSITIVE);
+  // OR conditions would select other rows for the whole batch once the key condition is an IN list
+  private static final Pattern OR = Pattern.compile("\\bor\\b", Pattern.CASE_INSENSITIVE);
+  private static final Pattern FROM = Pattern.compile("\\bfrom\\b", Pattern.CASE_INSENSITIVE);
+  private static final Pattern FROM_TABLE = Pattern.compile("\\bfrom\\s+([\\w$.]+)(?:\\s+(?:as\\s+)?([\\w$]+))?\\s*(,?)",
+      Pattern.CASE_INSENSITIVE);
+  private static final Pattern JOIN = Pattern.compile("\\bjoin\\b", Pattern.CASE_INSENSITIVE);
+  private static final Pattern KEYWORD = Pattern.compile(
+      "where|join|inner|left|right|full|cross|natural|on|group|order|having|union", Pattern.CASE_INSENSITIVE);
+
+  private final Configuration configuration;
+  private final String sql;
+  private final String sqlPrefix;
+  private final String sqlSuffix;
+  private final ParameterMapping keyMapping;
+  private final String keyProperty;
+  private final int batchSize;
+
+  private final ReentrantLock lock = new ReentrantLock();
+  private final Set<ResultLoader> pending = new LinkedHashSet<>();
+  private final Map<ResultLoader, Object> loaded = new IdentityHashMap<>();
+
+  private ResultLoaderBatch(Configuration configuration, String sql, String sqlPrefix, String sqlSuffix,
+      ParameterMapping keyMapping, String keyProperty) {
+    this.configuration = configuration;
+    this.sql = sql;
+    this.sqlPrefix = sqlPrefix;
+    this.sqlSuffix = sqlSuffix;
+    this.keyMapping = keyMapping;
+    this.keyProperty = keyProperty;
+    this.batchSize = configuration.getLazyLoadBatchSize();
+  }
+
+  /**
+   * Creates a batch for the lazy properties loaded by a nested statement.
+   *
+   * @param configuration the configuration
+   * @param nestedQuery the nested statement
+   * @param boundSql the SQL of the nested statement for one of the properties
+   * @return the batch, or null if the statement does not select by a single key
+   */
+  public static ResultLoaderBatch create(Configuration configuration, MappedStatement nestedQuery, BoundSql boundSql) {
+    String sql = boundSql.getSql();
+    int placeholder = sql.indexOf('?');
+    if (nestedQuery.getStatementType() != StatementType.PREPARED || nestedQuery.getResultSets() != null
+        || nestedQuery.getResultMaps().size() != 1 || boundSql.getParameterMappings().size() != 1
+        || placeholder == -1 || sql.indexOf('?', placeholder + 1) != -1 || ROW_LIMIT.matcher(sql).find()
+        || OR.matcher(sql).find()) {
+      return null;
+    }
+    ParameterMapping keyMapping = boundSql.getParameterMappings().get(0);
+    Matcher matcher = KEY_CONDITION.matcher(sql.substring(0, placeholder));
+    if (keyMapping.getMode() != ParameterMode.IN || !matcher.find() || !isColumnOfSelectedTable(sql, matcher.group(1))) {
+      return null;
+    }
+    String column = matcher.group(1);
+    column = column.substring(column.lastIndexOf('.') + 1);
+    String keyProperty = findKeyProperty(configuration, nestedQuery.getResultMaps().get(0), column);
+    if (keyProperty == null) {
+      return null;
+    }
+    return new ResultLoaderBatch(configuration, sql, sql.substring(0, matcher.start()) + matcher.group(1) + " IN (",
+        ")" + sql.substring(placeholder + 1), keyMapping, keyProperty);
+  }
+
+  /**
+   * The rows are handed out by the value of a result property, so the key column must belong to the table the rows
+   * are selected from, and not to a joined table.
+   */
+  private static boolean isColumnOfSelectedTable(String sql, String column) {
+    Matcher keyword = FROM.matcher(sql);
+    Matcher from = FROM_TABLE.matcher(sql);
+    if (!keyword.find() || keyword.find() || !from.find()) {
+      // no table, or subqueries
+      return false;
+    }
+    String table = from.group(1);
+    String alias = from.group(2) == null || KEYWORD.matcher(from.group(2)).matches() ? null : from.group(2);
+    int qualifier = column.lastIndexOf('.');
+    if (qualifier == -1) {
+      // an unqualified column may belong to any of the joined tables
+      return from.group(3).isEmpty() && !JOIN.matcher(sql).find();
+    }
+    String tableName = column.substring(0, qualifier);
+    return tableName.equalsIgnoreCase(alias) || tableName.equalsIgnoreCase(table)
+        || tableName.equalsIgnoreCase(table.substring(table.lastIndexOf('.') + 1));
+  }
+
+  private static String findKeyProperty(Configuration configuration, ResultMap resultMap, String column) {
+    for (ResultMapping resultMapping : resultMap.getResultMappings()) {
+      if (column.equalsIgnoreCase(resultMapping.getColumn()) && resultMapping.getProperty() != null
+          && resultMapping.getNestedQueryId() == null && resultMapping.getNestedResultMapId() == null) {
+        return resultMapping.getProperty();
+      }
+    }
+    if (resultMap.getMappedColumns().contains(column.toUpperCase(Locale.ENGLISH))) {
+      // the column is mapped by a constructor argument or a nested mapping
+      return null;
+    }
+    MetaClass metaClass = MetaClass.forClass(resultMap.getType(), configuration.getReflectorFactory());
+    String property = metaClass.findProperty(column, configuration.isMapUnderscoreToCamelCase());
+    return property != null && metaClass.hasGetter(property) ? property : null;
+  }
+
+  /**
+   * Adds a lazy property to the batch.
+   *
+   * @param resultLoader the loader of the property
+   * @return true if the property will be loaded by this batch
+   */
+  public boolean add(ResultLoader resultLoader) {
+    if (!sql.equals(resultLoader.boundSql.getSql()) || !isSupportedKey(getKey(resultLoader))) {
+      return false;
+    }
+    lock.lock();
+    try {
+      pending.add(resultLoader);
+    } finally {
+      lock.unlock();
+    }
+    return true;
+  }
+
+  /**
+   * Removes a lazy property that will not be loaded, because it was set by other means.
+   *
+   * @param resultLoader the loader of the property
+   */
+  public void remove(ResultLoader resultLoader) {
+    lock.lock();
+    try {
+      pending.remove(resultLoader);
+      loaded.remove(resultLoader);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Returns the value of a lazy property, loading it along with other pending properties if it was not loaded yet.
+   *
+   * @param resultLoader the loader of the property
+   * @return the value of the property
+   * @throws SQLException if the statement fails
+   */
+  public Object load(ResultLoader resultLoader) throws SQLException {
+    lock.lock();
+    try {
+      if (loaded.containsKey(resultLoader)) {
+        return loaded.remove(resultLoader);
+      }
+      if (!pending.remove(resultLoader)) {
+        return resultLoader.loadResult();
+      }
+      List<ResultLoader> resultLoaders = new ArrayList<>();
+      resultLoaders.add(resultLoader);
+      for (Iterator<ResultLoader> iterator = pending.iterator(); iterator.hasNext() && resultLoaders.size() < batchSize;) {
+        resultLoaders.add(iterator.next());
+        iterator.remove();
+      }
+      if (resultLoaders.size() == 1) {
+        return resultLoader.loadResult();
+      }
+      return loadAll(resultLoader, resultLoaders);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private Object loadAll(ResultLoader resultLoader, List<ResultLoader> resultLoaders) throws SQLException {
+    Map<Object, Object> keys = new LinkedHashMap<>();
+    for (ResultLoader loader : resultLoaders) {
+      Object key = getKey(loader);
+      keys.putIfAbsent(normalizeKey(key), key);
+    }
+    StringBuilder batchSql = new StringBuilder(sqlPrefix);
+    List<ParameterMapping> parameterMappings = new ArrayList<>(keys.size());
+    Map<String, Object> parameterObject = new HashMap<>();
+    for (Object key : keys.values()) {
+      String property = "key" + parameterMappings.size();
+      if (!parameterMappings.isEmpty()) {
+        batchSql.append(", ");
+      }
+      batchSql.append('?');
+      parameterMappings.add(new ParameterMapping.Builder(configuration, property, keyMapping.getTypeHandler())
+          .javaType(keyMapping.getJavaType()).jdbcType(keyMapping.getJdbcType()).build());
+      parameterObject.put(property, key);
+    }
+    batchSql.append(sqlSuffix);
+    BoundSql boundSql = new BoundSql(configuration, batchSql.toString(), parameterMappings, parameterObject);
+    List<Object> rows = resultLoader.selectList(parameterObject, null, boundSql);
+
+    Map<Object, List<Object>> rowsByKey = new HashMap<>();
+    for (Object row : rows) {
+      Object key = row == null ? null : configuration.newMetaObject(row).getValue(keyProperty);
+      rowsByKey.computeIfAbsent(normalizeKey(key), k -> new ArrayList<>()).add(row);
+    }
+    for (ResultLoader loader : resultLoaders) {
+      if (loader != resultLoader) {
+        try {
+          loaded.put(loader, extract(loader, rowsByKey));
+        } catch (RuntimeException e) {
+          // left out of the batch, the property reports the error when it is loaded on its own
+        }
+      }
+    }
+    return extract(resultLoader, rowsByKey);
+  }
+
+  private Object extract(ResultLoader loader, Map<Object, List<Object>> rowsByKey) {
+    List<Object> rows = rowsByKey.getOrDefault(normalizeKey(getKey(loader)), Collections.emptyList());
+    loader.resultObject = loader.resultExtractor.extractObjectFromList(new ArrayList<>(rows), loader.targetType);
+    return loader.resultObject;
+  }
+
+  private Object getKey(ResultLoader resultLoader) {
+    String property = keyMapping.getProperty();
+    Object parameterObject = resultLoader.parameterObject;
+    if (resultLoader.boundSql.hasAdditionalParameter(property)) {
+      return resultLoader.boundSql.getAdditionalParameter(property);
+    } else if (parameterObject == null
+        || configuration.getTypeHandlerRegistry().hasTypeHandler(parameterObject.getClass())) {
+      return parameterObject;
+    } else {
+      return configuration.newMetaObject(parameterObject).getValue(property);
+    }
+  }
+
+  private static boolean isSupportedKey(Object key) {
+    return key instanceof Number || key instanceof CharSequence || key instanceof Character;
+  }
+
+  private static Object normalizeKey(Object key) {
+    if (key instanceof Number) {
+      try {
+        // keys of different numeric types are equal when their values are
+        return new BigDecimal(key.toString()).stripTrailingZeros();
+      } catch (NumberFormatException e) {
+        return key;
+      }
+    }
+    return key instanceof CharSequence ? key.toString() : key;
+  }
+
+}
@@ -36,6 +36,7 @@ import org.apache.ibatis.logging.Log;
 import org.apache.ibatis.logging.LogFactory;
 import org.apache.ibatis.mapping.BoundSql;
 import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.metrics.StatementMetrics;
 import org.apache.ibatis.reflection.MetaObject;
 import org.apache.ibatis.session.Configuration;
 import org.apache.ibatis.session.ResultHandler;
@@ -50,13 +51,23 @@ public class ResultLoaderMap {
     private final Map<String, LoadPair> loaderMap = new HashMap<>();
 
     public void addLoader(String property, MetaObject metaResultObject, ResultLoader resultLoader) {
+        addLoader(property, metaResultObject, resultLoader, null);
+    }
+
+    /**
+     * 添加延迟加载的属性，batch不为null时，该属性与同一批次中的其他属性一起加载
+     *
+     * @since 3.5.6
+     */
+    public void addLoader(String property, MetaObject metaResultObject, ResultLoader resultLoader, ResultLoaderBatch batch) {
         String upperFirst = getUppercaseFirstProperty(property);
         if (!upperFirst.equalsIgnoreCase(property) && loaderMap.containsKey(upperFirst)) {
             throw new ExecutorException("Nested lazy loaded result property '" + property
                     + "' for query id '" + resultLoader.mappedStatement.getId()
                     + " already exists in the result map. The leftmost property of all lazy loaded properties must be unique within a result map.");
         }
-        loaderMap.put(upperFirst, new LoadPair(property, metaResultObject, resultLoader));
+        loaderMap.put(upperFirst, new LoadPair(property, metaResultObject, resultLoader,
+                batch != null && batch.add(resultLoader) ? batch : null));
     }
 
     public final Map<String, LoadPair> getProperties() {
@@ -85,7 +96,10 @@ public class ResultLoaderMap {
     }
 
     public void remove(String property) {
-        loaderMap.remove(property.toUpperCase(Locale.ENGLISH));
+        LoadPair pair = loaderMap.remove(property.toUpperCase(Locale.ENGLISH));
+        if (pair != null && pair.batch != null) {
+            pair.batch.remove(pair.resultLoader);
+        }
     }
 
     public void loadAll() throws SQLException {
@@ -123,6 +137,10 @@ public class ResultLoaderMap {
          * Result loader which loads unread properties.
          */
         private transient ResultLoader resultLoader;
+        /**
+         * Batch which loads the property with other properties, if any.
+         */
+        private transient ResultLoaderBatch batch;
         /**
          * Wow, logger.
          */
@@ -144,10 +162,11 @@ public class ResultLoaderMap {
          */
         private Serializable mappedParameter;
 
-        private LoadPair(final String property, MetaObject metaResultObject, ResultLoader resultLoader) {
+        private LoadPair(final String property, MetaObject metaResultObject, ResultLoader resultLoader, ResultLoaderBatch batch) {
             this.property = property;
             this.metaResultObject = metaResultObject;
             this.resultLoader = resultLoader;
+            this.batch = batch;
 
             /* Save required information only if original object can be serialized. */
             if (metaResultObject != null && metaResultObject.getOriginalObject() instanceof Serializable) {
@@ -216,7 +235,13 @@ public class ResultLoaderMap {
                         old.parameterObject, old.targetType, old.cacheKey, old.boundSql);
             }
 
-            this.metaResultObject.setValue(property, this.resultLoader.loadResult());
+            StatementMetrics metrics = this.resultLoader.configuration.getStatementMetrics(
+                    this.resultLoader.mappedStatement.getId());
+            if (metrics != null) {
+                metrics.recordLazyLoad();
+            }
+            this.metaResultObject.setValue(property,
+                    this.batch != null ? this.batch.load(this.resultLoader) : this.resultLoader.loadResult());
         }
 
         private Configuration getConfiguration() {
@@ -19,6 +19,7 @@ import java.lang.reflect.Method;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
 
 import javassist.util.proxy.MethodHandler;
 import javassist.util.proxy.Proxy;
@@ -45,6 +46,12 @@ public class JavassistProxyFactory implements org.apache.ibatis.executor.loader.
 
     private static final String FINALIZE_METHOD = "finalize";
     private static final String WRITE_REPLACE_METHOD = "writeReplace";
+    private static final ClassValue<Class<?>> PROXY_TYPES = new ClassValue<Class<?>>() {
+        @Override
+        protected Class<?> computeValue(Class<?> type) {
+            return createProxyType(type);
+        }
+    };
 
     public JavassistProxyFactory() {
         try {
@@ -64,6 +71,20 @@ public class JavassistProxyFactory implements org.apache.ibatis.executor.loader.
     }
 
     static Object crateProxy(Class<?> type, MethodHandler callback, List<Class<?>> constructorArgTypes, List<Object> constructorArgs) {
+        Object enhanced;
+        Class<?>[] typesArray = constructorArgTypes.toArray(new Class[constructorArgTypes.size()]);
+        Object[] valuesArray = constructorArgs.toArray(new Object[constructorArgs.size()]);
+        try {
+            // 代理类按目标类型缓存，只在第一次创建该类型的代理对象时生成
+            enhanced = PROXY_TYPES.get(type).getConstructor(typesArray).newInstance(valuesArray);
+        } catch (Exception e) {
+            throw new ExecutorException("Error creating lazy proxy.  Cause: " + e, e);
+        }
+        ((Proxy) enhanced).setHandler(callback);
+        return enhanced;
+    }
+
+    private static Class<?> createProxyType(Class<?> type) {
 
         ProxyFactory enhancer = new ProxyFactory();
         enhancer.setSuperclass(type);
@@ -80,22 +101,14 @@ public class JavassistProxyFactory implements org.apache.ibatis.executor.loader.
             // nothing to do here
         }
 
-        Object enhanced;
-        Class<?>[] typesArray = constructorArgTypes.toArray(new Class[constructorArgTypes.size()]);
-        Object[] valuesArray = constructorArgs.toArray(new Object[constructorArgs.size()]);
-        try {
-            enhanced = enhancer.create(typesArray, valuesArray);
-        } catch (Exception e) {
-            throw new ExecutorException("Error creating lazy proxy.  Cause: " + e, e);
-        }
-        ((Proxy) enhanced).setHandler(callback);
-        return enhanced;
+        return enhancer.createClass();
     }
 
     private static class EnhancedResultObjectProxyImpl implements MethodHandler {
 
         private final Class<?> type;
         private final ResultLoaderMap lazyLoader;
+        private final ReentrantLock lock = new ReentrantLock();
         private final boolean aggressive;
         private final Set<String> lazyLoadTriggerMethods;
         private final ObjectFactory objectFactory;
@@ -124,7 +137,8 @@ public class JavassistProxyFactory implements org.apache.ibatis.executor.loader.
         public Object invoke(Object enhanced, Method method, Method methodProxy, Object[] args) throws Throwable {
             final String methodName = method.getName();
             try {
-                synchronized (lazyLoader) {
+                lock.lock();
+                try {
                     if (WRITE_REPLACE_METHOD.equals(methodName)) {
                         Object original;
                         if (constructorArgTypes.isEmpty()) {
@@ -153,6 +167,8 @@ public class JavassistProxyFactory implements org.apache.ibatis.executor.loader.
                             }
                         }
                     }
+                } finally {
+                    lock.unlock();
                 }
                 return methodProxy.invoke(enhanced, args);
             } catch (Throwable t) {
@@ -21,6 +21,7 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -37,6 +38,7 @@ import org.apache.ibatis.executor.ErrorContext;
 import org.apache.ibatis.executor.Executor;
 import org.apache.ibatis.executor.ExecutorException;
 import org.apache.ibatis.executor.loader.ResultLoader;
+import org.apache.ibatis.executor.loader.ResultLoaderBatch;
 import org.apache.ibatis.executor.loader.ResultLoaderMap;
 import org.apache.ibatis.executor.parameter.ParameterHandler;
 import org.apache.ibatis.executor.result.DefaultResultContext;
@@ -49,10 +51,16 @@ import org.apache.ibatis.mapping.ParameterMapping;
 import org.apache.ibatis.mapping.ParameterMode;
 import org.apache.ibatis.mapping.ResultMap;
 import org.apache.ibatis.mapping.ResultMapping;
+import org.apache.ibatis.metrics.StatementMetrics;
+import org.apache.ibatis.metrics.StatementMetrics.Phase;
+import org.apache.ibatis.reflection.ExceptionUtil;
 import org.apache.ibatis.reflection.MetaClass;
 import org.apache.ibatis.reflection.MetaObject;
+import org.apache.ibatis.reflection.ReflectionException;
 import org.apache.ibatis.reflection.ReflectorFactory;
 import org.apache.ibatis.reflection.factory.ObjectFactory;
+import org.apache.ibatis.reflection.invoker.Invoker;
+import org.apache.ibatis.reflection.wrapper.DefaultObjectWrapperFactory;
 import org.apache.ibatis.session.AutoMappingBehavior;
 import org.apache.ibatis.session.Configuration;
 import org.apache.ibatis.session.ResultContext;
@@ -95,6 +103,15 @@ public class DefaultResultSetHandler implements ResultSetHandler {
     // Cached Automappings
     private final Map<String, List<UnMappedColumnAutoMapping>> autoMappingsCache = new HashMap<>();
 
+    // 嵌套查询id与批量加载其延迟加载属性的ResultLoaderBatch对象
+    private final Map<String, ResultLoaderBatch> lazyLoadBatches = new HashMap<>();
+
+    // 语句的统计信息，未开启时为null；是否需要计时；以及handleResultSets()中读取下一行的耗时与读取的行数
+    private final StatementMetrics metrics;
+    private final boolean timed;
+    private long fetchNanos;
+    private int fetchedRows;
+
     // temporary marking flag that indicate using constructor mapping (use field to reduce memory usage)
     private boolean useConstructorMappings;
 
@@ -129,6 +146,8 @@ public class DefaultResultSetHandler implements ResultSetHandler {
         this.objectFactory = configuration.getObjectFactory();
         this.reflectorFactory = configuration.getReflectorFactory();
         this.resultHandler = resultHandler;
+        this.metrics = configuration.getStatementMetrics(mappedStatement.getId());
+        this.timed = metrics != null || configuration.getSlowStatementThreshold(mappedStatement) > 0;
     }
 
     //
@@ -182,6 +201,9 @@ public class DefaultResultSetHandler implements ResultSetHandler {
         ErrorContext.instance().activity("handling results").object(mappedStatement.getId());
         // 用于记录每个ResultSet映射出来的Java对象
         final List<Object> multipleResults = new ArrayList<>();
+        long start = metrics == null ? 0 : System.nanoTime();
+        fetchNanos = 0;
+        fetchedRows = 0;
 
         int resultSetCount = 0;
         // 从Statement中获取第一个ResultSet，其中对不同的数据库（例如，HSQLDB）有兼容处理逻辑
@@ -229,6 +251,12 @@ public class DefaultResultSetHandler implements ResultSetHandler {
             }
         }
 
+        if (metrics != null) {
+            // 读取行之外的耗时都计入映射阶段
+            metrics.recordRows(fetchedRows);
+            metrics.recordLatency(Phase.FETCH, fetchNanos);
+            metrics.recordLatency(Phase.MAPPING, System.nanoTime() - start - fetchNanos);
+        }
         return collapseSingleResultList(multipleResults);
     }
 
@@ -250,6 +278,37 @@ public class DefaultResultSetHandler implements ResultSetHandler {
         return new DefaultCursor<>(this, resultMap, rsw, rowBounds);
     }
 
+    private boolean nextRow(ResultSet resultSet) throws SQLException {
+        if (!timed) {
+            return resultSet.next();
+        }
+        long start = System.nanoTime();
+        boolean next = resultSet.next();
+        fetchNanos += System.nanoTime() - start;
+        if (next) {
+            fetchedRows++;
+        }
+        return next;
+    }
+
+    /**
+     * 返回最近一次handleResultSets()调用中读取的行数
+     *
+     * @return 读取的行数，未开启统计与慢语句检测时为0
+     */
+    public int getFetchedRows() {
+        return fetchedRows;
+    }
+
+    /**
+     * 返回最近一次handleResultSets()调用中调用ResultSet.next()的耗时
+     *
+     * @return 耗时(纳秒)，未开启统计与慢语句检测时为0
+     */
+    public long getFetchNanos() {
+        return fetchNanos;
+    }
+
     private ResultSetWrapper getFirstResultSet(Statement stmt) throws SQLException {
         ResultSet rs = stmt.getResultSet();
         while (rs == null) {
@@ -366,10 +425,22 @@ public class DefaultResultSetHandler implements ResultSetHandler {
         DefaultResultContext<Object> resultContext = new DefaultResultContext<>();
         ResultSet resultSet = rsw.getResultSet();
         skipRows(resultSet, rowBounds);
+        // 第一行按常规方式映射，之后尝试为剩余的行创建按列索引映射的RowMappingPlan
+        RowMappingPlan rowMappingPlan = null;
+        boolean planned = false;
         while (shouldProcessMoreRows(resultContext, rowBounds)
-                && !resultSet.isClosed() && resultSet.next()) {
-            ResultMap discriminatedResultMap = resolveDiscriminatedResultMap(resultSet, resultMap, null);
-            Object rowValue = getRowValue(rsw, discriminatedResultMap, null);
+                && !resultSet.isClosed() && nextRow(resultSet)) {
+            Object rowValue;
+            if (rowMappingPlan != null) {
+                rowValue = rowMappingPlan.getRowValue(resultSet);
+            } else {
+                ResultMap discriminatedResultMap = resolveDiscriminatedResultMap(resultSet, resultMap, null);
+                rowValue = getRowValue(rsw, discriminatedResultMap, null);
+                if (!planned) {
+                    planned = true;
+                    rowMappingPlan = createRowMappingPlan(rsw, resultMap, rowValue);
+                }
+            }
             storeObject(resultHandler, resultContext, rowValue, parentMapping, resultSet);
         }
     }
@@ -479,6 +550,135 @@ public class DefaultResultSetHandler implements ResultSetHandler {
         return rowValue;
     }
 
+    //
+    // GET VALUE FROM ROW BY COLUMN INDEX
+    //
+
+    /**
+     * Creates a plan that maps the remaining rows of a result set by column index, or returns null if the result
+     * map needs anything but a default constructor and plain setters, in which case rows are mapped as usual.
+     */
+    private RowMappingPlan createRowMappingPlan(ResultSetWrapper rsw, ResultMap resultMap, Object rowValue) throws SQLException {
+        final Class<?> resultType = resultMap.getType();
+        if (rowValue == null || resultMap.getDiscriminator() != null || !resultMap.getConstructorResultMappings().isEmpty()
+                || !configuration.isUseColumnLabel() || !(configuration.getObjectWrapperFactory() instanceof DefaultObjectWrapperFactory)
+                || resultType.isInterface() || Map.class.isAssignableFrom(resultType) || objectFactory.isCollection(resultType)
+                || hasTypeHandlerForResultObject(rsw, resultType)) {
+            return null;
+        }
+        final MetaClass metaType = MetaClass.forClass(resultType, reflectorFactory);
+        if (!metaType.hasDefaultConstructor()) {
+            return null;
+        }
+        final RowMappingPlan plan = new RowMappingPlan(resultType);
+        if (shouldApplyAutomaticMappings(resultMap, false)) {
+            final MetaObject metaObject = configuration.newMetaObject(rowValue);
+            for (UnMappedColumnAutoMapping mapping : createAutomaticMappings(rsw, resultMap, metaObject, null)) {
+                if (!plan.add(rsw, metaType, mapping.column, mapping.property, mapping.typeHandler)) {
+                    return null;
+                }
+            }
+        }
+        final List<String> mappedColumnNames = rsw.getMappedColumnNames(resultMap, null);
+        for (ResultMapping propertyMapping : resultMap.getPropertyResultMappings()) {
+            if (propertyMapping.isCompositeResult() || propertyMapping.getNestedQueryId() != null
+                    || propertyMapping.getNestedResultMapId() != null || propertyMapping.getResultSet() != null) {
+                return null;
+            }
+            final String column = propertyMapping.getColumn();
+            if (column == null || !mappedColumnNames.contains(column.toUpperCase(Locale.ENGLISH))
+                    || propertyMapping.getProperty() == null) {
+                continue;
+            }
+            if (!plan.add(rsw, metaType, column, propertyMapping.getProperty(), propertyMapping.getTypeHandler())) {
+                return null;
+            }
+        }
+        return plan;
+    }
+
+    /**
+     * Maps the rows of a flat result map with the column indexes, type handlers and setters resolved once per
+     * result set, instead of looking them up by name on every row.
+     */
+    private class RowMappingPlan {
+        private final Class<?> resultType;
+        private int size;
+        private int[] columnIndexes = new int[8];
+        private TypeHandler<?>[] typeHandlers = new TypeHandler<?>[8];
+        private Invoker[] setters = new Invoker[8];
+        private String[] properties = new String[8];
+        private boolean[] callSettersOnNulls = new boolean[8];
+
+        RowMappingPlan(Class<?> resultType) {
+            this.resultType = resultType;
+        }
+
+        boolean add(ResultSetWrapper rsw, MetaClass metaType, String column, String property, TypeHandler<?> typeHandler) {
+            // nested properties are left to MetaObject, which instantiates the intermediate objects
+            if (property.indexOf('.') >= 0 || property.indexOf('[') >= 0 || !metaType.hasSetter(property)) {
+                return false;
+            }
+            final int columnIndex = findColumn(rsw.getColumnNames(), column);
+            if (columnIndex < 0) {
+                return false;
+            }
+            if (size == columnIndexes.length) {
+                columnIndexes = Arrays.copyOf(columnIndexes, size * 2);
+                typeHandlers = Arrays.copyOf(typeHandlers, size * 2);
+                setters = Arrays.copyOf(setters, size * 2);
+                properties = Arrays.copyOf(properties, size * 2);
+                callSettersOnNulls = Arrays.copyOf(callSettersOnNulls, size * 2);
+            }
+            columnIndexes[size] = columnIndex;
+            typeHandlers[size] = typeHandler;
+            setters[size] = metaType.getSetInvoker(property);
+            properties[size] = property;
+            callSettersOnNulls[size] = configuration.isCallSettersOnNulls() && !metaType.getSetterType(property).isPrimitive();
+            size++;
+            return true;
+        }
+
+        Object getRowValue(ResultSet rs) throws SQLException {
+            final Object rowValue = objectFactory.create(resultType);
+            boolean foundValues = false;
+            for (int i = 0; i < size; i++) {
+                final Object value = typeHandlers[i].getResult(rs, columnIndexes[i]);
+                if (value != null) {
+                    foundValues = true;
+                }
+                if (value != null || callSettersOnNulls[i]) {
+                    setValue(rowValue, i, value);
+                }
+            }
+            return foundValues || configuration.isReturnInstanceForEmptyRow() ? rowValue : null;
+        }
+
+        private void setValue(Object rowValue, int i, Object value) {
+            // same error handling as BeanWrapper
+            try {
+                try {
+                    setters[i].invoke(rowValue, new Object[] { value });
+                } catch (Throwable t) {
+                    throw ExceptionUtil.unwrapThrowable(t);
+                }
+            } catch (Throwable t) {
+                throw new ReflectionException("Could not set property '" + properties[i] + "' of '" + rowValue.getClass()
+                        + "' with value '" + value + "' Cause: " + t.toString(), t);
+            }
+        }
+
+        private int findColumn(List<String> columnNames, String column) {
+            // like ResultSet.findColumn(), the first column whose label matches ignoring case
+            for (int i = 0; i < columnNames.size(); i++) {
+                if (columnNames.get(i).equalsIgnoreCase(column)) {
+                    return i + 1;
+                }
+            }
+            return -1;
+        }
+    }
+
     private void putAncestor(Object resultObject, String resultMapId) {
         ancestorObjects.put(resultMapId, resultObject);
     }
@@ -862,7 +1062,7 @@ public class DefaultResultSetHandler implements ResultSetHandler {
                         new ResultLoader(configuration, executor, nestedQuery,
                                 nestedQueryParameterObject, targetType, key, nestedBoundSql);
                 if (propertyMapping.isLazy()) {
-                    lazyLoader.addLoader(property, metaResultObject, resultLoader);
+                    lazyLoader.addLoader(property, metaResultObject, resultLoader, getLazyLoadBatch(nestedQuery, nestedBoundSql));
                     value = DEFERRED;
                 } else {
                     value = resultLoader.loadResult();
@@ -872,6 +1072,18 @@ public class DefaultResultSetHandler implements ResultSetHandler {
         return value;
     }
 
+    private ResultLoaderBatch getLazyLoadBatch(MappedStatement nestedQuery, BoundSql nestedBoundSql) {
+        if (configuration.getLazyLoadBatchSize() < 2) {
+            return null;
+        }
+        // 每条嵌套查询只分析一次，不能批量加载时记录null
+        String nestedQueryId = nestedQuery.getId();
+        if (!lazyLoadBatches.containsKey(nestedQueryId)) {
+            lazyLoadBatches.put(nestedQueryId, ResultLoaderBatch.create(configuration, nestedQuery, nestedBoundSql));
+        }
+        return lazyLoadBatches.get(nestedQueryId);
+    }
+
     private Object prepareParameterForNestedQuery(ResultSet rs, ResultMapping resultMapping, Class<?> parameterType, String columnPrefix) throws SQLException {
         if (resultMapping.isCompositeResult()) {
             return prepareCompositeKeyParameter(rs, resultMapping, parameterType, columnPrefix);
@@ -972,7 +1184,7 @@ public class DefaultResultSetHandler implements ResultSetHandler {
         ResultSet resultSet = rsw.getResultSet();
         skipRows(resultSet, rowBounds);
         Object rowValue = previousRowValue;
-        while (shouldProcessMoreRows(resultContext, rowBounds) && !resultSet.isClosed() && resultSet.next()) {
+        while (shouldProcessMoreRows(resultContext, rowBounds) && !resultSet.isClosed() && nextRow(resultSet)) {
             final ResultMap discriminatedResultMap = resolveDiscriminatedResultMap(resultSet, resultMap, null);
             final CacheKey rowKey = createRowKey(discriminatedResultMap, rsw, null);
             Object partialObject = nestedResultObjects.get(rowKey);
@@ -18,15 +18,27 @@ package org.apache.ibatis.executor.statement;
 import java.sql.Connection;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.ibatis.executor.ErrorContext;
 import org.apache.ibatis.executor.Executor;
 import org.apache.ibatis.executor.ExecutorException;
 import org.apache.ibatis.executor.keygen.KeyGenerator;
 import org.apache.ibatis.executor.parameter.ParameterHandler;
+import org.apache.ibatis.executor.resultset.DefaultResultSetHandler;
 import org.apache.ibatis.executor.resultset.ResultSetHandler;
 import org.apache.ibatis.mapping.BoundSql;
 import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.ParameterMapping;
+import org.apache.ibatis.mapping.ParameterMode;
+import org.apache.ibatis.metrics.ParameterRedactor;
+import org.apache.ibatis.metrics.SlowStatementEvent;
+import org.apache.ibatis.metrics.StatementMetrics;
+import org.apache.ibatis.metrics.StatementMetrics.Phase;
+import org.apache.ibatis.reflection.MetaObject;
 import org.apache.ibatis.reflection.factory.ObjectFactory;
 import org.apache.ibatis.session.Configuration;
 import org.apache.ibatis.session.ResultHandler;
@@ -50,11 +62,18 @@ public abstract class BaseStatementHandler implements StatementHandler {
 
     protected BoundSql boundSql;
 
+    // 语句的统计信息，未开启时为null
+    protected final StatementMetrics metrics;
+    // 慢语句阈值(纳秒)，为0时不检测慢语句
+    protected final long slowThresholdNanos;
+
     protected BaseStatementHandler(Executor executor, MappedStatement mappedStatement, Object parameterObject, RowBounds rowBounds, ResultHandler resultHandler, BoundSql boundSql) {
         this.configuration = mappedStatement.getConfiguration();
         this.executor = executor;
         this.mappedStatement = mappedStatement;
         this.rowBounds = rowBounds;
+        this.metrics = configuration.getStatementMetrics(mappedStatement.getId());
+        this.slowThresholdNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(configuration.getSlowStatementThreshold(mappedStatement), 0));
 
         this.typeHandlerRegistry = configuration.getTypeHandlerRegistry();
         this.objectFactory = configuration.getObjectFactory();
@@ -84,10 +103,12 @@ public abstract class BaseStatementHandler implements StatementHandler {
     public Statement prepare(Connection connection, Integer transactionTimeout) throws SQLException {
         ErrorContext.instance().sql(boundSql.getSql());
         Statement statement = null;
+        long start = startTimer();
         try {
             statement = instantiateStatement(connection);
             setStatementTimeout(statement, transactionTimeout);
             setFetchSize(statement);
+            recordLatency(Phase.PREPARE, start);
             return statement;
         } catch (SQLException e) {
             closeStatement(statement);
@@ -98,6 +119,86 @@ public abstract class BaseStatementHandler implements StatementHandler {
         }
     }
 
+    /**
+     * 开启了统计或慢语句检测时返回当前时间，用于之后通过recordLatency()记录某个阶段的耗时
+     */
+    protected long startTimer() {
+        return metrics == null && slowThresholdNanos == 0 ? 0 : System.nanoTime();
+    }
+
+    /**
+     * 记录从start开始的耗时，返回当前时间
+     */
+    protected long recordLatency(Phase phase, long start) {
+        if (metrics == null && slowThresholdNanos == 0) {
+            return 0;
+        }
+        long now = System.nanoTime();
+        if (metrics != null) {
+            metrics.recordLatency(phase, now - start);
+        }
+        return now;
+    }
+
+    /**
+     * 从start开始的执行耗时超过慢语句阈值时，将绑定的SQL、实参、行数以及驱动与结果集映射各自的耗时记录到慢语句日志中
+     *
+     * @param statement 执行的Statement对象
+     * @param start 开始执行的时间
+     * @param executed 驱动执行完语句的时间
+     * @param updateCount 更新语句影响的行数，查询语句为-1，此时使用结果集处理过程中读取的行数
+     */
+    protected void detectSlowStatement(Statement statement, long start, long executed, long updateCount) throws SQLException {
+        if (slowThresholdNanos == 0) {
+            return;
+        }
+        long end = System.nanoTime();
+        if (end - start < slowThresholdNanos) {
+            return;
+        }
+        long rows = updateCount;
+        long fetchNanos = 0;
+        if (updateCount == -1 && resultSetHandler instanceof DefaultResultSetHandler) {
+            // 被插件代理或自定义的ResultSetHandler无法区分读取行与映射的耗时，行数记为-1
+            DefaultResultSetHandler defaultResultSetHandler = (DefaultResultSetHandler) resultSetHandler;
+            rows = defaultResultSetHandler.getFetchedRows();
+            fetchNanos = defaultResultSetHandler.getFetchNanos();
+        }
+        configuration.getSlowStatementLog().add(new SlowStatementEvent(System.currentTimeMillis(), mappedStatement.getId(),
+                boundSql.getSql(), captureParameters(), rows, statement.getFetchSize(), end - start,
+                executed - start + fetchNanos, end - executed - fetchNanos));
+    }
+
+    private List<Object> captureParameters() {
+        // 与DefaultParameterHandler.setParameters()相同的方式获取实参
+        List<ParameterMapping> parameterMappings = boundSql.getParameterMappings();
+        Object parameterObject = boundSql.getParameterObject();
+        ParameterRedactor redactor = configuration.getParameterRedactor();
+        List<Object> values = new ArrayList<>(parameterMappings.size());
+        MetaObject metaObject = null;
+        for (ParameterMapping parameterMapping : parameterMappings) {
+            if (parameterMapping.getMode() == ParameterMode.OUT) {
+                continue;
+            }
+            String propertyName = parameterMapping.getProperty();
+            Object value;
+            if (boundSql.hasAdditionalParameter(propertyName)) {
+                value = boundSql.getAdditionalParameter(propertyName);
+            } else if (parameterObject == null) {
+                value = null;
+            } else if (typeHandlerRegistry.hasTypeHandler(parameterObject.getClass())) {
+                value = parameterObject;
+            } else {
+                if (metaObject == null) {
+                    metaObject = configuration.newMetaObject(parameterObject);
+                }
+                value = metaObject.getValue(propertyName);
+            }
+            values.add(redactor == null ? value : redactor.redact(mappedStatement, parameterMapping, value));
+        }
+        return Collections.unmodifiableList(values);
+    }
+
     protected abstract Statement instantiateStatement(Connection connection) throws SQLException;
 
     protected void setStatementTimeout(Statement stmt, Integer transactionTimeout) throws SQLException {
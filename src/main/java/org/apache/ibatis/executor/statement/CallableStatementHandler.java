@@ -31,6 +31,7 @@ import org.apache.ibatis.mapping.MappedStatement;
 import org.apache.ibatis.mapping.ParameterMapping;
 import org.apache.ibatis.mapping.ParameterMode;
 import org.apache.ibatis.mapping.ResultSetType;
+import org.apache.ibatis.metrics.StatementMetrics.Phase;
 import org.apache.ibatis.session.ResultHandler;
 import org.apache.ibatis.session.RowBounds;
 import org.apache.ibatis.type.JdbcType;
@@ -47,12 +48,15 @@ public class CallableStatementHandler extends BaseStatementHandler {
     @Override
     public int update(Statement statement) throws SQLException {
         CallableStatement cs = (CallableStatement) statement;
+        long start = startTimer();
         cs.execute();
+        long executed = recordLatency(Phase.EXECUTE, start);
         int rows = cs.getUpdateCount();
         Object parameterObject = boundSql.getParameterObject();
         KeyGenerator keyGenerator = mappedStatement.getKeyGenerator();
         keyGenerator.processAfter(executor, mappedStatement, cs, parameterObject);
         resultSetHandler.handleOutputParameters(cs);
+        detectSlowStatement(cs, start, executed, rows);
         return rows;
     }
 
@@ -65,11 +69,14 @@ public class CallableStatementHandler extends BaseStatementHandler {
     @Override
     public <E> List<E> query(Statement statement, ResultHandler resultHandler) throws SQLException {
         CallableStatement cs = (CallableStatement) statement;
+        long start = startTimer();
         cs.execute(); // 执行存储过程
+        long executed = recordLatency(Phase.EXECUTE, start);
         // 处理存储过程返回的结果集
         List<E> resultList = resultSetHandler.handleResultSets(cs);
         // 处理输出参数，可能修改resultList集合
         resultSetHandler.handleOutputParameters(cs);
+        detectSlowStatement(cs, start, executed, -1);
         // 返回最后的结果对象
         return resultList;
     }
@@ -77,7 +84,9 @@ public class CallableStatementHandler extends BaseStatementHandler {
     @Override
     public <E> Cursor<E> queryCursor(Statement statement) throws SQLException {
         CallableStatement cs = (CallableStatement) statement;
+        long start = startTimer();
         cs.execute();
+        recordLatency(Phase.EXECUTE, start);
         Cursor<E> resultList = resultSetHandler.handleCursorResultSets(cs);
         resultSetHandler.handleOutputParameters(cs);
         return resultList;
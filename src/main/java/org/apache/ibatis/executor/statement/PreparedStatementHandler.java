@@ -29,6 +29,7 @@ import org.apache.ibatis.executor.keygen.KeyGenerator;
 import org.apache.ibatis.mapping.BoundSql;
 import org.apache.ibatis.mapping.MappedStatement;
 import org.apache.ibatis.mapping.ResultSetType;
+import org.apache.ibatis.metrics.StatementMetrics.Phase;
 import org.apache.ibatis.session.ResultHandler;
 import org.apache.ibatis.session.RowBounds;
 
@@ -44,13 +45,16 @@ public class PreparedStatementHandler extends BaseStatementHandler {
     @Override
     public int update(Statement statement) throws SQLException {
         PreparedStatement ps = (PreparedStatement) statement;
+        long start = startTimer();
         ps.execute(); // 执行SQL语句，修改数据
+        long executed = recordLatency(Phase.EXECUTE, start);
         int rows = ps.getUpdateCount(); // 获取影响行数
         // 获取实参对象
         Object parameterObject = boundSql.getParameterObject();
         // 执行KeyGenerator
         KeyGenerator keyGenerator = mappedStatement.getKeyGenerator();
         keyGenerator.processAfter(executor, mappedStatement, ps, parameterObject);
+        detectSlowStatement(ps, start, executed, rows);
         return rows; // 返回影响函数
     }
 
@@ -63,14 +67,20 @@ public class PreparedStatementHandler extends BaseStatementHandler {
     @Override
     public <E> List<E> query(Statement statement, ResultHandler resultHandler) throws SQLException {
         PreparedStatement ps = (PreparedStatement) statement;
+        long start = startTimer();
         ps.execute();
-        return resultSetHandler.handleResultSets(ps);
+        long executed = recordLatency(Phase.EXECUTE, start);
+        List<E> resultList = resultSetHandler.handleResultSets(ps);
+        detectSlowStatement(ps, start, executed, -1);
+        return resultList;
     }
 
     @Override
     public <E> Cursor<E> queryCursor(Statement statement) throws SQLException {
         PreparedStatement ps = (PreparedStatement) statement;
+        long start = startTimer();
         ps.execute();
+        recordLatency(Phase.EXECUTE, start);
         return resultSetHandler.handleCursorResultSets(ps);
     }
 
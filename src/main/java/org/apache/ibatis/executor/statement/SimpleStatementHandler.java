@@ -29,6 +29,7 @@ import org.apache.ibatis.executor.keygen.SelectKeyGenerator;
 import org.apache.ibatis.mapping.BoundSql;
 import org.apache.ibatis.mapping.MappedStatement;
 import org.apache.ibatis.mapping.ResultSetType;
+import org.apache.ibatis.metrics.StatementMetrics.Phase;
 import org.apache.ibatis.session.ResultHandler;
 import org.apache.ibatis.session.RowBounds;
 
@@ -47,18 +48,24 @@ public class SimpleStatementHandler extends BaseStatementHandler {
         Object parameterObject = boundSql.getParameterObject();
         KeyGenerator keyGenerator = mappedStatement.getKeyGenerator();
         int rows;
+        long start = startTimer();
+        long executed;
         if (keyGenerator instanceof Jdbc3KeyGenerator) {
             statement.execute(sql, Statement.RETURN_GENERATED_KEYS);
+            executed = recordLatency(Phase.EXECUTE, start);
             rows = statement.getUpdateCount();
             keyGenerator.processAfter(executor, mappedStatement, statement, parameterObject);
         } else if (keyGenerator instanceof SelectKeyGenerator) {
             statement.execute(sql);
+            executed = recordLatency(Phase.EXECUTE, start);
             rows = statement.getUpdateCount();
             keyGenerator.processAfter(executor, mappedStatement, statement, parameterObject);
         } else {
             statement.execute(sql);
+            executed = recordLatency(Phase.EXECUTE, start);
             rows = statement.getUpdateCount();
         }
+        detectSlowStatement(statement, start, executed, rows);
         return rows;
     }
 
@@ -74,15 +81,21 @@ public class SimpleStatementHandler extends BaseStatementHandler {
         // 获取SQL语句
         String sql = boundSql.getSql();
         // 执行SQL语句
+        long start = startTimer();
         statement.execute(sql);
+        long executed = recordLatency(Phase.EXECUTE, start);
         // 处理ResultSet映射，得到结果对象
-        return resultSetHandler.handleResultSets(statement);
+        List<E> resultList = resultSetHandler.handleResultSets(statement);
+        detectSlowStatement(statement, start, executed, -1);
+        return resultList;
     }
 
     @Override
     public <E> Cursor<E> queryCursor(Statement statement) throws SQLException {
         String sql = boundSql.getSql();
+        long start = startTimer();
         statement.execute(sql);
+        recordLatency(Phase.EXECUTE, start);
         return resultSetHandler.handleCursorResultSets(statement);
     }
 
@@ -100,6 +100,10 @@ public abstract class BaseJdbcLogger {
     }
 
     protected String objectValueString(Object value) {
+        return valueString(value);
+    }
+
+    static String valueString(Object value) {
         if (value instanceof Array) {
             try {
                 return ArrayUtil.toString(((Array) value).getArray());
@@ -145,6 +149,10 @@ public abstract class BaseJdbcLogger {
     }
 
     private String prefix(boolean isInput) {
+        return prefix(queryStack, isInput);
+    }
+
+    static String prefix(int queryStack, boolean isInput) {
         char[] buffer = new char[queryStack * 2 + 2];
         Arrays.fill(buffer, '=');
         buffer[queryStack * 2 + 1] = ' ';
@@ -0,0 +1,126 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.logging.jdbc;
+
+import java.sql.Array;
+
+import org.apache.ibatis.builder.SqlSourceBuilder;
+import org.apache.ibatis.logging.Log;
+
+/**
+ * What a traced statement did at one step: the SQL it executed with its parameters, the rows it updated or the
+ * rows it read. It is turned into log lines by {@link #log()}, possibly on another thread.
+ */
+final class SqlTrace {
+
+  private final Log statementLog;
+  private final int queryStack;
+  private final String executedSql;
+  private final String preparedSql;
+  private final Object[] parameters;
+  private final long updateCount;
+  private final int rows;
+
+  private SqlTrace(Log statementLog, int queryStack, String executedSql, String preparedSql, Object[] parameters,
+      long updateCount, int rows) {
+    this.statementLog = statementLog;
+    this.queryStack = queryStack;
+    this.executedSql = executedSql;
+    this.preparedSql = preparedSql;
+    this.parameters = parameters;
+    this.updateCount = updateCount;
+    this.rows = rows;
+  }
+
+  static SqlTrace executing(Log statementLog, int queryStack, String sql) {
+    return new SqlTrace(statementLog, queryStack, sql, null, null, -1, -1);
+  }
+
+  static SqlTrace preparing(Log statementLog, int queryStack, String sql, Object[] parameters) {
+    // driver arrays may be freed once the statement completed, so they are rendered right away
+    for (int i = 0; i < parameters.length; i++) {
+      if (parameters[i] instanceof Array) {
+        parameters[i] = new RenderedValue(parameters[i]);
+      }
+    }
+    return new SqlTrace(statementLog, queryStack, null, sql, parameters, -1, -1);
+  }
+
+  static SqlTrace updates(Log statementLog, int queryStack, long updateCount) {
+    return new SqlTrace(statementLog, queryStack, null, null, null, updateCount, -1);
+  }
+
+  static SqlTrace rows(Log statementLog, int queryStack, int rows) {
+    return new SqlTrace(statementLog, queryStack, null, null, null, -1, rows);
+  }
+
+  void log() {
+    if (!statementLog.isDebugEnabled()) {
+      return;
+    }
+    if (executedSql != null) {
+      debug(" Executing: " + SqlSourceBuilder.removeExtraWhitespaces(executedSql), true);
+    }
+    if (preparedSql != null) {
+      debug(" Preparing: " + SqlSourceBuilder.removeExtraWhitespaces(preparedSql), true);
+    }
+    if (parameters != null) {
+      debug("Parameters: " + getParameterValueString(), true);
+    }
+    if (updateCount != -1) {
+      debug("   Updates: " + updateCount, false);
+    }
+    if (rows != -1) {
+      debug("     Total: " + rows, false);
+    }
+  }
+
+  private String getParameterValueString() {
+    StringBuilder builder = new StringBuilder();
+    for (Object value : parameters) {
+      if (builder.length() > 0) {
+        builder.append(", ");
+      }
+      if (value == null) {
+        builder.append("null");
+      } else if (value instanceof RenderedValue) {
+        builder.append(value);
+      } else {
+        builder.append(BaseJdbcLogger.valueString(value)).append('(').append(value.getClass().getSimpleName()).append(')');
+      }
+    }
+    return builder.toString();
+  }
+
+  private void debug(String text, boolean input) {
+    statementLog.debug(BaseJdbcLogger.prefix(queryStack, input) + text);
+  }
+
+  private static final class RenderedValue {
+
+    private final String text;
+
+    RenderedValue(Object value) {
+      this.text = BaseJdbcLogger.valueString(value) + "(" + value.getClass().getSimpleName() + ")";
+    }
+
+    @Override
+    public String toString() {
+      return text;
+    }
+  }
+
+}
@@ -0,0 +1,101 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.logging.jdbc;
+
+import java.sql.Connection;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.ibatis.logging.Log;
+
+/**
+ * A lightweight alternative to {@link ConnectionLogger} for the debug log of statements.
+ * <p>
+ * The connection of one statement execution in every {@code sampling} is traced, the others are used as they are.
+ * A traced connection is wrapped in plain delegating classes instead of dynamic proxies. They record the SQL, the
+ * parameter values and the update count, and count the rows read without rendering their values. Unless the tracer
+ * is synchronous, these records are turned into log lines by a background thread. The lines are the same as the ones
+ * written by {@link ConnectionLogger}, except that the rows are never logged at trace level.
+ *
+ * @since 3.5.6
+ */
+public final class SqlTracer {
+
+  private static final int QUEUE_CAPACITY = 4096;
+
+  private final int sampling;
+  private final ThreadPoolExecutor formatter;
+  private final AtomicLong executions = new AtomicLong();
+
+  /**
+   * Creates a tracer.
+   *
+   * @param sampling trace one statement execution in this number, 1 to trace all of them
+   * @param async true to write the log lines from a background thread
+   */
+  public SqlTracer(int sampling, boolean async) {
+    if (sampling < 1) {
+      throw new IllegalArgumentException("The SQL trace sampling must be at least 1, but was " + sampling);
+    }
+    this.sampling = sampling;
+    if (async) {
+      // a single thread keeps the lines in order, the caller formats its own lines when the queue is full
+      formatter = new ThreadPoolExecutor(1, 1, 60L, TimeUnit.SECONDS, new ArrayBlockingQueue<>(QUEUE_CAPACITY),
+          runnable -> {
+            Thread thread = new Thread(runnable, "mybatis-sql-trace");
+            thread.setDaemon(true);
+            return thread;
+          }, new ThreadPoolExecutor.CallerRunsPolicy());
+      formatter.allowCoreThreadTimeOut(true);
+    } else {
+      formatter = null;
+    }
+  }
+
+  public int getSampling() {
+    return sampling;
+  }
+
+  public boolean isAsync() {
+    return formatter != null;
+  }
+
+  /**
+   * Returns the connection to use for the next statement execution, traced if the execution is sampled.
+   *
+   * @param connection the connection
+   * @param statementLog the log of the statement
+   * @param queryStack the nesting level of the statement
+   * @return a traced connection, or the given connection if this execution is not sampled
+   */
+  public Connection trace(Connection connection, Log statementLog, int queryStack) {
+    if (sampling > 1 && executions.getAndIncrement() % sampling != 0) {
+      return connection;
+    }
+    return new TracingConnection(connection, this, statementLog, queryStack == 0 ? 1 : queryStack);
+  }
+
+  void log(SqlTrace trace) {
+    if (formatter == null) {
+      trace.log();
+    } else {
+      formatter.execute(trace::log);
+    }
+  }
+
+}
@@ -30,6 +30,7 @@ import org.apache.ibatis.cache.decorators.LruCache;
 import org.apache.ibatis.cache.decorators.ScheduledCache;
 import org.apache.ibatis.cache.decorators.SerializedCache;
 import org.apache.ibatis.cache.decorators.SynchronizedCache;
+import org.apache.ibatis.cache.impl.ConcurrentCache;
 import org.apache.ibatis.cache.impl.PerpetualCache;
 import org.apache.ibatis.reflection.MetaObject;
 import org.apache.ibatis.reflection.SystemMetaObject;
@@ -108,7 +109,11 @@ public class CacheBuilder {
             }
             // 根据readWrite、blocking、clearInterval等配置，
             // 添加SerializedCache、ScheduledCache等装饰器
-            cache = setStandardDecorators(cache);
+            cache = setStandardDecorators(cache, true);
+        } else if (ConcurrentCache.class.equals(cache.getClass())) {
+            // ConcurrentCache自带淘汰策略且本身是线程安全的，
+            // 因此忽略decorators集合，也不需要SynchronizedCache装饰器
+            cache = setStandardDecorators(cache, false);
         } else if (!LoggingCache.class.isAssignableFrom(cache.getClass())) {
             // 如果不是PerpetualCache类型，就是其他自定义类型的Cache，则添加一个LoggingCache装饰器
             cache = new LoggingCache(cache);
@@ -125,7 +130,7 @@ public class CacheBuilder {
         }
     }
 
-    private Cache setStandardDecorators(Cache cache) {
+    private Cache setStandardDecorators(Cache cache, boolean synchronize) {
         try {
             MetaObject metaCache = SystemMetaObject.forObject(cache);
             if (size != null && metaCache.hasSetter("size")) {
@@ -139,7 +144,9 @@ public class CacheBuilder {
                 cache = new SerializedCache(cache);
             }
             cache = new LoggingCache(cache);
-            cache = new SynchronizedCache(cache);
+            if (synchronize) {
+                cache = new SynchronizedCache(cache);
+            }
             if (blocking) {
                 cache = new BlockingCache(cache);
             }
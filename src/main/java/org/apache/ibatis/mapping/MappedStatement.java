@@ -38,6 +38,7 @@ public final class MappedStatement {
     private String id;
     private Integer fetchSize;
     private Integer timeout;
+    private Integer slowThreshold;
     private StatementType statementType;
     private ResultSetType resultSetType;
     private SqlSource sqlSource;
@@ -114,6 +115,11 @@ public final class MappedStatement {
             return this;
         }
 
+        public Builder slowThreshold(Integer slowThreshold) {
+            mappedStatement.slowThreshold = slowThreshold;
+            return this;
+        }
+
         public Builder statementType(StatementType statementType) {
             mappedStatement.statementType = statementType;
             return this;
@@ -230,6 +236,10 @@ public final class MappedStatement {
         return timeout;
     }
 
+    public Integer getSlowThreshold() {
+        return slowThreshold;
+    }
+
     public StatementType getStatementType() {
         return statementType;
     }
@@ -0,0 +1,59 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.metrics;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Keeps the last exported metrics in memory, mostly for tests.
+ *
+ * @since 3.5.6
+ */
+public class InMemoryMetricsExporter implements MetricsExporter {
+
+  private volatile Map<String, StatementMetrics> metrics = Collections.emptyMap();
+
+  @Override
+  public void export(Collection<StatementMetrics> metrics) {
+    Map<String, StatementMetrics> exported = new LinkedHashMap<>();
+    for (StatementMetrics statementMetrics : metrics) {
+      exported.put(statementMetrics.getId(), statementMetrics);
+    }
+    this.metrics = Collections.unmodifiableMap(exported);
+  }
+
+  /**
+   * Returns the last exported metrics of a statement.
+   *
+   * @param statementId the id of the statement
+   * @return the metrics, or null if the statement had not been executed at the last export
+   */
+  public StatementMetrics getMetrics(String statementId) {
+    return metrics.get(statementId);
+  }
+
+  public Map<String, StatementMetrics> getAllMetrics() {
+    return metrics;
+  }
+
+  public void clear() {
+    metrics = Collections.emptyMap();
+  }
+
+}
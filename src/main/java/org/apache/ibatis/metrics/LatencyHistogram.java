@@ -0,0 +1,152 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histogram of durations in nanoseconds, recorded without locks.
+ * <p>
+ * Like an HDR histogram, each power of two is split in {@value #SUB_BUCKET_COUNT} buckets of the same width, so
+ * that a percentile is reported within about 6% of the recorded value whatever its magnitude. Durations longer
+ * than 2<sup>40</sup> nanoseconds (about 18 minutes) are counted in the last bucket, their exact maximum is kept.
+ *
+ * @since 3.5.6
+ */
+public class LatencyHistogram {
+
+  private static final int SUB_BUCKET_BITS = 4;
+  private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+  private static final int MAX_EXPONENT = 40;
+  private static final int BUCKET_COUNT = (MAX_EXPONENT - SUB_BUCKET_BITS + 2) * SUB_BUCKET_COUNT;
+
+  private final AtomicLongArray counts;
+  private final LongAdder count = new LongAdder();
+  private final LongAdder total = new LongAdder();
+  private final AtomicLong max = new AtomicLong();
+
+  public LatencyHistogram() {
+    this.counts = new AtomicLongArray(BUCKET_COUNT);
+  }
+
+  private LatencyHistogram(LatencyHistogram source) {
+    int length = source.counts.length();
+    this.counts = new AtomicLongArray(length);
+    for (int i = 0; i < length; i++) {
+      long bucketCount = source.counts.get(i);
+      if (bucketCount != 0) {
+        this.counts.set(i, bucketCount);
+      }
+    }
+    this.count.add(source.count.sum());
+    this.total.add(source.total.sum());
+    this.max.set(source.max.get());
+  }
+
+  /**
+   * Records a duration.
+   *
+   * @param nanos the duration in nanoseconds, negative durations are recorded as 0
+   */
+  public void record(long nanos) {
+    long value = Math.max(nanos, 0);
+    counts.incrementAndGet(bucketIndex(value));
+    count.increment();
+    total.add(value);
+    long currentMax = max.get();
+    while (value > currentMax && !max.compareAndSet(currentMax, value)) {
+      currentMax = max.get();
+    }
+  }
+
+  public long getCount() {
+    return count.sum();
+  }
+
+  public long getTotalNanos() {
+    return total.sum();
+  }
+
+  public long getMaxNanos() {
+    return max.get();
+  }
+
+  public double getMeanNanos() {
+    long n = getCount();
+    return n == 0 ? 0 : (double) getTotalNanos() / n;
+  }
+
+  /**
+   * Returns the duration under which the given percentage of the recorded durations fall.
+   *
+   * @param percentile the percentage, from 0 to 100
+   * @return the highest duration of the bucket reaching the percentile, never more than the maximum duration
+   */
+  public long getValueAtPercentile(double percentile) {
+    long n = 0;
+    for (int i = 0; i < BUCKET_COUNT; i++) {
+      n += counts.get(i);
+    }
+    if (n == 0) {
+      return 0;
+    }
+    long rank = Math.max(1, (long) Math.ceil(Math.min(percentile, 100.0) / 100.0 * n));
+    long seen = 0;
+    for (int i = 0; i < BUCKET_COUNT; i++) {
+      seen += counts.get(i);
+      if (seen >= rank) {
+        return Math.min(highestValue(i), getMaxNanos());
+      }
+    }
+    return getMaxNanos();
+  }
+
+  /**
+   * Returns a copy of this histogram. The copy is consistent per bucket, but durations recorded while copying may
+   * only be counted in part of its totals.
+   *
+   * @return a new histogram
+   */
+  public LatencyHistogram copy() {
+    return new LatencyHistogram(this);
+  }
+
+  static int bucketIndex(long value) {
+    if (value < SUB_BUCKET_COUNT) {
+      return (int) value;
+    }
+    int exponent = 63 - Long.numberOfLeadingZeros(value);
+    if (exponent > MAX_EXPONENT) {
+      return BUCKET_COUNT - 1;
+    }
+    int shift = exponent - SUB_BUCKET_BITS;
+    // the bits below the leading one select the bucket within the power of two
+    int subBucket = (int) (value >>> shift) - SUB_BUCKET_COUNT;
+    return (shift + 1) * SUB_BUCKET_COUNT + subBucket;
+  }
+
+  static long highestValue(int index) {
+    if (index < SUB_BUCKET_COUNT) {
+      return index;
+    }
+    int shift = index / SUB_BUCKET_COUNT - 1;
+    long lowest = (long) (SUB_BUCKET_COUNT + index % SUB_BUCKET_COUNT) << shift;
+    return index == BUCKET_COUNT - 1 ? Long.MAX_VALUE : lowest + (1L << shift) - 1;
+  }
+
+}
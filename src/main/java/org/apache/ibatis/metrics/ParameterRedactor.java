@@ -0,0 +1,39 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.metrics;
+
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.ParameterMapping;
+
+/**
+ * Replaces the parameter values captured in a {@link SlowStatementEvent}, for example to hide personal data.
+ *
+ * @since 3.5.6
+ */
+@FunctionalInterface
+public interface ParameterRedactor {
+
+  /**
+   * Returns the value to keep in the event in place of a parameter value.
+   *
+   * @param ms the executed statement
+   * @param parameterMapping the mapping of the parameter
+   * @param value the value bound to the statement
+   * @return the value to keep, for example a mask or null
+   */
+  Object redact(MappedStatement ms, ParameterMapping parameterMapping, Object value);
+
+}
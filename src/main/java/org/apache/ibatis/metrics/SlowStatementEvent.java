@@ -0,0 +1,137 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.metrics;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A statement execution that took longer than its slow statement threshold.
+ *
+ * @since 3.5.6
+ */
+public class SlowStatementEvent {
+
+  private final long timestamp;
+  private final String statementId;
+  private final String sql;
+  private final List<Object> parameters;
+  private final long rows;
+  private final int fetchSize;
+  private final long elapsedNanos;
+  private final long driverNanos;
+  private final long resultHandlingNanos;
+
+  public SlowStatementEvent(long timestamp, String statementId, String sql, List<Object> parameters, long rows,
+      int fetchSize, long elapsedNanos, long driverNanos, long resultHandlingNanos) {
+    this.timestamp = timestamp;
+    this.statementId = statementId;
+    this.sql = sql;
+    this.parameters = parameters;
+    this.rows = rows;
+    this.fetchSize = fetchSize;
+    this.elapsedNanos = elapsedNanos;
+    this.driverNanos = driverNanos;
+    this.resultHandlingNanos = resultHandlingNanos;
+  }
+
+  /**
+   * Returns when the execution ended.
+   *
+   * @return the time in milliseconds since the epoch
+   */
+  public long getTimestamp() {
+    return timestamp;
+  }
+
+  public String getStatementId() {
+    return statementId;
+  }
+
+  /**
+   * Returns the SQL of the bound statement.
+   *
+   * @return the SQL
+   */
+  public String getSql() {
+    return sql;
+  }
+
+  /**
+   * Returns the values bound to the parameters, in order, as returned by the {@link ParameterRedactor} if any.
+   * <p>
+   * The values are read from the parameter object once the execution has turned out to be slow, that is after the
+   * statement was executed. A property changed during the execution, such as a generated key or an OUT parameter of
+   * a callable statement, therefore shows its new value.
+   *
+   * @return the parameter values
+   */
+  public List<Object> getParameters() {
+    return parameters;
+  }
+
+  /**
+   * Returns the number of rows read by a query or the number of rows updated by another statement.
+   *
+   * @return the number of rows
+   */
+  public long getRows() {
+    return rows;
+  }
+
+  /**
+   * Returns the fetch size of the JDBC statement.
+   *
+   * @return the fetch size, 0 when left to the driver
+   */
+  public int getFetchSize() {
+    return fetchSize;
+  }
+
+  public long getElapsedNanos() {
+    return elapsedNanos;
+  }
+
+  public long getElapsedMillis() {
+    return TimeUnit.NANOSECONDS.toMillis(elapsedNanos);
+  }
+
+  /**
+   * Returns the time spent in the driver, executing the statement and moving to the next rows.
+   *
+   * @return the time in nanoseconds
+   */
+  public long getDriverNanos() {
+    return driverNanos;
+  }
+
+  /**
+   * Returns the time spent mapping the rows, including the nested selects that are not lazy.
+   *
+   * @return the time in nanoseconds
+   */
+  public long getResultHandlingNanos() {
+    return resultHandlingNanos;
+  }
+
+  @Override
+  public String toString() {
+    return statementId + " took " + getElapsedMillis() + "ms (driver " + TimeUnit.NANOSECONDS.toMillis(driverNanos)
+        + "ms, result handling " + TimeUnit.NANOSECONDS.toMillis(resultHandlingNanos) + "ms, " + rows + " rows): "
+        + sql + " " + parameters;
+  }
+
+}
@@ -0,0 +1,103 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.metrics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Ring buffer keeping the most recent {@link SlowStatementEvent slow statement events}. Adding an event takes no
+ * lock, the oldest event is overwritten once the buffer is full.
+ *
+ * @since 3.5.6
+ */
+public class SlowStatementLog {
+
+  private final AtomicReferenceArray<Entry> events;
+  private final AtomicLong sequence = new AtomicLong();
+
+  public SlowStatementLog(int capacity) {
+    if (capacity < 1) {
+      throw new IllegalArgumentException("The capacity of the slow statement log must be at least 1, but was " + capacity);
+    }
+    this.events = new AtomicReferenceArray<>(capacity);
+  }
+
+  public int getCapacity() {
+    return events.length();
+  }
+
+  public void add(SlowStatementEvent event) {
+    long number = sequence.getAndIncrement();
+    events.set((int) (number % events.length()), new Entry(number, event));
+  }
+
+  /**
+   * Returns the events in the buffer, from the oldest to the most recent.
+   * <p>
+   * The list is not a snapshot when events are added concurrently: an event whose slot is being written or has
+   * already been overwritten by a more recent event is left out, so that the list never holds an event twice or out
+   * of order.
+   *
+   * @return a new list of events
+   */
+  public List<SlowStatementEvent> getEvents() {
+    long end = sequence.get();
+    int capacity = events.length();
+    List<SlowStatementEvent> list = new ArrayList<>(capacity);
+    for (long i = Math.max(0, end - capacity); i < end; i++) {
+      Entry entry = events.get((int) (i % capacity));
+      // the slot may still hold the event it replaces, or already a more recent one
+      if (entry != null && entry.number == i) {
+        list.add(entry.event);
+      }
+    }
+    return list;
+  }
+
+  /**
+   * Returns the number of events added since the buffer was created or cleared, including overwritten ones.
+   *
+   * @return the number of events
+   */
+  public long getTotalCount() {
+    return sequence.get();
+  }
+
+  /**
+   * Removes the events from the buffer. Events added during the call may be kept.
+   */
+  public void clear() {
+    sequence.set(0);
+    for (int i = 0; i < events.length(); i++) {
+      events.set(i, null);
+    }
+  }
+
+  private static final class Entry {
+
+    private final long number;
+    private final SlowStatementEvent event;
+
+    Entry(long number, SlowStatementEvent event) {
+      this.number = number;
+      this.event = event;
+    }
+  }
+
+}
@@ -0,0 +1,194 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Execution metrics of one mapped statement, recorded without locks by the executors of all the sessions.
+ *
+ * @since 3.5.6
+ */
+public class StatementMetrics {
+
+  /**
+   * The phases of a statement execution whose durations are recorded.
+   */
+  public enum Phase {
+    /** Creating or preparing the JDBC statement. Not recorded when a statement is reused. */
+    PREPARE,
+    /** Executing the JDBC statement, once per execution or per executed batch. */
+    EXECUTE,
+    /** Moving to the next rows of the result sets. */
+    FETCH,
+    /** Mapping the rows to objects, including the nested selects that are not lazy. */
+    MAPPING
+  }
+
+  private final String id;
+  private final LatencyHistogram[] latencies;
+  private final LongAdder rows = new LongAdder();
+  private final LongAdder batches = new LongAdder();
+  private final LongAdder batchedRows = new LongAdder();
+  private final LongAdder localCacheHits = new LongAdder();
+  private final LongAdder localCacheMisses = new LongAdder();
+  private final LongAdder cacheHits = new LongAdder();
+  private final LongAdder cacheMisses = new LongAdder();
+  private final LongAdder lazyLoads = new LongAdder();
+
+  public StatementMetrics(String id) {
+    this.id = id;
+    this.latencies = new LatencyHistogram[Phase.values().length];
+    for (int i = 0; i < latencies.length; i++) {
+      latencies[i] = new LatencyHistogram();
+    }
+  }
+
+  private StatementMetrics(StatementMetrics source) {
+    this.id = source.id;
+    this.latencies = new LatencyHistogram[source.latencies.length];
+    for (int i = 0; i < latencies.length; i++) {
+      latencies[i] = source.latencies[i].copy();
+    }
+    rows.add(source.rows.sum());
+    batches.add(source.batches.sum());
+    batchedRows.add(source.batchedRows.sum());
+    localCacheHits.add(source.localCacheHits.sum());
+    localCacheMisses.add(source.localCacheMisses.sum());
+    cacheHits.add(source.cacheHits.sum());
+    cacheMisses.add(source.cacheMisses.sum());
+    lazyLoads.add(source.lazyLoads.sum());
+  }
+
+  public void recordLatency(Phase phase, long nanos) {
+    latencies[phase.ordinal()].record(nanos);
+  }
+
+  public void recordRows(int count) {
+    rows.add(count);
+  }
+
+  public void recordBatch(int size) {
+    batches.increment();
+    batchedRows.add(size);
+  }
+
+  public void recordLocalCache(boolean hit) {
+    (hit ? localCacheHits : localCacheMisses).increment();
+  }
+
+  public void recordCache(boolean hit) {
+    (hit ? cacheHits : cacheMisses).increment();
+  }
+
+  public void recordLazyLoad() {
+    lazyLoads.increment();
+  }
+
+  /**
+   * Returns the id of the mapped statement.
+   *
+   * @return the statement id
+   */
+  public String getId() {
+    return id;
+  }
+
+  public LatencyHistogram getLatency(Phase phase) {
+    return latencies[phase.ordinal()];
+  }
+
+  /**
+   * Returns the number of times the statement was executed on the database, each executed batch counting once.
+   *
+   * @return the number of executions
+   */
+  public long getExecutions() {
+    return getLatency(Phase.EXECUTE).getCount();
+  }
+
+  /**
+   * Returns the number of rows read from the result sets of the statement. The rows read by cursors are not counted.
+   *
+   * @return the number of rows
+   */
+  public long getRows() {
+    return rows.sum();
+  }
+
+  public long getBatches() {
+    return batches.sum();
+  }
+
+  public long getBatchedRows() {
+    return batchedRows.sum();
+  }
+
+  public long getLocalCacheHits() {
+    return localCacheHits.sum();
+  }
+
+  public long getLocalCacheMisses() {
+    return localCacheMisses.sum();
+  }
+
+  public long getCacheHits() {
+    return cacheHits.sum();
+  }
+
+  public long getCacheMisses() {
+    return cacheMisses.sum();
+  }
+
+  /**
+   * Returns the ratio of the second level cache lookups that found the results.
+   *
+   * @return the hit ratio, or 0 if the cache was never looked up
+   */
+  public double getCacheHitRatio() {
+    long hits = getCacheHits();
+    long lookups = hits + getCacheMisses();
+    return lookups == 0 ? 0 : (double) hits / lookups;
+  }
+
+  /**
+   * Returns the number of lazy properties loaded by the statement.
+   *
+   * @return the number of lazy loads
+   */
+  public long getLazyLoads() {
+    return lazyLoads.sum();
+  }
+
+  /**
+   * Returns a copy of these metrics that is not updated by the following executions.
+   *
+   * @return a new instance
+   */
+  public StatementMetrics snapshot() {
+    return new StatementMetrics(this);
+  }
+
+  @Override
+  public String toString() {
+    LatencyHistogram execute = getLatency(Phase.EXECUTE);
+    return id + " {executions=" + getExecutions() + ", p50=" + execute.getValueAtPercentile(50)
+        + "ns, p99=" + execute.getValueAtPercentile(99) + "ns, max=" + execute.getMaxNanos() + "ns, rows=" + getRows()
+        + ", batches=" + getBatches() + ", localCacheHits=" + getLocalCacheHits() + ", cacheHits=" + getCacheHits()
+        + ", cacheMisses=" + getCacheMisses() + ", lazyLoads=" + getLazyLoads() + "}";
+  }
+
+}
@@ -0,0 +1,83 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.metrics;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * The metrics of the statements of a configuration, keyed by statement id.
+ *
+ * @since 3.5.6
+ */
+public class StatementMetricsRegistry {
+
+  private final ConcurrentMap<String, StatementMetrics> metrics = new ConcurrentHashMap<>();
+  private final List<MetricsExporter> exporters = new CopyOnWriteArrayList<>();
+
+  /**
+   * Returns the metrics of a statement, creating them on the first call.
+   *
+   * @param statementId the id of the statement
+   * @return the metrics to record into
+   */
+  public StatementMetrics getMetrics(String statementId) {
+    StatementMetrics statementMetrics = metrics.get(statementId);
+    if (statementMetrics == null) {
+      statementMetrics = metrics.computeIfAbsent(statementId, StatementMetrics::new);
+    }
+    return statementMetrics;
+  }
+
+  public Collection<StatementMetrics> getAllMetrics() {
+    return metrics.values();
+  }
+
+  public void addExporter(MetricsExporter exporter) {
+    exporters.add(exporter);
+  }
+
+  public void removeExporter(MetricsExporter exporter) {
+    exporters.remove(exporter);
+  }
+
+  /**
+   * Passes a snapshot of the metrics of every statement executed so far to the exporters.
+   */
+  public void export() {
+    List<StatementMetrics> snapshots = new ArrayList<>(metrics.size());
+    for (StatementMetrics statementMetrics : metrics.values()) {
+      snapshots.add(statementMetrics.snapshot());
+    }
+    Collection<StatementMetrics> exported = Collections.unmodifiableList(snapshots);
+    for (MetricsExporter exporter : exporters) {
+      exporter.export(exported);
+    }
+  }
+
+  /**
+   * Forgets the metrics recorded so far.
+   */
+  public void clear() {
+    metrics.clear();
+  }
+
+}
@@ -18,6 +18,9 @@ package org.apache.ibatis.plugin;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * @author Clinton Begin
@@ -25,8 +28,16 @@ import java.util.List;
 public class InterceptorChain {
 
     private final List<Interceptor> interceptors = new ArrayList<>();
+    // 所有拦截器都使用默认的plugin()方法时，可以为每个目标类型预先计算好拦截器链，只创建一层代理对象
+    private boolean defaultPlugins = true;
+    // 目标类型对应的Plugin模板，Optional.empty()表示没有拦截器拦截这个类型
+    private final ConcurrentMap<Class<?>, Optional<Plugin>> plugins = new ConcurrentHashMap<>();
 
     public Object pluginAll(Object target) {
+        if (defaultPlugins && !interceptors.isEmpty()) {
+            Optional<Plugin> plugin = plugins.computeIfAbsent(target.getClass(), this::createPlugin);
+            return plugin.isPresent() ? plugin.get().newProxy(target) : target;
+        }
         for (Interceptor interceptor : interceptors) {
             target = interceptor.plugin(target);
         }
@@ -35,10 +46,29 @@ public class InterceptorChain {
 
     public void addInterceptor(Interceptor interceptor) {
         interceptors.add(interceptor);
+        defaultPlugins &= usesDefaultPlugin(interceptor);
+        plugins.clear();
     }
 
     public List<Interceptor> getInterceptors() {
         return Collections.unmodifiableList(interceptors);
     }
 
+    private Optional<Plugin> createPlugin(Class<?> type) {
+        // 后添加的拦截器包装在外层，所以拦截器链的顺序与添加的顺序相反
+        Interceptor[] chain = new Interceptor[interceptors.size()];
+        for (int i = 0; i < chain.length; i++) {
+            chain[i] = interceptors.get(chain.length - 1 - i);
+        }
+        return Optional.ofNullable(Plugin.forType(type, chain));
+    }
+
+    private static boolean usesDefaultPlugin(Interceptor interceptor) {
+        try {
+            return interceptor.getClass().getMethod("plugin", Object.class).getDeclaringClass() == Interceptor.class;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
 }
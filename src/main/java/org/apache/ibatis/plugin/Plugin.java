@@ -16,11 +16,16 @@
 package org.apache.ibatis.plugin;
 
 import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.lang.reflect.Proxy;
 import java.util.AbstractCollection;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -31,42 +36,148 @@ import org.apache.ibatis.reflection.ExceptionUtil;
  */
 public class Plugin implements InvocationHandler {
 
+    // 拦截器类型上的@Intercepts注解解析得到的要拦截的类型及方法，每个拦截器类型只解析一次
+    private static final ClassValue<Map<Class<?>, Set<Method>>> SIGNATURE_MAPS = new ClassValue<Map<Class<?>, Set<Method>>>() {
+        @Override
+        protected Map<Class<?>, Set<Method>> computeValue(Class<?> type) {
+            return parseSignatureMap(type);
+        }
+    };
+
+    // 表示没有内层拦截器拦截目标对象
+    private static final Plugin NO_PLUGIN = new Plugin(null, new Interceptor[0], new HashMap<>(), new Class<?>[0], null);
+
     private final Object target;
-    private final Interceptor interceptor;
-    private final Map<Class<?>, Set<Method>> signatureMap;
+    // 代理对象上的全部拦截器，由外到内排列
+    private final Interceptor[] interceptors;
+    // 被拦截的方法及依次拦截它的拦截器在interceptors中的下标，未拦截的方法直接调用target
+    private final Map<Method, int[]> interceptorsByMethod;
+    private final Class<?>[] interfaces;
+    // 每个拦截器内层的拦截器组成的Plugin，拦截器通过Invocation.getTarget()直接调用目标对象时才会创建，
+    // 同一模板创建的代理对象共用这个数组
+    private final Plugin[] innerPlugins;
 
-    private Plugin(Object target, Interceptor interceptor, Map<Class<?>, Set<Method>> signatureMap) {
+    private Plugin(Object target, Interceptor[] interceptors, Map<Method, int[]> interceptorsByMethod,
+                   Class<?>[] interfaces, Plugin[] innerPlugins) {
         this.target = target;
-        this.interceptor = interceptor;
-        this.signatureMap = signatureMap;
+        this.interceptors = interceptors;
+        this.interceptorsByMethod = interceptorsByMethod;
+        this.interfaces = interfaces;
+        this.innerPlugins = innerPlugins;
     }
 
     public static Object wrap(Object target, Interceptor interceptor) {
         // 获取自定义Interceptor实现类上的@Signature注解信息，
         // 这里的getSignatureMap()方法会解析@Signature注解，得到要拦截的类以及要拦截的方法集合
         Map<Class<?>, Set<Method>> signatureMap = getSignatureMap(interceptor);
-        Class<?> type = target.getClass();
-        //System.err.println("type: " + type.toString());
+        // target已经是Plugin创建的代理对象时，将新的拦截器合并到同一个代理对象中，
+        // 而不是再嵌套一层代理，这样每次方法调用只经过一个代理对象
+        Plugin plugin = getPlugin(target);
+        Object realTarget = plugin == null ? target : plugin.target;
         // 检查当前传入的target对象是否为@Signature注解要拦截的类型，如果是的话，就
         // 使用JDK动态代理的方式创建代理对象
-        Class<?>[] interfaces = getAllInterfaces(type, signatureMap);
-        if (interfaces.length > 0) {
-            // 创建JDK动态代理
-            return Proxy.newProxyInstance(
-                    type.getClassLoader(),
-                    interfaces,
-                    // 这里使用的InvocationHandler就是Plugin本身
-                    new Plugin(target, interceptor, signatureMap));
+        if (getAllInterfaces(realTarget.getClass(), signatureMap).length == 0) {
+            return target;
+        }
+        Interceptor[] interceptors;
+        if (plugin == null) {
+            interceptors = new Interceptor[] {interceptor};
+        } else {
+            interceptors = new Interceptor[plugin.interceptors.length + 1];
+            interceptors[0] = interceptor;
+            System.arraycopy(plugin.interceptors, 0, interceptors, 1, plugin.interceptors.length);
+        }
+        return forType(realTarget.getClass(), interceptors).newProxy(realTarget);
+    }
+
+    /**
+     * 为某个类型的对象创建依次应用多个拦截器的Plugin，效果与依次调用wrap()相同，
+     * 创建的Plugin可以作为模板通过newProxy()为这个类型的多个对象创建代理对象
+     *
+     * @param type 目标对象的类型
+     * @param interceptors 由外到内排列的拦截器，即与应用的顺序相反
+     * @return Plugin对象，没有拦截器拦截这个类型时返回null
+     */
+    static Plugin forType(Class<?> type, Interceptor[] interceptors) {
+        Set<Class<?>> interceptedTypes = new LinkedHashSet<>();
+        Map<Method, List<Integer>> chains = new HashMap<>();
+        for (int i = 0; i < interceptors.length; i++) {
+            Map<Class<?>, Set<Method>> signatureMap = getSignatureMap(interceptors[i]);
+            for (Class<?> intercepted : getAllInterfaces(type, signatureMap)) {
+                for (Method method : signatureMap.get(intercepted)) {
+                    // 与原先逐层代理时相同，只匹配声明在@Signature所指定类型中的方法
+                    if (method.getDeclaringClass() == intercepted) {
+                        chains.computeIfAbsent(method, k -> new ArrayList<>()).add(i);
+                    }
+                }
+                interceptedTypes.add(intercepted);
+            }
+        }
+        if (interceptedTypes.isEmpty()) {
+            return null;
         }
+        Map<Method, int[]> interceptorsByMethod = new HashMap<>();
+        for (Map.Entry<Method, List<Integer>> entry : chains.entrySet()) {
+            interceptorsByMethod.put(entry.getKey(), entry.getValue().stream().mapToInt(Integer::intValue).toArray());
+        }
+        return new Plugin(null, interceptors, interceptorsByMethod, interceptedTypes.toArray(new Class<?>[0]),
+                new Plugin[interceptors.length]);
+    }
+
+    /**
+     * 使用当前Plugin的拦截器创建target的代理对象
+     */
+    Object newProxy(Object target) {
+        return Proxy.newProxyInstance(
+                target.getClass().getClassLoader(),
+                interfaces,
+                // 这里使用的InvocationHandler就是Plugin本身
+                new Plugin(target, interceptors, interceptorsByMethod, interfaces, innerPlugins));
+    }
+
+    Object getTarget() {
         return target;
     }
 
+    /**
+     * 返回指定拦截器看到的目标对象，即由其内层的拦截器创建的代理对象，这样拦截器通过Invocation.getTarget()
+     * 直接调用目标对象时，内层的拦截器仍然会生效，与逐层代理时相同
+     *
+     * @param position 拦截器在interceptors中的下标
+     * @return 内层拦截器的代理对象，没有内层拦截器拦截目标对象时返回target本身
+     */
+    private Object getInnerTarget(int position) {
+        if (position == interceptors.length - 1) {
+            return target;
+        }
+        Plugin inner = innerPlugins[position];
+        if (inner == null) {
+            inner = forType(target.getClass(), Arrays.copyOfRange(interceptors, position + 1, interceptors.length));
+            if (inner == null) {
+                inner = NO_PLUGIN;
+            }
+            // 并发时可能重复创建，结果相同，所以不需要同步
+            innerPlugins[position] = inner;
+        }
+        return inner == NO_PLUGIN ? target : inner.newProxy(target);
+    }
+
+    private static Plugin getPlugin(Object target) {
+        if (Proxy.isProxyClass(target.getClass())) {
+            InvocationHandler handler = Proxy.getInvocationHandler(target);
+            if (handler instanceof Plugin) {
+                return (Plugin) handler;
+            }
+        }
+        return null;
+    }
+
     @Override
     public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
         try {
-            Set<Method> methods = signatureMap.get(method.getDeclaringClass());
-            if (methods != null && methods.contains(method)) {
-                return interceptor.intercept(new Invocation(target, method, args));
+            int[] chain = interceptorsByMethod.get(method);
+            if (chain != null) {
+                return interceptors[chain[0]].intercept(new ChainedInvocation(this, method, args, chain, 0));
             }
             return method.invoke(target, args);
         } catch (Exception e) {
@@ -75,10 +186,14 @@ public class Plugin implements InvocationHandler {
     }
 
     private static Map<Class<?>, Set<Method>> getSignatureMap(Interceptor interceptor) {
-        Intercepts interceptsAnnotation = interceptor.getClass().getAnnotation(Intercepts.class);
+        return SIGNATURE_MAPS.get(interceptor.getClass());
+    }
+
+    private static Map<Class<?>, Set<Method>> parseSignatureMap(Class<?> interceptorType) {
+        Intercepts interceptsAnnotation = interceptorType.getAnnotation(Intercepts.class);
         // issue #251
         if (interceptsAnnotation == null) {
-            throw new PluginException("No @Intercepts annotation was found in interceptor " + interceptor.getClass().getName());
+            throw new PluginException("No @Intercepts annotation was found in interceptor " + interceptorType.getName());
         }
         Signature[] sigs = interceptsAnnotation.value();
         Map<Class<?>, Set<Method>> signatureMap = new HashMap<>();
@@ -125,4 +240,46 @@ public class Plugin implements InvocationHandler {
         return interfaces.toArray(new Class<?>[0]);
     }
 
+    /**
+     * 同一个代理对象上拦截同一方法的多个拦截器之间传递的Invocation，proceed()会调用下一个拦截器，
+     * 最后一个拦截器的proceed()才会调用目标对象的方法。getTarget()返回内层拦截器的代理对象，
+     * 只在拦截器直接调用目标对象时才会创建
+     */
+    private static final class ChainedInvocation extends Invocation {
+
+        private final Plugin plugin;
+        private final int[] chain;
+        private final int index;
+        private Object innerTarget;
+
+        ChainedInvocation(Plugin plugin, Method method, Object[] args, int[] chain, int index) {
+            super(plugin.target, method, args);
+            this.plugin = plugin;
+            this.chain = chain;
+            this.index = index;
+        }
+
+        @Override
+        public Object getTarget() {
+            if (innerTarget == null) {
+                innerTarget = plugin.getInnerTarget(chain[index]);
+            }
+            return innerTarget;
+        }
+
+        @Override
+        public Object proceed() throws InvocationTargetException, IllegalAccessException {
+            int next = index + 1;
+            if (next == chain.length) {
+                return super.proceed();
+            }
+            try {
+                return plugin.interceptors[chain[next]].intercept(new ChainedInvocation(plugin, getMethod(), getArgs(), chain, next));
+            } catch (Throwable t) {
+                // 与调用内层代理对象时一样，内层拦截器抛出的异常会被包装成InvocationTargetException
+                throw new InvocationTargetException(ExceptionUtil.unwrapThrowable(t));
+            }
+        }
+    }
+
 }
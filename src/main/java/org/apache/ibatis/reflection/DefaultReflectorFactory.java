@@ -18,11 +18,20 @@ package org.apache.ibatis.reflection;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 
+import org.apache.ibatis.cache.impl.ConcurrentCache;
+import org.apache.ibatis.reflection.property.PropertyPath;
+
 public class DefaultReflectorFactory implements ReflectorFactory {
+  private static final int MAX_CACHED_PATHS = 4096;
+
   private boolean classCacheEnabled = true;
+  private volatile boolean generatedAccessorsEnabled;
   private final ConcurrentMap<Class<?>, Reflector> reflectorMap = new ConcurrentHashMap<>();
+  // the least recently used paths are evicted once more are compiled
+  private final ConcurrentCache pathCache = new ConcurrentCache(DefaultReflectorFactory.class.getName());
 
   public DefaultReflectorFactory() {
+    pathCache.setSize(MAX_CACHED_PATHS);
   }
 
   @Override
@@ -35,14 +44,58 @@ public class DefaultReflectorFactory implements ReflectorFactory {
     this.classCacheEnabled = classCacheEnabled;
   }
 
+  public boolean isGeneratedAccessorsEnabled() {
+    return generatedAccessorsEnabled;
+  }
+
+  /**
+   * Sets whether reflectors invoke getters and setters through functions generated with
+   * {@link java.lang.invoke.LambdaMetafactory}. Methods that cannot be invoked this way are still invoked
+   * reflectively.
+   *
+   * @param generatedAccessorsEnabled true to generate accessors
+   * @since 3.5.6
+   */
+  public void setGeneratedAccessorsEnabled(boolean generatedAccessorsEnabled) {
+    this.generatedAccessorsEnabled = generatedAccessorsEnabled;
+    reflectorMap.clear();
+    // compiled paths hold the invokers of the previous reflectors
+    pathCache.clear();
+  }
+
   @Override
   public Reflector findForClass(Class<?> type) {
     if (classCacheEnabled) {
       // synchronized (type) removed see issue #461
-      return reflectorMap.computeIfAbsent(type, Reflector::new);
+      return reflectorMap.computeIfAbsent(type, this::newReflector);
     } else {
-      return new Reflector(type);
+      return newReflector(type);
     }
   }
 
+  /**
+   * Returns the compiled form of a property path. While the class cache is enabled, a fixed number of paths are
+   * cached and the least recently used ones are evicted.
+   *
+   * @param name the property path
+   * @return the compiled path
+   * @since 3.5.6
+   */
+  @Override
+  public PropertyPath compilePropertyPath(String name) {
+    if (!classCacheEnabled) {
+      return PropertyPath.compile(name);
+    }
+    PropertyPath path = (PropertyPath) pathCache.getObject(name);
+    if (path == null) {
+      path = PropertyPath.compile(name);
+      pathCache.putObject(name, path);
+    }
+    return path;
+  }
+
+  private Reflector newReflector(Class<?> type) {
+    return new Reflector(type, generatedAccessorsEnabled);
+  }
+
 }
@@ -20,6 +20,8 @@ import java.util.List;
 import java.util.Map;
 
 import org.apache.ibatis.reflection.factory.ObjectFactory;
+import org.apache.ibatis.reflection.invoker.Invoker;
+import org.apache.ibatis.reflection.property.PropertyPath;
 import org.apache.ibatis.reflection.property.PropertyTokenizer;
 import org.apache.ibatis.reflection.wrapper.BeanWrapper;
 import org.apache.ibatis.reflection.wrapper.CollectionWrapper;
@@ -32,6 +34,8 @@ import org.apache.ibatis.reflection.wrapper.ObjectWrapperFactory;
  */
 public class MetaObject {
 
+    private static final Object[] NO_ARGUMENTS = new Object[0];
+
     private final Object originalObject;
     private final ObjectWrapper objectWrapper;
     private final ObjectFactory objectFactory;
@@ -110,35 +114,102 @@ public class MetaObject {
     }
 
     public Object getValue(String name) {
-        PropertyTokenizer prop = new PropertyTokenizer(name);
-        if (prop.hasNext()) {
-            MetaObject metaValue = metaObjectForProperty(prop.getIndexedName());
-            if (metaValue == SystemMetaObject.NULL_META_OBJECT) {
-                return null;
-            } else {
-                return metaValue.getValue(prop.getChildren());
-            }
-        } else {
-            return objectWrapper.get(prop);
+        // 属性路径只解析一次，中间对象是普通JavaBean或Map时直接取值，不再为每一级创建MetaObject
+        PropertyPath path = reflectorFactory.compilePropertyPath(name);
+        Object value = getSegmentValue(path, 0, originalObject);
+        for (int i = 1; i < path.size() && value != null; i++) {
+            value = getSegmentValue(path, i, value);
         }
+        return value;
     }
 
     public void setValue(String name, Object value) {
-        PropertyTokenizer prop = new PropertyTokenizer(name);
-        if (prop.hasNext()) {
-            MetaObject metaValue = metaObjectForProperty(prop.getIndexedName());
-            if (metaValue == SystemMetaObject.NULL_META_OBJECT) {
+        PropertyPath path = reflectorFactory.compilePropertyPath(name);
+        int last = path.size() - 1;
+        Object parent = originalObject;
+        for (int i = 0; i < last; i++) {
+            Object child = getSegmentValue(path, i, parent);
+            if (child == null) {
                 if (value == null) {
                     // don't instantiate child path if value is null
                     return;
-                } else {
-                    metaValue = objectWrapper.instantiatePropertyValue(name, prop, objectFactory);
                 }
+                MetaObject metaParent = i == 0 ? this : MetaObject.forObject(parent, objectFactory, objectWrapperFactory, reflectorFactory);
+                metaParent.instantiateAndSetValue(path.getSubpath(i), value);
+                return;
             }
-            metaValue.setValue(prop.getChildren(), value);
-        } else {
-            objectWrapper.set(prop, value);
+            parent = child;
+        }
+        setSegmentValue(path, last, parent, value);
+    }
+
+    private void instantiateAndSetValue(String name, Object value) {
+        PropertyTokenizer prop = new PropertyTokenizer(name);
+        MetaObject metaValue = objectWrapper.instantiatePropertyValue(name, prop, objectFactory);
+        metaValue.setValue(prop.getChildren(), value);
+    }
+
+    private Object getSegmentValue(PropertyPath path, int index, Object object) {
+        PropertyTokenizer prop = path.getSegment(index);
+        ObjectWrapper wrapper = wrapperIfNeeded(index, object, prop);
+        if (wrapper != null) {
+            return wrapper.get(prop);
+        } else if (object instanceof Map) {
+            return ((Map) object).get(prop.getName());
+        }
+        try {
+            Invoker method = path.getGetInvoker(index, object.getClass(), reflectorFactory);
+            try {
+                return method.invoke(object, NO_ARGUMENTS);
+            } catch (Throwable t) {
+                throw ExceptionUtil.unwrapThrowable(t);
+            }
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Throwable t) {
+            throw new ReflectionException("Could not get property '" + prop.getName() + "' from " + object.getClass() + ".  Cause: " + t.toString(), t);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void setSegmentValue(PropertyPath path, int index, Object object, Object value) {
+        PropertyTokenizer prop = path.getSegment(index);
+        ObjectWrapper wrapper = wrapperIfNeeded(index, object, prop);
+        if (wrapper != null) {
+            wrapper.set(prop, value);
+            return;
+        } else if (object instanceof Map) {
+            ((Map<String, Object>) object).put(prop.getName(), value);
+            return;
+        }
+        try {
+            Invoker method = path.getSetInvoker(index, object.getClass(), reflectorFactory);
+            Object[] params = {value};
+            try {
+                method.invoke(object, params);
+            } catch (Throwable t) {
+                throw ExceptionUtil.unwrapThrowable(t);
+            }
+        } catch (Throwable t) {
+            throw new ReflectionException("Could not set property '" + prop.getName() + "' of '" + object.getClass() + "' with value '" + value + "' Cause: " + t.toString(), t);
+        }
+    }
+
+    /**
+     * Returns the wrapper through which a segment of a path must be accessed, or null when the object holding the
+     * segment is a plain bean or map that can be accessed directly, the same way BeanWrapper and MapWrapper would.
+     */
+    private ObjectWrapper wrapperIfNeeded(int index, Object object, PropertyTokenizer prop) {
+        if (index == 0) {
+            Class<?> wrapperType = objectWrapper.getClass();
+            boolean direct = prop.getIndex() == null && (wrapperType == BeanWrapper.class || wrapperType == MapWrapper.class);
+            return direct ? null : objectWrapper;
+        }
+        if (prop.getIndex() != null || object instanceof ObjectWrapper || object instanceof Collection
+                || objectWrapperFactory.hasWrapperFor(object)) {
+            return MetaObject.forObject(object, objectFactory, objectWrapperFactory, reflectorFactory).getObjectWrapper();
         }
+        return null;
     }
 
     public MetaObject metaObjectForProperty(String name) {
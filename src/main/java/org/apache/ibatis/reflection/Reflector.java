@@ -37,6 +37,7 @@ import java.util.Map.Entry;
 import org.apache.ibatis.reflection.invoker.AmbiguousMethodInvoker;
 import org.apache.ibatis.reflection.invoker.GetFieldInvoker;
 import org.apache.ibatis.reflection.invoker.Invoker;
+import org.apache.ibatis.reflection.invoker.LambdaMethodInvoker;
 import org.apache.ibatis.reflection.invoker.MethodInvoker;
 import org.apache.ibatis.reflection.invoker.SetFieldInvoker;
 import org.apache.ibatis.reflection.property.PropertyNamer;
@@ -76,8 +77,22 @@ public class Reflector {
     // 记录了所有属性名称的集合
     private Map<String, String> caseInsensitivePropertyMap = new HashMap<>();
 
+    // 是否通过LambdaMetafactory生成getter/setter的调用函数，生成失败时仍使用MethodInvoker
+    private final boolean generateAccessors;
+
     public Reflector(Class<?> clazz) {
+        this(clazz, false);
+    }
+
+    /**
+     * @param clazz the class to reflect on
+     * @param generateAccessors whether to invoke getters and setters through functions generated with
+     *          {@link java.lang.invoke.LambdaMetafactory} instead of {@link Method#invoke} where possible
+     * @since 3.5.6
+     */
+    public Reflector(Class<?> clazz, boolean generateAccessors) {
         type = clazz;
+        this.generateAccessors = generateAccessors;
         // 查找clazz的默认构造方法（无参构造方法），具体实现是通过反射遍历所有构造方法
         addDefaultConstructor(clazz);
         // 处理clazz中的getter方法，填充getMethods集合和getTypes集合
@@ -150,11 +165,17 @@ public class Reflector {
     }
 
     private void addGetMethod(String name, Method method, boolean isAmbiguous) {
-        MethodInvoker invoker = isAmbiguous
+        Invoker invoker = isAmbiguous
                 ? new AmbiguousMethodInvoker(method, MessageFormat.format(
                 "Illegal overloaded getter method with ambiguous type for property ''{0}'' in class ''{1}''. This breaks the JavaBeans specification and can cause unpredictable results.",
                 name, method.getDeclaringClass().getName()))
-                : new MethodInvoker(method);
+                : null;
+        if (invoker == null && generateAccessors) {
+            invoker = LambdaMethodInvoker.forGetter(method);
+        }
+        if (invoker == null) {
+            invoker = new MethodInvoker(method);
+        }
         getMethods.put(name, invoker);
         Type returnType = TypeParameterResolver.resolveReturnType(method, type);
         getTypes.put(name, typeToClass(returnType));
@@ -222,7 +243,10 @@ public class Reflector {
     }
 
     private void addSetMethod(String name, Method method) {
-        MethodInvoker invoker = new MethodInvoker(method);
+        Invoker invoker = generateAccessors ? LambdaMethodInvoker.forSetter(method) : null;
+        if (invoker == null) {
+            invoker = new MethodInvoker(method);
+        }
         setMethods.put(name, invoker);
         Type[] paramTypes = TypeParameterResolver.resolveParamTypes(method, type);
         setTypes.put(name, typeToClass(paramTypes[0]));
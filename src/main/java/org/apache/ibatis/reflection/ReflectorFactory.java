@@ -15,6 +15,8 @@
  */
 package org.apache.ibatis.reflection;
 
+import org.apache.ibatis.reflection.property.PropertyPath;
+
 public interface ReflectorFactory {
 
   boolean isClassCacheEnabled();
@@ -22,4 +24,15 @@ public interface ReflectorFactory {
   void setClassCacheEnabled(boolean classCacheEnabled);
 
   Reflector findForClass(Class<?> type);
+
+  /**
+   * Returns the compiled form of a property path evaluated with this factory.
+   *
+   * @param name the property path
+   * @return the compiled path
+   * @since 3.5.6
+   */
+  default PropertyPath compilePropertyPath(String name) {
+    return PropertyPath.compile(name);
+  }
 }
\ No newline at end of file
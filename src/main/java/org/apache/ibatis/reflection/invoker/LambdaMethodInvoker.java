@@ -0,0 +1,153 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.reflection.invoker;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * Invokes a getter or a setter through a function generated with {@link LambdaMetafactory}, which the JIT compiler
+ * can inline, instead of through {@link Method#invoke}.
+ * <p>
+ * Only public methods of public classes visible to MyBatis can be invoked this way; {@link #forGetter} and
+ * {@link #forSetter} return null for any other method, which is then invoked with a {@link MethodInvoker}.
+ */
+public class LambdaMethodInvoker implements Invoker {
+
+  private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+  private final Class<?> type;
+  private final Function<Object, Object> getter;
+  private final BiConsumer<Object, Object> setter;
+
+  private LambdaMethodInvoker(Class<?> type, Function<Object, Object> getter, BiConsumer<Object, Object> setter) {
+    this.type = type;
+    this.getter = getter;
+    this.setter = setter;
+  }
+
+  /**
+   * Creates an invoker for a getter.
+   *
+   * @param method a method without parameters
+   * @return the invoker, or null if the method cannot be invoked through a generated function
+   */
+  @SuppressWarnings("unchecked")
+  public static Invoker forGetter(Method method) {
+    if (!isSupported(method)) {
+      return null;
+    }
+    try {
+      MethodHandle handle = LOOKUP.unreflect(method);
+      CallSite site = LambdaMetafactory.metafactory(LOOKUP, "apply", MethodType.methodType(Function.class),
+          MethodType.methodType(Object.class, Object.class), handle,
+          MethodType.methodType(wrap(method.getReturnType()), method.getDeclaringClass()));
+      return new LambdaMethodInvoker(method.getReturnType(), (Function<Object, Object>) site.getTarget().invoke(), null);
+    } catch (Throwable t) {
+      return null;
+    }
+  }
+
+  /**
+   * Creates an invoker for a setter.
+   *
+   * @param method a method with one parameter
+   * @return the invoker, or null if the method cannot be invoked through a generated function
+   */
+  @SuppressWarnings("unchecked")
+  public static Invoker forSetter(Method method) {
+    if (!isSupported(method)) {
+      return null;
+    }
+    try {
+      Class<?> parameterType = method.getParameterTypes()[0];
+      MethodHandle handle = LOOKUP.unreflect(method);
+      CallSite site = LambdaMetafactory.metafactory(LOOKUP, "accept", MethodType.methodType(BiConsumer.class),
+          MethodType.methodType(void.class, Object.class, Object.class), handle,
+          MethodType.methodType(void.class, method.getDeclaringClass(), wrap(parameterType)));
+      return new LambdaMethodInvoker(parameterType, null, (BiConsumer<Object, Object>) site.getTarget().invoke());
+    } catch (Throwable t) {
+      return null;
+    }
+  }
+
+  @Override
+  public Object invoke(Object target, Object[] args) throws IllegalAccessException, InvocationTargetException {
+    try {
+      if (getter != null) {
+        return getter.apply(target);
+      }
+      setter.accept(target, args[0]);
+      return null;
+    } catch (Throwable t) {
+      // keep the contract of Method.invoke() for exceptions thrown by the method
+      throw new InvocationTargetException(t);
+    }
+  }
+
+  @Override
+  public Class<?> getType() {
+    return type;
+  }
+
+  private static boolean isSupported(Method method) {
+    Class<?> declaringClass = method.getDeclaringClass();
+    if (!Modifier.isPublic(method.getModifiers()) || Modifier.isStatic(method.getModifiers())
+        || !Modifier.isPublic(declaringClass.getModifiers())) {
+      return false;
+    }
+    // the generated class is defined in the class loader of MyBatis and must resolve every type of the method
+    if (!isVisible(declaringClass) || !isVisible(method.getReturnType())) {
+      return false;
+    }
+    for (Class<?> parameterType : method.getParameterTypes()) {
+      if (!isVisible(parameterType)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static boolean isVisible(Class<?> type) {
+    while (type.isArray()) {
+      type = type.getComponentType();
+    }
+    if (type.isPrimitive() || type.getClassLoader() == null) {
+      return true;
+    }
+    if (!Modifier.isPublic(type.getModifiers())) {
+      return false;
+    }
+    try {
+      return Class.forName(type.getName(), false, LambdaMethodInvoker.class.getClassLoader()) == type;
+    } catch (ClassNotFoundException | LinkageError e) {
+      return false;
+    }
+  }
+
+  private static Class<?> wrap(Class<?> type) {
+    return type.isPrimitive() ? MethodType.methodType(type).wrap().returnType() : type;
+  }
+
+}
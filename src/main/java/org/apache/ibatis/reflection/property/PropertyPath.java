@@ -0,0 +1,146 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.reflection.property;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.ibatis.reflection.ReflectorFactory;
+import org.apache.ibatis.reflection.invoker.Invoker;
+
+/**
+ * A property path such as <code>order.customer.address.city</code> or <code>items[0].name</code>, split into its
+ * segments once and shared by every evaluation of the same path.
+ * <p>
+ * Each segment also remembers the getters and setters it resolved, by class, so that evaluating the path again on
+ * objects of the same classes does not look the invokers up, even when the path is evaluated against several classes
+ * in turn. As those invokers
+ * reference the classes, compiled paths are cached by the {@link ReflectorFactory} they are evaluated with (see
+ * {@link ReflectorFactory#compilePropertyPath(String)}) rather than globally.
+ */
+public final class PropertyPath {
+
+  private final PropertyTokenizer[] segments;
+  private final String[] subpaths;
+  private final InvokerCache[] getters;
+  private final InvokerCache[] setters;
+
+  private PropertyPath(String fullname) {
+    int size = 1;
+    for (PropertyTokenizer prop = new PropertyTokenizer(fullname); prop.hasNext(); prop = prop.next()) {
+      size++;
+    }
+    segments = new PropertyTokenizer[size];
+    subpaths = new String[size];
+    String subpath = fullname;
+    for (int i = 0; i < size; i++) {
+      PropertyTokenizer prop = new PropertyTokenizer(subpath);
+      // wrappers are always given a single segment, as when the path is walked one MetaObject at a time
+      segments[i] = prop.hasNext() ? new PropertyTokenizer(prop.getIndexedName()) : prop;
+      subpaths[i] = subpath;
+      subpath = prop.getChildren();
+    }
+    getters = new InvokerCache[size];
+    setters = new InvokerCache[size];
+    for (int i = 0; i < size; i++) {
+      getters[i] = new InvokerCache();
+      setters[i] = new InvokerCache();
+    }
+  }
+
+  /**
+   * Compiles a property path. The result is not cached.
+   *
+   * @param fullname the property path
+   * @return the compiled path
+   */
+  public static PropertyPath compile(String fullname) {
+    return new PropertyPath(fullname);
+  }
+
+  public int size() {
+    return segments.length;
+  }
+
+  /**
+   * Returns a segment of the path, as a tokenizer without children.
+   *
+   * @param index the index of the segment
+   * @return the segment
+   */
+  public PropertyTokenizer getSegment(int index) {
+    return segments[index];
+  }
+
+  /**
+   * Returns the part of the path that starts at the given segment.
+   *
+   * @param index the index of the segment
+   * @return the subpath
+   */
+  public String getSubpath(int index) {
+    return subpaths[index];
+  }
+
+  public Invoker getGetInvoker(int index, Class<?> type, ReflectorFactory reflectorFactory) {
+    InvokerCache cache = getters[index];
+    Invoker invoker = cache.get(type, reflectorFactory);
+    if (invoker == null) {
+      invoker = reflectorFactory.findForClass(type).getGetInvoker(segments[index].getName());
+      cache.put(type, reflectorFactory, invoker);
+    }
+    return invoker;
+  }
+
+  public Invoker getSetInvoker(int index, Class<?> type, ReflectorFactory reflectorFactory) {
+    InvokerCache cache = setters[index];
+    Invoker invoker = cache.get(type, reflectorFactory);
+    if (invoker == null) {
+      invoker = reflectorFactory.findForClass(type).getSetInvoker(segments[index].getName());
+      cache.put(type, reflectorFactory, invoker);
+    }
+    return invoker;
+  }
+
+  /**
+   * The invokers a segment resolved, by class. They are only kept for reflector factories that cache classes.
+   */
+  private static final class InvokerCache {
+    private final ConcurrentMap<Class<?>, ResolvedInvoker> invokers = new ConcurrentHashMap<>();
+
+    Invoker get(Class<?> type, ReflectorFactory reflectorFactory) {
+      ResolvedInvoker resolved = invokers.get(type);
+      return resolved != null && resolved.reflectorFactory == reflectorFactory ? resolved.invoker : null;
+    }
+
+    void put(Class<?> type, ReflectorFactory reflectorFactory, Invoker invoker) {
+      if (reflectorFactory.isClassCacheEnabled()) {
+        invokers.put(type, new ResolvedInvoker(reflectorFactory, invoker));
+      }
+    }
+  }
+
+  private static final class ResolvedInvoker {
+    private final ReflectorFactory reflectorFactory;
+    private final Invoker invoker;
+
+    ResolvedInvoker(ReflectorFactory reflectorFactory, Invoker invoker) {
+      this.reflectorFactory = reflectorFactory;
+      this.invoker = invoker;
+    }
+  }
+
+}
@@ -29,6 +29,14 @@ public class ChooseSqlNode implements SqlNode {
         this.defaultSqlNode = defaultSqlNode;
     }
 
+    List<SqlNode> getIfSqlNodes() {
+        return ifSqlNodes;
+    }
+
+    SqlNode getDefaultSqlNode() {
+        return defaultSqlNode;
+    }
+
     @Override
     public boolean apply(DynamicContext context) {
         for (SqlNode sqlNode : ifSqlNodes) {
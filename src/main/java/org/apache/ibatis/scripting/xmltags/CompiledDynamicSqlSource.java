@@ -0,0 +1,662 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.scripting.xmltags;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+import org.apache.ibatis.builder.SqlSourceBuilder;
+import org.apache.ibatis.logging.Log;
+import org.apache.ibatis.logging.LogFactory;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.ParameterMapping;
+import org.apache.ibatis.mapping.SqlSource;
+import org.apache.ibatis.parsing.GenericTokenParser;
+import org.apache.ibatis.reflection.MetaObject;
+import org.apache.ibatis.reflection.property.PropertyTokenizer;
+import org.apache.ibatis.scripting.ScriptingException;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.type.SimpleTypeRegistry;
+
+/**
+ * A dynamic SQL source whose {@link SqlNode} tree was compiled when the statement was built.
+ * <p>
+ * The text of the statement is split into SQL, with <code>#{}</code> placeholders already replaced by <code>?</code>,
+ * and pre-parsed placeholders, so the generated SQL does not need to be parsed again on every call. Expressions are
+ * compiled with {@link CompiledExpression}, and the parameter mapping of a placeholder that does not refer to a
+ * binding is resolved once per parameter type.
+ * <p>
+ * Unlike with {@link DynamicSqlSource}, a <code>#{}</code> placeholder in the value of a <code>${}</code> substitution
+ * is not parsed.
+ *
+ * @since 3.5.6
+ * @see CompiledXMLLanguageDriver
+ */
+public class CompiledDynamicSqlSource implements SqlSource {
+
+  private static final Log log = LogFactory.getLog(CompiledDynamicSqlSource.class);
+
+  private static final String EXPRESSION_MARK = "\u0000";
+
+  private final Configuration configuration;
+  private final SqlSourceBuilder sqlSourceBuilder;
+  private final CompiledNode rootNode;
+  private final int forEachCount;
+
+  private CompiledDynamicSqlSource(Configuration configuration, Compiler compiler, SqlNode rootSqlNode) {
+    this.configuration = configuration;
+    this.sqlSourceBuilder = new SqlSourceBuilder(configuration);
+    this.rootNode = compiler.compile(rootSqlNode, new ArrayList<>());
+    this.forEachCount = compiler.forEachCount;
+  }
+
+  /**
+   * Compiles the node tree of a dynamic SQL source.
+   *
+   * @param configuration the configuration
+   * @param sqlSource the source to compile
+   * @param statementId the id of the statement the source belongs to, or its script when the id is not known, to
+   *          report the sources and expressions left uncompiled
+   * @return the compiled source, or the given one if its tree contains nodes or text that cannot be compiled
+   */
+  public static SqlSource compile(Configuration configuration, DynamicSqlSource sqlSource, String statementId) {
+    try {
+      return new CompiledDynamicSqlSource(configuration, new Compiler(configuration, statementId),
+          sqlSource.getRootSqlNode());
+    } catch (RuntimeException e) {
+      // custom nodes, placeholders built by substitutions and invalid placeholders are left to DynamicSqlSource
+      if (log.isDebugEnabled()) {
+        log.debug("The dynamic SQL of " + statementId + " is not compiled, it is interpreted.  Cause: " + e);
+      }
+      return sqlSource;
+    }
+  }
+
+  @Override
+  public BoundSql getBoundSql(Object parameterObject) {
+    DynamicContext context = new DynamicContext(configuration, parameterObject);
+    Evaluation evaluation = new Evaluation(context, forEachCount);
+    rootNode.apply(evaluation, context::appendSql);
+
+    String sql = context.getSql();
+    if (configuration.isShrinkWhitespacesInSql()) {
+      sql = SqlSourceBuilder.removeExtraWhitespaces(sql);
+    }
+    Class<?> parameterType = parameterObject == null ? Object.class : parameterObject.getClass();
+    Map<String, Object> bindings = context.getBindings();
+    MetaObject metaParameters = null;
+    List<ParameterMapping> parameterMappings = new ArrayList<>(evaluation.placeholders.size());
+    for (int i = 0; i < evaluation.placeholders.size(); i++) {
+      Placeholder placeholder = evaluation.placeholders.get(i);
+      String property = evaluation.properties.get(i);
+      ParameterMapping parameterMapping = placeholder.getCachedMapping(parameterType, bindings);
+      if (parameterMapping == null) {
+        if (metaParameters == null) {
+          metaParameters = configuration.newMetaObject(bindings);
+        }
+        parameterMapping = sqlSourceBuilder.buildParameterMapping(placeholder.content, placeholder.propertiesMap,
+            property, parameterType, metaParameters);
+        placeholder.cacheMapping(parameterType, parameterMapping);
+      }
+      parameterMappings.add(parameterMapping);
+    }
+
+    BoundSql boundSql = new BoundSql(configuration, sql, parameterMappings, parameterObject);
+    bindings.forEach(boundSql::setAdditionalParameter);
+    return boundSql;
+  }
+
+  private interface SqlSink {
+    void append(String sql);
+  }
+
+  private interface CompiledNode {
+    boolean apply(Evaluation evaluation, SqlSink sink);
+  }
+
+  /**
+   * The state of one call to {@link #getBoundSql(Object)}.
+   */
+  private static class Evaluation {
+    private final DynamicContext context;
+    private final List<Placeholder> placeholders = new ArrayList<>();
+    private final List<String> properties = new ArrayList<>();
+    // the unique number of the current iteration of each foreach
+    private final int[] iterations;
+
+    Evaluation(DynamicContext context, int forEachCount) {
+      this.context = context;
+      this.iterations = new int[forEachCount];
+    }
+
+    void addPlaceholder(Placeholder placeholder) {
+      placeholders.add(placeholder);
+      properties.add(placeholder.getProperty(iterations));
+    }
+  }
+
+  /**
+   * A <code>#{}</code> placeholder, parsed when the statement is built.
+   */
+  private static class Placeholder {
+    private final String content;
+    private final Map<String, String> propertiesMap;
+    private final String property;
+    // the binding that decides the type of the property, see MapWrapper.hasGetter()
+    private final String bindingName;
+    // set when the placeholder refers to the item or index of an enclosing foreach
+    private int forEachId = -1;
+    private String itemPrefix;
+    private String itemSuffix;
+    // racy but safe: a CachedMapping is immutable
+    private CachedMapping cachedMapping;
+
+    Placeholder(String content) {
+      this.content = content;
+      this.propertiesMap = SqlSourceBuilder.parseParameterMapping(content);
+      this.property = propertiesMap.get("property");
+      if (property == null) {
+        bindingName = null;
+      } else {
+        PropertyTokenizer prop = new PropertyTokenizer(property);
+        bindingName = prop.hasNext() ? prop.getIndexedName() : prop.getName();
+      }
+    }
+
+    /**
+     * Renames the property the way ForEachSqlNode does, if it refers to the given item.
+     */
+    boolean bindTo(int forEachId, String item) {
+      if (this.forEachId >= 0 || item == null || property == null || !property.startsWith(item)) {
+        return false;
+      }
+      int end = item.length();
+      if (end < property.length() && property.charAt(end) != '.' && !Character.isWhitespace(property.charAt(end))) {
+        return false;
+      }
+      this.forEachId = forEachId;
+      this.itemPrefix = ForEachSqlNode.ITEM_PREFIX + item + "_";
+      this.itemSuffix = property.substring(end);
+      return true;
+    }
+
+    String getProperty(int[] iterations) {
+      return forEachId < 0 ? property : itemPrefix + iterations[forEachId] + itemSuffix;
+    }
+
+    ParameterMapping getCachedMapping(Class<?> parameterType, Map<String, Object> bindings) {
+      CachedMapping cached = cachedMapping;
+      if (cached == null || cached.parameterType != parameterType || forEachId >= 0 || bindingName == null
+          || bindings.containsKey(bindingName)) {
+        return null;
+      }
+      return cached.parameterMapping;
+    }
+
+    void cacheMapping(Class<?> parameterType, ParameterMapping parameterMapping) {
+      if (forEachId < 0) {
+        cachedMapping = new CachedMapping(parameterType, parameterMapping);
+      }
+    }
+  }
+
+  private static class CachedMapping {
+    private final Class<?> parameterType;
+    private final ParameterMapping parameterMapping;
+
+    CachedMapping(Class<?> parameterType, ParameterMapping parameterMapping) {
+      this.parameterType = parameterType;
+      this.parameterMapping = parameterMapping;
+    }
+  }
+
+  /**
+   * SQL text whose <code>#{}</code> placeholders were replaced by <code>?</code>.
+   */
+  private static class Text implements CompiledNode {
+    private final String sql;
+    private final Placeholder[] placeholders;
+
+    Text(String sql, List<Placeholder> placeholders) {
+      this.sql = sql;
+      this.placeholders = placeholders.toArray(new Placeholder[0]);
+    }
+
+    @Override
+    public boolean apply(Evaluation evaluation, SqlSink sink) {
+      for (Placeholder placeholder : placeholders) {
+        evaluation.addPlaceholder(placeholder);
+      }
+      sink.append(sql);
+      return true;
+    }
+  }
+
+  /**
+   * SQL text with <code>${}</code> substitutions, see TextSqlNode.
+   */
+  private static class SubstitutedText implements CompiledNode {
+    private final Text[] texts;
+    private final CompiledExpression[] expressions;
+    private final Pattern injectionFilter;
+
+    SubstitutedText(List<Text> texts, List<CompiledExpression> expressions, Pattern injectionFilter) {
+      this.texts = texts.toArray(new Text[0]);
+      this.expressions = expressions.toArray(new CompiledExpression[0]);
+      this.injectionFilter = injectionFilter;
+    }
+
+    @Override
+    public boolean apply(Evaluation evaluation, SqlSink sink) {
+      Map<String, Object> bindings = evaluation.context.getBindings();
+      StringBuilder sql = new StringBuilder();
+      for (int i = 0; i < texts.length; i++) {
+        for (Placeholder placeholder : texts[i].placeholders) {
+          evaluation.addPlaceholder(placeholder);
+        }
+        sql.append(texts[i].sql);
+        if (i < expressions.length) {
+          Object parameter = bindings.get("_parameter");
+          if (parameter == null) {
+            bindings.put("value", null);
+          } else if (SimpleTypeRegistry.isSimpleType(parameter.getClass())) {
+            bindings.put("value", parameter);
+          }
+          Object value = expressions[i].getValue(bindings);
+          String srtValue = value == null ? "" : String.valueOf(value); // issue #274 return "" instead of "null"
+          if (injectionFilter != null && !injectionFilter.matcher(srtValue).matches()) {
+            throw new ScriptingException("Invalid input. Please conform to regex" + injectionFilter.pattern());
+          }
+          sql.append(srtValue);
+        }
+      }
+      sink.append(sql.toString());
+      return true;
+    }
+  }
+
+  private static class Mixed implements CompiledNode {
+    private final CompiledNode[] contents;
+
+    Mixed(List<CompiledNode> contents) {
+      this.contents = contents.toArray(new CompiledNode[0]);
+    }
+
+    @Override
+    public boolean apply(Evaluation evaluation, SqlSink sink) {
+      for (CompiledNode node : contents) {
+        node.apply(evaluation, sink);
+      }
+      return true;
+    }
+  }
+
+  private static class If implements CompiledNode {
+    private final CompiledExpression test;
+    private final CompiledNode contents;
+
+    If(CompiledExpression test, CompiledNode contents) {
+      this.test = test;
+      this.contents = contents;
+    }
+
+    @Override
+    public boolean apply(Evaluation evaluation, SqlSink sink) {
+      if (ExpressionEvaluator.booleanValue(test.getValue(evaluation.context.getBindings()))) {
+        contents.apply(evaluation, sink);
+        return true;
+      }
+      return false;
+    }
+  }
+
+  private static class Choose implements CompiledNode {
+    private final CompiledNode[] ifNodes;
+    private final CompiledNode defaultNode;
+
+    Choose(List<CompiledNode> ifNodes, CompiledNode defaultNode) {
+      this.ifNodes = ifNodes.toArray(new CompiledNode[0]);
+      this.defaultNode = defaultNode;
+    }
+
+    @Override
+    public boolean apply(Evaluation evaluation, SqlSink sink) {
+      for (CompiledNode node : ifNodes) {
+        if (node.apply(evaluation, sink)) {
+          return true;
+        }
+      }
+      if (defaultNode != null) {
+        defaultNode.apply(evaluation, sink);
+        return true;
+      }
+      return false;
+    }
+  }
+
+  private static class VarDecl implements CompiledNode {
+    private final String name;
+    private final CompiledExpression expression;
+
+    VarDecl(String name, CompiledExpression expression) {
+      this.name = name;
+      this.expression = expression;
+    }
+
+    @Override
+    public boolean apply(Evaluation evaluation, SqlSink sink) {
+      Object value = expression.getValue(evaluation.context.getBindings());
+      evaluation.context.bind(name, value);
+      return true;
+    }
+  }
+
+  /**
+   * See TrimSqlNode.
+   */
+  private static class Trim implements CompiledNode {
+    private final CompiledNode contents;
+    private final String prefix;
+    private final String suffix;
+    private final List<String> prefixesToOverride;
+    private final List<String> suffixesToOverride;
+
+    Trim(CompiledNode contents, TrimSqlNode node) {
+      this.contents = contents;
+      this.prefix = node.getPrefix();
+      this.suffix = node.getSuffix();
+      this.prefixesToOverride = node.getPrefixesToOverride();
+      this.suffixesToOverride = node.getSuffixesToOverride();
+    }
+
+    @Override
+    public boolean apply(Evaluation evaluation, SqlSink sink) {
+      StringBuilder buffer = new StringBuilder();
+      boolean result = contents.apply(evaluation, buffer::append);
+      StringBuilder sql = new StringBuilder(buffer.toString().trim());
+      String trimmedUppercaseSql = sql.toString().toUpperCase(Locale.ENGLISH);
+      if (trimmedUppercaseSql.length() > 0) {
+        applyPrefix(sql, trimmedUppercaseSql);
+        applySuffix(sql, trimmedUppercaseSql);
+      }
+      sink.append(sql.toString());
+      return result;
+    }
+
+    private void applyPrefix(StringBuilder sql, String trimmedUppercaseSql) {
+      if (prefixesToOverride != null) {
+        for (String toRemove : prefixesToOverride) {
+          if (trimmedUppercaseSql.startsWith(toRemove)) {
+            sql.delete(0, toRemove.trim().length());
+            break;
+          }
+        }
+      }
+      if (prefix != null) {
+        sql.insert(0, " ");
+        sql.insert(0, prefix);
+      }
+    }
+
+    private void applySuffix(StringBuilder sql, String trimmedUppercaseSql) {
+      if (suffixesToOverride != null) {
+        for (String toRemove : suffixesToOverride) {
+          if (trimmedUppercaseSql.endsWith(toRemove) || trimmedUppercaseSql.endsWith(toRemove.trim())) {
+            int start = sql.length() - toRemove.trim().length();
+            int end = sql.length();
+            sql.delete(start, end);
+            break;
+          }
+        }
+      }
+      if (suffix != null) {
+        sql.append(" ");
+        sql.append(suffix);
+      }
+    }
+  }
+
+  /**
+   * See ForEachSqlNode.
+   */
+  private static class ForEach implements CompiledNode {
+    private final int id;
+    private final CompiledExpression collection;
+    private final CompiledNode contents;
+    private final String open;
+    private final String close;
+    private final String separator;
+    private final String item;
+    private final String index;
+
+    ForEach(int id, CompiledExpression collection, CompiledNode contents, ForEachSqlNode node) {
+      this.id = id;
+      this.collection = collection;
+      this.contents = contents;
+      this.open = node.getOpen();
+      this.close = node.getClose();
+      this.separator = node.getSeparator();
+      this.item = node.getItem();
+      this.index = node.getIndex();
+    }
+
+    @Override
+    public boolean apply(Evaluation evaluation, SqlSink sink) {
+      DynamicContext context = evaluation.context;
+      Map<String, Object> bindings = context.getBindings();
+      Iterable<?> iterable = ExpressionEvaluator.iterableValue(collection.getExpression(), collection.getValue(bindings));
+      if (!iterable.iterator().hasNext()) {
+        return true;
+      }
+      boolean first = true;
+      if (open != null) {
+        sink.append(open);
+      }
+      PrefixedSink prefixedSink = new PrefixedSink(sink);
+      int i = 0;
+      for (Object o : iterable) {
+        prefixedSink.reset(first || separator == null ? "" : separator);
+        int uniqueNumber = context.getUniqueNumber();
+        // Issue #709
+        if (o instanceof Map.Entry) {
+          Map.Entry<?, ?> mapEntry = (Map.Entry<?, ?>) o;
+          bind(context, index, mapEntry.getKey(), uniqueNumber);
+          bind(context, item, mapEntry.getValue(), uniqueNumber);
+        } else {
+          bind(context, index, i, uniqueNumber);
+          bind(context, item, o, uniqueNumber);
+        }
+        evaluation.iterations[id] = uniqueNumber;
+        contents.apply(evaluation, prefixedSink);
+        if (first) {
+          first = !prefixedSink.prefixApplied;
+        }
+        i++;
+      }
+      if (close != null) {
+        sink.append(close);
+      }
+      bindings.remove(item);
+      bindings.remove(index);
+      return true;
+    }
+
+    private static void bind(DynamicContext context, String name, Object value, int uniqueNumber) {
+      if (name != null) {
+        context.bind(name, value);
+        context.bind(ForEachSqlNode.ITEM_PREFIX + name + "_" + uniqueNumber, value);
+      }
+    }
+  }
+
+  private static class PrefixedSink implements SqlSink {
+    private final SqlSink delegate;
+    private String prefix;
+    private boolean prefixApplied;
+
+    PrefixedSink(SqlSink delegate) {
+      this.delegate = delegate;
+    }
+
+    void reset(String prefix) {
+      this.prefix = prefix;
+      this.prefixApplied = false;
+    }
+
+    @Override
+    public void append(String sql) {
+      if (!prefixApplied && sql != null && sql.trim().length() > 0) {
+        delegate.append(prefix);
+        prefixApplied = true;
+      }
+      delegate.append(sql);
+    }
+  }
+
+  /**
+   * Translates a tree of the nodes built by XMLScriptBuilder. Any other node, or text that cannot be translated
+   * faithfully, makes the compilation fail.
+   */
+  private static class Compiler {
+    private final Configuration configuration;
+    private final String statementId;
+    private int forEachCount;
+
+    Compiler(Configuration configuration, String statementId) {
+      this.configuration = configuration;
+      this.statementId = statementId;
+    }
+
+    /**
+     * @param node the node to compile
+     * @param placeholders receives the placeholders of the node and its children
+     */
+    CompiledNode compile(SqlNode node, List<Placeholder> placeholders) {
+      Class<?> type = node.getClass();
+      if (type == MixedSqlNode.class) {
+        List<CompiledNode> contents = new ArrayList<>();
+        for (SqlNode child : ((MixedSqlNode) node).getContents()) {
+          contents.add(compile(child, placeholders));
+        }
+        return new Mixed(contents);
+      } else if (type == StaticTextSqlNode.class) {
+        return compileText(((StaticTextSqlNode) node).getText(), placeholders);
+      } else if (type == TextSqlNode.class) {
+        return compileSubstitutedText((TextSqlNode) node, placeholders);
+      } else if (type == IfSqlNode.class) {
+        IfSqlNode ifNode = (IfSqlNode) node;
+        return new If(compileExpression(ifNode.getTest()), compile(ifNode.getContents(), placeholders));
+      } else if (type == ChooseSqlNode.class) {
+        ChooseSqlNode chooseNode = (ChooseSqlNode) node;
+        List<CompiledNode> ifNodes = new ArrayList<>();
+        for (SqlNode ifNode : chooseNode.getIfSqlNodes()) {
+          ifNodes.add(compile(ifNode, placeholders));
+        }
+        SqlNode defaultNode = chooseNode.getDefaultSqlNode();
+        return new Choose(ifNodes, defaultNode == null ? null : compile(defaultNode, placeholders));
+      } else if (type == TrimSqlNode.class || type == WhereSqlNode.class || type == SetSqlNode.class) {
+        TrimSqlNode trimNode = (TrimSqlNode) node;
+        checkNotParsed(trimNode.getPrefix(), trimNode.getSuffix());
+        checkOverrides(trimNode.getPrefixesToOverride());
+        checkOverrides(trimNode.getSuffixesToOverride());
+        return new Trim(compile(trimNode.getContents(), placeholders), trimNode);
+      } else if (type == ForEachSqlNode.class) {
+        return compileForEach((ForEachSqlNode) node, placeholders);
+      } else if (type == VarDeclSqlNode.class) {
+        VarDeclSqlNode varDeclNode = (VarDeclSqlNode) node;
+        return new VarDecl(varDeclNode.getName(), compileExpression(varDeclNode.getExpression()));
+      }
+      throw new IllegalStateException("Cannot compile " + type);
+    }
+
+    private CompiledNode compileForEach(ForEachSqlNode node, List<Placeholder> placeholders) {
+      checkNotParsed(node.getOpen(), node.getClose(), node.getSeparator());
+      int id = forEachCount++;
+      List<Placeholder> contentPlaceholders = new ArrayList<>();
+      CompiledNode contents = compile(node.getContents(), contentPlaceholders);
+      for (Placeholder placeholder : contentPlaceholders) {
+        // placeholders of nested foreach elements were bound to them first, as ForEachSqlNode renames them first
+        if (!placeholder.bindTo(id, node.getItem())) {
+          placeholder.bindTo(id, node.getIndex());
+        }
+      }
+      placeholders.addAll(contentPlaceholders);
+      return new ForEach(id, compileExpression(node.getCollectionExpression()), contents, node);
+    }
+
+    private Text compileText(String text, List<Placeholder> placeholders) {
+      List<Placeholder> textPlaceholders = new ArrayList<>();
+      String sql = new GenericTokenParser("#{", "}", content -> {
+        textPlaceholders.add(new Placeholder(content));
+        return "?";
+      }).parse(text);
+      checkNotParsed(sql);
+      placeholders.addAll(textPlaceholders);
+      return new Text(sql, textPlaceholders);
+    }
+
+    private CompiledNode compileSubstitutedText(TextSqlNode node, List<Placeholder> placeholders) {
+      String text = node.getText();
+      if (text.contains(EXPRESSION_MARK)) {
+        throw new IllegalStateException("Cannot compile " + text);
+      }
+      List<CompiledExpression> expressions = new ArrayList<>();
+      String marked = new GenericTokenParser("${", "}", content -> {
+        expressions.add(compileExpression(content));
+        return EXPRESSION_MARK;
+      }).parse(text);
+      List<Text> texts = new ArrayList<>();
+      for (String part : marked.split(EXPRESSION_MARK, -1)) {
+        texts.add(compileText(part, placeholders));
+      }
+      return new SubstitutedText(texts, expressions, node.getInjectionFilter());
+    }
+
+    private CompiledExpression compileExpression(String expression) {
+      return CompiledExpression.compile(statementId, expression, configuration.getReflectorFactory());
+    }
+
+    /**
+     * Fails on text that DynamicSqlSource would parse for placeholders but that is not compiled as such.
+     */
+    private static void checkNotParsed(String... texts) {
+      for (String text : texts) {
+        if (text != null && text.contains("#{")) {
+          throw new IllegalStateException("Cannot compile " + text);
+        }
+      }
+    }
+
+    /**
+     * Fails on overrides that could match a placeholder, which is compiled to a different text.
+     */
+    private static void checkOverrides(List<String> overrides) {
+      if (overrides == null) {
+        return;
+      }
+      for (String override : overrides) {
+        if (override.indexOf('#') >= 0 || override.indexOf('?') >= 0 || override.indexOf('{') >= 0
+            || override.indexOf('}') >= 0) {
+          throw new IllegalStateException("Cannot compile " + override);
+        }
+      }
+    }
+  }
+
+}
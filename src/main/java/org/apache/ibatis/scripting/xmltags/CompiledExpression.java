@@ -0,0 +1,628 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.scripting.xmltags;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import ognl.OgnlOps;
+
+import org.apache.ibatis.logging.Log;
+import org.apache.ibatis.logging.LogFactory;
+import org.apache.ibatis.reflection.Reflector;
+import org.apache.ibatis.reflection.ReflectorFactory;
+import org.apache.ibatis.reflection.invoker.Invoker;
+
+/**
+ * An OGNL expression, as found in <code>test</code>, <code>collection</code> and <code>value</code> attributes and
+ * in <code>${}</code> placeholders, translated once into a tree of Java objects that evaluates it against the bindings
+ * of a statement without going through the OGNL interpreter.
+ * <p>
+ * Property navigation, the boolean, equality and relational operators, <code>null</code>, boolean, number and string
+ * literals, and the <code>size()</code>, <code>isEmpty()</code>, <code>length()</code>, <code>trim()</code> and
+ * <code>toString()</code> calls are translated, with the same semantics as in OGNL. Any other expression, and any
+ * evaluation that meets a value the translated form does not handle, is left to OGNL.
+ *
+ * @since 3.5.6
+ */
+class CompiledExpression {
+
+  private static final Log log = LogFactory.getLog(CompiledExpression.class);
+  private static final NotCompilableException NOT_COMPILABLE = new NotCompilableException();
+  private static final Object[] NO_ARGUMENTS = new Object[0];
+
+  private final String statementId;
+  private final String expression;
+  private final Node root;
+
+  private CompiledExpression(String statementId, String expression, Node root) {
+    this.statementId = statementId;
+    this.expression = expression;
+    this.root = root;
+  }
+
+  /**
+   * Translates an expression.
+   *
+   * @param statementId the id of the statement the expression belongs to, to report the expressions left to OGNL
+   * @param expression the expression
+   * @param reflectorFactory the factory of the reflectors used to resolve the properties
+   * @return the compiled expression, which evaluates the expression with OGNL if it could not be translated
+   */
+  static CompiledExpression compile(String statementId, String expression, ReflectorFactory reflectorFactory) {
+    Node root;
+    try {
+      root = new Parser(expression, reflectorFactory).parse();
+    } catch (NotCompilableException e) {
+      if (log.isDebugEnabled()) {
+        log.debug("Expression '" + expression + "' of " + statementId + " is not compiled, it is evaluated with OGNL");
+      }
+      root = null;
+    }
+    return new CompiledExpression(statementId, expression, root);
+  }
+
+  String getExpression() {
+    return expression;
+  }
+
+  boolean isCompiled() {
+    return root != null;
+  }
+
+  /**
+   * Evaluates the expression.
+   *
+   * @param bindings the bindings of the statement, which are the root of the expression
+   * @return the value of the expression
+   */
+  Object getValue(Map<String, Object> bindings) {
+    if (root != null) {
+      try {
+        return root.evaluate(bindings);
+      } catch (RuntimeException e) {
+        // let OGNL evaluate it again and report the failure the way it always has
+        if (log.isDebugEnabled()) {
+          log.debug("Evaluating expression '" + expression + "' of " + statementId + " with OGNL.  Cause: " + e);
+        }
+      }
+    }
+    return OgnlCache.getValue(expression, bindings);
+  }
+
+  private interface Node {
+    Object evaluate(Map<String, Object> bindings);
+  }
+
+  private static class NotCompilableException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    NotCompilableException() {
+      super(null, null, false, false);
+    }
+  }
+
+  private static class Literal implements Node {
+    private final Object value;
+
+    Literal(Object value) {
+      this.value = value;
+    }
+
+    @Override
+    public Object evaluate(Map<String, Object> bindings) {
+      return value;
+    }
+  }
+
+  private static class RootProperty implements Node {
+    private final String name;
+
+    RootProperty(String name) {
+      this.name = name;
+    }
+
+    @Override
+    public Object evaluate(Map<String, Object> bindings) {
+      // same lookup as DynamicContext.ContextAccessor
+      Object result = bindings.get(name);
+      if (result != null || bindings.containsKey(name)) {
+        return result;
+      }
+      Object parameterObject = bindings.get(DynamicContext.PARAMETER_OBJECT_KEY);
+      if (parameterObject instanceof Map) {
+        return ((Map<?, ?>) parameterObject).get(name);
+      }
+      return null;
+    }
+  }
+
+  private static class Property implements Node {
+    private final Node target;
+    private final String name;
+    private final ReflectorFactory reflectorFactory;
+    // racy but safe: a ResolvedGetter is immutable
+    private ResolvedGetter resolved;
+
+    Property(Node target, String name, ReflectorFactory reflectorFactory) {
+      this.target = target;
+      this.name = name;
+      this.reflectorFactory = reflectorFactory;
+    }
+
+    @Override
+    public Object evaluate(Map<String, Object> bindings) {
+      Object object = target.evaluate(bindings);
+      if (object == null || object instanceof DynamicContext.ContextMap) {
+        throw NOT_COMPILABLE;
+      } else if (object instanceof Map) {
+        // same special names as OGNL's MapPropertyAccessor
+        Map<?, ?> map = (Map<?, ?>) object;
+        switch (name) {
+          case "size":
+            return map.size();
+          case "keys":
+          case "keySet":
+            return map.keySet();
+          case "values":
+            return map.values();
+          case "isEmpty":
+            return map.isEmpty();
+          default:
+            return map.get(name);
+        }
+      } else if (object instanceof List || object instanceof Set) {
+        if ("size".equals(name)) {
+          return ((Collection<?>) object).size();
+        } else if ("isEmpty".equals(name)) {
+          return ((Collection<?>) object).isEmpty();
+        }
+        throw NOT_COMPILABLE;
+      } else if (object instanceof Collection || object instanceof Iterator || object.getClass().isArray()) {
+        throw NOT_COMPILABLE;
+      }
+      try {
+        return getter(object.getClass()).invoke(object, NO_ARGUMENTS);
+      } catch (ReflectiveOperationException e) {
+        throw NOT_COMPILABLE;
+      }
+    }
+
+    private Invoker getter(Class<?> type) {
+      ResolvedGetter getter = resolved;
+      if (getter == null || getter.type != type) {
+        Reflector reflector = reflectorFactory.findForClass(type);
+        if (!reflector.hasGetter(name)) {
+          throw NOT_COMPILABLE;
+        }
+        getter = new ResolvedGetter(type, reflector.getGetInvoker(name));
+        resolved = getter;
+      }
+      return getter.invoker;
+    }
+  }
+
+  private static class ResolvedGetter {
+    private final Class<?> type;
+    private final Invoker invoker;
+
+    ResolvedGetter(Class<?> type, Invoker invoker) {
+      this.type = type;
+      this.invoker = invoker;
+    }
+  }
+
+  private static class MethodCall implements Node {
+    private final Node target;
+    private final String name;
+
+    MethodCall(Node target, String name) {
+      this.target = target;
+      this.name = name;
+    }
+
+    static boolean isSupported(String name) {
+      return "size".equals(name) || "isEmpty".equals(name) || "length".equals(name) || "trim".equals(name)
+          || "toString".equals(name);
+    }
+
+    @Override
+    public Object evaluate(Map<String, Object> bindings) {
+      Object object = target.evaluate(bindings);
+      if ("toString".equals(name) && object != null) {
+        return object.toString();
+      } else if (object instanceof Collection) {
+        if ("size".equals(name)) {
+          return ((Collection<?>) object).size();
+        } else if ("isEmpty".equals(name)) {
+          return ((Collection<?>) object).isEmpty();
+        }
+      } else if (object instanceof Map) {
+        if ("size".equals(name)) {
+          return ((Map<?, ?>) object).size();
+        } else if ("isEmpty".equals(name)) {
+          return ((Map<?, ?>) object).isEmpty();
+        }
+      } else if (object instanceof String) {
+        String string = (String) object;
+        if ("length".equals(name)) {
+          return string.length();
+        } else if ("isEmpty".equals(name)) {
+          return string.isEmpty();
+        } else if ("trim".equals(name)) {
+          return string.trim();
+        }
+      }
+      throw NOT_COMPILABLE;
+    }
+  }
+
+  private static class Not implements Node {
+    private final Node operand;
+
+    Not(Node operand) {
+      this.operand = operand;
+    }
+
+    @Override
+    public Object evaluate(Map<String, Object> bindings) {
+      return OgnlOps.booleanValue(operand.evaluate(bindings)) ? Boolean.FALSE : Boolean.TRUE;
+    }
+  }
+
+  private static class And implements Node {
+    private final Node[] operands;
+
+    And(List<Node> operands) {
+      this.operands = operands.toArray(new Node[0]);
+    }
+
+    @Override
+    public Object evaluate(Map<String, Object> bindings) {
+      // like OGNL, yields the first false operand or the last one
+      Object result = null;
+      for (Node operand : operands) {
+        result = operand.evaluate(bindings);
+        if (!OgnlOps.booleanValue(result)) {
+          break;
+        }
+      }
+      return result;
+    }
+  }
+
+  private static class Or implements Node {
+    private final Node[] operands;
+
+    Or(List<Node> operands) {
+      this.operands = operands.toArray(new Node[0]);
+    }
+
+    @Override
+    public Object evaluate(Map<String, Object> bindings) {
+      // like OGNL, yields the first true operand or the last one
+      Object result = null;
+      for (Node operand : operands) {
+        result = operand.evaluate(bindings);
+        if (OgnlOps.booleanValue(result)) {
+          break;
+        }
+      }
+      return result;
+    }
+  }
+
+  private static class Comparison implements Node {
+    private final String operator;
+    private final Node left;
+    private final Node right;
+
+    Comparison(String operator, Node left, Node right) {
+      this.operator = operator;
+      this.left = left;
+      this.right = right;
+    }
+
+    @Override
+    public Object evaluate(Map<String, Object> bindings) {
+      Object v1 = left.evaluate(bindings);
+      Object v2 = right.evaluate(bindings);
+      switch (operator) {
+        case "==":
+          return OgnlOps.equal(v1, v2);
+        case "!=":
+          return !OgnlOps.equal(v1, v2);
+        case "<":
+          return OgnlOps.less(v1, v2);
+        case ">":
+          return OgnlOps.greater(v1, v2);
+        case "<=":
+          return !OgnlOps.greater(v1, v2);
+        default:
+          return !OgnlOps.less(v1, v2);
+      }
+    }
+  }
+
+  /**
+   * Recursive descent parser for the supported subset of OGNL. Throws a {@link NotCompilableException} on anything
+   * else, whether or not it is valid OGNL.
+   */
+  private static class Parser {
+    private final String expression;
+    private final ReflectorFactory reflectorFactory;
+    private final List<String> tokens = new ArrayList<>();
+    private int position;
+
+    Parser(String expression, ReflectorFactory reflectorFactory) {
+      this.expression = expression;
+      this.reflectorFactory = reflectorFactory;
+    }
+
+    Node parse() {
+      tokenize();
+      Node node = parseOr();
+      if (position != tokens.size()) {
+        throw NOT_COMPILABLE;
+      }
+      return node;
+    }
+
+    private Node parseOr() {
+      List<Node> operands = new ArrayList<>();
+      operands.add(parseAnd());
+      while (accept("or") || accept("||")) {
+        operands.add(parseAnd());
+      }
+      return operands.size() == 1 ? operands.get(0) : new Or(operands);
+    }
+
+    private Node parseAnd() {
+      List<Node> operands = new ArrayList<>();
+      operands.add(parseEquality());
+      while (accept("and") || accept("&&")) {
+        operands.add(parseEquality());
+      }
+      return operands.size() == 1 ? operands.get(0) : new And(operands);
+    }
+
+    private Node parseEquality() {
+      Node node = parseRelational();
+      for (;;) {
+        if (accept("==") || accept("eq")) {
+          node = new Comparison("==", node, parseRelational());
+        } else if (accept("!=") || accept("neq")) {
+          node = new Comparison("!=", node, parseRelational());
+        } else {
+          return node;
+        }
+      }
+    }
+
+    private Node parseRelational() {
+      Node node = parseUnary();
+      for (;;) {
+        if (accept("<") || accept("lt")) {
+          node = new Comparison("<", node, parseUnary());
+        } else if (accept(">") || accept("gt")) {
+          node = new Comparison(">", node, parseUnary());
+        } else if (accept("<=") || accept("lte")) {
+          node = new Comparison("<=", node, parseUnary());
+        } else if (accept(">=") || accept("gte")) {
+          node = new Comparison(">=", node, parseUnary());
+        } else {
+          return node;
+        }
+      }
+    }
+
+    private Node parseUnary() {
+      if (accept("!") || accept("not")) {
+        return new Not(parseUnary());
+      }
+      return parsePostfix();
+    }
+
+    private Node parsePostfix() {
+      Node node = parsePrimary();
+      while (accept(".")) {
+        String name = next();
+        if (!isIdentifier(name)) {
+          throw NOT_COMPILABLE;
+        }
+        if (accept("(")) {
+          if (!accept(")") || !MethodCall.isSupported(name)) {
+            throw NOT_COMPILABLE;
+          }
+          node = new MethodCall(node, name);
+        } else {
+          node = new Property(node, name, reflectorFactory);
+        }
+      }
+      return node;
+    }
+
+    private Node parsePrimary() {
+      String token = next();
+      if ("(".equals(token)) {
+        Node node = parseOr();
+        if (!accept(")")) {
+          throw NOT_COMPILABLE;
+        }
+        return node;
+      } else if ("null".equals(token)) {
+        return new Literal(null);
+      } else if ("true".equals(token) || "false".equals(token)) {
+        return new Literal(Boolean.valueOf(token));
+      } else if (token.charAt(0) == '\'' || token.charAt(0) == '"') {
+        String value = token.substring(1);
+        // a single quoted, single character literal is a char in OGNL
+        return new Literal(token.charAt(0) == '\'' && value.length() == 1 ? (Object) value.charAt(0) : value);
+      } else if (Character.isDigit(token.charAt(0))) {
+        return new Literal(token.indexOf('.') >= 0 ? (Object) Double.valueOf(token) : (Object) Integer.valueOf(token));
+      } else if (isIdentifier(token) && !isKeyword(token) && !"(".equals(peek())) {
+        return new RootProperty(token);
+      }
+      throw NOT_COMPILABLE;
+    }
+
+    private boolean accept(String token) {
+      if (position < tokens.size() && tokens.get(position).equals(token)) {
+        position++;
+        return true;
+      }
+      return false;
+    }
+
+    private String next() {
+      if (position >= tokens.size()) {
+        throw NOT_COMPILABLE;
+      }
+      return tokens.get(position++);
+    }
+
+    private String peek() {
+      return position < tokens.size() ? tokens.get(position) : null;
+    }
+
+    private static boolean isIdentifier(String token) {
+      return Character.isJavaIdentifierStart(token.charAt(0));
+    }
+
+    private static boolean isKeyword(String token) {
+      switch (token) {
+        case "and":
+        case "or":
+        case "not":
+        case "eq":
+        case "neq":
+        case "lt":
+        case "gt":
+        case "lte":
+        case "gte":
+        case "in":
+        case "instanceof":
+        case "new":
+        case "shl":
+        case "shr":
+        case "ushr":
+        case "band":
+        case "bor":
+        case "xor":
+          return true;
+        default:
+          return false;
+      }
+    }
+
+    /**
+     * Splits the expression into identifiers, operators, and literals. String literals are kept with their opening
+     * quote and without escapes, and numbers without a suffix.
+     */
+    private void tokenize() {
+      int length = expression.length();
+      int i = 0;
+      while (i < length) {
+        char c = expression.charAt(i);
+        if (Character.isWhitespace(c)) {
+          i++;
+        } else if (Character.isJavaIdentifierStart(c)) {
+          int start = i;
+          while (i < length && Character.isJavaIdentifierPart(expression.charAt(i))) {
+            i++;
+          }
+          tokens.add(expression.substring(start, i));
+        } else if (Character.isDigit(c)) {
+          int start = i;
+          while (i < length && (Character.isDigit(expression.charAt(i)) || expression.charAt(i) == '.')) {
+            i++;
+          }
+          String number = expression.substring(start, i);
+          if (i < length && Character.isJavaIdentifierPart(expression.charAt(i)) || number.endsWith(".")
+              || number.indexOf('.') != number.lastIndexOf('.') || (number.indexOf('.') < 0 && !isInt(number))) {
+            // suffixes, hex and octal literals, and anything out of int range
+            throw NOT_COMPILABLE;
+          }
+          tokens.add(number);
+        } else if (c == '\'' || c == '"') {
+          StringBuilder literal = new StringBuilder().append(c);
+          i++;
+          while (i < length && expression.charAt(i) != c) {
+            char ch = expression.charAt(i++);
+            if (ch == '\\') {
+              if (i >= length) {
+                throw NOT_COMPILABLE;
+              }
+              ch = unescape(expression.charAt(i++));
+            }
+            literal.append(ch);
+          }
+          if (i >= length) {
+            throw NOT_COMPILABLE;
+          }
+          i++;
+          tokens.add(literal.toString());
+        } else {
+          String operator = i + 1 < length ? expression.substring(i, i + 2) : null;
+          if ("==".equals(operator) || "!=".equals(operator) || "<=".equals(operator) || ">=".equals(operator)
+              || "&&".equals(operator) || "||".equals(operator)) {
+            tokens.add(operator);
+            i += 2;
+          } else if ("<>!().".indexOf(c) >= 0) {
+            tokens.add(String.valueOf(c));
+            i++;
+          } else {
+            throw NOT_COMPILABLE;
+          }
+        }
+      }
+    }
+
+    private static boolean isInt(String number) {
+      if (number.length() > 1 && number.charAt(0) == '0') {
+        return false;
+      }
+      try {
+        Integer.parseInt(number);
+        return true;
+      } catch (NumberFormatException e) {
+        return false;
+      }
+    }
+
+    private static char unescape(char c) {
+      switch (c) {
+        case '\\':
+        case '\'':
+        case '"':
+          return c;
+        case 'n':
+          return '\n';
+        case 't':
+          return '\t';
+        case 'r':
+          return '\r';
+        default:
+          throw NOT_COMPILABLE;
+      }
+    }
+  }
+
+}
@@ -0,0 +1,72 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.scripting.xmltags;
+
+import org.apache.ibatis.executor.keygen.SelectKeyGenerator;
+import org.apache.ibatis.mapping.SqlSource;
+import org.apache.ibatis.parsing.XNode;
+import org.apache.ibatis.session.Configuration;
+
+/**
+ * An XML language driver that compiles the dynamic SQL of each statement when it is built, instead of interpreting
+ * the node tree and parsing the generated SQL on every call.
+ * <p>
+ * Statements are written exactly as for the {@link XMLLanguageDriver}. A statement that uses custom nodes, or builds
+ * placeholders dynamically, is interpreted as usual. The statements and expressions that are not compiled are logged
+ * at debug level, with the id of their statement, or with their script for a statement not built from a mapper XML.
+ *
+ * @since 3.5.6
+ * @see CompiledDynamicSqlSource
+ */
+public class CompiledXMLLanguageDriver extends XMLLanguageDriver {
+
+  @Override
+  public SqlSource createSqlSource(Configuration configuration, XNode script, Class<?> parameterType) {
+    return compile(configuration, super.createSqlSource(configuration, script, parameterType), statementId(script));
+  }
+
+  @Override
+  public SqlSource createSqlSource(Configuration configuration, String script, Class<?> parameterType) {
+    // the annotations and providers do not pass the statement
+    return compile(configuration, super.createSqlSource(configuration, script, parameterType), script);
+  }
+
+  private SqlSource compile(Configuration configuration, SqlSource sqlSource, String statementId) {
+    if (sqlSource instanceof DynamicSqlSource) {
+      return CompiledDynamicSqlSource.compile(configuration, (DynamicSqlSource) sqlSource, statementId);
+    }
+    return sqlSource;
+  }
+
+  /**
+   * Returns the id of the statement of a script node, which is either a statement or its selectKey node.
+   */
+  private static String statementId(XNode script) {
+    boolean selectKey = "selectKey".equals(script.getName());
+    XNode statement = selectKey ? script.getParent() : script;
+    XNode mapper = statement == null ? null : statement.getParent();
+    String id = statement == null ? null : statement.getStringAttribute("id");
+    String namespace = mapper == null ? null : mapper.getStringAttribute("namespace");
+    if (id == null || namespace == null) {
+      return script.getValueBasedIdentifier();
+    }
+    if (!id.startsWith(namespace + ".")) {
+      id = namespace + "." + id;
+    }
+    return selectKey ? id + SelectKeyGenerator.SELECT_KEY_SUFFIX : id;
+  }
+
+}
@@ -15,7 +15,11 @@
  */
 package org.apache.ibatis.scripting.xmltags;
 
+import java.util.Map;
+
+import org.apache.ibatis.builder.ParsedSql;
 import org.apache.ibatis.builder.SqlSourceBuilder;
+import org.apache.ibatis.cache.impl.ConcurrentCache;
 import org.apache.ibatis.mapping.BoundSql;
 import org.apache.ibatis.mapping.SqlSource;
 import org.apache.ibatis.session.Configuration;
@@ -27,12 +31,19 @@ public class DynamicSqlSource implements SqlSource {
 
     private final Configuration configuration;
     private final SqlNode rootSqlNode;
+    // 已解析过的SQL，key是生成的SQL语句及实参类型，value是替换了"#{}"占位符的SQL及对应的ParameterMapping，
+    // 超过dynamicSqlCacheSize时按CLOCK算法淘汰最近未使用的SQL
+    private final ConcurrentCache parsedSqlCache = new ConcurrentCache(DynamicSqlSource.class.getName());
 
     public DynamicSqlSource(Configuration configuration, SqlNode rootSqlNode) {
         this.configuration = configuration;
         this.rootSqlNode = rootSqlNode;
     }
 
+    SqlNode getRootSqlNode() {
+        return rootSqlNode;
+    }
+
     @Override
     public BoundSql getBoundSql(Object parameterObject) {
         // 创建DynamicContext对象，parameterObject是用户传入的实参
@@ -44,15 +55,58 @@ public class DynamicSqlSource implements SqlSource {
         // 这是使用组合设计模式的好处
         rootSqlNode.apply(context);
 
-        // 通过SqlSourceBuilder解析"#{}"占位符中的属性，并将SQL语句中的"#{}"占位符替换成"?"占位符
-        SqlSourceBuilder sqlSourceParser = new SqlSourceBuilder(configuration);
+        // 通过SqlSourceBuilder解析"#{}"占位符中的属性，并将SQL语句中的"#{}"占位符替换成"?"占位符，
+        // 同样的SQL语句再次出现时，直接复用之前的解析结果
         Class<?> parameterType = parameterObject == null ? Object.class : parameterObject.getClass();
-        SqlSource sqlSource = sqlSourceParser.parse(context.getSql(), parameterType, context.getBindings());
+        Map<String, Object> bindings = context.getBindings();
+        ParsedSql parsedSql = parse(context.getSql(), parameterType, bindings);
 
         // 创建BoundSql对象
-        BoundSql boundSql = sqlSource.getBoundSql(parameterObject);
-        context.getBindings().forEach(boundSql::setAdditionalParameter);
+        BoundSql boundSql = new BoundSql(configuration, parsedSql.getSql(), parsedSql.getParameterMappings(bindings), parameterObject);
+        bindings.forEach(boundSql::setAdditionalParameter);
         return boundSql;
     }
 
+    private ParsedSql parse(String sql, Class<?> parameterType, Map<String, Object> bindings) {
+        int cacheSize = configuration.getDynamicSqlCacheSize();
+        ShapeKey key = cacheSize > 0 ? new ShapeKey(sql, parameterType) : null;
+        ParsedSql parsedSql = key == null ? null : (ParsedSql) parsedSqlCache.getObject(key);
+        if (parsedSql == null) {
+            parsedSql = new SqlSourceBuilder(configuration).parseReusable(sql, parameterType, bindings);
+            if (key != null) {
+                // 只在未命中时同步大小设置，foreach等生成的大量不同SQL会淘汰较少使用的SQL而不会无限增长
+                parsedSqlCache.setSize(cacheSize);
+                parsedSqlCache.putObject(key, parsedSql);
+            }
+        }
+        return parsedSql;
+    }
+
+    private static final class ShapeKey {
+        private final String sql;
+        private final Class<?> parameterType;
+
+        ShapeKey(String sql, Class<?> parameterType) {
+            this.sql = sql;
+            this.parameterType = parameterType;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof ShapeKey)) {
+                return false;
+            }
+            ShapeKey other = (ShapeKey) o;
+            return parameterType == other.parameterType && sql.equals(other.sql);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * sql.hashCode() + parameterType.hashCode();
+        }
+    }
+
 }
@@ -29,7 +29,14 @@ import org.apache.ibatis.builder.BuilderException;
 public class ExpressionEvaluator {
 
     public boolean evaluateBoolean(String expression, Object parameterObject) {
-        Object value = OgnlCache.getValue(expression, parameterObject);
+        return booleanValue(OgnlCache.getValue(expression, parameterObject));
+    }
+
+    public Iterable<?> evaluateIterable(String expression, Object parameterObject) {
+        return iterableValue(expression, OgnlCache.getValue(expression, parameterObject));
+    }
+
+    static boolean booleanValue(Object value) {
         if (value instanceof Boolean) {
             return (Boolean) value;
         }
@@ -39,8 +46,7 @@ public class ExpressionEvaluator {
         return value != null;
     }
 
-    public Iterable<?> evaluateIterable(String expression, Object parameterObject) {
-        Object value = OgnlCache.getValue(expression, parameterObject);
+    static Iterable<?> iterableValue(String expression, Object value) {
         if (value == null) {
             throw new BuilderException("The expression '" + expression + "' evaluated to a null value.");
         }
@@ -48,6 +48,34 @@ public class ForEachSqlNode implements SqlNode {
         this.configuration = configuration;
     }
 
+    String getCollectionExpression() {
+        return collectionExpression;
+    }
+
+    SqlNode getContents() {
+        return contents;
+    }
+
+    String getOpen() {
+        return open;
+    }
+
+    String getClose() {
+        return close;
+    }
+
+    String getSeparator() {
+        return separator;
+    }
+
+    String getItem() {
+        return item;
+    }
+
+    String getIndex() {
+        return index;
+    }
+
     @Override
     public boolean apply(DynamicContext context) {
         Map<String, Object> bindings = context.getBindings();
@@ -29,6 +29,14 @@ public class IfSqlNode implements SqlNode {
         this.evaluator = new ExpressionEvaluator();
     }
 
+    String getTest() {
+        return test;
+    }
+
+    SqlNode getContents() {
+        return contents;
+    }
+
     @Override
     public boolean apply(DynamicContext context) {
         if (evaluator.evaluateBoolean(test, context.getBindings())) {
@@ -45,6 +45,14 @@ public class TextSqlNode implements SqlNode {
         return checker.isDynamic();
     }
 
+    String getText() {
+        return text;
+    }
+
+    Pattern getInjectionFilter() {
+        return injectionFilter;
+    }
+
     @Override
     public boolean apply(DynamicContext context) {
         // 创建GenericTokenParser解析器，这里指定的占位符的起止符号分别是"${"和"}"
@@ -49,6 +49,26 @@ public class TrimSqlNode implements SqlNode {
         this.configuration = configuration;
     }
 
+    SqlNode getContents() {
+        return contents;
+    }
+
+    String getPrefix() {
+        return prefix;
+    }
+
+    String getSuffix() {
+        return suffix;
+    }
+
+    List<String> getPrefixesToOverride() {
+        return prefixesToOverride;
+    }
+
+    List<String> getSuffixesToOverride() {
+        return suffixesToOverride;
+    }
+
     @Override
     public boolean apply(DynamicContext context) {
         FilteredDynamicContext filteredDynamicContext = new FilteredDynamicContext(context);
@@ -28,6 +28,14 @@ public class VarDeclSqlNode implements SqlNode {
     expression = exp;
   }
 
+  String getName() {
+    return name;
+  }
+
+  String getExpression() {
+    return expression;
+  }
+
   @Override
   public boolean apply(DynamicContext context) {
     final Object value = OgnlCache.getValue(expression, context.getBindings());
@@ -0,0 +1,138 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.session;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+/**
+ * Runs statements asynchronously, each one in its own {@link SqlSession} opened on an executor thread.
+ * <p>
+ * Every operation opens a session, runs, commits the session if it succeeds and closes it, so independent
+ * statements can run in parallel without sharing a session or a transaction. Statements that must share a transaction
+ * are grouped with {@link #execute(Function)}. Sessions are opened by the {@link SqlSessionFactory} that created this
+ * object, so plugins intercept them as usual, and the {@link org.apache.ibatis.executor.ErrorContext} of the calling
+ * thread is carried over to the executor thread.
+ *
+ * @since 3.5.6
+ */
+public interface AsyncSqlSession {
+
+  /**
+   * Retrieve a single row mapped from the statement key.
+   * @param <T> the returned object type
+   * @param statement the statement
+   * @return Future of the mapped object
+   */
+  <T> CompletableFuture<T> selectOne(String statement);
+
+  /**
+   * Retrieve a single row mapped from the statement key and parameter.
+   * @param <T> the returned object type
+   * @param statement Unique identifier matching the statement to use.
+   * @param parameter A parameter object to pass to the statement.
+   * @return Future of the mapped object
+   */
+  <T> CompletableFuture<T> selectOne(String statement, Object parameter);
+
+  /**
+   * Retrieve a list of mapped objects from the statement key.
+   * @param <E> the returned list element type
+   * @param statement Unique identifier matching the statement to use.
+   * @return Future of the list of mapped objects
+   */
+  <E> CompletableFuture<List<E>> selectList(String statement);
+
+  /**
+   * Retrieve a list of mapped objects from the statement key and parameter.
+   * @param <E> the returned list element type
+   * @param statement Unique identifier matching the statement to use.
+   * @param parameter A parameter object to pass to the statement.
+   * @return Future of the list of mapped objects
+   */
+  <E> CompletableFuture<List<E>> selectList(String statement, Object parameter);
+
+  /**
+   * Retrieve a list of mapped objects from the statement key and parameter, within the specified row bounds.
+   * @param <E> the returned list element type
+   * @param statement Unique identifier matching the statement to use.
+   * @param parameter A parameter object to pass to the statement.
+   * @param rowBounds  Bounds to limit object retrieval
+   * @return Future of the list of mapped objects
+   */
+  <E> CompletableFuture<List<E>> selectList(String statement, Object parameter, RowBounds rowBounds);
+
+  /**
+   * Retrieve a map of mapped objects keyed by one of their properties.
+   * @param <K> the returned Map keys type
+   * @param <V> the returned Map values type
+   * @param statement Unique identifier matching the statement to use.
+   * @param parameter A parameter object to pass to the statement.
+   * @param mapKey The property to use as key for each value in the list.
+   * @return Future of the map containing key pair data
+   */
+  <K, V> CompletableFuture<Map<K, V>> selectMap(String statement, Object parameter, String mapKey);
+
+  /**
+   * Execute an insert statement with the given parameter object and commit it.
+   * @param statement Unique identifier matching the statement to execute.
+   * @param parameter A parameter object to pass to the statement.
+   * @return Future of the number of rows affected by the insert
+   */
+  CompletableFuture<Integer> insert(String statement, Object parameter);
+
+  /**
+   * Execute an update statement with the given parameter object and commit it.
+   * @param statement Unique identifier matching the statement to execute.
+   * @param parameter A parameter object to pass to the statement.
+   * @return Future of the number of rows affected by the update
+   */
+  CompletableFuture<Integer> update(String statement, Object parameter);
+
+  /**
+   * Execute a delete statement with the given parameter object and commit it.
+   * @param statement Unique identifier matching the statement to execute.
+   * @param parameter A parameter object to pass to the statement.
+   * @return Future of the number of rows affected by the delete
+   */
+  CompletableFuture<Integer> delete(String statement, Object parameter);
+
+  /**
+   * Runs the given work in one session, which is committed if the work completes normally and closed afterwards.
+   * @param <T> the result type
+   * @param work the work, which must not use the session once it has returned
+   * @return Future of the result of the work
+   */
+  <T> CompletableFuture<T> execute(Function<SqlSession, T> work);
+
+  /**
+   * Retrieves a mapper whose methods returning {@link CompletableFuture} run asynchronously, each call in its own
+   * session. Methods with other return types cannot be called on this mapper.
+   * @param <T> the mapper type
+   * @param type Mapper interface class
+   * @return a mapper bound to this async session
+   */
+  <T> T getMapper(Class<T> type);
+
+  /**
+   * Retrieves current configuration.
+   * @return Configuration
+   */
+  Configuration getConfiguration();
+
+}
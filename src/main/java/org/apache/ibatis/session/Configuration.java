@@ -15,8 +15,10 @@
  */
 package org.apache.ibatis.session;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -25,6 +27,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.BiFunction;
 
 import org.apache.ibatis.binding.MapperRegistry;
@@ -38,12 +41,15 @@ import org.apache.ibatis.cache.decorators.FifoCache;
 import org.apache.ibatis.cache.decorators.LruCache;
 import org.apache.ibatis.cache.decorators.SoftCache;
 import org.apache.ibatis.cache.decorators.WeakCache;
+import org.apache.ibatis.cache.decorators.WeightedCache;
+import org.apache.ibatis.cache.impl.ConcurrentCache;
 import org.apache.ibatis.cache.impl.PerpetualCache;
 import org.apache.ibatis.datasource.jndi.JndiDataSourceFactory;
 import org.apache.ibatis.datasource.pooled.PooledDataSourceFactory;
 import org.apache.ibatis.datasource.unpooled.UnpooledDataSourceFactory;
 import org.apache.ibatis.executor.BatchExecutor;
 import org.apache.ibatis.executor.CachingExecutor;
+import org.apache.ibatis.executor.InFlightQueries;
 import org.apache.ibatis.executor.Executor;
 import org.apache.ibatis.executor.ReuseExecutor;
 import org.apache.ibatis.executor.SimpleExecutor;
@@ -60,6 +66,7 @@ import org.apache.ibatis.io.VFS;
 import org.apache.ibatis.logging.Log;
 import org.apache.ibatis.logging.LogFactory;
 import org.apache.ibatis.logging.commons.JakartaCommonsLoggingImpl;
+import org.apache.ibatis.logging.jdbc.SqlTracer;
 import org.apache.ibatis.logging.jdk14.Jdk14LoggingImpl;
 import org.apache.ibatis.logging.log4j.Log4jImpl;
 import org.apache.ibatis.logging.log4j2.Log4j2Impl;
@@ -73,6 +80,10 @@ import org.apache.ibatis.mapping.ParameterMap;
 import org.apache.ibatis.mapping.ResultMap;
 import org.apache.ibatis.mapping.ResultSetType;
 import org.apache.ibatis.mapping.VendorDatabaseIdProvider;
+import org.apache.ibatis.metrics.ParameterRedactor;
+import org.apache.ibatis.metrics.SlowStatementLog;
+import org.apache.ibatis.metrics.StatementMetrics;
+import org.apache.ibatis.metrics.StatementMetricsRegistry;
 import org.apache.ibatis.parsing.XNode;
 import org.apache.ibatis.plugin.Interceptor;
 import org.apache.ibatis.plugin.InterceptorChain;
@@ -86,6 +97,7 @@ import org.apache.ibatis.reflection.wrapper.ObjectWrapperFactory;
 import org.apache.ibatis.scripting.LanguageDriver;
 import org.apache.ibatis.scripting.LanguageDriverRegistry;
 import org.apache.ibatis.scripting.defaults.RawLanguageDriver;
+import org.apache.ibatis.scripting.xmltags.CompiledXMLLanguageDriver;
 import org.apache.ibatis.scripting.xmltags.XMLLanguageDriver;
 import org.apache.ibatis.transaction.Transaction;
 import org.apache.ibatis.transaction.jdbc.JdbcTransactionFactory;
@@ -110,10 +122,42 @@ public class Configuration {
     protected boolean useGeneratedKeys;
     protected boolean useColumnLabel = true;
     protected boolean cacheEnabled = true;
+    protected boolean cacheSingleFlightEnabled;
+    protected Integer cacheSingleFlightTimeout;
+    protected boolean compactCacheKeyEnabled;
     protected boolean callSettersOnNulls;
     protected boolean useActualParamName = true;
     protected boolean returnInstanceForEmptyRow;
     protected boolean shrinkWhitespacesInSql;
+    protected int dynamicSqlCacheSize = 32;
+    // BATCH模式下合并成一条insert语句的最大行数，小于2时不合并
+    protected int multiRowInsertRowLimit;
+    protected int multiRowInsertParameterLimit = 2000;
+    // BATCH模式下自动执行批处理的行数和时间间隔(毫秒)，为0时只在flushStatements()、提交等操作时执行
+    protected int batchFlushSize;
+    protected int batchFlushInterval;
+    // 同一次查询中通过同一条嵌套查询延迟加载的属性，一次最多批量加载的个数，小于2时逐个加载
+    protected int lazyLoadBatchSize;
+    // 每多少次语句执行记录一次轻量的SQL跟踪日志，为0时使用ConnectionLogger记录每次执行
+    protected int sqlTraceSampling;
+    protected boolean sqlTraceAsync;
+    // 在首次执行语句时按当前设置创建，设置变更时丢弃
+    protected volatile SqlTracer sqlTracer;
+    private final ReentrantLock sqlTracerLock = new ReentrantLock();
+    // 是否按MappedStatement记录执行次数、各阶段耗时、缓存命中等统计信息
+    protected boolean statementMetricsEnabled;
+    protected final StatementMetricsRegistry statementMetricsRegistry = new StatementMetricsRegistry();
+    // 执行耗时超过该毫秒数的语句会记录到慢语句日志中，为0时不检测，可以通过语句的slowThreshold属性单独设置
+    protected int slowStatementThreshold;
+    protected SlowStatementLog slowStatementLog = new SlowStatementLog(100);
+    // 记录慢语句时替换实参的值，为null时记录原值
+    protected ParameterRedactor parameterRedactor;
+    // 是否在ForkJoinPool中并发地解析<mappers>中配置的Mapper映射文件，解析完成后仍按配置的顺序注册
+    protected boolean parallelMapperParsing;
+    // CursorPublisher读取Cursor时使用的线程池，为null时在请求数据的线程中读取
+    protected java.util.concurrent.Executor publisherExecutor;
+    // AsyncSqlSession执行语句时使用的线程池，为null时使用与连接池大小一致的默认线程池
+    protected java.util.concurrent.Executor asyncExecutor;
 
     protected String logPrefix;
     protected Class<? extends Log> logImpl;
@@ -148,6 +192,7 @@ public class Configuration {
 
     protected final MapperRegistry mapperRegistry = new MapperRegistry(this);
     protected final InterceptorChain interceptorChain = new InterceptorChain();
+    protected final InFlightQueries inFlightQueries = new InFlightQueries();
     protected final TypeHandlerRegistry typeHandlerRegistry = new TypeHandlerRegistry(this);
     protected final TypeAliasRegistry typeAliasRegistry = new TypeAliasRegistry();
     protected final LanguageDriverRegistry languageRegistry = new LanguageDriverRegistry();
@@ -156,6 +201,8 @@ public class Configuration {
             .conflictMessageProducer((savedValue, targetValue) ->
                     ". please check " + savedValue.getResource() + " and " + targetValue.getResource());
     protected final Map<String, Cache> caches = new StrictMap<>("Caches collection");
+    // 声明为只读的二级缓存的id，只有这些缓存未命中时才会与其他会话共享同一次查询
+    protected final Set<String> readOnlyCaches = new HashSet<>();
     protected final Map<String, ResultMap> resultMaps = new StrictMap<>("Result Maps collection");
     protected final Map<String, ParameterMap> parameterMaps = new StrictMap<>("Parameter Maps collection");
     protected final Map<String, KeyGenerator> keyGenerators = new StrictMap<>("Key Generators collection");
@@ -167,6 +214,11 @@ public class Configuration {
     protected final Collection<CacheRefResolver> incompleteCacheRefs = new LinkedList<>();
     protected final Collection<ResultMapResolver> incompleteResultMaps = new LinkedList<>();
     protected final Collection<MethodResolver> incompleteMethods = new LinkedList<>();
+    // 保护上述incomplete*集合的锁，使用ReentrantLock而不是synchronized，虚拟线程等待时不会占用其载体线程
+    private final ReentrantLock incompleteStatementsLock = new ReentrantLock();
+    private final ReentrantLock incompleteCacheRefsLock = new ReentrantLock();
+    private final ReentrantLock incompleteResultMapsLock = new ReentrantLock();
+    private final ReentrantLock incompleteMethodsLock = new ReentrantLock();
 
     /*
      * A map holds cache-ref relationship. The key is the namespace that
@@ -189,15 +241,18 @@ public class Configuration {
         typeAliasRegistry.registerAlias("UNPOOLED", UnpooledDataSourceFactory.class);
 
         typeAliasRegistry.registerAlias("PERPETUAL", PerpetualCache.class);
+        typeAliasRegistry.registerAlias("CONCURRENT", ConcurrentCache.class);
         typeAliasRegistry.registerAlias("FIFO", FifoCache.class);
         typeAliasRegistry.registerAlias("LRU", LruCache.class);
         typeAliasRegistry.registerAlias("SOFT", SoftCache.class);
         typeAliasRegistry.registerAlias("WEAK", WeakCache.class);
+        typeAliasRegistry.registerAlias("WEIGHTED", WeightedCache.class);
 
         typeAliasRegistry.registerAlias("DB_VENDOR", VendorDatabaseIdProvider.class);
 
         typeAliasRegistry.registerAlias("XML", XMLLanguageDriver.class);
         typeAliasRegistry.registerAlias("RAW", RawLanguageDriver.class);
+        typeAliasRegistry.registerAlias("COMPILED_XML", CompiledXMLLanguageDriver.class);
 
         typeAliasRegistry.registerAlias("SLF4J", Slf4jImpl.class);
         typeAliasRegistry.registerAlias("COMMONS_LOGGING", JakartaCommonsLoggingImpl.class);
@@ -296,6 +351,291 @@ public class Configuration {
         this.shrinkWhitespacesInSql = shrinkWhitespacesInSql;
     }
 
+    public int getDynamicSqlCacheSize() {
+        return dynamicSqlCacheSize;
+    }
+
+    /**
+     * Sets the maximum number of distinct SQL texts generated by a dynamic statement whose parsed placeholders are
+     * kept, so that the generated SQL is not parsed again when it repeats. The least recently used SQL texts are
+     * evicted once the statement generated more.
+     *
+     * @param dynamicSqlCacheSize the number of SQL texts to keep per statement, 0 to parse on every call
+     */
+    public void setDynamicSqlCacheSize(int dynamicSqlCacheSize) {
+        this.dynamicSqlCacheSize = dynamicSqlCacheSize;
+    }
+
+    public int getMultiRowInsertRowLimit() {
+        return multiRowInsertRowLimit;
+    }
+
+    /**
+     * Sets the maximum number of consecutive single-row inserts of a statement that the batch executor rewrites into
+     * one <code>INSERT ... VALUES (...), (...)</code> statement.
+     *
+     * @param multiRowInsertRowLimit the maximum number of rows per insert, or a number lower than 2 to keep one
+     *     insert per row
+     * @since 3.5.6
+     */
+    public void setMultiRowInsertRowLimit(int multiRowInsertRowLimit) {
+        this.multiRowInsertRowLimit = multiRowInsertRowLimit;
+    }
+
+    public int getMultiRowInsertParameterLimit() {
+        return multiRowInsertParameterLimit;
+    }
+
+    /**
+     * Sets the maximum number of parameters of an insert rewritten by the batch executor to insert several rows.
+     *
+     * @param multiRowInsertParameterLimit the maximum number of parameters per insert
+     * @since 3.5.6
+     */
+    public void setMultiRowInsertParameterLimit(int multiRowInsertParameterLimit) {
+        this.multiRowInsertParameterLimit = multiRowInsertParameterLimit;
+    }
+
+    public int getBatchFlushSize() {
+        return batchFlushSize;
+    }
+
+    /**
+     * Sets the number of rows after which the batch executor executes its pending batches on its own, so that the
+     * statements and parameter objects of a long batch are released as it goes.
+     *
+     * @param batchFlushSize the number of rows, or 0 to execute batches only when statements are flushed
+     * @since 3.5.6
+     */
+    public void setBatchFlushSize(int batchFlushSize) {
+        this.batchFlushSize = batchFlushSize;
+    }
+
+    public int getBatchFlushInterval() {
+        return batchFlushInterval;
+    }
+
+    /**
+     * Sets the time after which the batch executor executes its pending batches when another row is added.
+     *
+     * @param batchFlushInterval the time in milliseconds since the first pending row, or 0 for no time limit
+     * @since 3.5.6
+     */
+    public void setBatchFlushInterval(int batchFlushInterval) {
+        this.batchFlushInterval = batchFlushInterval;
+    }
+
+    public int getLazyLoadBatchSize() {
+        return lazyLoadBatchSize;
+    }
+
+    /**
+     * Sets the maximum number of lazy properties that are loaded together when they were read by one query and are
+     * loaded by the same nested statement selecting by a single key.
+     *
+     * @param lazyLoadBatchSize the maximum number of properties per nested query, or a number lower than 2 to load
+     *     each property on its own
+     * @since 3.5.6
+     */
+    public void setLazyLoadBatchSize(int lazyLoadBatchSize) {
+        this.lazyLoadBatchSize = lazyLoadBatchSize;
+    }
+
+    public int getSqlTraceSampling() {
+        return sqlTraceSampling;
+    }
+
+    /**
+     * Sets how often the statements are written to the debug log of their mapped statement by a lightweight
+     * {@link SqlTracer} instead of the {@link org.apache.ibatis.logging.jdbc.ConnectionLogger}.
+     *
+     * @param sqlTraceSampling log one statement execution in this number, or 0 to log every execution with the
+     *     connection logger
+     * @since 3.5.6
+     */
+    public void setSqlTraceSampling(int sqlTraceSampling) {
+        this.sqlTraceSampling = sqlTraceSampling;
+        this.sqlTracer = null;
+    }
+
+    public boolean isSqlTraceAsync() {
+        return sqlTraceAsync;
+    }
+
+    /**
+     * Sets whether the lines of the SQL trace are written by a background thread rather than by the executing thread.
+     * Lines written by the background thread do not carry the name and the logging context (e.g. the MDC) of the
+     * executing thread.
+     *
+     * @param sqlTraceAsync true to write them from a background thread
+     * @since 3.5.6
+     */
+    public void setSqlTraceAsync(boolean sqlTraceAsync) {
+        this.sqlTraceAsync = sqlTraceAsync;
+        this.sqlTracer = null;
+    }
+
+    /**
+     * Returns the tracer of the statements, created from the current settings on first use.
+     *
+     * @return the tracer, or null if the statements are logged by the connection logger
+     * @since 3.5.6
+     */
+    public SqlTracer getSqlTracer() {
+        if (sqlTraceSampling <= 0) {
+            return null;
+        }
+        SqlTracer tracer = sqlTracer;
+        if (tracer == null) {
+            sqlTracerLock.lock();
+            try {
+                tracer = sqlTracer;
+                if (tracer == null) {
+                    tracer = new SqlTracer(sqlTraceSampling, sqlTraceAsync);
+                    sqlTracer = tracer;
+                }
+            } finally {
+                sqlTracerLock.unlock();
+            }
+        }
+        return tracer;
+    }
+
+    public boolean isStatementMetricsEnabled() {
+        return statementMetricsEnabled;
+    }
+
+    /**
+     * Sets whether the executions of each mapped statement are recorded in the {@link #getStatementMetricsRegistry()
+     * statement metrics registry}.
+     *
+     * @param statementMetricsEnabled true to record the statement metrics
+     * @since 3.5.6
+     */
+    public void setStatementMetricsEnabled(boolean statementMetricsEnabled) {
+        this.statementMetricsEnabled = statementMetricsEnabled;
+    }
+
+    /**
+     * Returns the registry holding the metrics of the statements, where the metrics exporters are added.
+     *
+     * @return the registry, empty unless the statement metrics are enabled
+     * @since 3.5.6
+     */
+    public StatementMetricsRegistry getStatementMetricsRegistry() {
+        return statementMetricsRegistry;
+    }
+
+    /**
+     * Returns the metrics to record the execution of a statement into.
+     *
+     * @param statementId the id of the mapped statement
+     * @return the metrics, or null if the statement metrics are not enabled
+     * @since 3.5.6
+     */
+    public StatementMetrics getStatementMetrics(String statementId) {
+        return statementMetricsEnabled ? statementMetricsRegistry.getMetrics(statementId) : null;
+    }
+
+    public int getSlowStatementThreshold() {
+        return slowStatementThreshold;
+    }
+
+    /**
+     * Sets the execution time above which the statements are added to the {@link #getSlowStatementLog() slow
+     * statement log}, unless their own <code>slowThreshold</code> is set.
+     *
+     * @param slowStatementThreshold the time in milliseconds, or 0 to detect no slow statement
+     * @since 3.5.6
+     */
+    public void setSlowStatementThreshold(int slowStatementThreshold) {
+        this.slowStatementThreshold = slowStatementThreshold;
+    }
+
+    /**
+     * Returns the slow statement threshold of a statement.
+     *
+     * @param ms the mapped statement
+     * @return the time in milliseconds, 0 or less if the executions of the statement are not checked
+     * @since 3.5.6
+     */
+    public int getSlowStatementThreshold(MappedStatement ms) {
+        Integer threshold = ms.getSlowThreshold();
+        return threshold != null ? threshold : slowStatementThreshold;
+    }
+
+    public SlowStatementLog getSlowStatementLog() {
+        return slowStatementLog;
+    }
+
+    /**
+     * Replaces the slow statement log by an empty one of the given size.
+     *
+     * @param slowStatementLogSize the number of slow statement events kept
+     * @since 3.5.6
+     */
+    public void setSlowStatementLogSize(int slowStatementLogSize) {
+        this.slowStatementLog = new SlowStatementLog(slowStatementLogSize);
+    }
+
+    public ParameterRedactor getParameterRedactor() {
+        return parameterRedactor;
+    }
+
+    /**
+     * Sets the redactor applied to the parameter values of the slow statement events.
+     *
+     * @param parameterRedactor the redactor, or null to keep the values as they were bound
+     * @since 3.5.6
+     */
+    public void setParameterRedactor(ParameterRedactor parameterRedactor) {
+        this.parameterRedactor = parameterRedactor;
+    }
+
+    public boolean isParallelMapperParsing() {
+        return parallelMapperParsing;
+    }
+
+    /**
+     * Sets whether the mapper XML files listed in the configuration are parsed and validated concurrently.
+     * Their statements, result maps and caches are still registered one file at a time, in the declared order.
+     *
+     * @param parallelMapperParsing true to parse the mapper XML files on the common fork-join pool
+     * @since 3.5.6
+     */
+    public void setParallelMapperParsing(boolean parallelMapperParsing) {
+        this.parallelMapperParsing = parallelMapperParsing;
+    }
+
+    public java.util.concurrent.Executor getPublisherExecutor() {
+        return publisherExecutor;
+    }
+
+    /**
+     * Sets the executor that reads the cursors of {@link org.apache.ibatis.cursor.CursorPublisher} subscriptions.
+     *
+     * @param publisherExecutor the executor, or null to read from the thread that requests the items
+     * @since 3.5.6
+     */
+    public void setPublisherExecutor(java.util.concurrent.Executor publisherExecutor) {
+        this.publisherExecutor = publisherExecutor;
+    }
+
+    public java.util.concurrent.Executor getAsyncExecutor() {
+        return asyncExecutor;
+    }
+
+    /**
+     * Sets the executor that runs the statements of {@link AsyncSqlSession}s.
+     *
+     * @param asyncExecutor the executor, or null to use a thread pool sized to the maximum number of active
+     *     connections of the pooled data source
+     * @since 3.5.6
+     */
+    public void setAsyncExecutor(java.util.concurrent.Executor asyncExecutor) {
+        this.asyncExecutor = asyncExecutor;
+    }
+
     public String getDatabaseId() {
         return databaseId;
     }
@@ -447,6 +787,36 @@ public class Configuration {
         this.cacheEnabled = cacheEnabled;
     }
 
+    public boolean isCacheSingleFlightEnabled() {
+        return cacheSingleFlightEnabled;
+    }
+
+    public void setCacheSingleFlightEnabled(boolean cacheSingleFlightEnabled) {
+        this.cacheSingleFlightEnabled = cacheSingleFlightEnabled;
+    }
+
+    public Integer getCacheSingleFlightTimeout() {
+        return cacheSingleFlightTimeout;
+    }
+
+    public void setCacheSingleFlightTimeout(Integer cacheSingleFlightTimeout) {
+        this.cacheSingleFlightTimeout = cacheSingleFlightTimeout;
+    }
+
+    public boolean isCompactCacheKeyEnabled() {
+        return compactCacheKeyEnabled;
+    }
+
+    /**
+     * Sets whether executors build {@link org.apache.ibatis.cache.CompactCacheKey}s, which keep a 128-bit hash
+     * of the statement, SQL and parameters instead of the values themselves.
+     *
+     * @param compactCacheKeyEnabled true to build compact cache keys
+     */
+    public void setCompactCacheKeyEnabled(boolean compactCacheKeyEnabled) {
+        this.compactCacheKeyEnabled = compactCacheKeyEnabled;
+    }
+
     public Integer getDefaultStatementTimeout() {
         return defaultStatementTimeout;
     }
@@ -566,6 +936,25 @@ public class Configuration {
         this.reflectorFactory = reflectorFactory;
     }
 
+    public boolean isGeneratedAccessorsEnabled() {
+        return reflectorFactory instanceof DefaultReflectorFactory
+                && ((DefaultReflectorFactory) reflectorFactory).isGeneratedAccessorsEnabled();
+    }
+
+    /**
+     * Sets whether getters and setters are invoked through functions generated with
+     * {@link java.lang.invoke.LambdaMetafactory} instead of reflectively. Only applies to a
+     * {@link DefaultReflectorFactory}.
+     *
+     * @param generatedAccessorsEnabled true to generate accessors
+     */
+    public void setGeneratedAccessorsEnabled(boolean generatedAccessorsEnabled) {
+        // 只有DefaultReflectorFactory支持生成访问器，自定义的ReflectorFactory保持原样
+        if (reflectorFactory instanceof DefaultReflectorFactory) {
+            ((DefaultReflectorFactory) reflectorFactory).setGeneratedAccessorsEnabled(generatedAccessorsEnabled);
+        }
+    }
+
     public ObjectFactory getObjectFactory() {
         return objectFactory;
     }
@@ -672,7 +1061,12 @@ public class Configuration {
             executor = new SimpleExecutor(this, transaction);
         }
         if (cacheEnabled) {
-            executor = new CachingExecutor(executor);
+            if (cacheSingleFlightEnabled) {
+                executor = new CachingExecutor(executor, inFlightQueries,
+                        cacheSingleFlightTimeout == null ? 0 : cacheSingleFlightTimeout);
+            } else {
+                executor = new CachingExecutor(executor);
+            }
         }
         executor = (Executor) interceptorChain.pluginAll(executor);
         return executor;
@@ -719,6 +1113,21 @@ public class Configuration {
         return caches.containsKey(id);
     }
 
+    /**
+     * Marks a cache as read-only: the cached objects are shared by the sessions instead of being copied for each of
+     * them, so the sessions missing the same key at the same time may share the result of a single query.
+     *
+     * @param id the id of the cache
+     * @since 3.5.6
+     */
+    public void addReadOnlyCache(String id) {
+        readOnlyCaches.add(id);
+    }
+
+    public boolean isReadOnlyCache(String id) {
+        return readOnlyCaches.contains(id);
+    }
+
     public void addResultMap(ResultMap rm) {
         resultMaps.put(rm.getId(), rm);
         checkLocallyForDiscriminatedNestedResultMaps(rm);
@@ -775,36 +1184,86 @@ public class Configuration {
         return mappedStatements.values();
     }
 
+    /**
+     * Returns a snapshot of the statements that could not be resolved yet.
+     *
+     * @return an unmodifiable copy taken while holding the lock of the collection
+     */
     public Collection<XMLStatementBuilder> getIncompleteStatements() {
-        return incompleteStatements;
+        return snapshot(incompleteStatementsLock, incompleteStatements);
     }
 
     public void addIncompleteStatement(XMLStatementBuilder incompleteStatement) {
-        incompleteStatements.add(incompleteStatement);
+        incompleteStatementsLock.lock();
+        try {
+            incompleteStatements.add(incompleteStatement);
+        } finally {
+            incompleteStatementsLock.unlock();
+        }
     }
 
+    /**
+     * Returns a snapshot of the cache references that could not be resolved yet.
+     *
+     * @return an unmodifiable copy taken while holding the lock of the collection
+     */
     public Collection<CacheRefResolver> getIncompleteCacheRefs() {
-        return incompleteCacheRefs;
+        return snapshot(incompleteCacheRefsLock, incompleteCacheRefs);
     }
 
     public void addIncompleteCacheRef(CacheRefResolver incompleteCacheRef) {
-        incompleteCacheRefs.add(incompleteCacheRef);
+        incompleteCacheRefsLock.lock();
+        try {
+            incompleteCacheRefs.add(incompleteCacheRef);
+        } finally {
+            incompleteCacheRefsLock.unlock();
+        }
     }
 
+    /**
+     * Returns a snapshot of the result maps that could not be resolved yet.
+     *
+     * @return an unmodifiable copy taken while holding the lock of the collection
+     */
     public Collection<ResultMapResolver> getIncompleteResultMaps() {
-        return incompleteResultMaps;
+        return snapshot(incompleteResultMapsLock, incompleteResultMaps);
     }
 
     public void addIncompleteResultMap(ResultMapResolver resultMapResolver) {
-        incompleteResultMaps.add(resultMapResolver);
+        incompleteResultMapsLock.lock();
+        try {
+            incompleteResultMaps.add(resultMapResolver);
+        } finally {
+            incompleteResultMapsLock.unlock();
+        }
     }
 
     public void addIncompleteMethod(MethodResolver builder) {
-        incompleteMethods.add(builder);
+        incompleteMethodsLock.lock();
+        try {
+            incompleteMethods.add(builder);
+        } finally {
+            incompleteMethodsLock.unlock();
+        }
     }
 
+    /**
+     * Returns a snapshot of the mapper methods that could not be resolved yet.
+     *
+     * @return an unmodifiable copy taken while holding the lock of the collection
+     */
     public Collection<MethodResolver> getIncompleteMethods() {
-        return incompleteMethods;
+        return snapshot(incompleteMethodsLock, incompleteMethods);
+    }
+
+    private static <T> Collection<T> snapshot(ReentrantLock lock, Collection<T> elements) {
+        // 在锁内复制，避免调用方遍历时与并行解析的线程发生并发修改
+        lock.lock();
+        try {
+            return Collections.unmodifiableList(new ArrayList<>(elements));
+        } finally {
+            lock.unlock();
+        }
     }
 
     public MappedStatement getMappedStatement(String id) {
@@ -867,35 +1326,24 @@ public class Configuration {
      * statement validation.
      */
     protected void buildAllStatements() {
-        parsePendingResultMaps();
-        if (!incompleteCacheRefs.isEmpty()) {
-            synchronized (incompleteCacheRefs) {
-                incompleteCacheRefs.removeIf(x -> x.resolveCacheRef() != null);
-            }
-        }
-        if (!incompleteStatements.isEmpty()) {
-            synchronized (incompleteStatements) {
-                incompleteStatements.removeIf(x -> {
-                    x.parseStatementNode();
-                    return true;
-                });
-            }
-        }
-        if (!incompleteMethods.isEmpty()) {
-            synchronized (incompleteMethods) {
-                incompleteMethods.removeIf(x -> {
-                    x.resolve();
-                    return true;
-                });
-            }
-        }
+        parsePendingResultMaps(true);
+        parsePendingCacheRefs(true);
+        parsePendingStatements(true);
+        parsePendingMethods(true);
     }
 
-    private void parsePendingResultMaps() {
+    /**
+     * Resolves the result maps that could not be built yet, until no more of them can be resolved.
+     *
+     * @param reportUnresolved whether to throw the exception of a result map that cannot be resolved
+     * @since 3.5.6
+     */
+    public void parsePendingResultMaps(boolean reportUnresolved) {
         if (incompleteResultMaps.isEmpty()) {
             return;
         }
-        synchronized (incompleteResultMaps) {
+        incompleteResultMapsLock.lock();
+        try {
             boolean resolved;
             IncompleteElementException ex = null;
             do {
@@ -911,10 +1359,96 @@ public class Configuration {
                     }
                 }
             } while (resolved);
-            if (!incompleteResultMaps.isEmpty() && ex != null) {
+            if (reportUnresolved && !incompleteResultMaps.isEmpty() && ex != null) {
                 // At least one result map is unresolvable.
                 throw ex;
             }
+        } finally {
+            incompleteResultMapsLock.unlock();
+        }
+    }
+
+    /**
+     * Resolves the cache references that could not be resolved yet.
+     *
+     * @param reportUnresolved whether to throw the exception of the first cache reference that cannot be resolved
+     * @since 3.5.6
+     */
+    public void parsePendingCacheRefs(boolean reportUnresolved) {
+        if (incompleteCacheRefs.isEmpty()) {
+            return;
+        }
+        incompleteCacheRefsLock.lock();
+        try {
+            Iterator<CacheRefResolver> iterator = incompleteCacheRefs.iterator();
+            while (iterator.hasNext()) {
+                try {
+                    iterator.next().resolveCacheRef();
+                    iterator.remove();
+                } catch (IncompleteElementException e) {
+                    if (reportUnresolved) {
+                        throw e;
+                    }
+                }
+            }
+        } finally {
+            incompleteCacheRefsLock.unlock();
+        }
+    }
+
+    /**
+     * Parses the statement nodes that could not be parsed yet.
+     *
+     * @param reportUnresolved whether to throw the exception of the first statement that cannot be parsed
+     * @since 3.5.6
+     */
+    public void parsePendingStatements(boolean reportUnresolved) {
+        if (incompleteStatements.isEmpty()) {
+            return;
+        }
+        incompleteStatementsLock.lock();
+        try {
+            Iterator<XMLStatementBuilder> iterator = incompleteStatements.iterator();
+            while (iterator.hasNext()) {
+                try {
+                    iterator.next().parseStatementNode();
+                    iterator.remove();
+                } catch (IncompleteElementException e) {
+                    if (reportUnresolved) {
+                        throw e;
+                    }
+                }
+            }
+        } finally {
+            incompleteStatementsLock.unlock();
+        }
+    }
+
+    /**
+     * Parses the annotated mapper methods that could not be parsed yet.
+     *
+     * @param reportUnresolved whether to throw the exception of the first method that cannot be parsed
+     * @since 3.5.6
+     */
+    public void parsePendingMethods(boolean reportUnresolved) {
+        if (incompleteMethods.isEmpty()) {
+            return;
+        }
+        incompleteMethodsLock.lock();
+        try {
+            Iterator<MethodResolver> iterator = incompleteMethods.iterator();
+            while (iterator.hasNext()) {
+                try {
+                    iterator.next().resolve();
+                    iterator.remove();
+                } catch (IncompleteElementException e) {
+                    if (reportUnresolved) {
+                        throw e;
+                    }
+                }
+            }
+        } finally {
+            incompleteMethodsLock.unlock();
         }
     }
 
@@ -21,6 +21,8 @@ import java.util.List;
 import java.util.Map;
 
 import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.cursor.CursorPublisher;
+import org.apache.ibatis.cursor.defaults.DefaultCursorPublisher;
 import org.apache.ibatis.executor.BatchResult;
 
 /**
@@ -144,6 +146,46 @@ public interface SqlSession extends Closeable {
    */
   <T> Cursor<T> selectCursor(String statement, Object parameter, RowBounds rowBounds);
 
+  /**
+   * A CursorPublisher offers the same results as a Cursor, except they are pushed to subscribers as they request them.
+   * The statement is executed once per subscriber, on the executor returned by
+   * {@link Configuration#getPublisherExecutor()}, and this session must not be used by other threads until the
+   * subscription has terminated.
+   * @param <T> the returned element type.
+   * @param statement Unique identifier matching the statement to use.
+   * @return CursorPublisher of mapped objects
+   * @since 3.5.6
+   */
+  default <T> CursorPublisher<T> selectPublisher(String statement) {
+    return selectPublisher(statement, null);
+  }
+
+  /**
+   * A CursorPublisher offers the same results as a Cursor, except they are pushed to subscribers as they request them.
+   * @param <T> the returned element type.
+   * @param statement Unique identifier matching the statement to use.
+   * @param parameter A parameter object to pass to the statement.
+   * @return CursorPublisher of mapped objects
+   * @since 3.5.6
+   */
+  default <T> CursorPublisher<T> selectPublisher(String statement, Object parameter) {
+    return selectPublisher(statement, parameter, RowBounds.DEFAULT);
+  }
+
+  /**
+   * A CursorPublisher offers the same results as a Cursor, except they are pushed to subscribers as they request them.
+   * @param <T> the returned element type.
+   * @param statement Unique identifier matching the statement to use.
+   * @param parameter A parameter object to pass to the statement.
+   * @param rowBounds  Bounds to limit object retrieval
+   * @return CursorPublisher of mapped objects
+   * @since 3.5.6
+   */
+  default <T> CursorPublisher<T> selectPublisher(String statement, Object parameter, RowBounds rowBounds) {
+    return new DefaultCursorPublisher<>(() -> selectCursor(statement, parameter, rowBounds), null,
+        getConfiguration().getPublisherExecutor());
+  }
+
   /**
    * Retrieve a single row mapped from the statement key and parameter
    * using a {@code ResultHandler}.
@@ -40,6 +40,17 @@ public interface SqlSessionFactory {
 
   SqlSession openSession(ExecutorType execType, Connection connection);
 
+  /**
+   * Opens an {@link AsyncSqlSession} that runs statements on a thread pool, each in a new session from this factory.
+   *
+   * @return the async session
+   * @throws UnsupportedOperationException if this factory does not support async sessions
+   * @since 3.5.6
+   */
+  default AsyncSqlSession openAsyncSession() {
+    throw new UnsupportedOperationException(getClass().getName() + " does not support async sessions.");
+  }
+
   Configuration getConfiguration();
 
 }
@@ -26,6 +26,8 @@ import java.util.Map;
 import java.util.Properties;
 
 import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.cursor.CursorPublisher;
+import org.apache.ibatis.cursor.defaults.DefaultCursorPublisher;
 import org.apache.ibatis.executor.BatchResult;
 import org.apache.ibatis.reflection.ExceptionUtil;
 
@@ -117,6 +119,11 @@ public class SqlSessionManager implements SqlSessionFactory, SqlSession {
         return sqlSessionFactory.openSession();
     }
 
+    @Override
+    public AsyncSqlSession openAsyncSession() {
+        return sqlSessionFactory.openAsyncSession();
+    }
+
     @Override
     public SqlSession openSession(boolean autoCommit) {
         return sqlSessionFactory.openSession(autoCommit);
@@ -197,6 +204,30 @@ public class SqlSessionManager implements SqlSessionFactory, SqlSession {
         return sqlSessionProxy.selectCursor(statement, parameter, rowBounds);
     }
 
+    @Override
+    public <T> CursorPublisher<T> selectPublisher(String statement) {
+        return selectPublisher(statement, null);
+    }
+
+    @Override
+    public <T> CursorPublisher<T> selectPublisher(String statement, Object parameter) {
+        return selectPublisher(statement, parameter, RowBounds.DEFAULT);
+    }
+
+    @Override
+    public <T> CursorPublisher<T> selectPublisher(String statement, Object parameter, RowBounds rowBounds) {
+        final SqlSession sqlSession = localSqlSession.get();
+        if (sqlSession != null) {
+            return sqlSession.selectPublisher(statement, parameter, rowBounds);
+        }
+        // without a managed session, each subscription uses its own session and closes it when it terminates
+        return subscriber -> {
+            SqlSession subscriptionSession = openSession();
+            new DefaultCursorPublisher<T>(() -> subscriptionSession.selectCursor(statement, parameter, rowBounds),
+                    subscriptionSession::close, getConfiguration().getPublisherExecutor()).subscribe(subscriber);
+        };
+    }
+
     @Override
     public <E> List<E> selectList(String statement) {
         return sqlSessionProxy.selectList(statement);
@@ -0,0 +1,158 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.session.defaults;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+
+import org.apache.ibatis.binding.BindingException;
+import org.apache.ibatis.executor.ErrorContext;
+import org.apache.ibatis.reflection.ExceptionUtil;
+import org.apache.ibatis.session.AsyncSqlSession;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.RowBounds;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+
+/**
+ * The default implementation for {@link AsyncSqlSession}.
+ *
+ * @since 3.5.6
+ */
+public class DefaultAsyncSqlSession implements AsyncSqlSession {
+
+  private final SqlSessionFactory sqlSessionFactory;
+  private final Executor executor;
+
+  public DefaultAsyncSqlSession(SqlSessionFactory sqlSessionFactory, Executor executor) {
+    this.sqlSessionFactory = sqlSessionFactory;
+    this.executor = executor;
+  }
+
+  @Override
+  public <T> CompletableFuture<T> selectOne(String statement) {
+    return execute(sqlSession -> sqlSession.selectOne(statement));
+  }
+
+  @Override
+  public <T> CompletableFuture<T> selectOne(String statement, Object parameter) {
+    return execute(sqlSession -> sqlSession.selectOne(statement, parameter));
+  }
+
+  @Override
+  public <E> CompletableFuture<List<E>> selectList(String statement) {
+    return execute(sqlSession -> sqlSession.selectList(statement));
+  }
+
+  @Override
+  public <E> CompletableFuture<List<E>> selectList(String statement, Object parameter) {
+    return execute(sqlSession -> sqlSession.selectList(statement, parameter));
+  }
+
+  @Override
+  public <E> CompletableFuture<List<E>> selectList(String statement, Object parameter, RowBounds rowBounds) {
+    return execute(sqlSession -> sqlSession.selectList(statement, parameter, rowBounds));
+  }
+
+  @Override
+  public <K, V> CompletableFuture<Map<K, V>> selectMap(String statement, Object parameter, String mapKey) {
+    return execute(sqlSession -> sqlSession.selectMap(statement, parameter, mapKey));
+  }
+
+  @Override
+  public CompletableFuture<Integer> insert(String statement, Object parameter) {
+    return execute(sqlSession -> sqlSession.insert(statement, parameter));
+  }
+
+  @Override
+  public CompletableFuture<Integer> update(String statement, Object parameter) {
+    return execute(sqlSession -> sqlSession.update(statement, parameter));
+  }
+
+  @Override
+  public CompletableFuture<Integer> delete(String statement, Object parameter) {
+    return execute(sqlSession -> sqlSession.delete(statement, parameter));
+  }
+
+  @Override
+  public <T> CompletableFuture<T> execute(Function<SqlSession, T> work) {
+    ErrorContext errorContext = ErrorContext.instance().copy();
+    return CompletableFuture.supplyAsync(() -> {
+      try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+        // restored once the session is open, because opening a session resets the context of the thread
+        ErrorContext.restore(errorContext);
+        T result = work.apply(sqlSession);
+        sqlSession.commit();
+        return result;
+      } finally {
+        ErrorContext.instance().reset();
+      }
+    }, executor);
+  }
+
+  @SuppressWarnings("unchecked")
+  @Override
+  public <T> T getMapper(Class<T> type) {
+    if (!getConfiguration().hasMapper(type)) {
+      throw new BindingException("Type " + type + " is not known to the MapperRegistry.");
+    }
+    return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] { type },
+        (proxy, method, args) -> invokeMapperMethod(type, proxy, method, args));
+  }
+
+  private Object invokeMapperMethod(Class<?> type, Object proxy, Method method, Object[] args) {
+    if (Object.class.equals(method.getDeclaringClass())) {
+      switch (method.getName()) {
+        case "equals":
+          return proxy == args[0];
+        case "hashCode":
+          return System.identityHashCode(proxy);
+        default:
+          return "Async proxy of " + type.getName();
+      }
+    }
+    if (!CompletableFuture.class.equals(method.getReturnType())) {
+      throw new BindingException("Mapper method '" + type.getName() + "." + method.getName()
+          + "' must return CompletableFuture to be called through an AsyncSqlSession.");
+    }
+    // the method returns an already completed future when it is called on a mapper of a regular session
+    return execute(sqlSession -> {
+      try {
+        return ((CompletableFuture<?>) method.invoke(sqlSession.getMapper(type), args)).join();
+      } catch (IllegalAccessException e) {
+        throw new BindingException("Could not call mapper method '" + method.getName() + "'. Cause: " + e, e);
+      } catch (InvocationTargetException e) {
+        Throwable cause = ExceptionUtil.unwrapThrowable(e);
+        if (cause instanceof RuntimeException) {
+          throw (RuntimeException) cause;
+        }
+        throw new BindingException("Mapper method '" + method.getName() + "' failed. Cause: " + cause, cause);
+      }
+    });
+  }
+
+  @Override
+  public Configuration getConfiguration() {
+    return sqlSessionFactory.getConfiguration();
+  }
+
+}
@@ -25,6 +25,8 @@ import java.util.Map;
 
 import org.apache.ibatis.binding.BindingException;
 import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.cursor.CursorPublisher;
+import org.apache.ibatis.cursor.defaults.DefaultCursorPublisher;
 import org.apache.ibatis.exceptions.ExceptionFactory;
 import org.apache.ibatis.exceptions.TooManyResultsException;
 import org.apache.ibatis.executor.BatchResult;
@@ -130,6 +132,23 @@ public class DefaultSqlSession implements SqlSession {
         }
     }
 
+    @Override
+    public <T> CursorPublisher<T> selectPublisher(String statement) {
+        return selectPublisher(statement, null);
+    }
+
+    @Override
+    public <T> CursorPublisher<T> selectPublisher(String statement, Object parameter) {
+        return selectPublisher(statement, parameter, RowBounds.DEFAULT);
+    }
+
+    @Override
+    public <T> CursorPublisher<T> selectPublisher(String statement, Object parameter, RowBounds rowBounds) {
+        // 每个订阅者在请求数据时才执行查询，得到的Cursor由订阅者的请求驱动读取，并在结束或取消订阅时关闭
+        return new DefaultCursorPublisher<>(() -> selectCursor(statement, parameter, rowBounds), null,
+                configuration.getPublisherExecutor());
+    }
+
     @Override
     public <E> List<E> selectList(String statement) {
         return this.selectList(statement, null);
@@ -17,11 +17,20 @@ package org.apache.ibatis.session.defaults;
 
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
 
+import javax.sql.DataSource;
+
+import org.apache.ibatis.datasource.pooled.PooledDataSource;
 import org.apache.ibatis.exceptions.ExceptionFactory;
 import org.apache.ibatis.executor.ErrorContext;
 import org.apache.ibatis.executor.Executor;
 import org.apache.ibatis.mapping.Environment;
+import org.apache.ibatis.session.AsyncSqlSession;
 import org.apache.ibatis.session.Configuration;
 import org.apache.ibatis.session.ExecutorType;
 import org.apache.ibatis.session.SqlSession;
@@ -36,7 +45,12 @@ import org.apache.ibatis.transaction.managed.ManagedTransactionFactory;
  */
 public class DefaultSqlSessionFactory implements SqlSessionFactory {
 
+    private static final int DEFAULT_ASYNC_POOL_SIZE = 10;
+
     private final Configuration configuration;
+    // openAsyncSession()使用的线程池，第一次使用时创建
+    private final ReentrantLock asyncExecutorLock = new ReentrantLock();
+    private volatile java.util.concurrent.Executor asyncExecutor;
 
     public DefaultSqlSessionFactory(Configuration configuration) {
         this.configuration = configuration;
@@ -82,11 +96,51 @@ public class DefaultSqlSessionFactory implements SqlSessionFactory {
         return openSessionFromConnection(execType, connection);
     }
 
+    @Override
+    public AsyncSqlSession openAsyncSession() {
+        java.util.concurrent.Executor executor = configuration.getAsyncExecutor();
+        return new DefaultAsyncSqlSession(this, executor != null ? executor : getDefaultAsyncExecutor());
+    }
+
     @Override
     public Configuration getConfiguration() {
         return configuration;
     }
 
+    private java.util.concurrent.Executor getDefaultAsyncExecutor() {
+        java.util.concurrent.Executor executor = asyncExecutor;
+        if (executor == null) {
+            asyncExecutorLock.lock();
+            try {
+                executor = asyncExecutor;
+                if (executor == null) {
+                    executor = newAsyncExecutor();
+                    asyncExecutor = executor;
+                }
+            } finally {
+                asyncExecutorLock.unlock();
+            }
+        }
+        return executor;
+    }
+
+    private java.util.concurrent.Executor newAsyncExecutor() {
+        // 线程数与连接池的最大活跃连接数一致，多出的任务排队等待，而不是阻塞在获取连接上
+        Environment environment = configuration.getEnvironment();
+        DataSource dataSource = environment == null ? null : environment.getDataSource();
+        int poolSize = dataSource instanceof PooledDataSource
+            ? ((PooledDataSource) dataSource).getPoolMaximumActiveConnections() : DEFAULT_ASYNC_POOL_SIZE;
+        AtomicInteger threadNumber = new AtomicInteger();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(poolSize, poolSize, 60L, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>(), runnable -> {
+                Thread thread = new Thread(runnable, "mybatis-async-" + threadNumber.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
     private SqlSession openSessionFromDataSource(ExecutorType execType, TransactionIsolationLevel level, boolean autoCommit) {
         Transaction tx = null;
         try {
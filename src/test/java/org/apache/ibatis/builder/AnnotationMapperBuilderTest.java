@@ -44,6 +44,7 @@ class AnnotationMapperBuilderTest {
     assertThat(mappedStatement.isFlushCacheRequired()).isTrue();
     assertThat(mappedStatement.isUseCache()).isFalse();
     assertThat(mappedStatement.getResultSets()).containsExactly("resultSets");
+    assertThat(mappedStatement.getSlowThreshold()).isEqualTo(500);
 
     mappedStatement = configuration.getMappedStatement("insertWithOptions");
     assertThat(mappedStatement.getKeyGenerator()).isInstanceOf(Jdbc3KeyGenerator.class);
@@ -71,6 +72,7 @@ class AnnotationMapperBuilderTest {
 
     MappedStatement mappedStatement = configuration.getMappedStatement("selectWithOptionsAndWithoutOptionsAttributes");
     assertThat(mappedStatement.getResultSetType()).isEqualTo(ResultSetType.DEFAULT);
+    assertThat(mappedStatement.getSlowThreshold()).isNull();
   }
 
   @Test
@@ -101,7 +103,7 @@ class AnnotationMapperBuilderTest {
     void insertWithOptions(String name);
 
     @Select("select * from test")
-    @Options(fetchSize = 200, timeout = 10, statementType = StatementType.STATEMENT, resultSetType = ResultSetType.SCROLL_INSENSITIVE, flushCache = Options.FlushCachePolicy.TRUE, useCache = false, resultSets = "resultSets")
+    @Options(fetchSize = 200, timeout = 10, statementType = StatementType.STATEMENT, resultSetType = ResultSetType.SCROLL_INSENSITIVE, flushCache = Options.FlushCachePolicy.TRUE, useCache = false, resultSets = "resultSets", slowThreshold = 500)
     String selectWithOptions(Integer id);
 
     @Select("select * from test")
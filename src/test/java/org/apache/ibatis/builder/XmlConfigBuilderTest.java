@@ -313,6 +313,53 @@ class XmlConfigBuilderTest {
       .hasMessageContaining("The properties element cannot specify both a URL and a resource based property file reference.  Please specify one or the other.");
   }
 
+  @Test
+  void shouldRegisterTheSameElementsWhenParsingMappersInParallel() throws Exception {
+    String resource = "org/apache/ibatis/builder/MapperConfig.xml";
+    Configuration sequential;
+    try (InputStream inputStream = Resources.getResourceAsStream(resource)) {
+      sequential = new XMLConfigBuilder(inputStream).parse();
+    }
+    String config;
+    try (Reader reader = Resources.getResourceAsReader(resource)) {
+      StringBuilder sb = new StringBuilder();
+      char[] buffer = new char[1024];
+      for (int n = reader.read(buffer); n != -1; n = reader.read(buffer)) {
+        sb.append(buffer, 0, n);
+      }
+      config = sb.toString().replace("<settings>", "<settings>\n    <setting name=\"parallelMapperParsing\" value=\"true\"/>");
+    }
+    Configuration parallel = new XMLConfigBuilder(new StringReader(config)).parse();
+
+    assertTrue(parallel.isParallelMapperParsing());
+    assertThat(parallel.getMappedStatementNames()).containsExactlyInAnyOrderElementsOf(sequential.getMappedStatementNames());
+    assertThat(parallel.getResultMapNames()).containsExactlyInAnyOrderElementsOf(sequential.getResultMapNames());
+    assertThat(parallel.getCacheNames()).containsExactlyInAnyOrderElementsOf(sequential.getCacheNames());
+    assertThat(parallel.getIncompleteStatements()).isEmpty();
+    assertThat(parallel.getIncompleteResultMaps()).isEmpty();
+    assertThat(parallel.getIncompleteCacheRefs()).isEmpty();
+  }
+
+  @Test
+  void shouldFailWhenAMapperCannotBeParsedInParallel() {
+    final String MAPPER_CONFIG = "<?xml version=\"1.0\" encoding=\"UTF-8\" ?>\n"
+            + "<!DOCTYPE configuration PUBLIC \"-//mybatis.org//DTD Config 3.0//EN\" \"http://mybatis.org/dtd/mybatis-3-config.dtd\">\n"
+            + "<configuration>\n"
+            + "  <settings>\n"
+            + "    <setting name=\"parallelMapperParsing\" value=\"true\"/>\n"
+            + "  </settings>\n"
+            + "  <mappers>\n"
+            + "    <mapper resource=\"org/apache/ibatis/builder/AuthorMapper.xml\"/>\n"
+            + "    <mapper resource=\"org/apache/ibatis/databases/blog/blog-derby.properties\"/>\n"
+            + "  </mappers>\n"
+            + "</configuration>\n";
+
+    XMLConfigBuilder builder = new XMLConfigBuilder(new StringReader(MAPPER_CONFIG));
+    when(builder::parse);
+    then(caughtException()).isInstanceOf(BuilderException.class)
+      .hasMessageContaining("Error creating document instance.");
+  }
+
   static class MySqlProvider {
     @SuppressWarnings("unused")
     public static String provideSql() {
@@ -44,6 +44,24 @@ class XmlMapperBuilderTest {
     }
   }
 
+  @Test
+  void shouldRegisterReadOnlyCaches() throws Exception {
+    Configuration configuration = new Configuration();
+    String resource = "org/apache/ibatis/builder/CachedAuthorMapper.xml";
+    try (InputStream inputStream = Resources.getResourceAsStream(resource)) {
+      XMLMapperBuilder builder = new XMLMapperBuilder(inputStream, configuration, resource, configuration.getSqlFragments());
+      builder.parse();
+    }
+    resource = "org/apache/ibatis/submitted/cacheorder/Mapper2.xml";
+    try (InputStream inputStream = Resources.getResourceAsStream(resource)) {
+      XMLMapperBuilder builder = new XMLMapperBuilder(inputStream, configuration, resource, configuration.getSqlFragments());
+      builder.parse();
+    }
+    assertThat(configuration.isReadOnlyCache("org.apache.ibatis.builder.CachedAuthorMapper")).isTrue();
+    assertThat(configuration.hasCache("org.apache.ibatis.submitted.cacheorder.Mapper2")).isTrue();
+    assertThat(configuration.isReadOnlyCache("org.apache.ibatis.submitted.cacheorder.Mapper2")).isFalse();
+  }
+
   @Test
   void mappedStatementWithOptions() throws Exception {
     Configuration configuration = new Configuration();
@@ -55,6 +73,7 @@ class XmlMapperBuilderTest {
       MappedStatement mappedStatement = configuration.getMappedStatement("selectWithOptions");
       assertThat(mappedStatement.getFetchSize()).isEqualTo(200);
       assertThat(mappedStatement.getTimeout()).isEqualTo(10);
+      assertThat(mappedStatement.getSlowThreshold()).isEqualTo(500);
       assertThat(mappedStatement.getStatementType()).isEqualTo(StatementType.PREPARED);
       assertThat(mappedStatement.getResultSetType()).isEqualTo(ResultSetType.SCROLL_SENSITIVE);
       assertThat(mappedStatement.isFlushCacheRequired()).isFalse();
@@ -16,6 +16,8 @@
 package org.apache.ibatis.builder.xml.dynamic;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
 
 import java.io.IOException;
 import java.io.Reader;
@@ -29,6 +31,7 @@ import java.util.Map;
 import org.apache.ibatis.BaseDataTest;
 import org.apache.ibatis.io.Resources;
 import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.ParameterMapping;
 import org.apache.ibatis.scripting.xmltags.ChooseSqlNode;
 import org.apache.ibatis.scripting.xmltags.DynamicSqlSource;
 import org.apache.ibatis.scripting.xmltags.ForEachSqlNode;
@@ -36,6 +39,7 @@ import org.apache.ibatis.scripting.xmltags.IfSqlNode;
 import org.apache.ibatis.scripting.xmltags.MixedSqlNode;
 import org.apache.ibatis.scripting.xmltags.SetSqlNode;
 import org.apache.ibatis.scripting.xmltags.SqlNode;
+import org.apache.ibatis.scripting.xmltags.StaticTextSqlNode;
 import org.apache.ibatis.scripting.xmltags.TextSqlNode;
 import org.apache.ibatis.scripting.xmltags.WhereSqlNode;
 import org.apache.ibatis.session.Configuration;
@@ -399,6 +403,67 @@ class DynamicSqlSourceTest extends BaseDataTest {
     Assertions.assertEquals("id=", sql);
   }
 
+  @Test
+  void shouldReuseParameterMappingsForRepeatedSql() {
+    final DynamicSqlSource source = new DynamicSqlSource(new Configuration(), mixedContents(
+        new StaticTextSqlNode("SELECT * FROM BLOG WHERE ID = #{id}"),
+        new IfSqlNode(mixedContents(new TextSqlNode("AND TITLE = #{id,jdbcType=VARCHAR}")), "id == 'xx'")));
+    BoundSql first = source.getBoundSql(new Bean("aa"));
+    BoundSql second = source.getBoundSql(new Bean("bb"));
+    assertEquals("SELECT * FROM BLOG WHERE ID = ?", second.getSql());
+    assertSame(first.getParameterMappings().get(0), second.getParameterMappings().get(0));
+
+    BoundSql third = source.getBoundSql(new Bean("xx"));
+    assertEquals("SELECT * FROM BLOG WHERE ID = ? AND TITLE = ?", third.getSql());
+    assertEquals(2, third.getParameterMappings().size());
+    assertEquals("VARCHAR", third.getParameterMappings().get(1).getJdbcType().name());
+  }
+
+  @Test
+  void shouldRebuildParameterMappingsOfAdditionalParameters() {
+    Map<String, Object> parameter = new HashMap<>();
+    parameter.put("list", Arrays.asList(1, "two"));
+    final DynamicSqlSource source = new DynamicSqlSource(new Configuration(), mixedContents(
+        new StaticTextSqlNode("SELECT * FROM BLOG WHERE ID IN "),
+        new ForEachSqlNode(new Configuration(), mixedContents(new TextSqlNode("#{item}")), "list", null, "item", "(", ")", ",")));
+    BoundSql first = source.getBoundSql(parameter);
+    BoundSql second = source.getBoundSql(parameter);
+    assertEquals(first.getSql(), second.getSql());
+    List<ParameterMapping> mappings = second.getParameterMappings();
+    assertEquals("__frch_item_0", mappings.get(0).getProperty());
+    assertEquals("__frch_item_1", mappings.get(1).getProperty());
+    assertEquals(Integer.class, mappings.get(0).getJavaType());
+    assertEquals(String.class, mappings.get(1).getJavaType());
+    assertNotSame(first.getParameterMappings().get(0), mappings.get(0));
+    assertEquals(1, second.getAdditionalParameter("__frch_item_0"));
+  }
+
+  @Test
+  void shouldEvictParsedSqlWhenCacheIsFull() {
+    Configuration configuration = new Configuration();
+    configuration.setDynamicSqlCacheSize(1);
+    final DynamicSqlSource source = new DynamicSqlSource(configuration, mixedContents(
+        new StaticTextSqlNode("SELECT * FROM BLOG WHERE ID = #{id}"),
+        new IfSqlNode(mixedContents(new TextSqlNode("AND TITLE = #{id}")), "id == 'xx'")));
+    source.getBoundSql(new Bean("aa"));
+    BoundSql first = source.getBoundSql(new Bean("xx"));
+    BoundSql second = source.getBoundSql(new Bean("xx"));
+    assertEquals("SELECT * FROM BLOG WHERE ID = ? AND TITLE = ?", second.getSql());
+    assertSame(first.getParameterMappings().get(0), second.getParameterMappings().get(0));
+  }
+
+  @Test
+  void shouldParseEveryCallWhenCacheIsDisabled() {
+    Configuration configuration = new Configuration();
+    configuration.setDynamicSqlCacheSize(0);
+    final DynamicSqlSource source = new DynamicSqlSource(configuration,
+        mixedContents(new StaticTextSqlNode("SELECT * FROM BLOG WHERE ID = #{id}")));
+    BoundSql first = source.getBoundSql(new Bean("a"));
+    BoundSql second = source.getBoundSql(new Bean("b"));
+    assertEquals(first.getSql(), second.getSql());
+    assertNotSame(first.getParameterMappings().get(0), second.getParameterMappings().get(0));
+  }
+
   public static class Bean {
     public String id;
     Bean(String property) {
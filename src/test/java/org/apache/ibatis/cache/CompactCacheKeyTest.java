@@ -0,0 +1,111 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.util.Date;
+
+import org.junit.jupiter.api.Test;
+
+class CompactCacheKeyTest {
+
+  @Test
+  void shouldTestCacheKeysEqual() {
+    Date date = new Date();
+    CacheKey key1 = new CompactCacheKey(new Object[] { "ns.select", 1, "hello", null, new Date(date.getTime()) });
+    CacheKey key2 = new CompactCacheKey(new Object[] { "ns.select", 1, "hello", null, new Date(date.getTime()) });
+    assertEquals(key1, key2);
+    assertEquals(key2, key1);
+    assertEquals(key1.hashCode(), key2.hashCode());
+    assertEquals(key1.toString(), key2.toString());
+    assertEquals(5, key1.getUpdateCount());
+  }
+
+  @Test
+  void shouldTestCacheKeysNotEqualDueToOrder() {
+    CacheKey key1 = new CompactCacheKey(new Object[] { 1, "hello", null });
+    CacheKey key2 = new CompactCacheKey(new Object[] { 1, null, "hello" });
+    assertNotEquals(key1, key2);
+    assertNotEquals(key1.hashCode(), key2.hashCode());
+  }
+
+  @Test
+  void shouldTestCacheKeysNotEqualDueToType() {
+    assertNotEquals(new CompactCacheKey(new Object[] { 1 }), new CompactCacheKey(new Object[] { 1L }));
+    assertNotEquals(new CompactCacheKey(new Object[] { "1" }), new CompactCacheKey(new Object[] { 1 }));
+    assertNotEquals(new CompactCacheKey(new Object[] { new BigDecimal("1.0") }),
+        new CompactCacheKey(new Object[] { new BigDecimal("1.00") }));
+    long now = System.currentTimeMillis();
+    assertNotEquals(new CompactCacheKey(new Object[] { new Date(now) }),
+        new CompactCacheKey(new Object[] { new Timestamp(now) }));
+  }
+
+  @Test
+  void shouldTestCacheKeysNotEqualDueToStringsWithSameHashCode() {
+    assertEquals("Aa".hashCode(), "BB".hashCode());
+    assertNotEquals(new CompactCacheKey(new Object[] { "Aa" }), new CompactCacheKey(new Object[] { "BB" }));
+  }
+
+  @Test
+  void shouldTestCacheKeysWithBinaryArrays() {
+    CacheKey key1 = new CompactCacheKey(new Object[] { new byte[] { 1 } });
+    CacheKey key2 = new CompactCacheKey(new Object[] { new byte[] { 1 } });
+    assertEquals(key1, key2);
+  }
+
+  @Test
+  void shouldCompareObjectsWithoutHashableContent() {
+    Object other = new Object();
+    CacheKey key1 = new CompactCacheKey(new Object[] { "ns.select", other });
+    CacheKey key2 = new CompactCacheKey(new Object[] { "ns.select", other });
+    assertEquals(key1, key2);
+    assertNotEquals(key1, new CompactCacheKey(new Object[] { "ns.select", new Object() }));
+  }
+
+  @Test
+  void shouldNotEqualFullCacheKey() {
+    CacheKey compact = new CompactCacheKey(new Object[] { 1, "hello" });
+    CacheKey full = new CacheKey(new Object[] { 1, "hello" });
+    assertNotEquals(compact, full);
+    assertNotEquals(full, compact);
+  }
+
+  @Test
+  void shouldDemonstrateClonedCacheKeysAreEqual() throws Exception {
+    CacheKey cacheKey = new CompactCacheKey(new Object[] { 1, "hello", new Object() });
+    CacheKey clonedCacheKey = cacheKey.clone();
+    assertEquals(cacheKey, clonedCacheKey);
+    clonedCacheKey.update("more");
+    assertNotEquals(cacheKey, clonedCacheKey);
+  }
+
+  @Test
+  void serializationTest() throws Exception {
+    CacheKey cacheKey = new CompactCacheKey(new Object[] { "serializable", 1 });
+    ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    new ObjectOutputStream(baos).writeObject(cacheKey);
+    ByteArrayInputStream bais = new ByteArrayInputStream(baos.toByteArray());
+    assertEquals(cacheKey, new ObjectInputStream(bais).readObject());
+  }
+
+}
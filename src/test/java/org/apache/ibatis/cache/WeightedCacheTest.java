@@ -0,0 +1,87 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Collections;
+
+import org.apache.ibatis.cache.decorators.WeightedCache;
+import org.apache.ibatis.cache.impl.PerpetualCache;
+import org.junit.jupiter.api.Test;
+
+class WeightedCacheTest {
+
+  @Test
+  void shouldEvictLeastRecentlyUsedItemsBeyondMaxWeight() {
+    WeightedCache cache = new WeightedCache(new PerpetualCache("default"));
+    cache.setRowWeight(100);
+    cache.setMaxWeight(1000);
+    cache.putObject(0, Collections.nCopies(5, "row"));
+    cache.putObject(1, Collections.nCopies(3, "row"));
+    assertNotNull(cache.getObject(0));
+    cache.putObject(2, Collections.nCopies(4, "row"));
+    assertNotNull(cache.getObject(0));
+    assertNull(cache.getObject(1));
+    assertNotNull(cache.getObject(2));
+    assertEquals(900, cache.getWeight());
+    assertEquals(1, cache.getEvictionCount());
+    assertEquals(3, cache.getHitCount());
+    assertEquals(1, cache.getMissCount());
+  }
+
+  @Test
+  void shouldNotCacheItemHeavierThanMaxWeight() {
+    WeightedCache cache = new WeightedCache(new PerpetualCache("default"));
+    cache.setRowWeight(100);
+    cache.setMaxWeight(1000);
+    cache.putObject(0, "small");
+    cache.putObject(1, Collections.nCopies(50, "row"));
+    assertNotNull(cache.getObject(0));
+    assertNull(cache.getObject(1));
+    assertEquals(100, cache.getWeight());
+    assertEquals(1, cache.getEvictionCount());
+  }
+
+  @Test
+  void shouldUsePluggableWeigher() {
+    WeightedCache cache = new WeightedCache(new PerpetualCache("default"));
+    cache.setCacheWeigher((key, value) -> ((String) value).length());
+    cache.setMaxWeight(10);
+    cache.putObject(0, "12345");
+    cache.putObject(1, "1234");
+    cache.putObject(2, "12");
+    assertNull(cache.getObject(0));
+    assertEquals(6, cache.getWeight());
+  }
+
+  @Test
+  void shouldTrackWeightOnRemoveAndClear() {
+    WeightedCache cache = new WeightedCache(new PerpetualCache("default"));
+    cache.setRowWeight(10);
+    cache.putObject(0, "a");
+    cache.putObject(1, "b");
+    cache.putObject(1, Collections.nCopies(3, "row"));
+    assertEquals(40, cache.getWeight());
+    cache.removeObject(0);
+    assertNull(cache.getObject(0));
+    assertEquals(30, cache.getWeight());
+    cache.clear();
+    assertNull(cache.getObject(1));
+    assertEquals(0, cache.getWeight());
+  }
+
+}
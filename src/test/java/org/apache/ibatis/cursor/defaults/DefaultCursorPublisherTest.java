@@ -0,0 +1,191 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cursor.defaults;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.cursor.CursorPublisher;
+import org.junit.jupiter.api.Test;
+
+class DefaultCursorPublisherTest {
+
+  @Test
+  void shouldPublishItemsOnDemand() {
+    ListCursor cursor = new ListCursor("a", "b", "c");
+    AtomicInteger released = new AtomicInteger();
+    RecordingSubscriber subscriber = new RecordingSubscriber();
+    new DefaultCursorPublisher<>(() -> cursor, released::incrementAndGet, null).subscribe(subscriber);
+
+    assertEquals(0, cursor.fetched);
+    subscriber.subscription.request(2);
+    assertEquals(Arrays.asList("a", "b"), subscriber.items);
+    assertEquals(2, cursor.fetched);
+    assertFalse(subscriber.completed);
+
+    subscriber.subscription.request(5);
+    assertEquals(Arrays.asList("a", "b", "c"), subscriber.items);
+    assertTrue(subscriber.completed);
+    assertTrue(cursor.closed);
+    assertEquals(1, released.get());
+  }
+
+  @Test
+  void shouldRequestFromOnNext() {
+    ListCursor cursor = new ListCursor("a", "b", "c");
+    RecordingSubscriber subscriber = new RecordingSubscriber() {
+      @Override
+      public void onNext(String item) {
+        super.onNext(item);
+        subscription.request(1);
+      }
+    };
+    new DefaultCursorPublisher<>(() -> cursor, null, null).subscribe(subscriber);
+    subscriber.subscription.request(1);
+    assertEquals(Arrays.asList("a", "b", "c"), subscriber.items);
+    assertTrue(subscriber.completed);
+  }
+
+  @Test
+  void shouldCloseCursorOnCancel() {
+    ListCursor cursor = new ListCursor("a", "b", "c");
+    AtomicInteger released = new AtomicInteger();
+    RecordingSubscriber subscriber = new RecordingSubscriber();
+    new DefaultCursorPublisher<>(() -> cursor, released::incrementAndGet, null).subscribe(subscriber);
+    subscriber.subscription.request(1);
+    subscriber.subscription.cancel();
+    subscriber.subscription.request(1);
+    assertEquals(Arrays.asList("a"), subscriber.items);
+    assertTrue(cursor.closed);
+    assertFalse(subscriber.completed);
+    assertEquals(1, released.get());
+  }
+
+  @Test
+  void shouldSignalErrors() {
+    RuntimeException failure = new RuntimeException("query failed");
+    AtomicInteger released = new AtomicInteger();
+    RecordingSubscriber subscriber = new RecordingSubscriber();
+    new DefaultCursorPublisher<String>(() -> {
+      throw failure;
+    }, released::incrementAndGet, null).subscribe(subscriber);
+    subscriber.subscription.request(1);
+    assertSame(failure, subscriber.error);
+    assertEquals(1, released.get());
+
+    subscriber = new RecordingSubscriber();
+    new DefaultCursorPublisher<>(() -> new ListCursor("a"), null, null).subscribe(subscriber);
+    subscriber.subscription.request(0);
+    assertTrue(subscriber.error instanceof IllegalArgumentException);
+  }
+
+  @Test
+  void shouldReadOnExecutor() {
+    List<Runnable> tasks = new ArrayList<>();
+    RecordingSubscriber subscriber = new RecordingSubscriber();
+    new DefaultCursorPublisher<>(() -> new ListCursor("a", "b"), null, tasks::add).subscribe(subscriber);
+    subscriber.subscription.request(1);
+    subscriber.subscription.request(1);
+    assertEquals(1, tasks.size());
+    assertTrue(subscriber.items.isEmpty());
+    tasks.get(0).run();
+    assertEquals(Arrays.asList("a", "b"), subscriber.items);
+  }
+
+  private static class RecordingSubscriber implements CursorPublisher.Subscriber<String> {
+    CursorPublisher.Subscription subscription;
+    final List<String> items = new ArrayList<>();
+    boolean completed;
+    Throwable error;
+
+    @Override
+    public void onSubscribe(CursorPublisher.Subscription subscription) {
+      this.subscription = subscription;
+    }
+
+    @Override
+    public void onNext(String item) {
+      items.add(item);
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+      error = throwable;
+    }
+
+    @Override
+    public void onComplete() {
+      completed = true;
+    }
+  }
+
+  private static class ListCursor implements Cursor<String> {
+    private final Iterator<String> iterator;
+    int fetched;
+    boolean closed;
+
+    ListCursor(String... items) {
+      Iterator<String> source = Arrays.asList(items).iterator();
+      this.iterator = new Iterator<String>() {
+        @Override
+        public boolean hasNext() {
+          return source.hasNext();
+        }
+
+        @Override
+        public String next() {
+          fetched++;
+          return source.next();
+        }
+      };
+    }
+
+    @Override
+    public boolean isOpen() {
+      return !closed;
+    }
+
+    @Override
+    public boolean isConsumed() {
+      return !iterator.hasNext();
+    }
+
+    @Override
+    public int getCurrentIndex() {
+      return fetched - 1;
+    }
+
+    @Override
+    public Iterator<String> iterator() {
+      return iterator;
+    }
+
+    @Override
+    public void close() {
+      closed = true;
+    }
+  }
+
+}
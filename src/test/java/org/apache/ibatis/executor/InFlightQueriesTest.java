@@ -0,0 +1,127 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.CacheKey;
+import org.apache.ibatis.cache.impl.PerpetualCache;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class InFlightQueriesTest {
+
+  private final InFlightQueries inFlightQueries = new InFlightQueries();
+  private final Cache cache = new PerpetualCache("default");
+  private final CacheKey key = new CacheKey(new Object[] { "select", 1 });
+  private final CountDownLatch started = new CountDownLatch(1);
+  private final CountDownLatch release = new CountDownLatch(1);
+  private ExecutorService executor;
+
+  @BeforeEach
+  void setUp() {
+    executor = Executors.newFixedThreadPool(4);
+  }
+
+  @AfterEach
+  void tearDown() {
+    release.countDown();
+    executor.shutdownNow();
+  }
+
+  @Test
+  void shouldShareResultOfIdenticalQuery() throws Exception {
+    AtomicInteger executions = new AtomicInteger();
+    Future<List<Object>> leader = executor.submit(() -> inFlightQueries.execute(cache, key, 0, () -> {
+      executions.incrementAndGet();
+      awaitRelease();
+      return Collections.singletonList("row");
+    }));
+    assertTrue(started.await(5, TimeUnit.SECONDS));
+    Future<List<Object>> waiter = executor.submit(() -> inFlightQueries.execute(cache, key, 0, () -> {
+      executions.incrementAndGet();
+      return Collections.emptyList();
+    }));
+    Thread.sleep(100);
+    release.countDown();
+    assertSame(leader.get(5, TimeUnit.SECONDS), waiter.get(5, TimeUnit.SECONDS));
+    assertEquals(1, executions.get());
+    assertEquals(0, inFlightQueries.getInFlightCount());
+  }
+
+  @Test
+  void shouldPropagateExceptionToWaiters() throws Exception {
+    Future<List<Object>> leader = executor.submit(() -> inFlightQueries.execute(cache, key, 0, () -> {
+      awaitRelease();
+      throw new SQLException("boom", "42000", 7);
+    }));
+    assertTrue(started.await(5, TimeUnit.SECONDS));
+    Future<List<Object>> waiter = executor.submit(() -> inFlightQueries.execute(cache, key, 0, Collections::emptyList));
+    Thread.sleep(100);
+    release.countDown();
+    Exception e = assertThrows(Exception.class, () -> waiter.get(5, TimeUnit.SECONDS));
+    SQLException cause = (SQLException) e.getCause();
+    assertEquals("boom", cause.getMessage());
+    assertEquals("42000", cause.getSQLState());
+    assertThrows(Exception.class, () -> leader.get(5, TimeUnit.SECONDS));
+    assertEquals(0, inFlightQueries.getInFlightCount());
+  }
+
+  @Test
+  void shouldRunQueryWhenWaitTimesOut() throws Exception {
+    executor.submit(() -> inFlightQueries.execute(cache, key, 0, () -> {
+      awaitRelease();
+      return Collections.emptyList();
+    }));
+    assertTrue(started.await(5, TimeUnit.SECONDS));
+    List<Object> result = inFlightQueries.execute(cache, key, 50, () -> Collections.singletonList("own"));
+    assertEquals(Collections.singletonList("own"), result);
+  }
+
+  @Test
+  void shouldNotShareQueriesOfDifferentCaches() throws Exception {
+    executor.submit(() -> inFlightQueries.execute(cache, key, 0, () -> {
+      awaitRelease();
+      return Collections.emptyList();
+    }));
+    assertTrue(started.await(5, TimeUnit.SECONDS));
+    List<Object> result = inFlightQueries.execute(new PerpetualCache("other"), key, 0,
+        () -> Collections.singletonList("other"));
+    assertEquals(Collections.singletonList("other"), result);
+  }
+
+  private void awaitRelease() {
+    started.countDown();
+    try {
+      release.await();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+}
@@ -0,0 +1,96 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.lang.reflect.Proxy;
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class MultiRowInsertTest {
+
+  @Test
+  void shouldRepeatValuesList() {
+    MultiRowInsert insert = MultiRowInsert.parse("insert into users (id, name) values(?, lower(?))", 2);
+    assertEquals(2, insert.getParametersPerRow());
+    assertEquals("insert into users (id, name) values(?, lower(?))", insert.getSql(1));
+    assertEquals("insert into users (id, name) values(?, lower(?)), (?, lower(?)), (?, lower(?))", insert.getSql(3));
+  }
+
+  @Test
+  void shouldIgnoreKeywordsAndPlaceholdersInLiterals() {
+    MultiRowInsert insert = MultiRowInsert.parse("INSERT INTO \"values\" VALUES ('?) values (', ?)\n", 1);
+    assertEquals("INSERT INTO \"values\" VALUES ('?) values (', ?), ('?) values (', ?)", insert.getSql(2));
+  }
+
+  @Test
+  void shouldNotRewriteOtherStatements() {
+    assertNull(MultiRowInsert.parse("update users set name = ?", 1));
+    assertNull(MultiRowInsert.parse("insert into users select ?, name from authors", 1));
+    assertNull(MultiRowInsert.parse("insert into users values (?), (?)", 2));
+    assertNull(MultiRowInsert.parse("insert into users values (?) on conflict do nothing", 1));
+    assertNull(MultiRowInsert.parse("insert into users values (?)", 2));
+    assertNull(MultiRowInsert.parse("insert into users (id) select ? from dual where exists (select 1 values (?))", 2));
+  }
+
+  @Test
+  void shouldLimitRowsByParameters() {
+    MultiRowInsert insert = MultiRowInsert.parse("insert into users values (?, ?, ?)", 3);
+    assertEquals(100, insert.getMaxRows(100, 2000));
+    assertEquals(10, insert.getMaxRows(100, 30));
+    assertEquals(1, insert.getMaxRows(100, 2));
+    assertEquals(100, MultiRowInsert.parse("insert into users values (default)", 0).getMaxRows(100, 2000));
+  }
+
+  @Test
+  void shouldShiftParameterIndexes() throws Exception {
+    List<String> calls = new ArrayList<>();
+    PreparedStatement statement = (PreparedStatement) Proxy.newProxyInstance(getClass().getClassLoader(),
+        new Class[] { PreparedStatement.class }, (proxy, method, args) -> {
+          calls.add(method.getName() + " " + args[0]);
+          return null;
+        });
+    PreparedStatement shifted = MultiRowInsert.shiftParameters(statement, 4);
+    shifted.setString(1, "a");
+    shifted.setObject(2, null);
+    shifted.setFetchSize(1);
+    assertEquals("[setString 5, setObject 6, setFetchSize 1]", calls.toString());
+  }
+
+  @Test
+  void shouldBindRecordedParameters() throws Exception {
+    List<String> calls = new ArrayList<>();
+    PreparedStatement statement = (PreparedStatement) Proxy.newProxyInstance(getClass().getClassLoader(),
+        new Class<?>[] { PreparedStatement.class }, (proxy, method, args) -> {
+          calls.add(method.getName() + " " + args[0] + " " + args[1]);
+          return null;
+        });
+    MultiRowInsert.BoundRow row = new MultiRowInsert.BoundRow();
+    StringBuilder name = new StringBuilder("a");
+    PreparedStatement recorder = row.recorder(null);
+    recorder.setString(1, name.toString());
+    recorder.setInt(2, 1);
+    name.append("b");
+    row.bind(MultiRowInsert.shiftParameters(statement, 2));
+    assertEquals("[setString 3 a, setInt 4 1]", calls.toString());
+  }
+
+}
@@ -48,6 +48,15 @@ class JavassistProxyTest extends SerializableProxyTest {
     assertTrue(author2 instanceof Proxy);
   }
 
+  @Test
+  void shouldReuseProxyClassOfAType() {
+    Object proxy1 = proxyFactory.createProxy(author, new ResultLoaderMap(), new Configuration(), new DefaultObjectFactory(), new ArrayList<>(), new ArrayList<>());
+    Object proxy2 = proxyFactory.createProxy(author, new ResultLoaderMap(), new Configuration(), new DefaultObjectFactory(), new ArrayList<>(), new ArrayList<>());
+    assertNotSame(proxy1, proxy2);
+    assertSame(proxy1.getClass(), proxy2.getClass());
+    assertEquals(author, proxy2);
+  }
+
   @Test
   void shouldFailCallingAnUnloadedProperty() {
     // yes, it must go in uppercase
@@ -0,0 +1,71 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.loader;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.ArrayList;
+import java.util.Collections;
+
+import org.apache.ibatis.builder.StaticSqlSource;
+import org.apache.ibatis.domain.blog.Author;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.ParameterMapping;
+import org.apache.ibatis.mapping.ResultMap;
+import org.apache.ibatis.mapping.SqlCommandType;
+import org.apache.ibatis.session.Configuration;
+import org.junit.jupiter.api.Test;
+
+class ResultLoaderBatchTest {
+
+  private final Configuration configuration = new Configuration();
+
+  @Test
+  void shouldBatchStatementsSelectingByKeyOfTheSelectedTable() {
+    assertNotNull(create("select * from author where id = ?"));
+    assertNotNull(create("select * from author where bio is not null and id = ?"));
+    assertNotNull(create("select a.* from author a where a.id = ?"));
+    assertNotNull(create("select a.* from author as a join blog b on b.author_id = a.id where a.id = ?"));
+    assertNotNull(create("select author.* from blog.author, blog where author.id = ?"));
+  }
+
+  @Test
+  void shouldNotBatchStatementsSelectingByKeyOfAnotherTable() {
+    assertNull(create("select a.* from author a join blog b on b.author_id = a.id where b.id = ?"));
+    assertNull(create("select a.* from author a join blog b on b.author_id = a.id where id = ?"));
+    assertNull(create("select a.* from author a, blog b where id = ?"));
+    assertNull(create("select * from author where id in (select author_id from blog) and id = ?"));
+  }
+
+  @Test
+  void shouldNotBatchStatementsWithOrConditions() {
+    assertNull(create("select * from author where id = ? or id = 0"));
+    assertNull(create("select * from author where bio is null or id = ?"));
+  }
+
+  private ResultLoaderBatch create(String sql) {
+    ParameterMapping parameterMapping = new ParameterMapping.Builder(configuration, "id", Integer.class).build();
+    ResultMap resultMap = new ResultMap.Builder(configuration, "author", Author.class, new ArrayList<>()).build();
+    MappedStatement ms = new MappedStatement.Builder(configuration, "selectAuthor",
+        new StaticSqlSource(configuration, sql, Collections.singletonList(parameterMapping)), SqlCommandType.SELECT)
+        .resultMaps(Collections.singletonList(resultMap)).build();
+    BoundSql boundSql = ms.getBoundSql(1);
+    return ResultLoaderBatch.create(configuration, ms, boundSql);
+  }
+
+}
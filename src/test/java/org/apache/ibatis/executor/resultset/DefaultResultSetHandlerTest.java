@@ -33,6 +33,7 @@ import java.util.HashMap;
 import java.util.List;
 
 import org.apache.ibatis.builder.StaticSqlSource;
+import org.apache.ibatis.domain.blog.Author;
 import org.apache.ibatis.executor.Executor;
 import org.apache.ibatis.executor.ExecutorException;
 import org.apache.ibatis.executor.parameter.ParameterHandler;
@@ -150,6 +151,51 @@ class DefaultResultSetHandlerTest {
     }
   }
 
+  @Test
+  void shouldMapRemainingRowsByColumnIndex() throws Exception {
+    final Configuration config = new Configuration();
+    final TypeHandlerRegistry registry = config.getTypeHandlerRegistry();
+    final MappedStatement ms = new MappedStatement.Builder(config, "selectAuthors", new StaticSqlSource(config, "some select statement"), SqlCommandType.SELECT).resultMaps(
+        new ArrayList<ResultMap>() {
+          {
+            add(new ResultMap.Builder(config, "authorMap", Author.class, new ArrayList<ResultMapping>() {
+              {
+                add(new ResultMapping.Builder(config, "id", "ID", registry.getTypeHandler(Integer.class)).build());
+              }
+            }).build());
+          }
+        }).build();
+    final DefaultResultSetHandler resultSetHandler = new DefaultResultSetHandler(null/*executor*/, ms,
+        null/*parameterHandler*/, null/*resultHandler*/, null/*boundSql*/, new RowBounds());
+
+    when(stmt.getResultSet()).thenReturn(rs);
+    when(rs.getMetaData()).thenReturn(rsmd);
+    when(rs.getType()).thenReturn(ResultSet.TYPE_FORWARD_ONLY);
+    when(rs.next()).thenReturn(true).thenReturn(true).thenReturn(true).thenReturn(false);
+    // the first row is mapped by column label, the others by column index
+    when(rs.getInt("ID")).thenReturn(1);
+    when(rs.getString("username")).thenReturn("first");
+    when(rs.getInt(1)).thenReturn(2).thenReturn(3);
+    when(rs.getString(2)).thenReturn("second").thenReturn("third");
+    when(rsmd.getColumnCount()).thenReturn(2);
+    when(rsmd.getColumnLabel(1)).thenReturn("id");
+    when(rsmd.getColumnLabel(2)).thenReturn("username");
+    when(rsmd.getColumnType(1)).thenReturn(Types.INTEGER);
+    when(rsmd.getColumnType(2)).thenReturn(Types.VARCHAR);
+    when(rsmd.getColumnClassName(1)).thenReturn(Integer.class.getCanonicalName());
+    when(rsmd.getColumnClassName(2)).thenReturn(String.class.getCanonicalName());
+    when(stmt.getConnection()).thenReturn(conn);
+    when(conn.getMetaData()).thenReturn(dbmd);
+    when(dbmd.supportsMultipleResultSets()).thenReturn(false); // for simplicity.
+
+    final List<Object> results = resultSetHandler.handleResultSets(stmt);
+    assertEquals(3, results.size());
+    assertEquals(1, ((Author) results.get(0)).getId());
+    assertEquals("first", ((Author) results.get(0)).getUsername());
+    assertEquals(3, ((Author) results.get(2)).getId());
+    assertEquals("third", ((Author) results.get(2)).getUsername());
+  }
+
   MappedStatement getMappedStatement() {
     final Configuration config = new Configuration();
     final TypeHandlerRegistry registry = config.getTypeHandlerRegistry();
@@ -16,6 +16,7 @@
 package org.apache.ibatis.jdbc;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
 
 import java.sql.Connection;
 import java.sql.PreparedStatement;
@@ -24,11 +25,18 @@ import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
 
 import org.apache.ibatis.BaseDataTest;
 import org.apache.ibatis.datasource.pooled.PooledDataSource;
+import org.apache.ibatis.datasource.pooled.PooledDataSourceFactory;
+import org.apache.ibatis.io.Resources;
 import org.hsqldb.jdbc.JDBCConnection;
+import org.hsqldb.jdbc.JDBCPreparedStatement;
 import org.junit.jupiter.api.Disabled;
 import org.junit.jupiter.api.Test;
 
@@ -75,6 +83,246 @@ class PooledDataSourceTest extends BaseDataTest {
     }
   }
 
+  @Test
+  void shouldProperlyMaintainLockFreePoolOf3ActiveAnd2IdleConnections() throws Exception {
+    PooledDataSource ds = createPooledDataSource(JPETSTORE_PROPERTIES);
+    try {
+      runScript(ds, JPETSTORE_DDL);
+      ds.setPoolLockFree(true);
+      ds.setDefaultAutoCommit(false);
+      ds.setPoolMaximumActiveConnections(3);
+      ds.setPoolMaximumIdleConnections(2);
+      ds.setPoolPingConnectionsNotUsedFor(1);
+      ds.setPoolPingEnabled(true);
+      ds.setPoolPingQuery("SELECT * FROM PRODUCT");
+      List<Connection> connections = new ArrayList<>();
+      for (int i = 0; i < 3; i++) {
+        connections.add(ds.getConnection());
+      }
+      assertEquals(3, ds.getPoolState().getActiveConnectionCount());
+      for (Connection c : connections) {
+        c.close();
+      }
+      assertEquals(0, ds.getPoolState().getActiveConnectionCount());
+      assertEquals(2, ds.getPoolState().getIdleConnectionCount());
+      assertEquals(4, ds.getPoolState().getRequestCount());
+      assertEquals(0, ds.getPoolState().getBadConnectionCount());
+      assertEquals(0, ds.getPoolState().getHadToWaitCount());
+      assertNotNull(ds.getPoolState().toString());
+    } finally {
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  void shouldRejectUseOfLockFreeConnectionAfterClose() throws Exception {
+    PooledDataSource ds = createPooledDataSource(JPETSTORE_PROPERTIES);
+    try {
+      ds.setPoolLockFree(true);
+      Connection c = ds.getConnection();
+      c.close();
+      assertThrows(SQLException.class, c::getAutoCommit);
+      c.close();
+      assertEquals(1, ds.getPoolState().getBadConnectionCount());
+    } finally {
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  void shouldHandOffLockFreeConnectionsToWaitingThreads() throws Exception {
+    PooledDataSource ds = createPooledDataSource(JPETSTORE_PROPERTIES);
+    try {
+      ds.setPoolLockFree(true);
+      ds.setPoolMaximumActiveConnections(2);
+      ds.setPoolMaximumIdleConnections(2);
+      ds.setPoolTimeToWait(100);
+      ExecutorService executor = Executors.newFixedThreadPool(8);
+      List<Future<?>> futures = new ArrayList<>();
+      for (int i = 0; i < 8; i++) {
+        futures.add(executor.submit(() -> {
+          for (int j = 0; j < 50; j++) {
+            try (Connection c = ds.getConnection()) {
+              assertFalse(c.isClosed());
+            }
+          }
+          return null;
+        }));
+      }
+      for (Future<?> future : futures) {
+        future.get(30, TimeUnit.SECONDS);
+      }
+      executor.shutdown();
+      assertEquals(400, ds.getPoolState().getRequestCount());
+      assertEquals(0, ds.getPoolState().getActiveConnectionCount());
+      assertTrue(ds.getPoolState().getIdleConnectionCount() <= 2);
+      assertEquals(0, ds.getPoolState().getBadConnectionCount());
+    } finally {
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  void shouldWakeUpWaitingThreadWhenConnectionIsReturned() throws Exception {
+    PooledDataSource ds = createPooledDataSource(JPETSTORE_PROPERTIES);
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      ds.setPoolMaximumActiveConnections(1);
+      ds.setPoolMaximumCheckoutTime(60000);
+      ds.setPoolTimeToWait(60000);
+      Connection held = ds.getConnection();
+      Future<?> waiting = executor.submit(() -> {
+        try (Connection c = ds.getConnection()) {
+          executeQuery(c);
+        }
+        return null;
+      });
+      waitFor(() -> ds.getPoolState().getHadToWaitCount() == 1);
+      assertFalse(waiting.isDone());
+      // returning the connection signals the waiting thread long before its time to wait elapses
+      held.close();
+      waiting.get(5, TimeUnit.SECONDS);
+      assertEquals(2, ds.getPoolState().getRequestCount());
+      assertEquals(0, ds.getPoolState().getActiveConnectionCount());
+    } finally {
+      executor.shutdownNow();
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  void shouldExcludeThePoolWhileHoldingPoolStateLock() throws Exception {
+    PooledDataSource ds = createPooledDataSource(JPETSTORE_PROPERTIES);
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      Future<?> checkout;
+      ds.getPoolState().getLock().lock();
+      try {
+        checkout = executor.submit(() -> {
+          ds.getConnection().close();
+          return null;
+        });
+        Thread.sleep(200);
+        assertFalse(checkout.isDone());
+      } finally {
+        ds.getPoolState().getLock().unlock();
+      }
+      checkout.get(5, TimeUnit.SECONDS);
+      assertEquals(1, ds.getPoolState().getRequestCount());
+    } finally {
+      executor.shutdownNow();
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  void shouldServeManyVirtualThreadsWithoutPinningCarriers() throws Exception {
+    ExecutorService executor = newVirtualThreadPerTaskExecutor();
+    assumeTrue(executor != null, "Virtual threads require Java 21 or later");
+    PooledDataSource ds = createPooledDataSource(JPETSTORE_PROPERTIES);
+    try {
+      ds.setPoolMaximumActiveConnections(4);
+      ds.setPoolMaximumIdleConnections(4);
+      ds.setPoolTimeToWait(60000);
+      // far more virtual threads than carrier threads wait for a connection at the same time, which only
+      // completes if waiting threads release their carrier to the threads holding the connections
+      List<Future<?>> futures = new ArrayList<>();
+      for (int i = 0; i < 10000; i++) {
+        futures.add(executor.submit(() -> {
+          try (Connection c = ds.getConnection()) {
+            executeQuery(c);
+          }
+          return null;
+        }));
+      }
+      for (Future<?> future : futures) {
+        future.get(60, TimeUnit.SECONDS);
+      }
+      executor.shutdown();
+      assertEquals(10000, ds.getPoolState().getRequestCount());
+      assertEquals(0, ds.getPoolState().getActiveConnectionCount());
+      assertEquals(0, ds.getPoolState().getBadConnectionCount());
+    } finally {
+      ds.forceCloseAll();
+    }
+  }
+
+  private static ExecutorService newVirtualThreadPerTaskExecutor() {
+    try {
+      return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+    } catch (ReflectiveOperationException e) {
+      return null;
+    }
+  }
+
+  @Test
+  void shouldClaimOverdueLockFreeConnection() throws Exception {
+    PooledDataSource ds = createPooledDataSource(JPETSTORE_PROPERTIES);
+    try {
+      ds.setPoolLockFree(true);
+      ds.setPoolMaximumActiveConnections(1);
+      ds.setPoolMaximumCheckoutTime(50);
+      ds.setPoolTimeToWait(20);
+      Connection leaked = ds.getConnection();
+      Thread.sleep(100);
+      Connection c = ds.getConnection();
+      assertEquals(1, ds.getPoolState().getClaimedOverdueConnectionCount());
+      assertThrows(SQLException.class, leaked::getAutoCommit);
+      c.close();
+      assertEquals(1, ds.getPoolState().getIdleConnectionCount());
+    } finally {
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  void shouldWarmUpAndEvictIdleConnectionsInBackground() throws Exception {
+    Properties props = Resources.getResourceAsProperties(JPETSTORE_PROPERTIES);
+    props.setProperty("poolHousekeepingInterval", "20");
+    props.setProperty("poolMinimumIdle", "2");
+    props.setProperty("poolMaximumIdleTime", "100");
+    PooledDataSourceFactory factory = new PooledDataSourceFactory();
+    factory.setProperties(props);
+    PooledDataSource ds = (PooledDataSource) factory.getDataSource();
+    try {
+      waitFor(() -> ds.getPoolState().getIdleConnectionCount() == 2);
+      assertEquals(0, ds.getPoolState().getRequestCount());
+      List<Connection> connections = new ArrayList<>();
+      for (int i = 0; i < 4; i++) {
+        connections.add(ds.getConnection());
+      }
+      for (Connection c : connections) {
+        c.close();
+      }
+      assertEquals(4, ds.getPoolState().getIdleConnectionCount());
+      waitFor(() -> ds.getPoolState().getIdleConnectionCount() == 2);
+    } finally {
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  void shouldCloseConnectionsOlderThanMaximumLifetimeOnReturn() throws Exception {
+    PooledDataSource ds = createPooledDataSource(JPETSTORE_PROPERTIES);
+    try {
+      ds.setPoolMaximumLifetime(50);
+      Connection c = ds.getConnection();
+      Thread.sleep(100);
+      c.close();
+      assertEquals(0, ds.getPoolState().getIdleConnectionCount());
+    } finally {
+      ds.forceCloseAll();
+    }
+  }
+
+  private void waitFor(BooleanSupplier condition) throws InterruptedException {
+    long deadline = System.currentTimeMillis() + 5000;
+    while (!condition.getAsBoolean()) {
+      assertTrue(System.currentTimeMillis() < deadline, "Timed out waiting for the pool");
+      Thread.sleep(10);
+    }
+  }
+
   @Test
   void shouldNotFailCallingToStringOverAnInvalidConnection() throws Exception {
     PooledDataSource ds = createPooledDataSource(JPETSTORE_PROPERTIES);
@@ -83,6 +331,57 @@ class PooledDataSourceTest extends BaseDataTest {
     c.toString();
   }
 
+  @Test
+  void shouldRejectUseOfConnectionAfterClose() throws Exception {
+    PooledDataSource ds = createPooledDataSource(JPETSTORE_PROPERTIES);
+    try {
+      Connection c = ds.getConnection();
+      assertTrue(c.getAutoCommit());
+      c.close();
+      assertThrows(SQLException.class, c::getAutoCommit);
+      assertThrows(SQLException.class, () -> c.prepareStatement("SELECT * FROM PRODUCT"));
+      assertEquals(1, ds.getPoolState().getIdleConnectionCount());
+    } finally {
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  void shouldReusePreparedStatementsAcrossCheckouts() throws Exception {
+    PooledDataSource ds = createPooledDataSource(JPETSTORE_PROPERTIES);
+    try {
+      runScript(ds, JPETSTORE_DDL);
+      ds.setPoolMaximumActiveConnections(1);
+      ds.setPoolPreparedStatementCacheSize(2);
+      JDBCPreparedStatement first;
+      try (Connection c = ds.getConnection()) {
+        PreparedStatement ps = c.prepareStatement("SELECT * FROM PRODUCT WHERE PRODUCTID = ?");
+        ps.setString(1, "FI-SW-01");
+        ps.setMaxRows(1);
+        ps.executeQuery().close();
+        first = ps.unwrap(JDBCPreparedStatement.class);
+        ps.close();
+        assertThrows(SQLException.class, ps::executeQuery);
+      }
+      try (Connection c = ds.getConnection();
+           PreparedStatement ps = c.prepareStatement("SELECT * FROM PRODUCT WHERE PRODUCTID = ?")) {
+        assertSame(first, ps.unwrap(JDBCPreparedStatement.class));
+        assertEquals(0, ps.getMaxRows());
+        assertSame(c, ps.getConnection());
+        try (PreparedStatement other = c.prepareStatement("SELECT * FROM PRODUCT WHERE PRODUCTID = ?")) {
+          assertNotSame(first, other.unwrap(JDBCPreparedStatement.class));
+        }
+      }
+      try (Connection c = ds.getConnection();
+           PreparedStatement ps = c.prepareStatement("SELECT * FROM PRODUCT WHERE PRODUCTID = ?",
+               ResultSet.TYPE_SCROLL_INSENSITIVE, ResultSet.CONCUR_READ_ONLY)) {
+        assertNotSame(first, ps.unwrap(JDBCPreparedStatement.class));
+      }
+    } finally {
+      ds.forceCloseAll();
+    }
+  }
+
   @Test
   void ShouldReturnRealConnection() throws Exception {
     PooledDataSource ds = createPooledDataSource(JPETSTORE_PROPERTIES);
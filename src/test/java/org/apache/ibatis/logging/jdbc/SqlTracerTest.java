@@ -0,0 +1,134 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.logging.jdbc;
+
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+
+import org.apache.ibatis.logging.Log;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+class SqlTracerTest {
+
+  @Mock
+  Log log;
+
+  @Mock
+  Connection connection;
+
+  @Mock
+  PreparedStatement preparedStatement;
+
+  @Mock
+  Statement statement;
+
+  @Mock
+  ResultSet resultSet;
+
+  @Test
+  void shouldTraceOneExecutionInSampling() {
+    SqlTracer tracer = new SqlTracer(3, false);
+    int traced = 0;
+    for (int i = 0; i < 6; i++) {
+      if (tracer.trace(connection, log, 0) != connection) {
+        traced++;
+      }
+    }
+    Assertions.assertEquals(2, traced);
+  }
+
+  @Test
+  void shouldPrintPreparedStatementAndCountRows() throws SQLException {
+    when(log.isDebugEnabled()).thenReturn(true);
+    when(connection.prepareStatement("select * from users\n  where id = ? and name = ?")).thenReturn(preparedStatement);
+    when(preparedStatement.executeQuery()).thenReturn(resultSet);
+    when(resultSet.next()).thenReturn(true, true, false);
+
+    Connection traced = new SqlTracer(1, false).trace(connection, log, 0);
+    PreparedStatement ps = traced.prepareStatement("select * from users\n  where id = ? and name = ?");
+    ps.setInt(1, 10);
+    ps.setNull(2, Types.VARCHAR);
+    ResultSet rs = ps.executeQuery();
+    while (rs.next()) {
+      // only counted
+    }
+    rs.close();
+
+    verify(log).debug("==>  Preparing: select * from users where id = ? and name = ?");
+    verify(log).debug("==> Parameters: 10(Integer), null");
+    verify(log).debug("<==      Total: 2");
+    verify(resultSet, never()).getObject(1);
+    Assertions.assertSame(ps, rs.getStatement());
+    Assertions.assertSame(traced, ps.getConnection());
+  }
+
+  @Test
+  void shouldPrintSqlOnceAndParametersOfEachExecution() throws SQLException {
+    when(log.isDebugEnabled()).thenReturn(true);
+    when(connection.prepareStatement("update users set name = ?")).thenReturn(preparedStatement);
+    when(preparedStatement.getUpdateCount()).thenReturn(3);
+
+    PreparedStatement ps = new SqlTracer(1, false).trace(connection, log, 0).prepareStatement("update users set name = ?");
+    ps.setString(1, "a");
+    ps.addBatch();
+    ps.setString(1, "b");
+    ps.execute();
+    ps.getUpdateCount();
+
+    verify(log, times(1)).debug(contains("Preparing: "));
+    verify(log).debug("==> Parameters: a(String)");
+    verify(log).debug("==> Parameters: b(String)");
+    verify(log).debug("<==    Updates: 3");
+  }
+
+  @Test
+  void shouldPrintExecutedStatement() throws SQLException {
+    when(log.isDebugEnabled()).thenReturn(true);
+    when(connection.createStatement()).thenReturn(statement);
+    when(statement.executeUpdate("delete from users")).thenReturn(0);
+
+    new SqlTracer(1, false).trace(connection, log, 0).createStatement().executeUpdate("delete from users");
+
+    verify(log).debug("==>  Executing: delete from users");
+    verify(log).debug("<==    Updates: 0");
+  }
+
+  @Test
+  void shouldNotPrintWhenDebugIsDisabled() throws SQLException {
+    when(connection.createStatement()).thenReturn(statement);
+
+    new SqlTracer(1, false).trace(connection, log, 0).createStatement().execute("select 1");
+
+    verify(log, never()).debug(startsWith("==>"));
+  }
+
+}
@@ -0,0 +1,74 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class LatencyHistogramTest {
+
+  @Test
+  void shouldReportPercentilesWithinBucketPrecision() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    for (long i = 1; i <= 1000; i++) {
+      histogram.record(i * 1000);
+    }
+    assertEquals(1000, histogram.getCount());
+    assertEquals(1_000_000, histogram.getMaxNanos());
+    assertEquals(500_500_000, histogram.getTotalNanos());
+    assertWithin(500_000, histogram.getValueAtPercentile(50));
+    assertWithin(990_000, histogram.getValueAtPercentile(99));
+    assertEquals(1_000_000, histogram.getValueAtPercentile(100));
+  }
+
+  @Test
+  void shouldCountSmallAndHugeDurations() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    histogram.record(-5);
+    histogram.record(3);
+    histogram.record(Long.MAX_VALUE);
+    assertEquals(0, histogram.getValueAtPercentile(10));
+    assertEquals(3, histogram.getValueAtPercentile(50));
+    assertEquals(Long.MAX_VALUE, histogram.getValueAtPercentile(100));
+  }
+
+  @Test
+  void shouldMapEveryBucketToItsHighestValue() {
+    for (long value = 1; value > 0 && value < (1L << 40); value = value * 3 + 1) {
+      int index = LatencyHistogram.bucketIndex(value);
+      assertTrue(LatencyHistogram.highestValue(index) >= value);
+      assertTrue(index == 0 || LatencyHistogram.highestValue(index - 1) < value);
+    }
+  }
+
+  @Test
+  void shouldCopyIndependently() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    histogram.record(100);
+    LatencyHistogram copy = histogram.copy();
+    histogram.record(200);
+    assertEquals(1, copy.getCount());
+    assertEquals(100, copy.getMaxNanos());
+    assertEquals(2, histogram.getCount());
+  }
+
+  private static void assertWithin(long expected, long actual) {
+    assertTrue(Math.abs(actual - expected) <= expected / 16, "expected about " + expected + " but was " + actual);
+  }
+
+}
@@ -0,0 +1,82 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class SlowStatementLogTest {
+
+  @Test
+  void shouldKeepMostRecentEventsInOrder() {
+    SlowStatementLog log = new SlowStatementLog(3);
+    for (int i = 1; i <= 5; i++) {
+      log.add(event("statement" + i));
+    }
+    List<SlowStatementEvent> events = log.getEvents();
+    assertEquals(3, events.size());
+    assertEquals("statement3", events.get(0).getStatementId());
+    assertEquals("statement5", events.get(2).getStatementId());
+    assertEquals(5, log.getTotalCount());
+  }
+
+  @Test
+  void shouldReturnFewerEventsThanCapacity() {
+    SlowStatementLog log = new SlowStatementLog(3);
+    log.add(event("statement1"));
+    assertEquals(1, log.getEvents().size());
+    log.clear();
+    assertTrue(log.getEvents().isEmpty());
+    assertEquals(0, log.getTotalCount());
+  }
+
+  @Test
+  void shouldReturnEventsInOrderWhileEventsAreAdded() throws Exception {
+    SlowStatementLog log = new SlowStatementLog(4);
+    Thread writer = new Thread(() -> {
+      for (int i = 0; i < 200_000; i++) {
+        log.add(new SlowStatementEvent(i, "statement", "select 1", Collections.emptyList(), 1, 0, 0, 0, 0));
+      }
+    });
+    writer.start();
+    while (writer.isAlive()) {
+      long previous = -1;
+      for (SlowStatementEvent event : log.getEvents()) {
+        assertTrue(event.getTimestamp() > previous);
+        previous = event.getTimestamp();
+      }
+    }
+    writer.join();
+    assertEquals(199_999, log.getEvents().get(3).getTimestamp());
+  }
+
+  @Test
+  void shouldRejectEmptyLog() {
+    assertThrows(IllegalArgumentException.class, () -> new SlowStatementLog(0));
+  }
+
+  private static SlowStatementEvent event(String statementId) {
+    return new SlowStatementEvent(0, statementId, "select 1", Collections.emptyList(), 1, 0, 2_000_000, 1_500_000,
+        500_000);
+  }
+
+}
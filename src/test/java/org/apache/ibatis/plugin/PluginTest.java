@@ -17,11 +17,17 @@ package org.apache.ibatis.plugin;
 
 import org.junit.jupiter.api.Test;
 
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
 class PluginTest {
 
@@ -39,6 +45,77 @@ class PluginTest {
     assertNotEquals("Always", map.toString());
   }
 
+  @Test
+  void shouldMergeInterceptorsIntoOneProxy() {
+    List<String> calls = new ArrayList<>();
+    Map<String, String> target = new HashMap<>();
+    target.put("key", "value");
+    Map map = (Map) new RecordingMapPlugin("inner", calls).plugin(target);
+    map = (Map) new RecordingMapPlugin("outer", calls).plugin(map);
+    Plugin plugin = (Plugin) Proxy.getInvocationHandler(map);
+    assertFalse(Proxy.isProxyClass(plugin.getTarget().getClass()));
+    assertEquals("outer(inner(value))", map.get("key"));
+    assertEquals("[outer, inner]", calls.toString());
+  }
+
+  @Test
+  void shouldApplyInnerInterceptorsWhenTargetIsCalledDirectly() {
+    List<String> calls = new ArrayList<>();
+    Map<String, String> target = new HashMap<>();
+    target.put("key", "value");
+    InterceptorChain chain = new InterceptorChain();
+    chain.addInterceptor(new RecordingMapPlugin("inner", calls));
+    chain.addInterceptor(new DirectMapPlugin());
+    Map map = (Map) chain.pluginAll(target);
+    assertEquals("direct(inner(value))", map.get("key"));
+    assertEquals("[inner]", calls.toString());
+    map = (Map) new DirectMapPlugin().plugin(new RecordingMapPlugin("inner", calls).plugin(target));
+    assertEquals("direct(inner(value))", map.get("key"));
+    assertEquals("[inner, inner]", calls.toString());
+  }
+
+  @Test
+  void shouldNotInterceptMethodsOfOtherSignatures() {
+    List<String> calls = new ArrayList<>();
+    Map map = (Map) new RecordingMapPlugin("get", calls).plugin(new HashMap<>());
+    map = (Map) new AlwaysMapPlugin().plugin(map);
+    map.put("key", "value");
+    assertEquals(1, map.size());
+    assertEquals("Always", map.get("key"));
+    assertEquals("[]", calls.toString());
+  }
+
+  @Test
+  void shouldNotProxyTargetsThatAreNotIntercepted() {
+    List<String> list = new ArrayList<>();
+    assertSame(list, new AlwaysMapPlugin().plugin(list));
+  }
+
+  @Test
+  void shouldPropagateExceptionsThroughMergedInterceptors() {
+    Map map = (Map) new FailingMapPlugin().plugin(new HashMap<>());
+    Map wrapped = (Map) new RecordingMapPlugin("outer", new ArrayList<>()).plugin(map);
+    assertThrows(IllegalStateException.class, () -> wrapped.get("key"));
+  }
+
+  @Test
+  void shouldPluginAllInTheOrderOfInterceptors() {
+    List<String> calls = new ArrayList<>();
+    InterceptorChain chain = new InterceptorChain();
+    chain.addInterceptor(new RecordingMapPlugin("first", calls));
+    chain.addInterceptor(new RecordingMapPlugin("second", calls));
+    Map<String, String> target = new HashMap<>();
+    target.put("key", "value");
+    Map map = (Map) chain.pluginAll(target);
+    Map other = (Map) chain.pluginAll(new HashMap<>(target));
+    assertEquals("second(first(value))", map.get("key"));
+    assertEquals("second(first(value))", other.get("key"));
+    assertEquals("[second, first, second, first]", calls.toString());
+    assertSame(target, ((Plugin) Proxy.getInvocationHandler(map)).getTarget());
+    List<String> list = new ArrayList<>();
+    assertSame(list, chain.pluginAll(list));
+  }
+
   /**
    * 静态初始化：初始化时由程序员显式指定每个数组元素的初始值，由系统决定数组的长度；
    * 方式1：type[] arrayName = new type[]{element1,element2,element3...}
@@ -63,4 +140,40 @@ class PluginTest {
 
   }
 
+  @Intercepts({
+      @Signature(type = Map.class, method = "get", args = {Object.class})})
+  public static class RecordingMapPlugin implements Interceptor {
+    private final String name;
+    private final List<String> calls;
+
+    RecordingMapPlugin(String name, List<String> calls) {
+      this.name = name;
+      this.calls = calls;
+    }
+
+    @Override
+    public Object intercept(Invocation invocation) throws Throwable {
+      calls.add(name);
+      return name + "(" + invocation.proceed() + ")";
+    }
+  }
+
+  @Intercepts({
+      @Signature(type = Map.class, method = "get", args = {Object.class})})
+  public static class FailingMapPlugin implements Interceptor {
+    @Override
+    public Object intercept(Invocation invocation) {
+      throw new IllegalStateException("failed");
+    }
+  }
+
+  @Intercepts({
+      @Signature(type = Map.class, method = "get", args = {Object.class})})
+  public static class DirectMapPlugin implements Interceptor {
+    @Override
+    public Object intercept(Invocation invocation) {
+      return "direct(" + ((Map) invocation.getTarget()).get(invocation.getArgs()[0]) + ")";
+    }
+  }
+
 }
@@ -0,0 +1,125 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.reflection.invoker;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.reflect.InvocationTargetException;
+
+import org.apache.ibatis.reflection.DefaultReflectorFactory;
+import org.apache.ibatis.reflection.Reflector;
+import org.junit.jupiter.api.Test;
+
+class LambdaMethodInvokerTest {
+
+  @Test
+  void shouldInvokeGetterAndSetter() throws Exception {
+    Invoker getter = LambdaMethodInvoker.forGetter(Bean.class.getMethod("getName"));
+    Invoker setter = LambdaMethodInvoker.forSetter(Bean.class.getMethod("setName", String.class));
+    assertNotNull(getter);
+    assertNotNull(setter);
+    assertEquals(String.class, getter.getType());
+    assertEquals(String.class, setter.getType());
+
+    Bean bean = new Bean();
+    setter.invoke(bean, new Object[] { "mybatis" });
+    assertEquals("mybatis", getter.invoke(bean, null));
+  }
+
+  @Test
+  void shouldBoxAndUnboxPrimitives() throws Exception {
+    Invoker getter = LambdaMethodInvoker.forGetter(Bean.class.getMethod("getCount"));
+    Invoker setter = LambdaMethodInvoker.forSetter(Bean.class.getMethod("setCount", int.class));
+    assertEquals(int.class, getter.getType());
+
+    Bean bean = new Bean();
+    setter.invoke(bean, new Object[] { 42 });
+    assertEquals(42, getter.invoke(bean, null));
+  }
+
+  @Test
+  void shouldWrapExceptionsThrownByTheMethod() throws Exception {
+    Invoker getter = LambdaMethodInvoker.forGetter(Bean.class.getMethod("getBroken"));
+    InvocationTargetException e = assertThrows(InvocationTargetException.class, () -> getter.invoke(new Bean(), null));
+    assertTrue(e.getCause() instanceof IllegalStateException);
+  }
+
+  @Test
+  void shouldNotSupportNonPublicClasses() throws Exception {
+    assertNull(LambdaMethodInvoker.forGetter(HiddenBean.class.getMethod("getName")));
+    assertNull(LambdaMethodInvoker.forSetter(HiddenBean.class.getMethod("setName", String.class)));
+  }
+
+  @Test
+  void shouldUseGeneratedAccessorsOnlyWhenEnabled() throws Exception {
+    DefaultReflectorFactory reflectorFactory = new DefaultReflectorFactory();
+    Reflector reflector = reflectorFactory.findForClass(Bean.class);
+    assertTrue(reflector.getGetInvoker("name") instanceof MethodInvoker);
+
+    reflectorFactory.setGeneratedAccessorsEnabled(true);
+    reflector = reflectorFactory.findForClass(Bean.class);
+    assertTrue(reflector.getGetInvoker("name") instanceof LambdaMethodInvoker);
+    assertTrue(reflector.getSetInvoker("count") instanceof LambdaMethodInvoker);
+    assertSame(reflector, reflectorFactory.findForClass(Bean.class));
+
+    // falls back to reflection where the class cannot be accessed
+    reflector = reflectorFactory.findForClass(HiddenBean.class);
+    assertTrue(reflector.getGetInvoker("name") instanceof MethodInvoker);
+  }
+
+  public static class Bean {
+    private String name;
+    private int count;
+
+    public String getName() {
+      return name;
+    }
+
+    public void setName(String name) {
+      this.name = name;
+    }
+
+    public int getCount() {
+      return count;
+    }
+
+    public void setCount(int count) {
+      this.count = count;
+    }
+
+    public String getBroken() {
+      throw new IllegalStateException("broken");
+    }
+  }
+
+  static class HiddenBean {
+    private String name;
+
+    public String getName() {
+      return name;
+    }
+
+    public void setName(String name) {
+      this.name = name;
+    }
+  }
+
+}
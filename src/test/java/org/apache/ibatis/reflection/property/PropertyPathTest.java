@@ -0,0 +1,84 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.reflection.property;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import org.apache.ibatis.domain.blog.Author;
+import org.apache.ibatis.domain.blog.Blog;
+import org.apache.ibatis.reflection.DefaultReflectorFactory;
+import org.apache.ibatis.reflection.ReflectorFactory;
+import org.apache.ibatis.reflection.invoker.Invoker;
+import org.junit.jupiter.api.Test;
+
+class PropertyPathTest {
+
+  @Test
+  void shouldSplitPathIntoSegments() {
+    PropertyPath path = PropertyPath.compile("blog.posts[0].author.username");
+    assertEquals(4, path.size());
+    assertEquals("blog", path.getSegment(0).getName());
+    assertEquals("posts", path.getSegment(1).getName());
+    assertEquals("0", path.getSegment(1).getIndex());
+    assertEquals("posts[0]", path.getSegment(1).getIndexedName());
+    assertEquals("username", path.getSegment(3).getName());
+    assertNull(path.getSegment(0).getChildren());
+    assertEquals("blog.posts[0].author.username", path.getSubpath(0));
+    assertEquals("author.username", path.getSubpath(2));
+  }
+
+  @Test
+  void shouldReuseCompiledPathsOfTheSameReflectorFactory() {
+    ReflectorFactory reflectorFactory = new DefaultReflectorFactory();
+    PropertyPath path = reflectorFactory.compilePropertyPath("author.username");
+    assertSame(path, reflectorFactory.compilePropertyPath("author.username"));
+    assertNotSame(path, new DefaultReflectorFactory().compilePropertyPath("author.username"));
+  }
+
+  @Test
+  void shouldKeepCachingPathsOnceManyWereCompiled() {
+    ReflectorFactory reflectorFactory = new DefaultReflectorFactory();
+    for (int i = 0; i < 5000; i++) {
+      reflectorFactory.compilePropertyPath("items[" + i + "].name");
+    }
+    PropertyPath path = reflectorFactory.compilePropertyPath("author.username");
+    assertSame(path, reflectorFactory.compilePropertyPath("author.username"));
+  }
+
+  @Test
+  void shouldResolveInvokersOncePerClass() throws Exception {
+    ReflectorFactory reflectorFactory = new DefaultReflectorFactory();
+    PropertyPath path = PropertyPath.compile("id");
+    Invoker blogId = path.getGetInvoker(0, Blog.class, reflectorFactory);
+    assertSame(blogId, path.getGetInvoker(0, Blog.class, reflectorFactory));
+
+    Invoker authorId = path.getGetInvoker(0, Author.class, reflectorFactory);
+    assertNotSame(blogId, authorId);
+    assertSame(blogId, path.getGetInvoker(0, Blog.class, reflectorFactory));
+    assertSame(authorId, path.getGetInvoker(0, Author.class, reflectorFactory));
+    Author author = new Author();
+    author.setId(101);
+    assertEquals(101, authorId.invoke(author, new Object[0]));
+
+    Invoker setter = path.getSetInvoker(0, Author.class, reflectorFactory);
+    setter.invoke(author, new Object[] { 102 });
+    assertEquals(102, author.getId());
+  }
+
+}
@@ -0,0 +1,143 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.scripting.xmltags;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.ibatis.domain.blog.Author;
+import org.apache.ibatis.domain.blog.Section;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.ParameterMapping;
+import org.apache.ibatis.mapping.SqlSource;
+import org.apache.ibatis.session.Configuration;
+import org.junit.jupiter.api.Test;
+
+class CompiledDynamicSqlSourceTest {
+
+  private final Configuration configuration = new Configuration();
+
+  @Test
+  void shouldBindLikeDynamicSqlSource() {
+    Author author = new Author(101, "jim", "***", "jim@ibatis.apache.org", "bio", Section.NEWS);
+    String script = "<script>select * from author"
+        + "<where>"
+        + "  <if test=\"id != null and id > 0\">and id = #{id}</if>"
+        + "  <if test=\"username != null\">and username = #{username,jdbcType=VARCHAR}</if>"
+        + "  <choose>"
+        + "    <when test=\"favouriteSection == null\">and favourite_section is null</when>"
+        + "    <otherwise>and favourite_section = #{favouriteSection}</otherwise>"
+        + "  </choose>"
+        + "  <if test=\"bio == ''\">or bio is null</if>"
+        + "</where>"
+        + " order by ${'username'}</script>";
+    assertSameBoundSql(script, author);
+    assertSameBoundSql(script, new Author(-1));
+  }
+
+  @Test
+  void shouldBindForEachLikeDynamicSqlSource() {
+    Map<String, Object> parameter = new HashMap<>();
+    List<Integer> ids = new ArrayList<>();
+    ids.add(1);
+    ids.add(2);
+    ids.add(3);
+    List<List<String>> names = new ArrayList<>();
+    List<String> row = new ArrayList<>();
+    row.add("a");
+    row.add("b");
+    names.add(row);
+    names.add(new ArrayList<>(row));
+    parameter.put("ids", ids);
+    parameter.put("names", names);
+    parameter.put("pattern", "%");
+    String script = "<script>select * from author where"
+        + "<foreach collection=\"ids\" item=\"id\" index=\"i\" open=\"id in (\" separator=\",\" close=\")\">"
+        + "  #{id}</foreach>"
+        + " and (<foreach collection=\"names\" item=\"row\" index=\"r\" separator=\"or\">"
+        + "  <foreach collection=\"row\" item=\"name\" separator=\"and\">"
+        + "    <bind name=\"like\" value=\"name + pattern\"/>"
+        + "    username like #{like} and #{r} = #{name} and index = #{i}"
+        + "  </foreach>"
+        + "</foreach>)</script>";
+    assertSameBoundSql(script, parameter);
+  }
+
+  @Test
+  void shouldBindSetAndTrimLikeDynamicSqlSource() {
+    Author author = new Author(101, "jim", "***", null, "bio", Section.NEWS);
+    String script = "<script>update author"
+        + "<set>"
+        + "  <if test=\"username != null\">username = #{username},</if>"
+        + "  <if test=\"email != null\">email = #{email},</if>"
+        + "  <if test=\"bio != null\">bio = #{bio},</if>"
+        + "</set>"
+        + "<trim prefix=\"where\" prefixOverrides=\"and |or \">and id = #{id}</trim></script>";
+    assertSameBoundSql(script, author);
+  }
+
+  @Test
+  void shouldBindSubstitutedTextLikeDynamicSqlSource() {
+    assertSameBoundSql("select * from ${value} where id = #{id}", "author");
+  }
+
+  @Test
+  void shouldInterpretPlaceholdersBuiltBySubstitutions() {
+    SqlSource sqlSource = new CompiledXMLLanguageDriver().createSqlSource(configuration,
+        "<script>select * from author where id = #{${name}}</script>", Object.class);
+    assertTrue(sqlSource instanceof DynamicSqlSource);
+  }
+
+  @Test
+  void shouldReuseParameterMappings() {
+    SqlSource sqlSource = new CompiledXMLLanguageDriver().createSqlSource(configuration,
+        "<script>select * from author <where><if test=\"id != null\">id = #{id}</if></where></script>", Object.class);
+    assertTrue(sqlSource instanceof CompiledDynamicSqlSource);
+    ParameterMapping first = sqlSource.getBoundSql(new Author(1)).getParameterMappings().get(0);
+    ParameterMapping second = sqlSource.getBoundSql(new Author(2)).getParameterMappings().get(0);
+    assertSame(first, second);
+  }
+
+  private void assertSameBoundSql(String script, Object parameterObject) {
+    SqlSource expected = new XMLLanguageDriver().createSqlSource(configuration, script, Object.class);
+    SqlSource actual = new CompiledXMLLanguageDriver().createSqlSource(configuration, script, Object.class);
+    assertTrue(actual instanceof CompiledDynamicSqlSource);
+    BoundSql expectedSql = expected.getBoundSql(parameterObject);
+    BoundSql actualSql = actual.getBoundSql(parameterObject);
+    assertEquals(expectedSql.getSql(), actualSql.getSql());
+    assertEquals(expectedSql.getParameterMappings().size(), actualSql.getParameterMappings().size());
+    for (int i = 0; i < expectedSql.getParameterMappings().size(); i++) {
+      ParameterMapping expectedMapping = expectedSql.getParameterMappings().get(i);
+      ParameterMapping actualMapping = actualSql.getParameterMappings().get(i);
+      String property = expectedMapping.getProperty();
+      assertEquals(property, actualMapping.getProperty());
+      assertEquals(expectedMapping.getJavaType(), actualMapping.getJavaType());
+      assertEquals(expectedMapping.getJdbcType(), actualMapping.getJdbcType());
+      assertEquals(expectedMapping.getTypeHandler().getClass(), actualMapping.getTypeHandler().getClass());
+      assertEquals(expectedSql.hasAdditionalParameter(property), actualSql.hasAdditionalParameter(property));
+      if (expectedSql.hasAdditionalParameter(property)) {
+        assertEquals(expectedSql.getAdditionalParameter(property), actualSql.getAdditionalParameter(property));
+      }
+    }
+  }
+
+}
@@ -0,0 +1,112 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.scripting.xmltags;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.ibatis.domain.blog.Author;
+import org.apache.ibatis.domain.blog.Section;
+import org.apache.ibatis.session.Configuration;
+import org.junit.jupiter.api.Test;
+
+class CompiledExpressionTest {
+
+  private final Configuration configuration = new Configuration();
+
+  @Test
+  void shouldEvaluateLikeOgnl() {
+    Map<String, Object> parameter = new HashMap<>();
+    List<String> names = new ArrayList<>();
+    names.add("a");
+    parameter.put("names", names);
+    parameter.put("empty", new ArrayList<>());
+    parameter.put("name", " mybatis ");
+    parameter.put("blank", "");
+    parameter.put("zero", 0);
+    parameter.put("count", 5);
+    parameter.put("status", "A");
+    parameter.put("flag", Boolean.TRUE);
+    parameter.put("author", new Author(101, "jim", "***", "jim@ibatis.apache.org", "bio", Section.NEWS));
+    parameter.put("nested", new HashMap<>(parameter));
+
+    String[] expressions = {
+        "name != null", "missing == null", "name != null and name != ''", "blank != null && blank != ''",
+        "zero != ''", "zero == 0", "count > 3", "count >= 5", "count < 5", "count lte 4", "count gt 1 or zero",
+        "status == 'A'.toString()", "status eq \"A\"", "status != 'BC'", "!flag", "not flag", "names.size() > 0",
+        "names.size > 0", "empty.isEmpty()", "!empty.isEmpty", "name.trim().length() == 7", "name.toString()",
+        "author.username == 'jim'", "author.favouriteSection != null", "author.id == 101", "nested.count == 5",
+        "nested.names.size() == 1", "(flag or zero) and count", "flag and zero", "zero or count", "1.5 > count",
+        "_parameter != null", "_databaseId == null", "'AB' == status", "true", "null"
+    };
+    for (String expression : expressions) {
+      CompiledExpression compiled = CompiledExpression.compile("test", expression, configuration.getReflectorFactory());
+      assertTrue(compiled.isCompiled(), expression);
+      Map<String, Object> bindings = new DynamicContext(configuration, parameter).getBindings();
+      assertEquals(OgnlCache.getValue(expression, bindings), compiled.getValue(bindings), expression);
+    }
+  }
+
+  @Test
+  void shouldReadPropertiesOfBeanParameter() {
+    Author author = new Author(101, "jim", "***", "jim@ibatis.apache.org", "bio", Section.NEWS);
+    Map<String, Object> bindings = new DynamicContext(configuration, author).getBindings();
+    CompiledExpression compiled = CompiledExpression.compile("test",
+        "username != null and favouriteSection.name() != ''", configuration.getReflectorFactory());
+    assertFalse(compiled.isCompiled());
+    assertEquals(Boolean.TRUE, compiled.getValue(bindings));
+
+    compiled = CompiledExpression.compile("test", "username == 'jim' and id > 100",
+        configuration.getReflectorFactory());
+    assertTrue(compiled.isCompiled());
+    assertEquals(Boolean.TRUE, compiled.getValue(bindings));
+  }
+
+  @Test
+  void shouldLeaveOtherExpressionsToOgnl() {
+    Map<String, Object> parameter = new HashMap<>();
+    List<Integer> ids = new ArrayList<>();
+    ids.add(1);
+    parameter.put("ids", ids);
+    parameter.put("count", 5);
+    String[] expressions = { "ids[0] == 1", "count + 1", "@java.lang.Math@max(count, 6)", "ids.contains(1)",
+        "count in {5, 6}", "10L > count", "-count" };
+    for (String expression : expressions) {
+      CompiledExpression compiled = CompiledExpression.compile("test", expression, configuration.getReflectorFactory());
+      assertFalse(compiled.isCompiled(), expression);
+      Map<String, Object> bindings = new DynamicContext(configuration, parameter).getBindings();
+      assertEquals(OgnlCache.getValue(expression, bindings), compiled.getValue(bindings), expression);
+    }
+  }
+
+  @Test
+  void shouldFallBackToOgnlWhenNavigatingUnsupportedValues() {
+    Map<String, Object> parameter = new HashMap<>();
+    parameter.put("ids", new int[] { 1, 2 });
+    Map<String, Object> bindings = new DynamicContext(configuration, parameter).getBindings();
+    CompiledExpression compiled = CompiledExpression.compile("test", "ids.length == 2",
+        configuration.getReflectorFactory());
+    assertTrue(compiled.isCompiled());
+    assertEquals(Boolean.TRUE, compiled.getValue(bindings));
+  }
+
+}
@@ -0,0 +1,163 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.session.defaults;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.apache.ibatis.session.AsyncSqlSession;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.ExecutorType;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.TransactionIsolationLevel;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class DefaultAsyncSqlSessionTest {
+
+  private final List<String> calls = new ArrayList<>();
+  private ExecutorService executor;
+  private AsyncSqlSession asyncSession;
+
+  @BeforeEach
+  void setUp() {
+    executor = Executors.newSingleThreadExecutor(runnable -> new Thread(runnable, "async-test"));
+    asyncSession = new DefaultAsyncSqlSession(new RecordingSqlSessionFactory(), executor);
+  }
+
+  @AfterEach
+  void tearDown() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  void shouldRunStatementInOwnSessionOnExecutor() {
+    CompletableFuture<Integer> future = asyncSession.update("updateAuthor", "bob");
+    assertEquals(Integer.valueOf(1), future.join());
+    assertEquals("[open, update updateAuthor on async-test, commit, close]", calls.toString());
+  }
+
+  @Test
+  void shouldRunWorkInOneSession() {
+    String result = asyncSession.execute(sqlSession -> {
+      sqlSession.insert("insertAuthor", "bob");
+      sqlSession.delete("deleteAuthor", "bob");
+      return "done";
+    }).join();
+    assertEquals("done", result);
+    assertEquals("[open, insert insertAuthor on async-test, delete deleteAuthor on async-test, commit, close]",
+        calls.toString());
+  }
+
+  @Test
+  void shouldCloseWithoutCommitWhenWorkFails() {
+    IllegalStateException failure = new IllegalStateException("failed");
+    CompletableFuture<Object> future = asyncSession.execute(sqlSession -> {
+      throw failure;
+    });
+    CompletionException e = assertThrows(CompletionException.class, future::join);
+    assertSame(failure, e.getCause());
+    assertEquals("[open, close]", calls.toString());
+  }
+
+  @Test
+  void shouldUseExecutorOfConfiguration() {
+    Configuration configuration = new Configuration();
+    configuration.setAsyncExecutor(Runnable::run);
+    AsyncSqlSession session = new DefaultSqlSessionFactory(configuration).openAsyncSession();
+    assertTrue(session instanceof DefaultAsyncSqlSession);
+    assertSame(configuration, session.getConfiguration());
+  }
+
+  private class RecordingSqlSessionFactory implements SqlSessionFactory {
+
+    @Override
+    public SqlSession openSession() {
+      calls.add("open");
+      return (SqlSession) Proxy.newProxyInstance(getClass().getClassLoader(), new Class[] { SqlSession.class },
+          (proxy, method, args) -> {
+            switch (method.getName()) {
+              case "commit":
+              case "close":
+                calls.add(method.getName());
+                return null;
+              default:
+                calls.add(method.getName() + " " + args[0] + " on " + Thread.currentThread().getName());
+                return 1;
+            }
+          });
+    }
+
+    @Override
+    public SqlSession openSession(boolean autoCommit) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public SqlSession openSession(Connection connection) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public SqlSession openSession(TransactionIsolationLevel level) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public SqlSession openSession(ExecutorType execType) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public SqlSession openSession(ExecutorType execType, boolean autoCommit) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public SqlSession openSession(ExecutorType execType, TransactionIsolationLevel level) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public SqlSession openSession(ExecutorType execType, Connection connection) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public AsyncSqlSession openAsyncSession() {
+      return new DefaultAsyncSqlSession(this, executor);
+    }
+
+    @Override
+    public Configuration getConfiguration() {
+      throw new UnsupportedOperationException();
+    }
+  }
+
+}
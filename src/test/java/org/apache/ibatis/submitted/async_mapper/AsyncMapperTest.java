@@ -0,0 +1,125 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.async_mapper;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.Reader;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.binding.BindingException;
+import org.apache.ibatis.exceptions.PersistenceException;
+import org.apache.ibatis.executor.ErrorContext;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.session.AsyncSqlSession;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class AsyncMapperTest {
+
+  private SqlSessionFactory sqlSessionFactory;
+
+  @BeforeEach
+  void setUp() throws Exception {
+    try (Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/async_mapper/mybatis-config.xml")) {
+      sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    }
+
+    BaseDataTest.runScript(sqlSessionFactory.getConfiguration().getEnvironment().getDataSource(),
+        "org/apache/ibatis/submitted/async_mapper/CreateDB.sql");
+  }
+
+  @Test
+  void shouldReturnCompletedFuturesOnRegularSession() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      CompletableFuture<User> user = mapper.getUser(1);
+      assertTrue(user.isDone());
+      assertEquals("User1", user.join().getName());
+      assertNull(mapper.getUser(3).join());
+
+      List<User> users = mapper.getUsers().join();
+      assertEquals(2, users.size());
+      assertEquals("User2", users.get(1).getName());
+
+      Map<Integer, User> usersById = mapper.getUsersById().join();
+      assertEquals(2, usersById.size());
+      assertEquals("User1", usersById.get(1).getName());
+
+      assertNull(mapper.insertUser(new User(3, "User3")).join());
+      assertEquals(Integer.valueOf(1), mapper.insertUserAndCount(new User(4, "User4")).join());
+      assertEquals(4, mapper.getUsers().join().size());
+    }
+  }
+
+  @Test
+  void shouldRunMapperMethodsOnAsyncSession() {
+    AsyncSqlSession asyncSession = sqlSessionFactory.openAsyncSession();
+    Mapper mapper = asyncSession.getMapper(Mapper.class);
+
+    assertEquals("User1", mapper.getUser(1).join().getName());
+    assertEquals(2, mapper.getUsers().join().size());
+    assertEquals("User2", mapper.getUsersById().join().get(2).getName());
+
+    // each call runs in its own session, committed when it completes
+    assertNull(mapper.insertUser(new User(3, "User3")).join());
+    assertEquals(Integer.valueOf(1), mapper.insertUserAndCount(new User(4, "User4")).join());
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      assertEquals(4, sqlSession.getMapper(Mapper.class).getUsers().join().size());
+    }
+  }
+
+  @Test
+  void shouldCompleteExceptionallyWithErrorContextOfStatement() {
+    Mapper mapper = sqlSessionFactory.openAsyncSession().getMapper(Mapper.class);
+    CompletionException e = assertThrows(CompletionException.class, () -> mapper.getMissingUsers().join());
+    assertTrue(e.getCause() instanceof PersistenceException);
+    assertTrue(e.getCause().getMessage().contains("org.apache.ibatis.submitted.async_mapper.Mapper.getMissingUsers"));
+  }
+
+  @Test
+  void shouldPropagateErrorContextOfCallingThread() {
+    AsyncSqlSession asyncSession = sqlSessionFactory.openAsyncSession();
+    ErrorContext.instance().resource("async-mapper-caller");
+    try {
+      String errorContext = asyncSession.execute(sqlSession -> ErrorContext.instance().toString()).join();
+      assertTrue(errorContext.contains("async-mapper-caller"));
+      assertTrue(ErrorContext.instance().toString().contains("async-mapper-caller"));
+    } finally {
+      ErrorContext.instance().reset();
+    }
+    String errorContext = asyncSession.execute(sqlSession -> ErrorContext.instance().toString()).join();
+    assertFalse(errorContext.contains("async-mapper-caller"));
+  }
+
+  @Test
+  void shouldRejectMethodsNotReturningFuturesOnAsyncSession() {
+    Mapper mapper = sqlSessionFactory.openAsyncSession().getMapper(Mapper.class);
+    assertThrows(BindingException.class, mapper::getUsersSynchronously);
+  }
+
+}
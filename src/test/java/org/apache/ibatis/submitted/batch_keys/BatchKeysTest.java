@@ -23,9 +23,12 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
 import java.sql.Statement;
+import java.util.Arrays;
 import java.util.List;
+import java.util.stream.Collectors;
 
 import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.executor.BatchResult;
 import org.apache.ibatis.io.Resources;
 import org.apache.ibatis.session.ExecutorType;
 import org.apache.ibatis.session.SqlSession;
@@ -108,6 +111,107 @@ class BatchKeysTest {
     }
   }
 
+  @Test
+  void testMultiRowInsertJdbc3() {
+    sqlSessionFactory.getConfiguration().setMultiRowInsertRowLimit(2);
+    try (SqlSession sqlSession = sqlSessionFactory.openSession(ExecutorType.BATCH)) {
+      User user1 = new User(null, "Pocoyo");
+      sqlSession.insert("insertIdentity", user1);
+      User user2 = new User(null, "Valentina");
+      sqlSession.insert("insertIdentity", user2);
+      User user3 = new User(null, "Pato");
+      sqlSession.insert("insertIdentity", user3);
+      List<BatchResult> results = sqlSession.flushStatements();
+      assertEquals(2, results.size());
+      assertEquals("insert into users2 (name) values(?), (?)", results.get(0).getSql());
+      assertEquals(2, results.get(0).getParameterObjects().size());
+      assertEquals(2, results.get(0).getUpdateCounts()[0]);
+      assertEquals(1, results.get(1).getUpdateCounts()[0]);
+      assertEquals(Integer.valueOf(0), user1.getId());
+      assertEquals(Integer.valueOf(1), user2.getId());
+      assertEquals(Integer.valueOf(2), user3.getId());
+      sqlSession.commit();
+    }
+
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      List<User> users = sqlSession.selectList("selectIdentity");
+      Assertions.assertEquals(3, users.size());
+    }
+  }
+
+  @Test
+  void testMultiRowInsertWithReusedParameterObject() {
+    sqlSessionFactory.getConfiguration().setMultiRowInsertRowLimit(2);
+    try (SqlSession sqlSession = sqlSessionFactory.openSession(ExecutorType.BATCH)) {
+      User user = new User();
+      for (String name : new String[] { "Pocoyo", "Valentina", "Pato" }) {
+        user.setId(null);
+        user.setName(name);
+        sqlSession.insert("insertIdentity", user);
+      }
+      List<BatchResult> results = sqlSession.flushStatements();
+      assertEquals(2, results.size());
+      assertEquals(2, results.get(0).getUpdateCounts()[0]);
+      sqlSession.commit();
+    }
+
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      List<User> users = sqlSession.selectList("selectIdentity");
+      Assertions.assertEquals(3, users.size());
+      Assertions.assertEquals(Arrays.asList("Pato", "Pocoyo", "Valentina"),
+          users.stream().map(User::getName).sorted().collect(Collectors.toList()));
+    }
+  }
+
+  @Test
+  void testAutoFlushJdbc3() {
+    sqlSessionFactory.getConfiguration().setBatchFlushSize(2);
+    try (SqlSession sqlSession = sqlSessionFactory.openSession(ExecutorType.BATCH)) {
+      User user1 = new User(null, "Pocoyo");
+      sqlSession.insert("insertIdentity", user1);
+      User user2 = new User(null, "Valentina");
+      sqlSession.insert("insertIdentity", user2);
+      assertEquals(Integer.valueOf(0), user1.getId());
+      assertEquals(Integer.valueOf(1), user2.getId());
+      User user3 = new User(null, "Pato");
+      sqlSession.insert("insertIdentity", user3);
+      List<BatchResult> results = sqlSession.flushStatements();
+      assertEquals(1, results.size());
+      assertEquals(3, results.get(0).getUpdateCounts().length);
+      assertEquals(0, results.get(0).getParameterObjects().size());
+      assertEquals(Integer.valueOf(2), user3.getId());
+      sqlSession.commit();
+    }
+
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      List<User> users = sqlSession.selectList("selectIdentity");
+      Assertions.assertEquals(3, users.size());
+    }
+  }
+
+  @Test
+  void testAutoFlushAlternatingStatementsJdbc3() {
+    sqlSessionFactory.getConfiguration().setBatchFlushSize(2);
+    try (SqlSession sqlSession = sqlSessionFactory.openSession(ExecutorType.BATCH)) {
+      for (String name : new String[] { "Pocoyo", "Valentina", "Pato", "Elly", "Loula" }) {
+        sqlSession.insert("insertIdentity", new User(null, name));
+        sqlSession.insert("insertIdentityLowerCase", new User(null, name));
+      }
+      List<BatchResult> results = sqlSession.flushStatements();
+      assertEquals(2, results.size());
+      assertEquals("insertIdentity", results.get(0).getMappedStatement().getId());
+      assertEquals(5, results.get(0).getUpdateCounts().length);
+      assertEquals("insertIdentityLowerCase", results.get(1).getMappedStatement().getId());
+      assertEquals(5, results.get(1).getUpdateCounts().length);
+      sqlSession.commit();
+    }
+
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      List<User> users = sqlSession.selectList("selectIdentity");
+      Assertions.assertEquals(10, users.size());
+    }
+  }
+
   @Test
   void testInsertWithMapper() {
     try (SqlSession sqlSession = sqlSessionFactory.openSession(ExecutorType.BATCH)) {
@@ -24,6 +24,7 @@ import java.util.NoSuchElementException;
 
 import org.apache.ibatis.BaseDataTest;
 import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.cursor.CursorPublisher;
 import org.apache.ibatis.io.Resources;
 import org.apache.ibatis.session.RowBounds;
 import org.apache.ibatis.session.SqlSession;
@@ -468,4 +469,44 @@ class CursorSimpleTest {
       Assertions.assertTrue(cursor.isConsumed());
     }
   }
+
+  @Test
+  void shouldPublishUsersOnDemand() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      List<String> names = new ArrayList<>();
+      boolean[] completed = new boolean[1];
+      CursorPublisher.Subscription[] subscription = new CursorPublisher.Subscription[1];
+      mapper.publishAllUsers().subscribe(new CursorPublisher.Subscriber<User>() {
+        @Override
+        public void onSubscribe(CursorPublisher.Subscription s) {
+          subscription[0] = s;
+        }
+
+        @Override
+        public void onNext(User item) {
+          names.add(item.getName());
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+          Assertions.fail(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+          completed[0] = true;
+        }
+      });
+
+      subscription[0].request(2);
+      Assertions.assertEquals(2, names.size());
+      Assertions.assertFalse(completed[0]);
+
+      subscription[0].request(Long.MAX_VALUE);
+      Assertions.assertEquals(5, names.size());
+      Assertions.assertEquals("User5", names.get(4));
+      Assertions.assertTrue(completed[0]);
+    }
+  }
 }
@@ -18,7 +18,11 @@ drop table users if exists;
 
 create table users (
   id int,
-  name varchar(20)
+  name varchar(20),
+  boss_id int
 );
 
 insert into users (id, name) values(1, 'User1');
+insert into users (id, name, boss_id) values(2, 'User2', 1);
+insert into users (id, name, boss_id) values(3, 'User3', 1);
+insert into users (id, name, boss_id) values(4, 'User4', 2);
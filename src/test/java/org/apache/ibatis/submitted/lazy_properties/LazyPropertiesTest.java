@@ -20,12 +20,15 @@ import static org.junit.jupiter.api.Assertions.*;
 import java.io.Reader;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.List;
 
 import org.apache.ibatis.BaseDataTest;
 import org.apache.ibatis.executor.loader.ProxyFactory;
 import org.apache.ibatis.executor.loader.cglib.CglibProxyFactory;
 import org.apache.ibatis.executor.loader.javassist.JavassistProxyFactory;
 import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.metrics.InMemoryMetricsExporter;
+import org.apache.ibatis.metrics.StatementMetrics;
 import org.apache.ibatis.session.Configuration;
 import org.apache.ibatis.session.SqlSession;
 import org.apache.ibatis.session.SqlSessionFactory;
@@ -176,4 +179,55 @@ class LazyPropertiesTest {
       assertEquals(1, user.setterCounter);
     }
   }
+
+  @Test
+  void shouldLoadLazyPropertiesOfSameNestedSelectTogether() {
+    sqlSessionFactory.getConfiguration().setAggressiveLazyLoading(false);
+    sqlSessionFactory.getConfiguration().setLazyLoadBatchSize(10);
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      List<User> users = mapper.getUsersWithLazyBoss();
+      assertEquals(4, users.size());
+      assertEquals("User1", users.get(1).getLazy1().getName());
+      // the other bosses were selected by the same query
+      mapper.deleteUsers();
+      assertNull(users.get(0).getLazy1());
+      assertEquals("User1", users.get(2).getLazy1().getName());
+      assertEquals("User2", users.get(3).getLazy1().getName());
+      assertEquals(1, users.get(3).setterCounter);
+    }
+  }
+
+  @Test
+  void shouldRecordMetricsOfLazyLoadingStatements() {
+    Configuration configuration = sqlSessionFactory.getConfiguration();
+    configuration.setAggressiveLazyLoading(false);
+    configuration.setStatementMetricsEnabled(true);
+    InMemoryMetricsExporter exporter = new InMemoryMetricsExporter();
+    configuration.getStatementMetricsRegistry().addExporter(exporter);
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      List<User> users = mapper.getUsersWithLazyBoss();
+      assertEquals(4, mapper.getUsersWithLazyBoss().size());
+      for (int i = 1; i < 4; i++) {
+        assertNotNull(users.get(i).getLazy1());
+      }
+    }
+    configuration.getStatementMetricsRegistry().export();
+
+    StatementMetrics usersMetrics = exporter.getMetrics("org.apache.ibatis.submitted.lazy_properties.Mapper.getUsersWithLazyBoss");
+    assertEquals(1, usersMetrics.getExecutions());
+    assertEquals(4, usersMetrics.getRows());
+    assertEquals(1, usersMetrics.getLocalCacheHits());
+    assertEquals(1, usersMetrics.getLocalCacheMisses());
+    assertEquals(1, usersMetrics.getLatency(StatementMetrics.Phase.PREPARE).getCount());
+    assertEquals(1, usersMetrics.getLatency(StatementMetrics.Phase.MAPPING).getCount());
+    assertEquals(0, usersMetrics.getLazyLoads());
+
+    StatementMetrics bossMetrics = exporter.getMetrics("org.apache.ibatis.submitted.lazy_properties.Mapper.getUserById");
+    assertEquals(3, bossMetrics.getLazyLoads());
+    assertEquals(2, bossMetrics.getExecutions());
+    assertEquals(2, bossMetrics.getRows());
+    assertEquals(1, bossMetrics.getLocalCacheHits());
+  }
 }
@@ -17,6 +17,7 @@ package org.apache.ibatis.submitted.lazy_properties;
 
 import java.util.List;
 
+import org.apache.ibatis.annotations.Delete;
 import org.apache.ibatis.annotations.ResultMap;
 import org.apache.ibatis.annotations.Select;
 
@@ -34,4 +35,9 @@ public interface Mapper {
   @ResultMap("user")
   @Select("select 13 id, 'lazy3' name from (values(0))")
   List<User> getLazy3();
+
+  List<User> getUsersWithLazyBoss();
+
+  @Delete("delete from users")
+  void deleteUsers();
 }
@@ -0,0 +1,121 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.slow_statement;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.Reader;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.metrics.SlowStatementEvent;
+import org.apache.ibatis.metrics.SlowStatementLog;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class SlowStatementTest {
+
+  private static SqlSessionFactory sqlSessionFactory;
+
+  @BeforeAll
+  static void setUp() throws Exception {
+    try (Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/slow_statement/mybatis-config.xml")) {
+      sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    }
+    // slowStatementThreshold is left to 0, only the statements with a slowThreshold are checked
+    sqlSessionFactory.getConfiguration().setParameterRedactor(
+        (ms, parameterMapping, value) -> "password".equals(parameterMapping.getProperty()) ? "******" : value);
+
+    BaseDataTest.runScript(sqlSessionFactory.getConfiguration().getEnvironment().getDataSource(),
+        "org/apache/ibatis/submitted/slow_statement/CreateDB.sql");
+  }
+
+  @BeforeEach
+  void clearLog() {
+    sqlSessionFactory.getConfiguration().getSlowStatementLog().clear();
+  }
+
+  @Test
+  void shouldLogSlowQueryWithRedactedParameters() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      assertEquals(3, mapper.selectUsers(3, "secret").size());
+    }
+    List<SlowStatementEvent> events = sqlSessionFactory.getConfiguration().getSlowStatementLog().getEvents();
+    assertEquals(1, events.size());
+    SlowStatementEvent event = events.get(0);
+    assertEquals("org.apache.ibatis.submitted.slow_statement.Mapper.selectUsers", event.getStatementId());
+    assertTrue(event.getSql().startsWith("select * from users where id <= ?"));
+    assertEquals(Arrays.asList(3, "******"), event.getParameters());
+    assertEquals(3, event.getRows());
+    assertEquals(2, event.getFetchSize());
+  }
+
+  @Test
+  void shouldCountMappingTimeApartFromDriverTime() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      sqlSession.getMapper(Mapper.class).selectUsers(3, "secret");
+    }
+    SlowStatementEvent event = sqlSessionFactory.getConfiguration().getSlowStatementLog().getEvents().get(0);
+    // each of the 3 rows sleeps in User.setName() while being mapped
+    long mappingNanos = TimeUnit.MILLISECONDS.toNanos(3 * User.SET_NAME_MILLIS);
+    assertTrue(event.getResultHandlingNanos() >= mappingNanos);
+    assertTrue(event.getDriverNanos() >= 0);
+    assertTrue(event.getDriverNanos() < event.getElapsedNanos() - mappingNanos);
+    assertEquals(event.getElapsedNanos(), event.getDriverNanos() + event.getResultHandlingNanos());
+  }
+
+  @Test
+  void shouldLogSlowUpdateWithUpdatedRows() {
+    User user = new User();
+    user.setId(4);
+    user.setName("User4");
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      // the selectKey executed after the update sleeps in User.setName()
+      assertEquals(1, sqlSession.getMapper(Mapper.class).updateUser(user));
+      sqlSession.rollback(true);
+    }
+    List<SlowStatementEvent> events = sqlSessionFactory.getConfiguration().getSlowStatementLog().getEvents();
+    assertEquals(1, events.size());
+    SlowStatementEvent event = events.get(0);
+    assertEquals("org.apache.ibatis.submitted.slow_statement.Mapper.updateUser", event.getStatementId());
+    assertEquals(Arrays.asList("User4", 4), event.getParameters());
+    assertEquals(1, event.getRows());
+    assertTrue(event.getElapsedMillis() >= User.SET_NAME_MILLIS);
+  }
+
+  @Test
+  void shouldUseGlobalThresholdWithoutSlowThreshold() {
+    Configuration configuration = sqlSessionFactory.getConfiguration();
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      // slow because of User.setName(), but no threshold applies to this statement
+      assertEquals("User1", sqlSession.getMapper(Mapper.class).selectUser(1).getName());
+    }
+    SlowStatementLog log = configuration.getSlowStatementLog();
+    assertTrue(log.getEvents().isEmpty());
+    assertEquals(0, log.getTotalCount());
+  }
+
+}